@@ -0,0 +1,108 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.daniellavoie.ksqldb.client.api.query.QueryRequest;
+import dev.daniellavoie.ksqldb.client.model.QueryRow;
+import dev.daniellavoie.ksqldb.standin.Chunking;
+import dev.daniellavoie.ksqldb.standin.KsqlDBStandInServer;
+
+/**
+ * Measures the rows per second received by {@link KsqlDBClient} from an
+ * in-process {@link KsqlDBStandInServer}, over the network stack and the
+ * decoders.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EndToEndBenchmark {
+	private static final int PUSH_ROWS = 10_000;
+	private static final int PULL_ROWS = 100;
+
+	@Param({ "8", "64" })
+	private int rowWidth;
+
+	@Param({ "row", "16384" })
+	private String chunking;
+
+	private KsqlDBStandInServer server;
+	private KsqlDBClient client;
+	private QueryRequest pushQuery;
+	private QueryRequest pullQuery;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		server = KsqlDBStandInServer.builder().rowWidth(rowWidth).pullQueryRows(PULL_ROWS)
+				.chunking("row".equals(chunking) ? Chunking.row() : Chunking.fixed(Integer.parseInt(chunking)))
+				.build();
+
+		client = KsqlDBClient.builder().url(server.getHttpUrl()).webSocketUrl(server.getWebSocketUrl()).build();
+
+		pushQuery = new QueryRequest("SELECT * FROM STAND_IN_STREAM EMIT CHANGES;");
+		pullQuery = new QueryRequest("SELECT * FROM STAND_IN_TABLE WHERE ROWKEY='key-42';");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		server.dispose();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PUSH_ROWS)
+	public QueryRow pushQuery() {
+		return client.pushQuery(pushQuery).take(PUSH_ROWS).blockLast();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PULL_ROWS)
+	public QueryRow pullQuery() {
+		return client.pullQuery(pullQuery).blockLast();
+	}
+
+	/**
+	 * Streams the push query from the /query endpoint in columnar batches.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(PUSH_ROWS)
+	public long pushQueryBatches() {
+		return client.pushQueryBatches(pushQuery).scan(0L, (rows, batch) -> rows + batch.size())
+				.takeUntil(rows -> rows >= PUSH_ROWS).blockLast();
+	}
+}
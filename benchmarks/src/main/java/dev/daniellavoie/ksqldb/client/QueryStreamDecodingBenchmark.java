@@ -0,0 +1,155 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.daniellavoie.ksqldb.client.api.query.QueryResponse;
+import dev.daniellavoie.ksqldb.client.benchmarks.Payloads;
+import dev.daniellavoie.ksqldb.client.benchmarks.Rows;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+
+/**
+ * Measures the decoding of a streamed /query response, from the HTTP chunks to
+ * the {@link QueryResponse}, {@link TypedRow} or bound object emitted for every
+ * element, or the {@link RowBatch} emitted for every chunk. The {@code row} chunking
+ * sends one element per chunk like ksqlDB does, the numeric chunkings slice the
+ * response in fixed size chunks that split and coalesce rows.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryStreamDecodingBenchmark {
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().findAndRegisterModules();
+
+	@Param({ "narrow", "wide", "nested" })
+	private String payload;
+
+	@Param({ "row", "1024", "16384" })
+	private String chunking;
+
+	private List<ByteBuf> chunks;
+
+	@Setup
+	public void setup() {
+		byte[] bytes = Payloads.load("query-" + payload);
+
+		chunks = new ArrayList<>();
+		if (chunking.equals("row")) {
+			int start = 0;
+			for (int index = 0; index < bytes.length; ++index) {
+				if (bytes[index] == '\n') {
+					chunks.add(chunk(bytes, start, index + 1));
+					start = index + 1;
+				}
+			}
+			chunks.add(chunk(bytes, start, bytes.length));
+		} else {
+			int size = Integer.parseInt(chunking);
+			for (int start = 0; start < bytes.length; start += size) {
+				chunks.add(chunk(bytes, start, Math.min(bytes.length, start + size)));
+			}
+		}
+	}
+
+	private static ByteBuf chunk(byte[] bytes, int start, int end) {
+		return PooledByteBufAllocator.DEFAULT.directBuffer(end - start).writeBytes(bytes, start, end - start);
+	}
+
+	@TearDown
+	public void tearDown() {
+		chunks.forEach(ByteBuf::release);
+	}
+
+	@Benchmark
+	public void decode(Blackhole blackhole) {
+		JsonStreamDecoder<QueryResponse> decoder = new JsonStreamDecoder<>(OBJECT_MAPPER, QueryResponse.class);
+
+		for (ByteBuf chunk : chunks) {
+			for (QueryResponse response : decoder.decode(chunk.duplicate())) {
+				blackhole.consume(response);
+			}
+		}
+
+		decoder.complete();
+	}
+
+	@Benchmark
+	public void decodeTyped(Blackhole blackhole) {
+		JsonStreamDecoder<TypedRow> decoder = new JsonStreamDecoder<>(OBJECT_MAPPER, new TypedRowDecoder());
+
+		for (ByteBuf chunk : chunks) {
+			for (TypedRow row : decoder.decode(chunk.duplicate())) {
+				blackhole.consume(row);
+			}
+		}
+
+		decoder.complete();
+	}
+
+	@Benchmark
+	public void decodeObjects(Blackhole blackhole) {
+		JsonStreamDecoder<?> decoder = new JsonStreamDecoder<>(OBJECT_MAPPER,
+				new ObjectRowDecoder<>(ObjectBinding.of(Rows.type(payload)), false));
+
+		for (ByteBuf chunk : chunks) {
+			for (Object row : decoder.decode(chunk.duplicate())) {
+				blackhole.consume(row);
+			}
+		}
+
+		decoder.complete();
+	}
+
+	@Benchmark
+	public void decodeBatches(Blackhole blackhole) {
+		JsonStreamDecoder<RowBatch> decoder = new JsonStreamDecoder<>(OBJECT_MAPPER, new RowBatchDecoder());
+
+		for (ByteBuf chunk : chunks) {
+			for (RowBatch batch : decoder.decode(chunk.duplicate())) {
+				blackhole.consume(batch);
+			}
+		}
+
+		decoder.complete();
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.daniellavoie.ksqldb.client.api.ksql.KsqlRequest;
+import dev.daniellavoie.ksqldb.client.api.query.PreparedQueryRequest;
+import dev.daniellavoie.ksqldb.client.api.query.QueryRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+
+/**
+ * Measures the serialization of request bodies, from the request object to the
+ * buffer written on the connection.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestEncodingBenchmark {
+	private static final ByteBufAllocator ALLOCATOR = PooledByteBufAllocator.DEFAULT;
+
+	private KsqlRequest ksqlRequest;
+	private QueryRequest queryRequest;
+	private PreparedQueryRequest preparedQueryRequest;
+
+	@Setup
+	public void setup() {
+		Map<String, String> streamsProperties = new HashMap<>();
+		streamsProperties.put("ksql.streams.auto.offset.reset", "earliest");
+		streamsProperties.put("ksql.streams.cache.max.bytes.buffering", "0");
+
+		ksqlRequest = new KsqlRequest("CREATE TABLE KAFKA_JAVA_CLIENT_TRANSACTION_STATS AS SELECT account, "
+				+ "count(1) transactionCount FROM KAFKA_JAVA_CLIENT_TRANSACTION_STREAM GROUP BY account;",
+				streamsProperties, 42L);
+
+		String pullQuery = "SELECT * FROM KAFKA_JAVA_CLIENT_TRANSACTION_STATS WHERE ROWKEY='account-00042';";
+		queryRequest = new QueryRequest(pullQuery, streamsProperties);
+		preparedQueryRequest = new PreparedQueryRequest(pullQuery, streamsProperties);
+	}
+
+	@Benchmark
+	public String ksqlRequestString() {
+		return JsonUtil.writeValueAsString(ksqlRequest);
+	}
+
+	/**
+	 * Serialization to a String then encoding to UTF-8, as done before request
+	 * bodies were written straight into the connection buffer.
+	 */
+	@Benchmark
+	public int queryRequestString() {
+		ByteBuf buffer = ByteBufUtil.writeUtf8(ALLOCATOR, JsonUtil.writeValueAsString(queryRequest));
+		try {
+			return buffer.readableBytes();
+		} finally {
+			buffer.release();
+		}
+	}
+
+	@Benchmark
+	public int ksqlRequestByteBuf() throws IOException {
+		return release(ReactorWebClient.encode(ALLOCATOR, ksqlRequest));
+	}
+
+	@Benchmark
+	public int queryRequestByteBuf() throws IOException {
+		return release(ReactorWebClient.encode(ALLOCATOR, queryRequest));
+	}
+
+	@Benchmark
+	public int preparedQueryRequest() throws IOException {
+		return release(ReactorWebClient.encode(ALLOCATOR, preparedQueryRequest));
+	}
+
+	private static int release(ByteBuf buffer) {
+		try {
+			return buffer.readableBytes();
+		} finally {
+			buffer.release();
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.daniellavoie.ksqldb.client.api.ksql.DescribeResponse;
+import dev.daniellavoie.ksqldb.client.api.ksql.QueriesResponse;
+import dev.daniellavoie.ksqldb.client.benchmarks.Payloads;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+
+/**
+ * Compares the decoding of an aggregated /ksql response copied into a String
+ * and parsed twice on the error path with the single pass decoding from the
+ * response {@link ByteBuf}. Run with {@code -prof gc} to compare the bytes
+ * allocated per response.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseDecodingBenchmark {
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().findAndRegisterModules();
+
+	@Param({ "describe-extended", "show-queries", "statement-error" })
+	private String payload;
+
+	private ByteBuf content;
+	private Type returnType;
+	private JsonResponseDecoder decoder;
+
+	@Setup
+	public void setup() {
+		byte[] bytes = Payloads.load(payload);
+
+		content = PooledByteBufAllocator.DEFAULT.directBuffer(bytes.length).writeBytes(bytes);
+		returnType = payload.equals("show-queries") ? QueriesResponse[].class : DescribeResponse[].class;
+		decoder = new JsonResponseDecoder(OBJECT_MAPPER);
+	}
+
+	@TearDown
+	public void tearDown() {
+		content.release();
+	}
+
+	@Benchmark
+	public Object string() {
+		String value = content.toString(StandardCharsets.UTF_8);
+
+		try {
+			return OBJECT_MAPPER.readValue(value, OBJECT_MAPPER.getTypeFactory().constructType(returnType));
+		} catch (IOException e) {
+			try {
+				return new KsqlDBServerException(OBJECT_MAPPER.readValue(value, KsqlDBServerError.class));
+			} catch (IOException e2) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	@Benchmark
+	public Object byteBuf() {
+		try {
+			return decoder.decode(content.duplicate(), returnType);
+		} catch (KsqlDBServerException e) {
+			return e;
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import dev.daniellavoie.ksqldb.client.api.query.QueryResponse;
+import dev.daniellavoie.ksqldb.client.api.query.Row;
+import dev.daniellavoie.ksqldb.client.benchmarks.Payloads;
+import dev.daniellavoie.ksqldb.client.model.QueryRow;
+import reactor.core.publisher.Flux;
+
+/**
+ * Measures the deserialization of individual rows, as received from a /query
+ * response element or a /ws/query frame.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowDecodingBenchmark {
+	@Param({ "narrow", "wide", "nested" })
+	private String payload;
+
+	private List<String> frames;
+	private String queryResponse;
+	private String row;
+
+	@Setup
+	public void setup() {
+		frames = Payloads.elements("query-" + payload);
+
+		queryResponse = frames.get(1);
+		row = JsonUtil.writeValueAsString(JsonUtil.readValue(queryResponse, QueryResponse.class).getRow());
+	}
+
+	@Benchmark
+	public QueryResponse queryResponse() {
+		return JsonUtil.readValue(queryResponse, QueryResponse.class);
+	}
+
+	@Benchmark
+	public Row row() {
+		return JsonUtil.readValue(row, Row.class);
+	}
+
+	@Benchmark
+	public QueryRow queryRow() {
+		return JsonUtil.readValue(queryResponse, QueryRow.class);
+	}
+
+	/**
+	 * Maps a full WebSocket session, one header frame followed by every row
+	 * frame of the payload.
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void webSocketSession(Blackhole blackhole) {
+		WebSocketQueryResponseMapper mapper = new WebSocketQueryResponseMapper();
+
+		for (String frame : frames) {
+			blackhole.consume(mapper.apply(frame).block());
+		}
+	}
+
+	/**
+	 * Maps the same session to {@link TypedRow}. The payload header is sent as
+	 * the first frame in place of the WebSocket field list, both describe the
+	 * same schema.
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void webSocketTypedSession(Blackhole blackhole) {
+		Flux.fromIterable(frames).handle(new WebSocketRowMapper<>(new TypedRowDecoder(true)))
+				.subscribe(blackhole::consume);
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Loads the recorded ksqlDB payloads used by the benchmarks.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public abstract class Payloads {
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+			.enable(JsonParser.Feature.ALLOW_TRAILING_COMMA);
+
+	public static byte[] load(String name) {
+		try (InputStream inputStream = Payloads.class.getResourceAsStream("/payloads/" + name + ".json")) {
+			if (inputStream == null) {
+				throw new IllegalArgumentException("Unknown payload " + name + ".");
+			}
+
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = inputStream.read(buffer)) != -1) {
+				outputStream.write(buffer, 0, read);
+			}
+
+			return outputStream.toByteArray();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Splits a recorded JSON array in its elements, the way they are sent as
+	 * individual WebSocket frames.
+	 * 
+	 * @param name name of the payload
+	 * @return every element of the array, serialized as JSON
+	 */
+	public static List<String> elements(String name) {
+		try {
+			List<String> elements = new ArrayList<>();
+			for (JsonNode element : OBJECT_MAPPER.readTree(load(name))) {
+				elements.add(OBJECT_MAPPER.writeValueAsString(element));
+			}
+
+			return elements;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Classes the rows of the recorded payloads are bound to. Each class uses a
+ * different binding: fields, setters or a {@link JsonCreator} constructor.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public abstract class Rows {
+	public static Class<?> type(String payload) {
+		switch (payload) {
+		case "narrow":
+			return Narrow.class;
+		case "wide":
+			return Wide.class;
+		case "nested":
+			return Nested.class;
+		default:
+			throw new IllegalArgumentException("Unknown payload " + payload + ".");
+		}
+	}
+
+	public static class Narrow {
+		private String rowKey;
+		private String account;
+		private long transactionCount;
+
+		public String getRowKey() {
+			return rowKey;
+		}
+
+		public String getAccount() {
+			return account;
+		}
+
+		public long getTransactionCount() {
+			return transactionCount;
+		}
+	}
+
+	/**
+	 * Binds the first group of columns of the wide payload, the other columns
+	 * are ignored.
+	 */
+	public static class Wide {
+		private long rowTime;
+		private String rowKey;
+		private String account0;
+		private double amount0;
+		private long count0;
+		private boolean flag0;
+
+		public long getRowTime() {
+			return rowTime;
+		}
+
+		public void setRowTime(long rowTime) {
+			this.rowTime = rowTime;
+		}
+
+		public String getRowKey() {
+			return rowKey;
+		}
+
+		public void setRowKey(String rowKey) {
+			this.rowKey = rowKey;
+		}
+
+		public String getAccount0() {
+			return account0;
+		}
+
+		public void setAccount0(String account0) {
+			this.account0 = account0;
+		}
+
+		public double getAmount0() {
+			return amount0;
+		}
+
+		public void setAmount0(double amount0) {
+			this.amount0 = amount0;
+		}
+
+		public long getCount0() {
+			return count0;
+		}
+
+		public void setCount0(long count0) {
+			this.count0 = count0;
+		}
+
+		public boolean isFlag0() {
+			return flag0;
+		}
+
+		public void setFlag0(boolean flag0) {
+			this.flag0 = flag0;
+		}
+	}
+
+	public static class Nested {
+		private final long rowTime;
+		private final String account;
+		private final BigDecimal balance;
+		private final List<Integer> timestamp;
+		private final Map<String, String> tags;
+		private final Address address;
+		private final List<BigDecimal> amounts;
+
+		@JsonCreator
+		public Nested(@JsonProperty("ROWTIME") long rowTime, @JsonProperty("ACCOUNT") String account,
+				@JsonProperty("BALANCE") BigDecimal balance, @JsonProperty("TIMESTAMP") List<Integer> timestamp,
+				@JsonProperty("TAGS") Map<String, String> tags, @JsonProperty("ADDRESS") Address address,
+				@JsonProperty("AMOUNTS") List<BigDecimal> amounts) {
+			this.rowTime = rowTime;
+			this.account = account;
+			this.balance = balance;
+			this.timestamp = timestamp;
+			this.tags = tags;
+			this.address = address;
+			this.amounts = amounts;
+		}
+
+		public long getRowTime() {
+			return rowTime;
+		}
+
+		public String getAccount() {
+			return account;
+		}
+
+		public BigDecimal getBalance() {
+			return balance;
+		}
+
+		public List<Integer> getTimestamp() {
+			return timestamp;
+		}
+
+		public Map<String, String> getTags() {
+			return tags;
+		}
+
+		public Address getAddress() {
+			return address;
+		}
+
+		public List<BigDecimal> getAmounts() {
+			return amounts;
+		}
+	}
+
+	public static class Address {
+		private String street;
+		private String city;
+		private String zip;
+		private Geo geo;
+
+		public String getStreet() {
+			return street;
+		}
+
+		public String getCity() {
+			return city;
+		}
+
+		public String getZip() {
+			return zip;
+		}
+
+		public Geo getGeo() {
+			return geo;
+		}
+	}
+
+	public static class Geo {
+		private double lat;
+		private double lon;
+
+		public double getLat() {
+			return lat;
+		}
+
+		public double getLon() {
+			return lon;
+		}
+	}
+}
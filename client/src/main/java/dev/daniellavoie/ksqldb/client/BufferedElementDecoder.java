@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Copies the tokens of an element in a {@link TokenBuffer} and binds them with
+ * an {@link ObjectReader} once the element is complete.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ *
+ * @param <T> Type of the decoded elements.
+ */
+class BufferedElementDecoder<T> implements JsonElementDecoder<T> {
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().findAndRegisterModules();
+
+	private final ObjectMapper objectMapper;
+	private final ObjectReader elementReader;
+
+	private TokenBuffer element;
+
+	BufferedElementDecoder(ObjectMapper objectMapper, Class<T> elementType) {
+		this(objectMapper, objectMapper.readerFor(elementType));
+	}
+
+	/**
+	 * Binds the elements with a default object mapper, for web clients which do
+	 * not provide their own.
+	 */
+	BufferedElementDecoder(TypeReference<T> elementType) {
+		this(OBJECT_MAPPER, elementType);
+	}
+
+	BufferedElementDecoder(ObjectMapper objectMapper, TypeReference<T> elementType) {
+		this(objectMapper, objectMapper.readerFor(elementType));
+	}
+
+	private BufferedElementDecoder(ObjectMapper objectMapper, ObjectReader elementReader) {
+		this.objectMapper = objectMapper;
+		this.elementReader = elementReader;
+	}
+
+	@Override
+	public void onToken(JsonParser parser, JsonToken token) throws IOException {
+		if (element == null) {
+			element = new TokenBuffer(objectMapper, false);
+		}
+
+		element.copyCurrentEvent(parser);
+	}
+
+	@Override
+	public T complete() throws IOException {
+		TokenBuffer completed = element;
+		element = null;
+
+		try (JsonParser elementParser = completed.asParser(objectMapper)) {
+			return elementReader.readValue(elementParser);
+		}
+	}
+}
@@ -0,0 +1,474 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+
+/**
+ * Stops sending requests to a ksqlDB node that fails or answers too slowly, so
+ * callers do not pile up waiting for a wedged node. Every node has its own
+ * circuit which records the outcome of the last requests in a sliding window. A
+ * request fails when it raises a connection error or a 5xx ksqlDB error before
+ * any response, and is slow when its first response takes longer than the slow
+ * call duration. Push queries are never slow, their outcome is decided once
+ * their session is established.
+ * <p>
+ * The circuit opens when the failure rate or the slow call rate of the window
+ * reaches its threshold. An open circuit rejects the requests with a
+ * {@link CircuitBreakerOpenException} and its node is skipped by the load
+ * balancing. Once the open duration elapsed the circuit is half open and lets
+ * a few trial requests through, which outcome closes the circuit or opens it
+ * again.
+ * </p>
+ * <p>
+ * A single instance can be shared by multiple clients, the circuit of a node is
+ * identified by its base URL.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class CircuitBreaker {
+	private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+	private static final byte FAILED = 1;
+	private static final byte SLOW = 2;
+
+	private final int windowSize;
+	private final int minimumCalls;
+	private final double failureRateThreshold;
+	private final double slowCallRateThreshold;
+	private final long slowCallNanos;
+	private final long openNanos;
+	private final int trialCalls;
+
+	private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+	private CircuitBreaker(Builder builder) {
+		this.windowSize = builder.windowSize;
+		this.minimumCalls = Math.min(builder.minimumCalls, builder.windowSize);
+		this.failureRateThreshold = builder.failureRateThreshold;
+		this.slowCallRateThreshold = builder.slowCallRateThreshold;
+		this.slowCallNanos = builder.slowCallDuration.toNanos();
+		this.openNanos = builder.openDuration.toNanos();
+		this.trialCalls = Math.min(builder.trialCalls, builder.windowSize);
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @param url base URL of a node
+	 * @return the state of the circuit of the node, closed if it did not receive
+	 *         any request yet.
+	 */
+	public State getState(String url) {
+		Circuit circuit = circuits.get(url);
+
+		return circuit != null ? circuit.getState() : State.CLOSED;
+	}
+
+	/**
+	 * Takes a snapshot of the counters of every circuit.
+	 *
+	 * @return the current statistics of the circuits.
+	 */
+	public List<CircuitBreakerStats> getStats() {
+		return circuits.values().stream().map(Circuit::getStats).collect(Collectors.toList());
+	}
+
+	/**
+	 * @return true if a request sent to the node would not be rejected.
+	 */
+	boolean isAvailable(KsqlDBNode node) {
+		Circuit circuit = circuits.get(node.getUrl());
+
+		return circuit == null || circuit.isAvailable(System.nanoTime());
+	}
+
+	<T> Flux<T> apply(KsqlDBNode node, Flux<T> request) {
+		return apply(node, request, true);
+	}
+
+	/**
+	 * @param timed false for push queries, which outcome is decided once their
+	 *              session is established and which may wait for their first row
+	 *              indefinitely. They are never recorded as slow and their
+	 *              cancellation before the first signal is not recorded.
+	 */
+	<T> Flux<T> apply(KsqlDBNode node, Flux<T> request, boolean timed) {
+		Circuit circuit = circuit(node);
+
+		return Flux.defer(() -> {
+			Call call = circuit.call(timed);
+
+			return call == null ? Flux.error(circuit.rejection())
+					: request.doOnEach(call::onSignal).doOnCancel(call::onCancel);
+		});
+	}
+
+	<T> Mono<T> apply(KsqlDBNode node, Mono<T> request) {
+		Circuit circuit = circuit(node);
+
+		return Mono.defer(() -> {
+			Call call = circuit.call(true);
+
+			return call == null ? Mono.error(circuit.rejection())
+					: request.doOnEach(call::onSignal).doOnCancel(call::onCancel);
+		});
+	}
+
+	private Circuit circuit(KsqlDBNode node) {
+		return circuits.computeIfAbsent(node.getUrl(), Circuit::new);
+	}
+
+	/**
+	 * State of the circuit of a node.
+	 */
+	public enum State {
+		/**
+		 * Requests are sent to the node.
+		 */
+		CLOSED,
+
+		/**
+		 * Requests are rejected until the open duration elapsed.
+		 */
+		OPEN,
+
+		/**
+		 * A limited number of trial requests are sent to the node.
+		 */
+		HALF_OPEN
+	}
+
+	private class Circuit {
+		private final String url;
+		private final byte[] outcomes = new byte[windowSize];
+
+		private State state = State.CLOSED;
+		private long generation;
+		private long openedNanos;
+
+		private int index;
+		private int calls;
+		private int failures;
+		private int slowCalls;
+		private int permits;
+
+		private long rejected;
+		private long opened;
+		private long halfOpened;
+		private long closed;
+
+		private Circuit(String url) {
+			this.url = url;
+		}
+
+		private synchronized State getState() {
+			return state;
+		}
+
+		private synchronized CircuitBreakerStats getStats() {
+			return new CircuitBreakerStats(url, state, rate(failures), rate(slowCalls), calls, rejected, opened,
+					halfOpened, closed);
+		}
+
+		private synchronized boolean isAvailable(long now) {
+			switch (state) {
+			case OPEN:
+				return now - openedNanos >= openNanos;
+			case HALF_OPEN:
+				return permits > 0;
+			default:
+				return true;
+			}
+		}
+
+		/**
+		 * @return a call to record the outcome of the request, or null if the
+		 *         request is rejected.
+		 */
+		private synchronized Call call(boolean timed) {
+			if (state == State.OPEN && System.nanoTime() - openedNanos >= openNanos) {
+				transition(State.HALF_OPEN);
+				permits = trialCalls;
+
+				LOGGER.info("Circuit of ksqlDB node {} is half open, sending {} trial requests.", url, trialCalls);
+			}
+
+			if (state == State.HALF_OPEN && permits > 0) {
+				--permits;
+
+				return new Call(this, generation, timed);
+			} else if (state == State.CLOSED) {
+				return new Call(this, generation, timed);
+			}
+
+			++rejected;
+
+			return null;
+		}
+
+		private CircuitBreakerOpenException rejection() {
+			return new CircuitBreakerOpenException(url);
+		}
+
+		/**
+		 * Outcomes of requests sent before the last transition are ignored.
+		 */
+		private synchronized void record(long callGeneration, byte outcome) {
+			if (callGeneration != generation) {
+				return;
+			}
+
+			if (calls == windowSize) {
+				remove(outcomes[index]);
+			} else {
+				++calls;
+			}
+
+			outcomes[index] = outcome;
+			index = (index + 1) % windowSize;
+			failures += outcome & FAILED;
+			slowCalls += (outcome & SLOW) >> 1;
+
+			if (state == State.HALF_OPEN) {
+				if (calls == trialCalls) {
+					if (exceedsThresholds()) {
+						open();
+					} else {
+						transition(State.CLOSED);
+
+						LOGGER.info("Closed the circuit of ksqlDB node {}.", url);
+					}
+				}
+			} else if (calls >= minimumCalls && exceedsThresholds()) {
+				open();
+			}
+		}
+
+		/**
+		 * Gives back the permit of a trial request cancelled before any outcome.
+		 */
+		private synchronized void release(long callGeneration) {
+			if (callGeneration == generation && state == State.HALF_OPEN) {
+				++permits;
+			}
+		}
+
+		private void remove(byte outcome) {
+			failures -= outcome & FAILED;
+			slowCalls -= (outcome & SLOW) >> 1;
+		}
+
+		private boolean exceedsThresholds() {
+			return rate(failures) >= failureRateThreshold || rate(slowCalls) >= slowCallRateThreshold;
+		}
+
+		private double rate(int count) {
+			return calls == 0 ? 0 : count * 100.0 / calls;
+		}
+
+		private void open() {
+			LOGGER.warn("Opened the circuit of ksqlDB node {}: {}% of failures and {}% of slow calls.", url,
+					rate(failures), rate(slowCalls));
+
+			transition(State.OPEN);
+			openedNanos = System.nanoTime();
+		}
+
+		private void transition(State target) {
+			state = target;
+			++generation;
+			index = 0;
+			calls = 0;
+			failures = 0;
+			slowCalls = 0;
+			permits = 0;
+
+			if (target == State.OPEN) {
+				++opened;
+			} else if (target == State.HALF_OPEN) {
+				++halfOpened;
+			} else {
+				++closed;
+			}
+		}
+	}
+
+	/**
+	 * Outcome of a single subscription to a request, decided by its first signal.
+	 * The first signal may race with a cancellation, only one of them records the
+	 * outcome.
+	 */
+	private class Call {
+		private final Circuit circuit;
+		private final long generation;
+		private final boolean timed;
+		private final long startNanos = System.nanoTime();
+		private final AtomicBoolean done = new AtomicBoolean();
+
+		private Call(Circuit circuit, long generation, boolean timed) {
+			this.circuit = circuit;
+			this.generation = generation;
+			this.timed = timed;
+		}
+
+		private void onSignal(Signal<?> signal) {
+			if (signal.isOnSubscribe() || !done.compareAndSet(false, true)) {
+				return;
+			}
+
+			byte outcome = isSlow() ? SLOW : 0;
+			if (signal.isOnError() && RetryPolicy.isTransient(signal.getThrowable())) {
+				outcome |= FAILED;
+			}
+
+			circuit.record(generation, outcome);
+		}
+
+		private void onCancel() {
+			if (!done.compareAndSet(false, true)) {
+				return;
+			}
+
+			// A request cancelled after the slow call duration counts as slow, callers
+			// giving up on a wedged node must open its circuit.
+			if (isSlow()) {
+				circuit.record(generation, SLOW);
+			} else {
+				circuit.release(generation);
+			}
+		}
+
+		private boolean isSlow() {
+			return timed && System.nanoTime() - startNanos >= slowCallNanos;
+		}
+	}
+
+	public static class Builder {
+		private int windowSize = 100;
+		private int minimumCalls = 20;
+		private double failureRateThreshold = 50;
+		private double slowCallRateThreshold = 80;
+		private Duration slowCallDuration = Duration.ofSeconds(2);
+		private Duration openDuration = Duration.ofSeconds(10);
+		private int trialCalls = 5;
+
+		private Builder() {
+
+		}
+
+		/**
+		 * Number of latest requests of a node which outcomes are recorded, and
+		 * minimum number of them before the circuit can open. Defaults to 100 and
+		 * 20.
+		 *
+		 * @param windowSize   number of requests recorded
+		 * @param minimumCalls number of requests recorded before the rates are
+		 *                     evaluated
+		 * @return this builder
+		 */
+		public Builder window(int windowSize, int minimumCalls) {
+			if (windowSize < 1 || minimumCalls < 1) {
+				throw new IllegalArgumentException("windowSize and minimumCalls must be positive.");
+			}
+
+			this.windowSize = windowSize;
+			this.minimumCalls = minimumCalls;
+			return this;
+		}
+
+		/**
+		 * Percentage of failed requests that opens the circuit. Defaults to 50.
+		 *
+		 * @param failureRateThreshold percentage between 0 and 100
+		 * @return this builder
+		 */
+		public Builder failureRateThreshold(double failureRateThreshold) {
+			if (failureRateThreshold <= 0 || failureRateThreshold > 100) {
+				throw new IllegalArgumentException("failureRateThreshold must be between 0 and 100.");
+			}
+
+			this.failureRateThreshold = failureRateThreshold;
+			return this;
+		}
+
+		/**
+		 * Percentage of slow requests that opens the circuit, and time to the first
+		 * response after which a request is slow. Defaults to 80 and 2 seconds.
+		 *
+		 * @param slowCallRateThreshold percentage between 0 and 100
+		 * @param slowCallDuration      time after which a request is slow
+		 * @return this builder
+		 */
+		public Builder slowCalls(double slowCallRateThreshold, Duration slowCallDuration) {
+			if (slowCallRateThreshold <= 0 || slowCallRateThreshold > 100) {
+				throw new IllegalArgumentException("slowCallRateThreshold must be between 0 and 100.");
+			}
+
+			this.slowCallRateThreshold = slowCallRateThreshold;
+			this.slowCallDuration = slowCallDuration;
+			return this;
+		}
+
+		/**
+		 * Time during which an open circuit rejects every request. Defaults to 10
+		 * seconds.
+		 *
+		 * @param openDuration time before the circuit is half open
+		 * @return this builder
+		 */
+		public Builder openDuration(Duration openDuration) {
+			this.openDuration = openDuration;
+			return this;
+		}
+
+		/**
+		 * Number of trial requests sent while the circuit is half open. Defaults to
+		 * 5.
+		 *
+		 * @param trialCalls number of trial requests
+		 * @return this builder
+		 */
+		public Builder trialCalls(int trialCalls) {
+			if (trialCalls < 1) {
+				throw new IllegalArgumentException("trialCalls must be positive.");
+			}
+
+			this.trialCalls = trialCalls;
+			return this;
+		}
+
+		public CircuitBreaker build() {
+			return new CircuitBreaker(this);
+		}
+	}
+}
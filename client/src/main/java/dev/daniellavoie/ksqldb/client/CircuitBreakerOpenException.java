@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+/**
+ * Raised without sending the request when the circuit of the selected ksqlDB
+ * node is open, see {@link CircuitBreaker}. The node was not reached and the
+ * request can be routed to another one.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	private final String url;
+
+	public CircuitBreakerOpenException(String url) {
+		super("The circuit of ksqlDB node " + url + " is open.");
+
+		this.url = url;
+	}
+
+	/**
+	 * @return the base URL of the node which circuit is open.
+	 */
+	public String getUrl() {
+		return url;
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+/**
+ * Snapshot of the circuit of a node in a {@link CircuitBreaker}.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class CircuitBreakerStats {
+	private final String url;
+	private final CircuitBreaker.State state;
+	private final double failureRate;
+	private final double slowCallRate;
+	private final int calls;
+	private final long rejected;
+	private final long opened;
+	private final long halfOpened;
+	private final long closed;
+
+	public CircuitBreakerStats(String url, CircuitBreaker.State state, double failureRate, double slowCallRate,
+			int calls, long rejected, long opened, long halfOpened, long closed) {
+		this.url = url;
+		this.state = state;
+		this.failureRate = failureRate;
+		this.slowCallRate = slowCallRate;
+		this.calls = calls;
+		this.rejected = rejected;
+		this.opened = opened;
+		this.halfOpened = halfOpened;
+		this.closed = closed;
+	}
+
+	/**
+	 * @return the base URL of the node.
+	 */
+	public String getUrl() {
+		return url;
+	}
+
+	public CircuitBreaker.State getState() {
+		return state;
+	}
+
+	/**
+	 * @return the percentage of failed requests in the window of the current
+	 *         state.
+	 */
+	public double getFailureRate() {
+		return failureRate;
+	}
+
+	/**
+	 * @return the percentage of slow requests in the window of the current
+	 *         state.
+	 */
+	public double getSlowCallRate() {
+		return slowCallRate;
+	}
+
+	/**
+	 * @return the number of requests recorded in the window of the current state.
+	 */
+	public int getCalls() {
+		return calls;
+	}
+
+	/**
+	 * @return the number of requests rejected by the circuit.
+	 */
+	public long getRejected() {
+		return rejected;
+	}
+
+	/**
+	 * @return the number of transitions to the open state.
+	 */
+	public long getOpened() {
+		return opened;
+	}
+
+	/**
+	 * @return the number of transitions to the half open state.
+	 */
+	public long getHalfOpened() {
+		return halfOpened;
+	}
+
+	/**
+	 * @return the number of transitions to the closed state.
+	 */
+	public long getClosed() {
+		return closed;
+	}
+
+	@Override
+	public String toString() {
+		return "CircuitBreakerStats [url=" + url + ", state=" + state + ", failureRate=" + failureRate
+				+ ", slowCallRate=" + slowCallRate + ", calls=" + calls + ", rejected=" + rejected + ", opened="
+				+ opened + ", halfOpened=" + halfOpened + ", closed=" + closed + "]";
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Collects the metrics of the requests of a client, registered as a
+ * {@link RequestListener}:
+ * <ul>
+ * <li>latency histograms per endpoint, from the start of a request to the end
+ * of its response, push queries excepted</li>
+ * <li>time to the first row of pull and push queries</li>
+ * <li>rows and bytes received per class of statement</li>
+ * <li>decode time per row of the responses of the /query endpoint</li>
+ * <li>errors by ksqlDB error code, or by exception for the other errors</li>
+ * </ul>
+ * <p>
+ * Recording is lock free. {@link #snapshot()} returns the metrics of the
+ * interval since the previous snapshot, so a single consumer should take them,
+ * either directly or through {@link #report(Duration, MetricsReporter)}. A
+ * single instance can be registered on multiple clients.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class ClientMetrics implements RequestListener {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ClientMetrics.class);
+
+	private final Map<String, LatencyRecorder> latencies = new ConcurrentHashMap<>();
+	private final Map<StatementClass, LatencyRecorder> timeToFirstRow = new EnumMap<>(StatementClass.class);
+	private final LatencyRecorder decodeTimePerRow = new LatencyRecorder();
+	private final Map<StatementClass, Counter> rows = new EnumMap<>(StatementClass.class);
+	private final Map<StatementClass, Counter> bytes = new EnumMap<>(StatementClass.class);
+	private final Map<String, Counter> errors = new ConcurrentHashMap<>();
+	private final AtomicInteger activePushQueries = new AtomicInteger();
+
+	private long previousSnapshotNanos = System.nanoTime();
+
+	public ClientMetrics() {
+		// Recorders of every statement class are created upfront so recording
+		// never needs to synchronize on the maps.
+		for (StatementClass statementClass : StatementClass.values()) {
+			timeToFirstRow.put(statementClass, new LatencyRecorder());
+			rows.put(statementClass, new Counter());
+			bytes.put(statementClass, new Counter());
+		}
+	}
+
+	/**
+	 * Takes the metrics recorded since the previous snapshot.
+	 *
+	 * @return the metrics of the interval.
+	 */
+	public synchronized ClientMetricsSnapshot snapshot() {
+		long now = System.nanoTime();
+		Duration interval = Duration.ofNanos(now - previousSnapshotNanos);
+		previousSnapshotNanos = now;
+
+		Map<String, LatencySnapshot> latencySnapshots = new HashMap<>();
+		latencies.forEach((path, recorder) -> latencySnapshots.put(path, recorder.snapshot()));
+
+		Map<StatementClass, LatencySnapshot> timeToFirstRowSnapshots = new EnumMap<>(StatementClass.class);
+		timeToFirstRow.forEach((statementClass, recorder) -> timeToFirstRowSnapshots.put(statementClass,
+				recorder.snapshot()));
+
+		Map<String, Long> errorCounts = new HashMap<>();
+		errors.forEach((error, counter) -> errorCounts.put(error, counter.interval()));
+
+		return new ClientMetricsSnapshot(interval, Collections.unmodifiableMap(latencySnapshots),
+				Collections.unmodifiableMap(timeToFirstRowSnapshots), decodeTimePerRow.snapshot(), intervals(rows),
+				intervals(bytes), activePushQueries.get(), Collections.unmodifiableMap(errorCounts));
+	}
+
+	/**
+	 * Hands a snapshot of the metrics to a reporter at a fixed interval, for
+	 * example to export them to a metrics registry.
+	 *
+	 * @param interval time between two snapshots
+	 * @param reporter receives the snapshots
+	 * @return a {@link Disposable} that stops the reporting.
+	 */
+	public Disposable report(Duration interval, MetricsReporter reporter) {
+		return Flux.interval(interval, interval, Schedulers.parallel()).subscribe(tick -> {
+			try {
+				reporter.report(snapshot());
+			} catch (RuntimeException e) {
+				LOGGER.warn("Metrics reporter failed.", e);
+			}
+		});
+	}
+
+	private static Map<StatementClass, Long> intervals(Map<StatementClass, Counter> counters) {
+		Map<StatementClass, Long> intervals = new EnumMap<>(StatementClass.class);
+		counters.forEach((statementClass, counter) -> intervals.put(statementClass, counter.interval()));
+
+		return Collections.unmodifiableMap(intervals);
+	}
+
+	@Override
+	public void requestStarted(RequestEvent event) {
+		if (event.getStatementClass() == StatementClass.PUSH_QUERY) {
+			activePushQueries.incrementAndGet();
+		}
+	}
+
+	@Override
+	public void rowDecoded(RequestEvent event, int size) {
+		if (event.getRows() == 1) {
+			timeToFirstRow.get(event.getStatementClass()).record(System.nanoTime() - event.getStartNanos());
+		}
+
+		rows.get(event.getStatementClass()).increment(1);
+		bytes.get(event.getStatementClass()).increment(size);
+	}
+
+	@Override
+	public void requestFailed(RequestEvent event, Throwable error) {
+		String key = error instanceof KsqlDBServerException
+				? String.valueOf(((KsqlDBServerException) error).getError().getErrorCode())
+				: error.getClass().getSimpleName();
+
+		errors.computeIfAbsent(key, k -> new Counter()).increment(1);
+
+		onEnd(event, true);
+	}
+
+	@Override
+	public void requestCompleted(RequestEvent event) {
+		onEnd(event, true);
+	}
+
+	@Override
+	public void requestCancelled(RequestEvent event) {
+		onEnd(event, false);
+	}
+
+	private void onEnd(RequestEvent event, boolean terminated) {
+		if (event.getStatementClass() == StatementClass.PUSH_QUERY) {
+			activePushQueries.decrementAndGet();
+		} else if (terminated) {
+			latencies.computeIfAbsent(event.getPath(), path -> new LatencyRecorder())
+					.record(System.nanoTime() - event.getStartNanos());
+		}
+
+		if (event.getRows() > 0 && event.getDecodeNanos() > 0) {
+			decodeTimePerRow.record(event.getDecodeNanos() / event.getRows());
+		}
+	}
+
+	/**
+	 * Cumulative count which intervals are taken by the snapshots.
+	 */
+	private static class Counter {
+		private final LongAdder total = new LongAdder();
+		private long previous;
+
+		private void increment(long value) {
+			total.add(value);
+		}
+
+		private long interval() {
+			long current = total.sum();
+			long interval = current - previous;
+			previous = current;
+
+			return interval;
+		}
+	}
+}
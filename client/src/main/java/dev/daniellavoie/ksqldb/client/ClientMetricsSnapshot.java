@@ -0,0 +1,148 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Metrics recorded by a {@link ClientMetrics} during an interval.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class ClientMetricsSnapshot {
+	private final Duration interval;
+	private final Map<String, LatencySnapshot> latencies;
+	private final Map<StatementClass, LatencySnapshot> timeToFirstRow;
+	private final LatencySnapshot decodeTimePerRow;
+	private final Map<StatementClass, Long> rows;
+	private final Map<StatementClass, Long> bytes;
+	private final int activePushQueries;
+	private final Map<String, Long> errors;
+
+	public ClientMetricsSnapshot(Duration interval, Map<String, LatencySnapshot> latencies,
+			Map<StatementClass, LatencySnapshot> timeToFirstRow, LatencySnapshot decodeTimePerRow,
+			Map<StatementClass, Long> rows, Map<StatementClass, Long> bytes, int activePushQueries,
+			Map<String, Long> errors) {
+		this.interval = interval;
+		this.latencies = latencies;
+		this.timeToFirstRow = timeToFirstRow;
+		this.decodeTimePerRow = decodeTimePerRow;
+		this.rows = rows;
+		this.bytes = bytes;
+		this.activePushQueries = activePushQueries;
+		this.errors = errors;
+	}
+
+	/**
+	 * @return the duration of the interval.
+	 */
+	public Duration getInterval() {
+		return interval;
+	}
+
+	/**
+	 * @return the latencies of the requests by endpoint path, push queries
+	 *         excepted. Ex: /ksql, /query, /info
+	 */
+	public Map<String, LatencySnapshot> getLatencies() {
+		return latencies;
+	}
+
+	/**
+	 * @param path path of the endpoint
+	 * @return the latencies of the requests to the endpoint.
+	 */
+	public LatencySnapshot getLatency(String path) {
+		return latencies.getOrDefault(path, LatencySnapshot.EMPTY);
+	}
+
+	/**
+	 * @param statementClass {@link StatementClass#PULL_QUERY} or
+	 *                       {@link StatementClass#PUSH_QUERY}
+	 * @return the time from the start of the queries to their first row.
+	 */
+	public LatencySnapshot getTimeToFirstRow(StatementClass statementClass) {
+		return timeToFirstRow.get(statementClass);
+	}
+
+	/**
+	 * @return the time spent decoding a row of the /query endpoint, averaged per
+	 *         response.
+	 */
+	public LatencySnapshot getDecodeTimePerRow() {
+		return decodeTimePerRow;
+	}
+
+	/**
+	 * @param statementClass class of the queries
+	 * @return the number of rows received.
+	 */
+	public long getRows(StatementClass statementClass) {
+		return rows.get(statementClass);
+	}
+
+	/**
+	 * @param statementClass class of the queries
+	 * @return the size in bytes of the rows received.
+	 */
+	public long getBytes(StatementClass statementClass) {
+		return bytes.get(statementClass);
+	}
+
+	/**
+	 * @param statementClass class of the queries
+	 * @return the rate of rows received over the interval.
+	 */
+	public double getRowsPerSecond(StatementClass statementClass) {
+		return perSecond(getRows(statementClass));
+	}
+
+	/**
+	 * @param statementClass class of the queries
+	 * @return the rate of bytes received over the interval.
+	 */
+	public double getBytesPerSecond(StatementClass statementClass) {
+		return perSecond(getBytes(statementClass));
+	}
+
+	/**
+	 * @return the number of push queries running at the end of the interval.
+	 */
+	public int getActivePushQueries() {
+		return activePushQueries;
+	}
+
+	/**
+	 * @return the number of failed requests by ksqlDB error code, or by the simple
+	 *         name of the exception for the errors not returned by the server.
+	 */
+	public Map<String, Long> getErrors() {
+		return errors;
+	}
+
+	private double perSecond(long count) {
+		return interval.isZero() ? 0 : count * 1_000_000_000.0 / interval.toNanos();
+	}
+
+	@Override
+	public String toString() {
+		return "ClientMetricsSnapshot [interval=" + interval + ", latencies=" + latencies + ", timeToFirstRow="
+				+ timeToFirstRow + ", decodeTimePerRow=" + decodeTimePerRow + ", rows=" + rows + ", bytes=" + bytes
+				+ ", activePushQueries=" + activePushQueries + ", errors=" + errors + "]";
+	}
+}
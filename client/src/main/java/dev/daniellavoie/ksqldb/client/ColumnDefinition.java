@@ -26,10 +26,23 @@ package dev.daniellavoie.ksqldb.client;
 public class ColumnDefinition {
 	private final String name;
 	private final String dataType;
+	private final boolean key;
 
 	public ColumnDefinition(String name, String dataType) {
+		this(name, dataType, false);
+	}
+
+	/**
+	 * @param name     name of the column
+	 * @param dataType type of the column as written in a KSQL schema. Ex:
+	 *                 {@code STRUCT<`CITY` STRING>}
+	 * @param key      whether the column is the key of the source
+	 * @since 0.2.0
+	 */
+	public ColumnDefinition(String name, String dataType, boolean key) {
 		this.name = name;
 		this.dataType = dataType;
+		this.key = key;
 	}
 
 	public String getName() {
@@ -39,4 +52,26 @@ public class ColumnDefinition {
 	public String getDataType() {
 		return dataType;
 	}
+
+	/**
+	 * @return the base type of the column or null if it is not supported by the
+	 *         client.
+	 * @since 0.2.0
+	 */
+	public DataType getType() {
+		return DataType.fromTypeName(dataType);
+	}
+
+	/**
+	 * @return true if the column is the key of the source.
+	 * @since 0.2.0
+	 */
+	public boolean isKey() {
+		return key;
+	}
+
+	@Override
+	public String toString() {
+		return "ColumnDefinition [name=" + name + ", dataType=" + dataType + ", key=" + key + "]";
+	}
 }
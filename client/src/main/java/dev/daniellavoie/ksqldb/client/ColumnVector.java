@@ -0,0 +1,121 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.Arrays;
+
+/**
+ * Values of a column for every row of a {@link RowBatch}, stored in the array
+ * matching the type of the column. Nulls are tracked in a bitmap.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+final class ColumnVector {
+	final DataType type;
+
+	long[] longs;
+	int[] ints;
+	double[] doubles;
+	long[] booleans;
+	int[] codes;
+	String[] dictionary;
+	Object[] objects;
+	long[] nulls;
+
+	ColumnVector(DataType type, int capacity) {
+		this.type = type;
+		this.nulls = new long[words(capacity)];
+
+		if (type == null) {
+			objects = new Object[capacity];
+			return;
+		}
+
+		switch (type) {
+		case BIGINT:
+			longs = new long[capacity];
+			break;
+		case INTEGER:
+			ints = new int[capacity];
+			break;
+		case DOUBLE:
+			doubles = new double[capacity];
+			break;
+		case BOOLEAN:
+			booleans = new long[words(capacity)];
+			break;
+		case STRING:
+			codes = new int[capacity];
+			break;
+		default:
+			objects = new Object[capacity];
+		}
+	}
+
+	void grow(int capacity) {
+		nulls = Arrays.copyOf(nulls, words(capacity));
+
+		if (longs != null) {
+			longs = Arrays.copyOf(longs, capacity);
+		} else if (ints != null) {
+			ints = Arrays.copyOf(ints, capacity);
+		} else if (doubles != null) {
+			doubles = Arrays.copyOf(doubles, capacity);
+		} else if (booleans != null) {
+			booleans = Arrays.copyOf(booleans, words(capacity));
+		} else if (codes != null) {
+			codes = Arrays.copyOf(codes, capacity);
+		} else {
+			objects = Arrays.copyOf(objects, capacity);
+		}
+	}
+
+	/**
+	 * Copies the value of a row to another vector of the same type. STRING codes
+	 * are not copied as they depend on the dictionary of the vector.
+	 */
+	void copyTo(int row, ColumnVector target, int targetRow) {
+		if (isNull(row)) {
+			target.setNull(targetRow);
+		} else if (longs != null) {
+			target.longs[targetRow] = longs[row];
+		} else if (ints != null) {
+			target.ints[targetRow] = ints[row];
+		} else if (doubles != null) {
+			target.doubles[targetRow] = doubles[row];
+		} else if (booleans != null) {
+			if ((booleans[row >>> 6] & 1L << row) != 0) {
+				target.booleans[targetRow >>> 6] |= 1L << targetRow;
+			}
+		} else if (objects != null) {
+			target.objects[targetRow] = objects[row];
+		}
+	}
+
+	void setNull(int row) {
+		nulls[row >>> 6] |= 1L << row;
+	}
+
+	boolean isNull(int row) {
+		return (nulls[row >>> 6] & 1L << row) != 0;
+	}
+
+	static int words(int bits) {
+		return (bits + 63) >>> 6;
+	}
+}
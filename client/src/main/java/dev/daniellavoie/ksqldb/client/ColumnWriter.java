@@ -0,0 +1,282 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Writes the values of a column into a property of a bound object, either a
+ * field, a setter or a constructor argument. The setter is adapted once to
+ * receive a {@code long}, {@code double} or {@code boolean} so primitive
+ * columns are written to primitive properties without boxing. A value which
+ * does not fit a narrower property, such as a BIGINT above the range of an
+ * {@code int}, fails the binding instead of being truncated. ARRAY, MAP and
+ * STRUCT columns are read by Jackson into the type of the property and values
+ * which type does not match the property are converted by Jackson.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+final class ColumnWriter {
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().findAndRegisterModules()
+			.configure(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES, true)
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	/**
+	 * Checked conversions of a {@code long} to narrower primitive types, by
+	 * target type.
+	 */
+	private static final Map<Class<?>, MethodHandle> LONG_CONVERSIONS = new HashMap<>();
+	private static final MethodHandle DOUBLE_TO_FLOAT = conversion("toFloat", float.class, double.class);
+
+	static {
+		LONG_CONVERSIONS.put(int.class, conversion("toInt", int.class, long.class));
+		LONG_CONVERSIONS.put(short.class, conversion("toShort", short.class, long.class));
+		LONG_CONVERSIONS.put(byte.class, conversion("toByte", byte.class, long.class));
+		LONG_CONVERSIONS.put(float.class, conversion("toFloat", float.class, long.class));
+		LONG_CONVERSIONS.put(double.class, conversion("toDouble", double.class, long.class));
+	}
+
+	private final String name;
+	private final Class<?> boxedType;
+	private final JavaType javaType;
+	private final boolean primitive;
+	private final MethodHandle objectSetter;
+	private final MethodHandle longSetter;
+	private final MethodHandle doubleSetter;
+	private final MethodHandle booleanSetter;
+	private final ObjectReader reader;
+	private final ObjectReader exactReader;
+
+	/**
+	 * @param name        name of the property
+	 * @param genericType type of the property
+	 * @param setter      handle of type {@code (Object, propertyType)void}
+	 */
+	ColumnWriter(String name, Type genericType, MethodHandle setter) {
+		Class<?> type = setter.type().parameterType(1);
+		Class<?> primitiveType = MethodType.methodType(type).unwrap().returnType();
+
+		this.name = name;
+		this.boxedType = MethodType.methodType(type).wrap().returnType();
+		this.javaType = OBJECT_MAPPER.getTypeFactory().constructType(genericType);
+		this.primitive = type.isPrimitive();
+		this.objectSetter = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+		this.reader = OBJECT_MAPPER.readerFor(javaType);
+		this.exactReader = reader.with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+		if (primitiveType.isPrimitive() && primitiveType != boolean.class && primitiveType != char.class) {
+			MethodHandle primitiveSetter = setter
+					.asType(MethodType.methodType(void.class, Object.class, primitiveType));
+			MethodHandle longConversion = LONG_CONVERSIONS.get(primitiveType);
+
+			this.longSetter = longConversion != null ? MethodHandles.filterArguments(primitiveSetter, 1, longConversion)
+					: primitiveSetter;
+			if (primitiveType == double.class) {
+				this.doubleSetter = primitiveSetter;
+			} else if (primitiveType == float.class) {
+				this.doubleSetter = MethodHandles.filterArguments(primitiveSetter, 1, DOUBLE_TO_FLOAT);
+			} else {
+				this.doubleSetter = null;
+			}
+			this.booleanSetter = null;
+		} else {
+			this.longSetter = null;
+			this.doubleSetter = null;
+			this.booleanSetter = primitiveType == boolean.class
+					? setter.asType(MethodType.methodType(void.class, Object.class, boolean.class))
+					: null;
+		}
+	}
+
+	String getName() {
+		return name;
+	}
+
+	void writeNull(Object target) {
+		if (!primitive) {
+			write(objectSetter, target, null);
+		}
+	}
+
+	void writeLong(Object target, long value) {
+		if (longSetter == null) {
+			writeObject(target, value);
+			return;
+		}
+
+		try {
+			longSetter.invokeExact(target, value);
+		} catch (ArithmeticException e) {
+			throw overflow(value, e);
+		} catch (Throwable e) {
+			throw failure(e);
+		}
+	}
+
+	void writeDouble(Object target, double value) {
+		if (doubleSetter == null) {
+			writeObject(target, value);
+			return;
+		}
+
+		try {
+			doubleSetter.invokeExact(target, value);
+		} catch (ArithmeticException e) {
+			throw overflow(value, e);
+		} catch (Throwable e) {
+			throw failure(e);
+		}
+	}
+
+	void writeBoolean(Object target, boolean value) {
+		if (booleanSetter == null) {
+			writeObject(target, value);
+			return;
+		}
+
+		try {
+			booleanSetter.invokeExact(target, value);
+		} catch (Throwable e) {
+			throw failure(e);
+		}
+	}
+
+	void writeObject(Object target, Object value) {
+		write(objectSetter, target, convert(value));
+	}
+
+	/**
+	 * Reads a nested value from the parser straight into the type of the
+	 * property.
+	 * 
+	 * @param exactDecimal true if untyped floating point values must be read as
+	 *                     {@link java.math.BigDecimal}
+	 */
+	void readObject(Object target, JsonParser parser, boolean exactDecimal) throws IOException {
+		write(objectSetter, target, (exactDecimal ? exactReader : reader).readValue(parser));
+	}
+
+	private Object convert(Object value) {
+		if (value == null || boxedType.isInstance(value)) {
+			return value;
+		} else if (boxedType == String.class) {
+			return value.toString();
+		}
+
+		try {
+			return OBJECT_MAPPER.convertValue(value, javaType);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException(
+					"Cannot bind value " + value + " to " + name + " of type " + javaType + ".", e);
+		}
+	}
+
+	private void write(MethodHandle setter, Object target, Object value) {
+		try {
+			setter.invokeExact(target, value);
+		} catch (Throwable e) {
+			throw failure(e);
+		}
+	}
+
+	private IllegalArgumentException overflow(Object value, ArithmeticException e) {
+		return new IllegalArgumentException("Cannot bind value " + value + " to " + name + " of type " + javaType
+				+ ", it does not fit the type.", e);
+	}
+
+	private RuntimeException failure(Throwable e) {
+		if (e instanceof RuntimeException) {
+			return (RuntimeException) e;
+		} else if (e instanceof Error) {
+			throw (Error) e;
+		}
+
+		return new IllegalStateException("Failed to write " + name + ".", e);
+	}
+
+	private static MethodHandle conversion(String name, Class<?> returnType, Class<?> parameterType) {
+		try {
+			return MethodHandles.lookup().findStatic(ColumnWriter.class, name,
+					MethodType.methodType(returnType, parameterType));
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static int toInt(long value) {
+		return Math.toIntExact(value);
+	}
+
+	private static short toShort(long value) {
+		if ((short) value != value) {
+			throw new ArithmeticException("short overflow");
+		}
+
+		return (short) value;
+	}
+
+	private static byte toByte(long value) {
+		if ((byte) value != value) {
+			throw new ArithmeticException("byte overflow");
+		}
+
+		return (byte) value;
+	}
+
+	/**
+	 * Long.MAX_VALUE is rounded up to 2^63, which casts back to Long.MAX_VALUE.
+	 */
+	private static float toFloat(long value) {
+		float converted = value;
+		if ((long) converted != value || converted == 0x1p63f) {
+			throw new ArithmeticException("float precision loss");
+		}
+
+		return converted;
+	}
+
+	private static double toDouble(long value) {
+		double converted = value;
+		if ((long) converted != value || converted == 0x1p63) {
+			throw new ArithmeticException("double precision loss");
+		}
+
+		return converted;
+	}
+
+	private static float toFloat(double value) {
+		float converted = (float) value;
+		if (Float.isInfinite(converted) && !Double.isInfinite(value)) {
+			throw new ArithmeticException("float overflow");
+		}
+
+		return converted;
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.List;
+
+/**
+ * Dispatches the events of a request to multiple listeners, in their
+ * registration order. An exception raised by a listener does not prevent the
+ * next ones from receiving the event.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+class CompositeRequestListener implements RequestListener {
+	private final RequestListener[] listeners;
+
+	private CompositeRequestListener(List<RequestListener> listeners) {
+		this.listeners = listeners.toArray(new RequestListener[0]);
+	}
+
+	/**
+	 * @param listeners listeners registered on a client
+	 * @return null if there is no listener, the listener if there is a single
+	 *         one, a composite otherwise.
+	 */
+	static RequestListener of(List<RequestListener> listeners) {
+		if (listeners.isEmpty()) {
+			return null;
+		}
+
+		return listeners.size() == 1 ? listeners.get(0) : new CompositeRequestListener(listeners);
+	}
+
+	@Override
+	public void requestStarted(RequestEvent event) {
+		for (RequestListener listener : listeners) {
+			try {
+				listener.requestStarted(event);
+			} catch (RuntimeException e) {
+				RequestEvent.onListenerError(e);
+			}
+		}
+	}
+
+	@Override
+	public void connectionAcquired(RequestEvent event) {
+		for (RequestListener listener : listeners) {
+			try {
+				listener.connectionAcquired(event);
+			} catch (RuntimeException e) {
+				RequestEvent.onListenerError(e);
+			}
+		}
+	}
+
+	@Override
+	public void firstByteReceived(RequestEvent event) {
+		for (RequestListener listener : listeners) {
+			try {
+				listener.firstByteReceived(event);
+			} catch (RuntimeException e) {
+				RequestEvent.onListenerError(e);
+			}
+		}
+	}
+
+	@Override
+	public void headerReceived(RequestEvent event) {
+		for (RequestListener listener : listeners) {
+			try {
+				listener.headerReceived(event);
+			} catch (RuntimeException e) {
+				RequestEvent.onListenerError(e);
+			}
+		}
+	}
+
+	@Override
+	public void rowDecoded(RequestEvent event, int bytes) {
+		for (RequestListener listener : listeners) {
+			try {
+				listener.rowDecoded(event, bytes);
+			} catch (RuntimeException e) {
+				RequestEvent.onListenerError(e);
+			}
+		}
+	}
+
+	@Override
+	public void requestFailed(RequestEvent event, Throwable error) {
+		for (RequestListener listener : listeners) {
+			try {
+				listener.requestFailed(event, error);
+			} catch (RuntimeException e) {
+				RequestEvent.onListenerError(e);
+			}
+		}
+	}
+
+	@Override
+	public void requestCompleted(RequestEvent event) {
+		for (RequestListener listener : listeners) {
+			try {
+				listener.requestCompleted(event);
+			} catch (RuntimeException e) {
+				RequestEvent.onListenerError(e);
+			}
+		}
+	}
+
+	@Override
+	public void requestCancelled(RequestEvent event) {
+		for (RequestListener listener : listeners) {
+			try {
+				listener.requestCancelled(event);
+			} catch (RuntimeException e) {
+				RequestEvent.onListenerError(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+/**
+ * Signals that a request was rejected by a {@link ConcurrencyLimiter}, either
+ * because its queue was full or because the request waited longer than the
+ * maximum wait for a permit.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class ConcurrencyLimitExceededException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	private final EndpointClass endpointClass;
+	private final int limit;
+
+	public ConcurrencyLimitExceededException(EndpointClass endpointClass, int limit, String reason) {
+		super("Concurrency limit of " + limit + " " + endpointClass + " requests exceeded: " + reason + ".");
+
+		this.endpointClass = endpointClass;
+		this.limit = limit;
+	}
+
+	public EndpointClass getEndpointClass() {
+		return endpointClass;
+	}
+
+	/**
+	 * @return the concurrency limit when the request was rejected.
+	 */
+	public int getLimit() {
+		return limit;
+	}
+}
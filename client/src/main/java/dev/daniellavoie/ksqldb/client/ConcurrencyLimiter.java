@@ -0,0 +1,410 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Bounds the number of requests in flight to a ksqlDB cluster with a limit
+ * adapted to the round trip time of the requests, following the TCP Vegas
+ * congestion control algorithm. The limiter keeps track of the round trip time
+ * of an unloaded server, the lowest observed. When the round trip time of a
+ * request grows past it, the queue building up on the server is estimated from
+ * the ratio between the two: the limit grows while the queue stays short and
+ * shrinks once it grows long. Requests failed by a connection error or a
+ * timeout halve the limit, other failures such as errors returned by ksqlDB for
+ * a statement or an open circuit do not change it. The minimum round trip time
+ * is periodically measured again so the limiter follows a change of the
+ * cluster.
+ * <p>
+ * Admin and query endpoints have their own limit. Requests exceeding the limit
+ * wait in a bounded queue for a bounded time, or fail immediately with a
+ * {@link ConcurrencyLimitExceededException} when the queue size is zero. Push
+ * queries, which are never expected to complete, are not limited.
+ * </p>
+ * <p>
+ * A single instance can be shared by multiple clients of the same cluster.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class ConcurrencyLimiter {
+	private final int initialLimit;
+	private final int minLimit;
+	private final int maxLimit;
+	private final int maxQueueSize;
+	private final Duration maxWait;
+
+	private final Map<EndpointClass, Limit> limits = new EnumMap<>(EndpointClass.class);
+
+	private ConcurrencyLimiter(Builder builder) {
+		this.initialLimit = builder.initialLimit;
+		this.minLimit = builder.minLimit;
+		this.maxLimit = builder.maxLimit;
+		this.maxQueueSize = builder.maxQueueSize;
+		this.maxWait = builder.maxWait;
+
+		for (EndpointClass endpointClass : EndpointClass.values()) {
+			limits.put(endpointClass, new Limit(endpointClass));
+		}
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Takes a snapshot of the limiter of a class of endpoints.
+	 *
+	 * @param endpointClass class of endpoints
+	 * @return the current state of the limiter.
+	 */
+	public ConcurrencyLimiterStats getStats(EndpointClass endpointClass) {
+		return limits.get(endpointClass).getStats();
+	}
+
+	/**
+	 * Subscribes to the request once a permit is acquired and releases it when
+	 * the request terminates or is cancelled.
+	 */
+	<T> Flux<T> apply(EndpointClass endpointClass, Flux<T> request) {
+		Limit limit = limits.get(endpointClass);
+
+		return limit.acquire()
+				.flatMapMany(permit -> request.doOnError(permit::fail).doOnComplete(permit::complete)
+						.doOnCancel(permit::cancel));
+	}
+
+	<T> Mono<T> apply(EndpointClass endpointClass, Mono<T> request) {
+		Limit limit = limits.get(endpointClass);
+
+		return limit.acquire().flatMap(permit -> request.doOnError(permit::fail).doOnSuccess(value -> permit.complete())
+				.doOnCancel(permit::cancel));
+	}
+
+	/**
+	 * Vegas limit of a class of endpoints. Every method is synchronized, the
+	 * limit is only updated once per request.
+	 */
+	private class Limit {
+		private final EndpointClass endpointClass;
+		private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+
+		private double limit = initialLimit;
+		private int inFlight;
+		private long rejected;
+		private long minRttNanos;
+		private int samples;
+		private int probeThreshold = nextProbeThreshold(initialLimit);
+
+		private Limit(EndpointClass endpointClass) {
+			this.endpointClass = endpointClass;
+		}
+
+		private Mono<Permit> acquire() {
+			return Mono.create(this::acquire);
+		}
+
+		/**
+		 * Completes the sink with a permit or queues it. The sink is only signaled
+		 * outside of the lock, as it subscribes to the request.
+		 */
+		private void acquire(MonoSink<Permit> sink) {
+			Permit permit = null;
+			ConcurrencyLimitExceededException rejection = null;
+			Waiter waiter = null;
+
+			synchronized (this) {
+				if (inFlight < (int) limit) {
+					++inFlight;
+					permit = new Permit(this);
+				} else if (waiters.size() >= maxQueueSize) {
+					++rejected;
+					rejection = new ConcurrencyLimitExceededException(endpointClass, (int) limit,
+							maxQueueSize == 0 ? "no permit available" : "queue is full");
+				} else {
+					waiter = new Waiter(sink);
+					waiters.add(waiter);
+				}
+			}
+
+			if (permit != null) {
+				sink.success(permit);
+			} else if (rejection != null) {
+				sink.error(rejection);
+			} else {
+				Waiter queued = waiter;
+
+				sink.onCancel(() -> cancel(queued));
+				sink.onDispose(Schedulers.parallel().schedule(() -> expire(queued), maxWait.toNanos(),
+						TimeUnit.NANOSECONDS));
+			}
+		}
+
+		private synchronized void cancel(Waiter waiter) {
+			if (!waiters.remove(waiter) && waiter.permit != null) {
+				// The permit was granted concurrently with the cancellation and may
+				// never be delivered.
+				waiter.permit.cancel();
+			}
+		}
+
+		private void expire(Waiter waiter) {
+			ConcurrencyLimitExceededException rejection;
+
+			synchronized (this) {
+				if (!waiters.remove(waiter)) {
+					return;
+				}
+
+				++rejected;
+				rejection = new ConcurrencyLimitExceededException(endpointClass, (int) limit,
+						"no permit available after " + maxWait);
+			}
+
+			waiter.sink.error(rejection);
+		}
+
+		private void release(long rttNanos, boolean dropped, boolean sample) {
+			Waiter next;
+
+			synchronized (this) {
+				if (sample) {
+					update(rttNanos, dropped);
+				}
+
+				--inFlight;
+				next = grant();
+			}
+
+			while (next != null) {
+				next.sink.success(next.permit);
+
+				synchronized (this) {
+					next = grant();
+				}
+			}
+		}
+
+		private Waiter grant() {
+			if (inFlight >= (int) limit || waiters.isEmpty()) {
+				return null;
+			}
+
+			Waiter waiter = waiters.poll();
+			++inFlight;
+			waiter.permit = new Permit(this);
+
+			return waiter;
+		}
+
+		private void update(long rttNanos, boolean dropped) {
+			int sampledInFlight = inFlight;
+
+			if (++samples >= probeThreshold) {
+				samples = 0;
+				probeThreshold = nextProbeThreshold(limit);
+				minRttNanos = rttNanos;
+				return;
+			}
+
+			// A dropped request tells nothing about the round trip time of an
+			// unloaded server, however fast it failed.
+			if (!dropped && (minRttNanos == 0 || rttNanos < minRttNanos)) {
+				minRttNanos = rttNanos;
+				return;
+			}
+
+			double log = Math.max(1, Math.log10(limit));
+			double newLimit = limit;
+
+			if (dropped) {
+				newLimit = limit / 2;
+			} else if (sampledInFlight * 2 < limit) {
+				// The client does not use its limit, the round trip time tells nothing
+				// about the capacity of the server.
+				return;
+			} else {
+				double queueSize = Math.ceil(limit * (1 - (double) minRttNanos / rttNanos));
+
+				if (queueSize <= log) {
+					newLimit = limit + 6 * log;
+				} else if (queueSize < 3 * log) {
+					newLimit = limit + log;
+				} else if (queueSize > 6 * log) {
+					newLimit = limit - log;
+				}
+			}
+
+			limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+		}
+
+		private int nextProbeThreshold(double limit) {
+			return (int) (30 * limit * (0.5 + ThreadLocalRandom.current().nextDouble() * 0.5));
+		}
+
+		private synchronized ConcurrencyLimiterStats getStats() {
+			return new ConcurrencyLimiterStats(endpointClass, (int) limit, inFlight, waiters.size(), rejected,
+					Duration.ofNanos(minRttNanos));
+		}
+	}
+
+	/**
+	 * Only connection errors and timeouts indicate an overload. Errors returned by
+	 * ksqlDB, including 5xx errors which may be specific to a statement, an open
+	 * circuit or a response failing to decode do not.
+	 */
+	static boolean isDrop(Throwable error) {
+		if (error instanceof KsqlDBServerException) {
+			return false;
+		}
+
+		for (Throwable cause = error; cause != null; cause = cause.getCause() != cause ? cause.getCause() : null) {
+			if (cause instanceof TimeoutException || cause instanceof io.netty.handler.timeout.TimeoutException) {
+				return true;
+			} else if (cause instanceof JsonProcessingException) {
+				return false;
+			} else if (cause instanceof IOException) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static class Waiter {
+		private final MonoSink<Permit> sink;
+
+		private Permit permit;
+
+		private Waiter(MonoSink<Permit> sink) {
+			this.sink = sink;
+		}
+	}
+
+	/**
+	 * Permit of a request in flight. Releasing a permit more than once has no
+	 * effect.
+	 */
+	private static class Permit {
+		private final Limit limit;
+		private final long startNanos = System.nanoTime();
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		private Permit(Limit limit) {
+			this.limit = limit;
+		}
+
+		private void complete() {
+			release(false, true);
+		}
+
+		private void fail(Throwable error) {
+			release(isDrop(error), true);
+		}
+
+		private void cancel() {
+			release(false, false);
+		}
+
+		private void release(boolean dropped, boolean sample) {
+			if (released.compareAndSet(false, true)) {
+				limit.release(System.nanoTime() - startNanos, dropped, sample);
+			}
+		}
+	}
+
+	public static class Builder {
+		private int initialLimit = 20;
+		private int minLimit = 1;
+		private int maxLimit = 1000;
+		private int maxQueueSize = 1000;
+		private Duration maxWait = Duration.ofSeconds(5);
+
+		private Builder() {
+
+		}
+
+		/**
+		 * Bounds of the limit and its value before any request completes. Defaults
+		 * to 1, 20 and 1000.
+		 *
+		 * @param minLimit     minimum number of requests in flight
+		 * @param initialLimit initial number of requests in flight
+		 * @param maxLimit     maximum number of requests in flight
+		 * @return this builder
+		 */
+		public Builder limits(int minLimit, int initialLimit, int maxLimit) {
+			if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+				throw new IllegalArgumentException(
+						"The limits must satisfy 1 <= minLimit <= initialLimit <= maxLimit.");
+			}
+
+			this.minLimit = minLimit;
+			this.initialLimit = initialLimit;
+			this.maxLimit = maxLimit;
+			return this;
+		}
+
+		/**
+		 * Maximum number of requests waiting for a permit and maximum time they
+		 * wait. Defaults to 1000 requests and 5 seconds.
+		 *
+		 * @param maxQueueSize maximum number of waiting requests, 0 to reject
+		 *                     requests as soon as the limit is reached
+		 * @param maxWait      maximum time waiting for a permit
+		 * @return this builder
+		 */
+		public Builder queue(int maxQueueSize, Duration maxWait) {
+			if (maxQueueSize < 0) {
+				throw new IllegalArgumentException("maxQueueSize must not be negative.");
+			}
+
+			this.maxQueueSize = maxQueueSize;
+			this.maxWait = maxWait;
+			return this;
+		}
+
+		/**
+		 * Rejects requests as soon as the limit is reached instead of queuing them.
+		 *
+		 * @return this builder
+		 */
+		public Builder failFast() {
+			return queue(0, maxWait);
+		}
+
+		public ConcurrencyLimiter build() {
+			return new ConcurrencyLimiter(this);
+		}
+	}
+}
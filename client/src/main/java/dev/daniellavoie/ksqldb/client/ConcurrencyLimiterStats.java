@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+
+/**
+ * Snapshot of the state of a {@link ConcurrencyLimiter} for a class of
+ * endpoints.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class ConcurrencyLimiterStats {
+	private final EndpointClass endpointClass;
+	private final int limit;
+	private final int inFlight;
+	private final int queued;
+	private final long rejected;
+	private final Duration minRtt;
+
+	public ConcurrencyLimiterStats(EndpointClass endpointClass, int limit, int inFlight, int queued, long rejected,
+			Duration minRtt) {
+		this.endpointClass = endpointClass;
+		this.limit = limit;
+		this.inFlight = inFlight;
+		this.queued = queued;
+		this.rejected = rejected;
+		this.minRtt = minRtt;
+	}
+
+	public EndpointClass getEndpointClass() {
+		return endpointClass;
+	}
+
+	/**
+	 * @return the current number of requests allowed in flight.
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	public int getInFlight() {
+		return inFlight;
+	}
+
+	/**
+	 * @return the number of requests waiting for a permit.
+	 */
+	public int getQueued() {
+		return queued;
+	}
+
+	/**
+	 * @return the number of requests rejected with a
+	 *         {@link ConcurrencyLimitExceededException}.
+	 */
+	public long getRejected() {
+		return rejected;
+	}
+
+	/**
+	 * @return the round trip time of an unloaded server estimated by the limiter.
+	 */
+	public Duration getMinRtt() {
+		return minRtt;
+	}
+
+	@Override
+	public String toString() {
+		return "ConcurrencyLimiterStats [endpointClass=" + endpointClass + ", limit=" + limit + ", inFlight="
+				+ inFlight + ", queued=" + queued + ", rejected=" + rejected + ", minRtt=" + minRtt + "]";
+	}
+}
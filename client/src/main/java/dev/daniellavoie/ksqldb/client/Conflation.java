@@ -0,0 +1,126 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Keeps only the latest row of every key of a push query while its subscriber
+ * is behind. Rows are stored in a map bounded to a number of keys and emitted
+ * at the rate requested by the subscriber, a row replaced by a newer row with
+ * the same key before being emitted is dropped. Once the map holds the maximum
+ * number of keys, no more rows are requested from the server until the
+ * subscriber catches up.
+ * <p>
+ * A single instance can be applied to multiple queries, its statistics are
+ * aggregated across all of them.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class Conflation {
+	private final int maxKeys;
+
+	private final LongAdder received = new LongAdder();
+	private final LongAdder delivered = new LongAdder();
+	private final LongAdder conflated = new LongAdder();
+	private final AtomicInteger pending = new AtomicInteger();
+
+	private Conflation(Builder builder) {
+		this.maxKeys = builder.maxKeys;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Conflates the rows of a {@link Flux} by key.
+	 *
+	 * @param <T>          type of the rows
+	 * @param source       rows to conflate
+	 * @param keyExtractor extracts the key of a row
+	 * @return a {@link Flux} that emits the latest row of every key.
+	 */
+	public <T> Flux<T> apply(Flux<T> source, Function<? super T, ?> keyExtractor) {
+		return new FluxConflate<>(source, keyExtractor, this);
+	}
+
+	public int getMaxKeys() {
+		return maxKeys;
+	}
+
+	/**
+	 * Takes a snapshot of the counters.
+	 *
+	 * @return the current statistics of the conflation.
+	 */
+	public ConflationStats getStats() {
+		return new ConflationStats(received.sum(), delivered.sum(), conflated.sum(), pending.get());
+	}
+
+	void onReceived(boolean replaced) {
+		received.increment();
+
+		if (replaced) {
+			conflated.increment();
+		} else {
+			pending.incrementAndGet();
+		}
+	}
+
+	void onDelivered() {
+		delivered.increment();
+		pending.decrementAndGet();
+	}
+
+	void onDiscarded(int keys) {
+		pending.addAndGet(-keys);
+	}
+
+	public static class Builder {
+		private int maxKeys = 10_000;
+
+		private Builder() {
+
+		}
+
+		/**
+		 * Maximum number of keys which latest row waits to be emitted. Defaults to
+		 * 10000.
+		 *
+		 * @param maxKeys maximum number of pending keys
+		 * @return this builder
+		 */
+		public Builder maxKeys(int maxKeys) {
+			if (maxKeys < 1) {
+				throw new IllegalArgumentException("maxKeys must be positive.");
+			}
+
+			this.maxKeys = maxKeys;
+			return this;
+		}
+
+		public Conflation build() {
+			return new Conflation(this);
+		}
+	}
+}
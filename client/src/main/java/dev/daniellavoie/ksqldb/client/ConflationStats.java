@@ -0,0 +1,72 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+/**
+ * Snapshot of the counters of a {@link Conflation}, aggregated across every
+ * query it was applied to.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class ConflationStats {
+	private final long received;
+	private final long delivered;
+	private final long conflated;
+	private final int pending;
+
+	public ConflationStats(long received, long delivered, long conflated, int pending) {
+		this.received = received;
+		this.delivered = delivered;
+		this.conflated = conflated;
+		this.pending = pending;
+	}
+
+	/**
+	 * @return the number of rows received from the server.
+	 */
+	public long getReceived() {
+		return received;
+	}
+
+	/**
+	 * @return the number of rows emitted to the subscribers.
+	 */
+	public long getDelivered() {
+		return delivered;
+	}
+
+	/**
+	 * @return the number of rows replaced by a newer row with the same key
+	 *         before being emitted.
+	 */
+	public long getConflated() {
+		return conflated;
+	}
+
+	/**
+	 * @return the number of keys which latest row waits to be emitted.
+	 */
+	public int getPending() {
+		return pending;
+	}
+
+	@Override
+	public String toString() {
+		return "ConflationStats [received=" + received + ", delivered=" + delivered + ", conflated=" + conflated
+				+ ", pending=" + pending + "]";
+	}
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import reactor.core.Disposable;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Sized and observable HTTP connection pool for the ksqlDB REST endpoints. A
+ * single instance can be shared by multiple {@link KsqlDBClient} to bound the
+ * total number of connections opened by an application.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class ConnectionPool implements Disposable {
+	private final ConnectionProvider connectionProvider;
+	private final int maxConnections;
+	private final Map<String, ConnectionPoolMetrics> poolMetrics = new ConcurrentHashMap<>();
+
+	private ConnectionPool(Builder builder) {
+		this.maxConnections = builder.maxConnections;
+
+		ConnectionProvider.Builder providerBuilder = ConnectionProvider.builder(builder.name)
+				.maxConnections(builder.maxConnections).pendingAcquireTimeout(builder.pendingAcquireTimeout)
+				.metrics(true, () -> this::registerMetrics);
+
+		if (builder.pendingAcquireMaxCount != null) {
+			providerBuilder.pendingAcquireMaxCount(builder.pendingAcquireMaxCount);
+		}
+
+		if (builder.maxIdleTime != null) {
+			providerBuilder.maxIdleTime(builder.maxIdleTime);
+		}
+
+		if (builder.maxLifeTime != null) {
+			providerBuilder.maxLifeTime(builder.maxLifeTime);
+		}
+
+		if (builder.evictionInterval != null) {
+			providerBuilder.evictInBackground(builder.evictionInterval);
+		}
+
+		this.connectionProvider = providerBuilder.build();
+	}
+
+	public static Builder builder(String name) {
+		return new Builder(name);
+	}
+
+	private void registerMetrics(String poolName, String id, SocketAddress remoteAddress,
+			ConnectionPoolMetrics metrics) {
+		poolMetrics.put(id + "@" + remoteAddress, metrics);
+	}
+
+	public ConnectionProvider getConnectionProvider() {
+		return connectionProvider;
+	}
+
+	/**
+	 * Takes a snapshot of the pool gauges, aggregated across every remote host
+	 * served by this pool.
+	 *
+	 * @return the current state of the connection pool.
+	 */
+	public ConnectionPoolStats getStats() {
+		int acquired = 0;
+		int idle = 0;
+		int pending = 0;
+		int allocated = 0;
+
+		for (ConnectionPoolMetrics metrics : poolMetrics.values()) {
+			acquired += metrics.acquiredSize();
+			idle += metrics.idleSize();
+			pending += metrics.pendingAcquireSize();
+			allocated += metrics.allocatedSize();
+		}
+
+		return new ConnectionPoolStats(acquired, idle, pending, allocated, maxConnections);
+	}
+
+	@Override
+	public void dispose() {
+		connectionProvider.dispose();
+		poolMetrics.clear();
+	}
+
+	@Override
+	public boolean isDisposed() {
+		return connectionProvider.isDisposed();
+	}
+
+	public static class Builder {
+		private final String name;
+
+		private int maxConnections = ConnectionProvider.DEFAULT_POOL_MAX_CONNECTIONS;
+		private Integer pendingAcquireMaxCount;
+		private Duration pendingAcquireTimeout = Duration.ofMillis(ConnectionProvider.DEFAULT_POOL_ACQUIRE_TIMEOUT);
+		private Duration maxIdleTime;
+		private Duration maxLifeTime;
+		private Duration evictionInterval;
+
+		private Builder(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Maximum number of connections opened per ksqlDB server.
+		 *
+		 * @param maxConnections maximum number of connections
+		 * @return this builder
+		 */
+		public Builder maxConnections(int maxConnections) {
+			this.maxConnections = maxConnections;
+			return this;
+		}
+
+		/**
+		 * Maximum number of requests waiting for a connection once the pool is
+		 * exhausted. Requests above that limit fail immediately. Defaults to twice the
+		 * maximum number of connections, {@code -1} disables the limit.
+		 *
+		 * @param pendingAcquireMaxCount maximum number of pending acquisitions
+		 * @return this builder
+		 */
+		public Builder pendingAcquireMaxCount(int pendingAcquireMaxCount) {
+			this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+			return this;
+		}
+
+		/**
+		 * Maximum time a request waits for a connection before failing.
+		 *
+		 * @param pendingAcquireTimeout acquire timeout
+		 * @return this builder
+		 */
+		public Builder pendingAcquireTimeout(Duration pendingAcquireTimeout) {
+			this.pendingAcquireTimeout = pendingAcquireTimeout;
+			return this;
+		}
+
+		/**
+		 * Time after which an idle connection is evicted from the pool.
+		 *
+		 * @param maxIdleTime maximum idle time
+		 * @return this builder
+		 */
+		public Builder maxIdleTime(Duration maxIdleTime) {
+			this.maxIdleTime = maxIdleTime;
+			return this;
+		}
+
+		/**
+		 * Time after which a connection is evicted from the pool, regardless of its
+		 * activity.
+		 *
+		 * @param maxLifeTime maximum life time
+		 * @return this builder
+		 */
+		public Builder maxLifeTime(Duration maxLifeTime) {
+			this.maxLifeTime = maxLifeTime;
+			return this;
+		}
+
+		/**
+		 * Interval at which idle and expired connections are evicted in the
+		 * background. When not set, connections are only evicted when they are
+		 * released or acquired.
+		 *
+		 * @param evictionInterval background eviction interval
+		 * @return this builder
+		 */
+		public Builder evictInBackground(Duration evictionInterval) {
+			this.evictionInterval = evictionInterval;
+			return this;
+		}
+
+		public ConnectionPool build() {
+			return new ConnectionPool(this);
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+/**
+ * Snapshot of the gauges of a {@link ConnectionPool}.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class ConnectionPoolStats {
+	private final int acquired;
+	private final int idle;
+	private final int pending;
+	private final int allocated;
+	private final int maxConnections;
+
+	public ConnectionPoolStats(int acquired, int idle, int pending, int allocated, int maxConnections) {
+		this.acquired = acquired;
+		this.idle = idle;
+		this.pending = pending;
+		this.allocated = allocated;
+		this.maxConnections = maxConnections;
+	}
+
+	/**
+	 * @return the number of connections currently in use by a request.
+	 */
+	public int getAcquired() {
+		return acquired;
+	}
+
+	/**
+	 * @return the number of opened connections waiting to be used.
+	 */
+	public int getIdle() {
+		return idle;
+	}
+
+	/**
+	 * @return the number of requests waiting for a connection.
+	 */
+	public int getPending() {
+		return pending;
+	}
+
+	/**
+	 * @return the number of connections opened by the pool, either acquired or
+	 *         idle.
+	 */
+	public int getAllocated() {
+		return allocated;
+	}
+
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectionPoolStats [acquired=" + acquired + ", idle=" + idle + ", pending=" + pending
+				+ ", allocated=" + allocated + ", maxConnections=" + maxConnections + "]";
+	}
+}
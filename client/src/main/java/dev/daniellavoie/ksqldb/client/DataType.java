@@ -16,6 +16,8 @@
 
 package dev.daniellavoie.ksqldb.client;
 
+import java.util.Locale;
+
 /**
  * Supported Data type for the KSQL Schema.
  * 
@@ -24,5 +26,39 @@ package dev.daniellavoie.ksqldb.client;
  *
  */
 public enum DataType {
-	BOOLEAN, INTEGER, BIGINT, DOUBLE, STRING, ARRAY, MAP, STRUCT, DECIMAL
+	BOOLEAN, INTEGER, BIGINT, DOUBLE, STRING, ARRAY, MAP, STRUCT, DECIMAL;
+
+	/**
+	 * Resolves the data type of a column definition. Type parameters are ignored,
+	 * {@code DECIMAL(10, 2)} resolves to {@link #DECIMAL} and
+	 * {@code ARRAY<STRING>} resolves to {@link #ARRAY}.
+	 * 
+	 * @param typeName type of a column as written in a KSQL schema.
+	 * @return the matching data type or null if the type is not supported.
+	 * @since 0.2.0
+	 */
+	public static DataType fromTypeName(String typeName) {
+		String name = typeName.trim().toUpperCase(Locale.ROOT);
+
+		int end = 0;
+		while (end < name.length() && Character.isLetter(name.charAt(end))) {
+			++end;
+		}
+
+		String baseName = name.substring(0, end);
+		switch (baseName) {
+		case "VARCHAR":
+			return STRING;
+		case "INT":
+			return INTEGER;
+		default:
+			for (DataType dataType : values()) {
+				if (dataType.name().equals(baseName)) {
+					return dataType;
+				}
+			}
+
+			return null;
+		}
+	}
 }
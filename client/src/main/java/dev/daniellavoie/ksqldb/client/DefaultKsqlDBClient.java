@@ -19,6 +19,8 @@ package dev.daniellavoie.ksqldb.client;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,11 +37,14 @@ import dev.daniellavoie.ksqldb.client.api.ksql.PropertiesResponse;
 import dev.daniellavoie.ksqldb.client.api.ksql.QueriesResponse;
 import dev.daniellavoie.ksqldb.client.api.ksql.StreamsResponse;
 import dev.daniellavoie.ksqldb.client.api.ksql.TablesResponse;
+import dev.daniellavoie.ksqldb.client.api.query.PreparedQueryRequest;
 import dev.daniellavoie.ksqldb.client.api.query.QueryRequest;
 import dev.daniellavoie.ksqldb.client.api.query.QueryResponse;
 import dev.daniellavoie.ksqldb.client.model.QueryRow;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 
 /**
  * Default implementation for {@link KsqlDBClient}. Leverages
@@ -56,8 +61,12 @@ public class DefaultKsqlDBClient implements KsqlDBClient {
 	private final AdminUtil adminUtil;
 
 	public DefaultKsqlDBClient(String ksqlDBUrl, String ksqlDBWebSocketUrl) {
-		webClient = new ReactorWebClient(ksqlDBUrl, ksqlDBWebSocketUrl);
-		adminUtil = new AdminUtil(this);
+		this(new ReactorWebClient(ksqlDBUrl, ksqlDBWebSocketUrl));
+	}
+
+	public DefaultKsqlDBClient(WebClient webClient) {
+		this.webClient = webClient;
+		this.adminUtil = new AdminUtil(this);
 	}
 
 	/**
@@ -125,11 +134,10 @@ public class DefaultKsqlDBClient implements KsqlDBClient {
 	 */
 	@Override
 	public Flux<QueryRow> pullQuery(QueryRequest queryRequest) {
-		Flux<QueryResponse> responseFlux = webClient
-				.postForMany("/query", queryRequest, new TypeReference<QueryResponse[]>() {
-				}).flatMap(responses -> Flux.fromArray(responses));
-
-		return responseFlux.flatMap(new QueryResponseMapper());
+		// The mapper holds the header of the response, it is created for every
+		// subscription so a resubscribed query reads its new header.
+		return Flux.defer(() -> webClient.postForMany("/query", queryRequest, QueryResponse.class)
+				.flatMap(new QueryResponseMapper()));
 	}
 
 	/**
@@ -137,11 +145,102 @@ public class DefaultKsqlDBClient implements KsqlDBClient {
 	 */
 	@Override
 	public Flux<QueryRow> pushQuery(QueryRequest queryRequest) {
-		Map<String, String> params = new HashMap<>();
+		// A concurrency of 1 passes the demand of the subscriber through to the socket.
+		return webSocketQuery(queryRequest, frames -> frames.get().flatMap(new WebSocketQueryResponseMapper(), 1));
+	}
+
+	@Override
+	public Flux<QueryRow> pushQuery(QueryRequest queryRequest, PushQuerySharing sharing) {
+		return sharing.share(StatementKey.of(this, queryRequest), () -> pushQuery(queryRequest));
+	}
+
+	@Override
+	public Flux<QueryRow> pushQuery(QueryRequest queryRequest, Reconnection reconnection) {
+		return webSocketQuery(queryRequest, frames -> new ReconnectingPushQuery(reconnection, frames).rows());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Flux<QueryRow> pushQuery(QueryRequest queryRequest, String keyColumn, Conflation conflation) {
+		return webSocketQuery(queryRequest, frames -> {
+			WebSocketQueryResponseMapper mapper = new WebSocketQueryResponseMapper();
+
+			Flux<QueryRow> rows = frames.get().flatMap(mapper, 1);
+
+			return conflation.apply(rows, new ColumnKey(mapper::getSchema, keyColumn));
+		});
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Mono<QueryRow> lookup(String table, String key, KeyLookup keyLookup) {
+		return keyLookup.lookup(this, table, key, this::keyedPullQuery);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Flux<QueryRow> pullQuery(QueryRequest queryRequest, PullQueryCache cache) {
+		return cache.apply(StatementKey.of(this, queryRequest), () -> pullQuery(queryRequest));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Flux<QueryRow> pullQuery(QueryRequest queryRequest, PullQueryCoalescing coalescing) {
+		return coalescing.apply(StatementKey.of(this, queryRequest), () -> pullQuery(queryRequest));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Flux<QueryRow> pullQuery(QueryRequest queryRequest, PullQueryHedging hedging) {
+		return hedging.apply(() -> pullQuery(queryRequest));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> Flux<T> pullQuery(QueryRequest queryRequest, Class<T> rowType) {
+		return Flux.defer(() -> {
+			ObjectBinding<T> binding = ObjectBinding.of(rowType);
+
+			return webClient.postForMany("/query", queryRequest, () -> new ObjectRowDecoder<>(binding, false));
+		});
+	}
 
-		params.put("request", JsonUtil.writeValueAsString(queryRequest));
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> Flux<T> pushQuery(QueryRequest queryRequest, Class<T> rowType) {
+		return webSocketQuery(queryRequest, frames -> frames.get()
+				.handle(new WebSocketRowMapper<>(new ObjectRowDecoder<>(ObjectBinding.of(rowType), true))));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Flux<TypedRow> typedPullQuery(QueryRequest queryRequest) {
+		return webClient.postForMany("/query", queryRequest, TypedRowDecoder::new);
+	}
 
-		return webClient.getWithWebSocket("/ws/query", params).flatMap(new WebSocketQueryResponseMapper());
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Flux<TypedRow> typedPushQuery(QueryRequest queryRequest) {
+		return webSocketQuery(queryRequest,
+				frames -> frames.get().handle(new WebSocketRowMapper<>(new TypedRowDecoder(true))));
 	}
 
 	/**
@@ -171,8 +270,120 @@ public class DefaultKsqlDBClient implements KsqlDBClient {
 		}).flatMapMany(responses -> Flux.fromArray(responses));
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Flux<RowBatch> pullQueryBatches(QueryRequest queryRequest) {
+		return webClient.postForMany("/query", queryRequest, RowBatchDecoder::new);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Flux<RowBatch> pushQueryBatches(QueryRequest queryRequest) {
+		return webSocketQuery(queryRequest, frames -> new FluxRowBatch(frames.get()), RowBatch::size);
+	}
+
+	private Flux<Tuple2<Object, QueryRow>> keyedPullQuery(QueryRequest queryRequest, String keyColumn) {
+		return Flux.defer(() -> {
+			QueryResponseMapper mapper = new QueryResponseMapper();
+			ColumnKey key = new ColumnKey(mapper::getSchema, keyColumn);
+
+			return webClient.postForMany("/query", queryRequest, QueryResponse.class).flatMap(mapper)
+					.map(row -> Tuples.of(key.apply(row), row));
+		});
+	}
+
+	/**
+	 * Runs a push query over WebSocket. The rows are built from the frames of
+	 * every session, opened by the supplier, for each subscription. The query is
+	 * recorded as a JDK Flight Recorder event while JFR records push query
+	 * sessions, see {@link PushQueryRecording}.
+	 */
+	private <T> Flux<T> webSocketQuery(QueryRequest queryRequest, Function<Supplier<Flux<String>>, Flux<T>> rows) {
+		return webSocketQuery(queryRequest, rows, row -> 1);
+	}
+
+	/**
+	 * @param rowCount number of rows held by an element, such as a
+	 *                 {@link RowBatch}
+	 */
+	private <T> Flux<T> webSocketQuery(QueryRequest queryRequest, Function<Supplier<Flux<String>>, Flux<T>> rows,
+			ToIntFunction<? super T> rowCount) {
+		return Flux.defer(() -> {
+			Supplier<Flux<String>> frames = () -> webClient.getWithWebSocket("/ws/query",
+					webSocketParams(queryRequest));
+
+			PushQueryRecording recording = FlightRecorderSupport.recordPushQuery(queryRequest.getKsql());
+			if (recording == null) {
+				return rows.apply(frames);
+			}
+
+			return recording.record(rows.apply(() -> {
+				recording.connected();
+
+				return frames.get();
+			}), rowCount);
+		});
+	}
+
+	private static Map<String, String> webSocketParams(QueryRequest queryRequest) {
+		Map<String, String> params = new HashMap<>();
+
+		params.put("request",
+				queryRequest instanceof PreparedQueryRequest ? ((PreparedQueryRequest) queryRequest).getJson()
+						: JsonUtil.writeValueAsString(queryRequest));
+
+		return params;
+	}
+
+	/**
+	 * Extracts the value of a column from the rows of a query. The column is
+	 * resolved from the schema of the response when the first row is received.
+	 */
+	private static class ColumnKey implements Function<QueryRow, Object> {
+		private final Supplier<RowSchema> schema;
+		private final String column;
+
+		private int index = -1;
+
+		private ColumnKey(Supplier<RowSchema> schema, String column) {
+			this.schema = schema;
+			this.column = column;
+		}
+
+		@Override
+		public Object apply(QueryRow queryRow) {
+			if (index == -1) {
+				index = schema.get().indexOf(column);
+
+				if (index == -1) {
+					throw new IllegalArgumentException(
+							"Column " + column + " is not part of the query schema " + schema.get() + ".");
+				}
+			}
+
+			return queryRow.getRow().getColumns().get(index);
+		}
+	}
+
 	private class QueryResponseMapper implements Function<QueryResponse, Mono<QueryRow>> {
 		private Map<String, String> header;
+		private RowSchema schema = RowSchema.EMPTY;
+
+		/**
+		 * @return the schema described by the header, or an empty schema if it was
+		 *         not received yet.
+		 */
+		RowSchema getSchema() {
+			if (schema == RowSchema.EMPTY && header != null && header.get("schema") != null) {
+				schema = new RowSchema(header.get("queryId"), SchemaParser.parse(header.get("schema")));
+			}
+
+			return schema;
+		}
 
 		@Override
 		public Mono<QueryRow> apply(QueryResponse queryResponse) {
@@ -191,21 +402,4 @@ public class DefaultKsqlDBClient implements KsqlDBClient {
 			return Mono.just(new QueryRow(queryResponse.getRow()));
 		}
 	}
-
-	private class WebSocketQueryResponseMapper implements Function<String, Mono<QueryRow>> {
-		private boolean headerSkipped;
-
-		@Override
-		public Mono<QueryRow> apply(String value) {
-			LOGGER.trace("Processing websocket payload {}.", value);
-
-			if (!headerSkipped) {
-				headerSkipped = true;
-				return Mono.empty();
-			} else {
-				return Mono.just(JsonUtil.readValue(value, QueryRow.class));
-			}
-		}
-	}
-
 }
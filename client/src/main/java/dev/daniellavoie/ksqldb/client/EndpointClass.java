@@ -0,0 +1,40 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+/**
+ * Classes of ksqlDB endpoints which share the same performance profile. Admin
+ * endpoints execute statements and describe the server, query endpoints
+ * stream the rows of pull and push queries.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public enum EndpointClass {
+	/**
+	 * /ksql, /info, /healthcheck and every other endpoint.
+	 */
+	ADMIN,
+
+	/**
+	 * /query and /ws/query.
+	 */
+	QUERY;
+
+	static EndpointClass of(String url) {
+		return url.startsWith("/query") || url.startsWith("/ws/query") ? QUERY : ADMIN;
+	}
+}
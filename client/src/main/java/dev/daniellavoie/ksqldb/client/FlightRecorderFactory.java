@@ -0,0 +1,38 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+/**
+ * Creates the JDK Flight Recorder recordings of the client. The implementation
+ * is compiled for Java 11 and loaded by {@link FlightRecorderSupport} so this
+ * module keeps compiling and running on Java 8.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+interface FlightRecorderFactory {
+	/**
+	 * @return the recording of the request, null if JFR is not recording
+	 *         requests.
+	 */
+	RequestRecording recordRequest(String path, StatementClass statementClass, KsqlDBNode node);
+
+	/**
+	 * @return the recording of the push query session, null if JFR is not
+	 *         recording push query sessions.
+	 */
+	PushQueryRecording recordPushQuery(String ksql);
+}
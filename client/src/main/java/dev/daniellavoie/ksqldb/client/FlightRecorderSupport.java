@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+/**
+ * Entry point of the JDK Flight Recorder events of the client. The events are
+ * compiled for Java 11 in a separate source set and loaded reflectively once:
+ * on runtimes without JFR, such as Java 8, or when the client was built on a
+ * JDK older than 11, no event is recorded and the classes of the events are
+ * never loaded.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+final class FlightRecorderSupport {
+	static final String FACTORY_CLASS = "dev.daniellavoie.ksqldb.client.JdkFlightRecorderFactory";
+
+	private static final FlightRecorderFactory FACTORY = load(FlightRecorderSupport.class.getClassLoader());
+
+	private FlightRecorderSupport() {
+
+	}
+
+	/**
+	 * @return true if the runtime supports JDK Flight Recorder.
+	 */
+	static boolean isAvailable() {
+		return FACTORY != null;
+	}
+
+	/**
+	 * @return the recording of the request, null if JFR is not recording
+	 *         requests.
+	 */
+	static RequestRecording recordRequest(String path, StatementClass statementClass, KsqlDBNode node) {
+		return FACTORY != null ? FACTORY.recordRequest(path, statementClass, node) : null;
+	}
+
+	/**
+	 * @return the recording of the push query session, null if JFR is not
+	 *         recording push query sessions.
+	 */
+	static PushQueryRecording recordPushQuery(String ksql) {
+		return FACTORY != null ? FACTORY.recordPushQuery(ksql) : null;
+	}
+
+	/**
+	 * @return the factory of the recordings, null if JFR or the classes of the
+	 *         events are not available.
+	 */
+	static FlightRecorderFactory load(ClassLoader classLoader) {
+		try {
+			Class.forName("jdk.jfr.Event", false, classLoader);
+
+			return (FlightRecorderFactory) Class.forName(FACTORY_CLASS, true, classLoader).getDeclaredConstructor()
+					.newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+}
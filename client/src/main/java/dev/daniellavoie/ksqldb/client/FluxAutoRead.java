@@ -0,0 +1,254 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import org.reactivestreams.Subscription;
+
+import io.netty.channel.Channel;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxOperator;
+import reactor.core.publisher.Operators;
+import reactor.util.concurrent.Queues;
+
+/**
+ * Ties the demand of a subscriber to the reads of a Netty channel. Every
+ * message received by the channel is requested from the source so Reactor
+ * Netty delivers them as they are read, the messages not yet requested by the
+ * subscriber are buffered. Auto read is disabled once the buffer reaches the
+ * high watermark and enabled again once the subscriber drained it down to the
+ * low watermark. While reads are paused, TCP flow control pushes back on the
+ * server.
+ * <p>
+ * The buffer may exceed the high watermark by the messages decoded from the
+ * last read of the channel.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ *
+ * @param <T> Type of the messages.
+ */
+final class FluxAutoRead<T> extends FluxOperator<T, T> {
+	private final Channel channel;
+	private final int highWatermark;
+	private final int lowWatermark;
+
+	FluxAutoRead(Flux<? extends T> source, Channel channel, int highWatermark, int lowWatermark) {
+		super(source);
+
+		this.channel = channel;
+		this.highWatermark = highWatermark;
+		this.lowWatermark = lowWatermark;
+	}
+
+	@Override
+	public void subscribe(CoreSubscriber<? super T> actual) {
+		source.subscribe(new AutoReadSubscriber<>(actual, channel, highWatermark, lowWatermark));
+	}
+
+	static final class AutoReadSubscriber<T> implements CoreSubscriber<T>, Subscription {
+		@SuppressWarnings("rawtypes")
+		private static final AtomicIntegerFieldUpdater<AutoReadSubscriber> WIP = AtomicIntegerFieldUpdater
+				.newUpdater(AutoReadSubscriber.class, "wip");
+		@SuppressWarnings("rawtypes")
+		private static final AtomicIntegerFieldUpdater<AutoReadSubscriber> BUFFERED = AtomicIntegerFieldUpdater
+				.newUpdater(AutoReadSubscriber.class, "buffered");
+		@SuppressWarnings("rawtypes")
+		private static final AtomicLongFieldUpdater<AutoReadSubscriber> REQUESTED = AtomicLongFieldUpdater
+				.newUpdater(AutoReadSubscriber.class, "requested");
+
+		private final CoreSubscriber<? super T> actual;
+		private final Channel channel;
+		private final int highWatermark;
+		private final int lowWatermark;
+		private final Queue<T> queue = Queues.<T>unbounded().get();
+
+		private Subscription upstream;
+		private volatile boolean done;
+		private volatile boolean cancelled;
+		private Throwable error;
+
+		private volatile int wip;
+		private volatile int buffered;
+		private volatile long requested;
+		private boolean paused;
+
+		AutoReadSubscriber(CoreSubscriber<? super T> actual, Channel channel, int highWatermark, int lowWatermark) {
+			this.actual = actual;
+			this.channel = channel;
+			this.highWatermark = highWatermark;
+			this.lowWatermark = lowWatermark;
+		}
+
+		@Override
+		public void onSubscribe(Subscription subscription) {
+			if (Operators.validate(upstream, subscription)) {
+				upstream = subscription;
+
+				actual.onSubscribe(this);
+
+				subscription.request(Long.MAX_VALUE);
+			}
+		}
+
+		@Override
+		public void onNext(T message) {
+			if (done) {
+				Operators.onNextDropped(message, actual.currentContext());
+				return;
+			}
+
+			queue.offer(message);
+			BUFFERED.incrementAndGet(this);
+
+			drain();
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			if (done) {
+				Operators.onErrorDropped(throwable, actual.currentContext());
+				return;
+			}
+
+			error = throwable;
+			done = true;
+
+			drain();
+		}
+
+		@Override
+		public void onComplete() {
+			if (done) {
+				return;
+			}
+
+			done = true;
+
+			drain();
+		}
+
+		@Override
+		public void request(long n) {
+			if (Operators.validate(n)) {
+				Operators.addCap(REQUESTED, this, n);
+
+				drain();
+			}
+		}
+
+		@Override
+		public void cancel() {
+			if (!cancelled) {
+				cancelled = true;
+
+				upstream.cancel();
+
+				if (WIP.getAndIncrement(this) == 0) {
+					queue.clear();
+				}
+			}
+		}
+
+		private void drain() {
+			if (WIP.getAndIncrement(this) != 0) {
+				return;
+			}
+
+			int missed = 1;
+			for (;;) {
+				long requested = this.requested;
+				long emitted = 0;
+
+				while (emitted != requested) {
+					if (cancelled) {
+						queue.clear();
+						return;
+					}
+
+					boolean done = this.done;
+					T message = queue.poll();
+
+					if (message == null) {
+						if (done) {
+							terminate();
+							return;
+						}
+
+						break;
+					}
+
+					actual.onNext(message);
+
+					++emitted;
+				}
+
+				if (emitted == requested) {
+					if (cancelled) {
+						queue.clear();
+						return;
+					}
+
+					if (done && queue.isEmpty()) {
+						terminate();
+						return;
+					}
+				}
+
+				if (emitted != 0) {
+					if (requested != Long.MAX_VALUE) {
+						REQUESTED.addAndGet(this, -emitted);
+					}
+
+					BUFFERED.addAndGet(this, (int) -emitted);
+				}
+
+				// Decided by the drain loop only, every change of the buffer size triggers a
+				// drain so the last decision always reflects the last size.
+				int buffered = this.buffered;
+				if (!paused && buffered >= highWatermark) {
+					paused = true;
+
+					channel.config().setAutoRead(false);
+				} else if (paused && buffered <= lowWatermark) {
+					paused = false;
+
+					channel.config().setAutoRead(true);
+				}
+
+				missed = WIP.addAndGet(this, -missed);
+				if (missed == 0) {
+					break;
+				}
+			}
+		}
+
+		private void terminate() {
+			Throwable error = this.error;
+
+			if (error != null) {
+				actual.onError(error);
+			} else {
+				actual.onComplete();
+			}
+		}
+	}
+}
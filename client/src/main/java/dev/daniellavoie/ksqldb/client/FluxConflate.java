@@ -0,0 +1,294 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.Function;
+
+import org.reactivestreams.Subscription;
+
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxOperator;
+import reactor.core.publisher.Operators;
+
+/**
+ * Operator behind {@link Conflation}. The latest row of every key is stored in
+ * a {@link ConcurrentHashMap} and the keys waiting to be emitted in a
+ * {@link ConcurrentLinkedQueue}, in the order they were first received. A key
+ * is queued only when the map had no row for it, the row emitted for a key is
+ * always the latest one received.
+ * <p>
+ * Rows are requested from the source in slots: one slot is used by every
+ * pending key and released when the row of the key is emitted or replaced by a
+ * newer row. The source is never asked for more rows than the maximum number of
+ * keys minus the pending keys, which bounds the memory used by a slow
+ * subscriber.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ *
+ * @param <T> Type of the rows.
+ */
+final class FluxConflate<T> extends FluxOperator<T, T> {
+	private final Function<? super T, ?> keyExtractor;
+	private final Conflation conflation;
+
+	FluxConflate(Flux<? extends T> source, Function<? super T, ?> keyExtractor, Conflation conflation) {
+		super(source);
+
+		this.keyExtractor = keyExtractor;
+		this.conflation = conflation;
+	}
+
+	@Override
+	public void subscribe(CoreSubscriber<? super T> actual) {
+		source.subscribe(new ConflateSubscriber<>(actual, keyExtractor, conflation));
+	}
+
+	static final class ConflateSubscriber<T> implements CoreSubscriber<T>, Subscription {
+		@SuppressWarnings("rawtypes")
+		private static final AtomicIntegerFieldUpdater<ConflateSubscriber> WIP = AtomicIntegerFieldUpdater
+				.newUpdater(ConflateSubscriber.class, "wip");
+		@SuppressWarnings("rawtypes")
+		private static final AtomicLongFieldUpdater<ConflateSubscriber> REQUESTED = AtomicLongFieldUpdater
+				.newUpdater(ConflateSubscriber.class, "requested");
+		@SuppressWarnings("rawtypes")
+		private static final AtomicIntegerFieldUpdater<ConflateSubscriber> RELEASED = AtomicIntegerFieldUpdater
+				.newUpdater(ConflateSubscriber.class, "released");
+
+		private static final Object NULL_KEY = new Object();
+
+		private final CoreSubscriber<? super T> actual;
+		private final Function<? super T, ?> keyExtractor;
+		private final Conflation conflation;
+		private final int limit;
+
+		private final Map<Object, T> latest = new ConcurrentHashMap<>();
+		private final Queue<Object> keys = new ConcurrentLinkedQueue<>();
+
+		private Subscription upstream;
+		private volatile boolean done;
+		private volatile boolean cancelled;
+		private Throwable error;
+
+		private volatile int wip;
+		private volatile long requested;
+		private volatile int released;
+
+		ConflateSubscriber(CoreSubscriber<? super T> actual, Function<? super T, ?> keyExtractor,
+				Conflation conflation) {
+			this.actual = actual;
+			this.keyExtractor = keyExtractor;
+			this.conflation = conflation;
+			this.limit = Math.max(1, conflation.getMaxKeys() >> 2);
+		}
+
+		@Override
+		public void onSubscribe(Subscription subscription) {
+			if (Operators.validate(upstream, subscription)) {
+				upstream = subscription;
+
+				actual.onSubscribe(this);
+
+				subscription.request(conflation.getMaxKeys());
+			}
+		}
+
+		@Override
+		public void onNext(T row) {
+			if (done) {
+				Operators.onNextDropped(row, actual.currentContext());
+				return;
+			}
+
+			Object key;
+			try {
+				key = keyExtractor.apply(row);
+			} catch (Throwable e) {
+				onError(Operators.onOperatorError(upstream, e, row, actual.currentContext()));
+				return;
+			}
+
+			if (key == null) {
+				key = NULL_KEY;
+			}
+
+			boolean replaced = latest.put(key, row) != null;
+
+			conflation.onReceived(replaced);
+
+			if (replaced) {
+				release(1);
+			} else {
+				keys.offer(key);
+
+				drain();
+			}
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			if (done) {
+				Operators.onErrorDropped(throwable, actual.currentContext());
+				return;
+			}
+
+			error = throwable;
+			done = true;
+
+			drain();
+		}
+
+		@Override
+		public void onComplete() {
+			if (done) {
+				return;
+			}
+
+			done = true;
+
+			drain();
+		}
+
+		@Override
+		public void request(long n) {
+			if (Operators.validate(n)) {
+				Operators.addCap(REQUESTED, this, n);
+
+				drain();
+			}
+		}
+
+		@Override
+		public void cancel() {
+			if (!cancelled) {
+				cancelled = true;
+
+				upstream.cancel();
+
+				if (WIP.getAndIncrement(this) == 0) {
+					clear();
+				}
+			}
+		}
+
+		/**
+		 * Requests rows from the source once enough slots were released.
+		 */
+		private void release(int slots) {
+			if (RELEASED.addAndGet(this, slots) >= limit) {
+				int total = RELEASED.getAndSet(this, 0);
+
+				if (total > 0 && !done && !cancelled) {
+					upstream.request(total);
+				}
+			}
+		}
+
+		private void drain() {
+			if (WIP.getAndIncrement(this) != 0) {
+				return;
+			}
+
+			int missed = 1;
+			for (;;) {
+				long requested = this.requested;
+				long emitted = 0;
+
+				while (emitted != requested) {
+					if (cancelled) {
+						clear();
+						return;
+					}
+
+					boolean done = this.done;
+					Object key = keys.poll();
+
+					if (key == null) {
+						if (done) {
+							terminate();
+							return;
+						}
+
+						break;
+					}
+
+					T row = latest.remove(key);
+					if (row != null) {
+						conflation.onDelivered();
+
+						actual.onNext(row);
+
+						++emitted;
+					}
+				}
+
+				if (emitted == requested) {
+					if (cancelled) {
+						clear();
+						return;
+					}
+
+					if (done && keys.isEmpty()) {
+						terminate();
+						return;
+					}
+				}
+
+				if (emitted != 0) {
+					if (requested != Long.MAX_VALUE) {
+						REQUESTED.addAndGet(this, -emitted);
+					}
+
+					release((int) emitted);
+				}
+
+				missed = WIP.addAndGet(this, -missed);
+				if (missed == 0) {
+					break;
+				}
+			}
+		}
+
+		private void terminate() {
+			Throwable error = this.error;
+
+			if (error != null) {
+				actual.onError(error);
+			} else {
+				actual.onComplete();
+			}
+		}
+
+		private void clear() {
+			int discarded = 0;
+
+			while (keys.poll() != null) {
+				++discarded;
+			}
+			latest.clear();
+
+			conflation.onDiscarded(discarded);
+		}
+	}
+}
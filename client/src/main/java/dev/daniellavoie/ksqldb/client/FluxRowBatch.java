@@ -0,0 +1,256 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import org.reactivestreams.Subscription;
+
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxOperator;
+import reactor.core.publisher.Operators;
+import reactor.util.concurrent.Queues;
+
+/**
+ * Decodes the frames of a push query received from the /ws/query endpoint
+ * into {@link RowBatch}es. Frames are decoded as soon as they are received and
+ * their rows accumulate in a {@link RowBatchDecoder} until the subscriber
+ * requests a batch, which then holds every row decoded since the previous one.
+ * A subscriber keeping up receives small batches with a low latency, a slower
+ * one receives larger batches.
+ * <p>
+ * The source is never asked for more frames than the maximum size of a batch
+ * minus the rows waiting to be emitted. Once a batch is full, the frames are
+ * left to the source, such as {@link FluxAutoRead} which then pauses the reads
+ * of the socket.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+final class FluxRowBatch extends FluxOperator<String, RowBatch> {
+	static final int MAX_ROWS = 1024;
+
+	private final int maxRows;
+
+	FluxRowBatch(Flux<? extends String> source) {
+		this(source, MAX_ROWS);
+	}
+
+	FluxRowBatch(Flux<? extends String> source, int maxRows) {
+		super(source);
+
+		this.maxRows = maxRows;
+	}
+
+	@Override
+	public void subscribe(CoreSubscriber<? super RowBatch> actual) {
+		source.subscribe(new BatchSubscriber(actual, maxRows));
+	}
+
+	static final class BatchSubscriber implements CoreSubscriber<String>, Subscription {
+		private static final AtomicIntegerFieldUpdater<BatchSubscriber> WIP = AtomicIntegerFieldUpdater
+				.newUpdater(BatchSubscriber.class, "wip");
+		private static final AtomicLongFieldUpdater<BatchSubscriber> REQUESTED = AtomicLongFieldUpdater
+				.newUpdater(BatchSubscriber.class, "requested");
+
+		private final CoreSubscriber<? super RowBatch> actual;
+		private final int maxRows;
+		private final Queue<String> frames = Queues.<String>unbounded().get();
+		private final RowBatchDecoder decoder = new RowBatchDecoder(true);
+		private final WebSocketRowMapper<RowBatch> mapper = new WebSocketRowMapper<>(decoder);
+
+		private Subscription upstream;
+		private volatile boolean done;
+		private volatile boolean cancelled;
+		private Throwable error;
+
+		private volatile int wip;
+		private volatile long requested;
+
+		BatchSubscriber(CoreSubscriber<? super RowBatch> actual, int maxRows) {
+			this.actual = actual;
+			this.maxRows = maxRows;
+		}
+
+		@Override
+		public void onSubscribe(Subscription subscription) {
+			if (Operators.validate(upstream, subscription)) {
+				upstream = subscription;
+
+				actual.onSubscribe(this);
+
+				subscription.request(maxRows);
+			}
+		}
+
+		@Override
+		public void onNext(String frame) {
+			if (done) {
+				Operators.onNextDropped(frame, actual.currentContext());
+				return;
+			}
+
+			frames.offer(frame);
+
+			drain();
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			if (done) {
+				Operators.onErrorDropped(throwable, actual.currentContext());
+				return;
+			}
+
+			error = throwable;
+			done = true;
+
+			drain();
+		}
+
+		@Override
+		public void onComplete() {
+			if (done) {
+				return;
+			}
+
+			done = true;
+
+			drain();
+		}
+
+		@Override
+		public void request(long n) {
+			if (Operators.validate(n)) {
+				Operators.addCap(REQUESTED, this, n);
+
+				drain();
+			}
+		}
+
+		@Override
+		public void cancel() {
+			if (!cancelled) {
+				cancelled = true;
+
+				upstream.cancel();
+
+				if (WIP.getAndIncrement(this) == 0) {
+					frames.clear();
+				}
+			}
+		}
+
+		/**
+		 * Frames are only decoded by the drain loop, the decoder is never accessed
+		 * concurrently.
+		 */
+		private void drain() {
+			if (WIP.getAndIncrement(this) != 0) {
+				return;
+			}
+
+			int missed = 1;
+			for (;;) {
+				if (cancelled) {
+					frames.clear();
+					return;
+				}
+
+				boolean done = this.done;
+
+				// Frames without a row, such as the schema, are requested again right away.
+				int released = 0;
+				String frame;
+				while ((frame = frames.poll()) != null) {
+					int rows = decoder.size();
+
+					if (!decode(frame)) {
+						return;
+					}
+
+					if (decoder.size() == rows) {
+						++released;
+					}
+				}
+
+				long requested = this.requested;
+				if (requested != 0 && decoder.size() != 0) {
+					released += decoder.size();
+
+					RowBatch batch = decoder.flush();
+
+					if (requested != Long.MAX_VALUE) {
+						REQUESTED.decrementAndGet(this);
+					}
+
+					actual.onNext(batch);
+				}
+
+				if (done && decoder.size() == 0) {
+					terminate();
+					return;
+				}
+
+				if (released != 0 && !done) {
+					upstream.request(released);
+				}
+
+				missed = WIP.addAndGet(this, -missed);
+				if (missed == 0) {
+					break;
+				}
+			}
+		}
+
+		private boolean decode(String frame) {
+			try {
+				mapper.decode(frame);
+
+				return true;
+			} catch (IOException e) {
+				fail(new UncheckedIOException(e), frame);
+			} catch (RuntimeException e) {
+				fail(e, frame);
+			}
+
+			return false;
+		}
+
+		private void fail(Throwable throwable, String frame) {
+			cancelled = true;
+			frames.clear();
+
+			actual.onError(Operators.onOperatorError(upstream, throwable, frame, actual.currentContext()));
+		}
+
+		private void terminate() {
+			Throwable error = this.error;
+
+			if (error != null) {
+				actual.onError(error);
+			} else {
+				actual.onComplete();
+			}
+		}
+	}
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import dev.daniellavoie.ksqldb.client.api.info.Details;
+import dev.daniellavoie.ksqldb.client.api.info.HealthcheckResponse;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Polls the /healthcheck endpoint of the nodes of a cluster in the background
+ * and ejects the nodes that fail from the load balancing of their clients. A
+ * health check fails when it errors or times out, when the server reports
+ * itself as unhealthy, or when it is slower than the median of all the nodes by
+ * the latency outlier factor. A node is ejected after a number of consecutive
+ * failures and stays ejected until its next successful health check, which
+ * makes it half open: the next request is sent to it as a trial and readmits
+ * it if it succeeds.
+ * <p>
+ * Polling starts when the first client is built with the monitor and stops
+ * once the monitor is disposed.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class HealthMonitor implements Disposable {
+	private final Duration interval;
+	private final Duration timeout;
+	private final int failureThreshold;
+	private final double latencyOutlierFactor;
+
+	private final Map<KsqlDBNode, Probe> probes = new ConcurrentHashMap<>();
+
+	private Disposable polling;
+	private volatile boolean disposed;
+
+	private HealthMonitor(Builder builder) {
+		this.interval = builder.interval;
+		this.timeout = builder.timeout;
+		this.failureThreshold = builder.failureThreshold;
+		this.latencyOutlierFactor = builder.latencyOutlierFactor;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public Duration getInterval() {
+		return interval;
+	}
+
+	public Duration getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * @param node        node to monitor
+	 * @param healthcheck sends a health check to the node
+	 */
+	synchronized void monitor(KsqlDBNode node, Function<KsqlDBNode, Mono<HealthcheckResponse>> healthcheck) {
+		probes.putIfAbsent(node, new Probe(node, healthcheck));
+
+		if (polling == null && !disposed) {
+			polling = Flux.interval(interval, interval).onBackpressureDrop().concatMap(tick -> check(), 1)
+					.subscribe();
+		}
+	}
+
+	/**
+	 * Sends a health check to every node.
+	 *
+	 * @return a {@link Mono} that completes once the nodes are updated.
+	 */
+	Mono<Void> check() {
+		return Flux.fromIterable(new ArrayList<>(probes.values())).flatMap(Probe::check).collectList()
+				.doOnNext(this::update).then();
+	}
+
+	private void update(List<Probe> round) {
+		long medianNanos = medianLatency(round);
+
+		for (Probe probe : round) {
+			String failure = probe.failure;
+
+			if (failure == null && medianNanos > 0 && probe.latencyNanos > medianNanos * latencyOutlierFactor) {
+				failure = "health check took " + Duration.ofNanos(probe.latencyNanos) + " while the median is "
+						+ Duration.ofNanos(medianNanos);
+			}
+
+			probe.update(failure);
+		}
+	}
+
+	/**
+	 * @return the median latency of the successful health checks, or zero if
+	 *         there are too few nodes to tell an outlier apart.
+	 */
+	private long medianLatency(List<Probe> round) {
+		if (latencyOutlierFactor <= 0) {
+			return 0;
+		}
+
+		List<Long> latencies = new ArrayList<>(round.size());
+		for (Probe probe : round) {
+			if (probe.failure == null) {
+				latencies.add(probe.latencyNanos);
+			}
+		}
+
+		if (latencies.size() < 3) {
+			return 0;
+		}
+
+		Collections.sort(latencies);
+
+		return latencies.get(latencies.size() / 2);
+	}
+
+	@Override
+	public synchronized void dispose() {
+		disposed = true;
+
+		if (polling != null) {
+			polling.dispose();
+		}
+	}
+
+	@Override
+	public boolean isDisposed() {
+		return disposed;
+	}
+
+	private class Probe {
+		private final KsqlDBNode node;
+		private final Function<KsqlDBNode, Mono<HealthcheckResponse>> healthcheck;
+
+		private int failures;
+		private String failure;
+		private long latencyNanos;
+
+		private Probe(KsqlDBNode node, Function<KsqlDBNode, Mono<HealthcheckResponse>> healthcheck) {
+			this.node = node;
+			this.healthcheck = healthcheck;
+		}
+
+		private Mono<Probe> check() {
+			return Mono.defer(() -> {
+				long start = System.nanoTime();
+
+				return healthcheck.apply(node).timeout(timeout).map(response -> {
+					latencyNanos = System.nanoTime() - start;
+					failure = response.isHealthy() ? null : "server reported itself unhealthy" + details(response);
+
+					return this;
+				}).switchIfEmpty(Mono.fromCallable(() -> {
+					failure = "empty health check response";
+
+					return this;
+				})).onErrorResume(error -> {
+					failure = "health check failed with " + error;
+
+					return Mono.just(this);
+				});
+			});
+		}
+
+		private String details(HealthcheckResponse response) {
+			Details details = response.getDetails();
+			if (details == null) {
+				return "";
+			}
+
+			return " (metastore healthy: " + (details.getMetastore() != null && details.getMetastore().isHealthy())
+					+ ", kafka healthy: " + (details.getKafka() != null && details.getKafka().isHealthy()) + ")";
+		}
+
+		private void update(String failure) {
+			if (failure == null) {
+				failures = 0;
+
+				node.halfOpen();
+			} else if (++failures >= failureThreshold || node.getState() == KsqlDBNode.State.HALF_OPEN) {
+				node.eject(failure);
+			}
+		}
+	}
+
+	public static class Builder {
+		private Duration interval = Duration.ofSeconds(5);
+		private Duration timeout = Duration.ofSeconds(2);
+		private int failureThreshold = 2;
+		private double latencyOutlierFactor = 5;
+
+		private Builder() {
+
+		}
+
+		/**
+		 * Delay between two health checks of a node. Defaults to 5 seconds.
+		 *
+		 * @param interval delay between two health checks
+		 * @return this builder
+		 */
+		public Builder interval(Duration interval) {
+			this.interval = interval;
+			return this;
+		}
+
+		/**
+		 * Time after which a health check fails. Defaults to 2 seconds.
+		 *
+		 * @param timeout maximum duration of a health check
+		 * @return this builder
+		 */
+		public Builder timeout(Duration timeout) {
+			this.timeout = timeout;
+			return this;
+		}
+
+		/**
+		 * Number of consecutive failed health checks that ejects a node. Defaults to
+		 * 2.
+		 *
+		 * @param failureThreshold number of consecutive failures
+		 * @return this builder
+		 */
+		public Builder failureThreshold(int failureThreshold) {
+			if (failureThreshold < 1) {
+				throw new IllegalArgumentException("failureThreshold must be positive.");
+			}
+
+			this.failureThreshold = failureThreshold;
+			return this;
+		}
+
+		/**
+		 * A health check slower than the median of all the nodes multiplied by this
+		 * factor fails. Only applies to clusters of at least 3 nodes. Defaults to 5,
+		 * 0 disables the detection of latency outliers.
+		 *
+		 * @param latencyOutlierFactor factor of the median latency
+		 * @return this builder
+		 */
+		public Builder latencyOutlierFactor(double latencyOutlierFactor) {
+			this.latencyOutlierFactor = latencyOutlierFactor;
+			return this;
+		}
+
+		public HealthMonitor build() {
+			return new HealthMonitor(this);
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Decodes the elements of a JSON array streamed by the server from the tokens
+ * of the parser, as soon as they are available. Implementations can keep
+ * state across the elements of a response and are used for a single response.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ *
+ * @param <T> Type of the decoded elements.
+ */
+public interface JsonElementDecoder<T> {
+	/**
+	 * Receives a token of the current element, starting with its
+	 * {@link JsonToken#START_OBJECT} or {@link JsonToken#START_ARRAY}. The value
+	 * of the token must be read from the parser before this method returns.
+	 * 
+	 * @param parser parser positioned on the token
+	 * @param token  current token
+	 * @throws IOException if the value of the token cannot be read.
+	 */
+	void onToken(JsonParser parser, JsonToken token) throws IOException;
+
+	/**
+	 * Signals that every token of the current element was received.
+	 * 
+	 * @return the decoded element or null if the element should not be emitted.
+	 * @throws IOException if the element cannot be decoded.
+	 */
+	T complete() throws IOException;
+
+	/**
+	 * Signals that every token available in the current HTTP chunk was received.
+	 * Decoders that aggregate multiple elements emit their aggregate here.
+	 * 
+	 * @return the aggregated elements or null if there is nothing to emit.
+	 */
+	default T flush() {
+		return null;
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+
+/**
+ * Decodes an aggregated response body straight from its {@link ByteBuf}. The
+ * body is read once and a ksqlDB error is told apart from a successful response
+ * by its first tokens: an object where an array is expected, or an object which
+ * first field is {@code @type} or {@code error_code}.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+class JsonResponseDecoder {
+	private static final Logger LOGGER = LoggerFactory.getLogger(JsonResponseDecoder.class);
+
+	private final ObjectMapper objectMapper;
+	private final ObjectReader errorReader;
+	private final Map<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+
+	JsonResponseDecoder(ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+		this.errorReader = objectMapper.readerFor(KsqlDBServerError.class);
+	}
+
+	/**
+	 * Reads the readable bytes of the buffer. The buffer is not retained.
+	 *
+	 * @param <T>        type of the response
+	 * @param content    response body
+	 * @param returnType type of the response
+	 * @return the decoded response
+	 * @throws KsqlDBServerException if the body contains an error returned by the
+	 *                               server.
+	 */
+	<T> T decode(ByteBuf content, Type returnType) {
+		ObjectReader reader = readers.computeIfAbsent(returnType,
+				type -> objectMapper.readerFor(objectMapper.getTypeFactory().constructType(type)));
+		JavaType javaType = reader.getValueType();
+		int readerIndex = content.readerIndex();
+
+		try (JsonParser parser = objectMapper.getFactory()
+				.createParser((InputStream) new ByteBufInputStream(content))) {
+			if (parser.nextToken() == JsonToken.START_OBJECT && (expectsArray(javaType) || isError(parser))) {
+				throw new KsqlDBServerException(errorReader.readValue(parser));
+			}
+
+			return reader.readValue(parser);
+		} catch (IOException e) {
+			LOGGER.error("Failed to read {}.", content.toString(readerIndex,
+					content.writerIndex() - readerIndex, StandardCharsets.UTF_8));
+
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static boolean expectsArray(JavaType javaType) {
+		return javaType.isArrayType() || javaType.isCollectionLikeType();
+	}
+
+	private boolean isError(JsonParser parser) throws IOException {
+		if (parser.nextToken() != JsonToken.FIELD_NAME) {
+			return false;
+		}
+
+		String fieldName = parser.getCurrentName();
+
+		return "@type".equals(fieldName) || "error_code".equals(fieldName);
+	}
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.IntConsumer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Incremental decoder for a JSON array streamed by a ksqlDB server over
+ * multiple HTTP chunks. The bytes of each chunk are fed into Jackson's
+ * non-blocking parser and an element is emitted as soon as it is complete,
+ * regardless of how the server splits or coalesces the elements across chunks.
+ * Whitespaces and line breaks sent by the server as keep alive are ignored,
+ * any other token following the array fails the response.
+ * The tokens of every element are handed to a {@link JsonElementDecoder}.
+ * <p>
+ * A top level JSON object is interpreted as an error returned by the server
+ * and is raised as a {@link KsqlDBServerException}.
+ * </p>
+ * <p>
+ * The size of every element can be reported to an observer, which is how
+ * request listeners receive the size of the rows.
+ * </p>
+ * <p>
+ * Instances are stateful and must be used for a single response.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ *
+ * @param <T> Type of the array elements.
+ */
+class JsonStreamDecoder<T> {
+	/**
+	 * Factories of the object mappers, rebuilt once to accept trailing commas so
+	 * their symbol tables are shared by the responses.
+	 */
+	private static final Map<JsonFactory, JsonFactory> FACTORIES = Collections.synchronizedMap(new WeakHashMap<>());
+
+	private final ObjectMapper objectMapper;
+	private final JsonElementDecoder<T> elementDecoder;
+	private final IntConsumer elementObserver;
+	private final JsonParser parser;
+	private final ByteArrayFeeder feeder;
+
+	private byte[] scratch = new byte[0];
+	private int depth;
+	private boolean errorObject;
+	private boolean ended;
+	private TokenBuffer error;
+	private long elementOffset;
+
+	JsonStreamDecoder(ObjectMapper objectMapper, Class<T> elementType) {
+		this(objectMapper, new BufferedElementDecoder<>(objectMapper, elementType));
+	}
+
+	JsonStreamDecoder(ObjectMapper objectMapper, JsonElementDecoder<T> elementDecoder) {
+		this(objectMapper, elementDecoder, null);
+	}
+
+	/**
+	 * @param elementObserver receives the size in bytes of every element of the
+	 *                        array, can be null
+	 */
+	JsonStreamDecoder(ObjectMapper objectMapper, JsonElementDecoder<T> elementDecoder, IntConsumer elementObserver) {
+		this.objectMapper = objectMapper;
+		this.elementDecoder = elementDecoder;
+		this.elementObserver = elementObserver;
+
+		try {
+			this.parser = FACTORIES.computeIfAbsent(objectMapper.getFactory(),
+					factory -> factory.rebuild().enable(JsonReadFeature.ALLOW_TRAILING_COMMA).build())
+					.createNonBlockingByteArrayParser();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+	}
+
+	/**
+	 * Feeds the readable bytes of a chunk into the parser. The buffer is not
+	 * retained and can be released as soon as this method returns.
+	 *
+	 * @param chunk HTTP chunk received from the server.
+	 * @return the elements completed by this chunk.
+	 */
+	List<T> decode(ByteBuf chunk) {
+		try {
+			feed(chunk);
+
+			List<T> elements = null;
+			JsonToken token;
+			while ((token = parser.nextToken()) != JsonToken.NOT_AVAILABLE && token != null) {
+				T value = onToken(token);
+				if (value != null) {
+					if (elements == null) {
+						elements = new ArrayList<>(2);
+					}
+					elements.add(value);
+				}
+			}
+
+			T flushed = elementDecoder.flush();
+			if (flushed != null) {
+				if (elements == null) {
+					elements = new ArrayList<>(1);
+				}
+				elements.add(flushed);
+			}
+
+			return elements != null ? elements : Collections.emptyList();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Signals the end of the response. The tokens the parser held back until the
+	 * end of the input, such as a number, are read and reported like the ones of
+	 * a chunk.
+	 *
+	 * @throws UncheckedIOException if the response ended in the middle of an
+	 *                              element or a token, or if tokens follow the
+	 *                              JSON array.
+	 */
+	void complete() {
+		feeder.endOfInput();
+
+		try {
+			JsonToken token;
+			while ((token = parser.nextToken()) != null) {
+				onToken(token);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		if (depth != 0) {
+			throw new UncheckedIOException(new IOException("Response ended before the JSON array was complete."));
+		}
+	}
+
+	private void feed(ByteBuf chunk) throws IOException {
+		int length = chunk.readableBytes();
+
+		if (chunk.hasArray()) {
+			int offset = chunk.arrayOffset() + chunk.readerIndex();
+
+			feeder.feedInput(chunk.array(), offset, offset + length);
+		} else {
+			// The parser only references the fed array until all its tokens are read,
+			// the scratch array can safely be reused for the next chunk.
+			if (scratch.length < length) {
+				scratch = new byte[Math.max(length, scratch.length * 2)];
+			}
+			chunk.getBytes(chunk.readerIndex(), scratch, 0, length);
+
+			feeder.feedInput(scratch, 0, length);
+		}
+	}
+
+	private T onToken(JsonToken token) throws IOException {
+		if (ended) {
+			throw new JsonParseException(parser, "Unexpected token after the end of the JSON array: " + token + ".");
+		}
+
+		if (token.isStructStart()) {
+			if (depth == 0 && token == JsonToken.START_OBJECT) {
+				errorObject = true;
+			}
+
+			++depth;
+
+			if (elementObserver != null && depth == 2 && !errorObject) {
+				elementOffset = parser.getTokenLocation().getByteOffset();
+			}
+		}
+
+		if (errorObject) {
+			if (error == null) {
+				error = new TokenBuffer(objectMapper, false);
+			}
+
+			error.copyCurrentEvent(parser);
+		} else if (depth > 1) {
+			elementDecoder.onToken(parser, token);
+		}
+
+		if (token.isStructEnd()) {
+			--depth;
+
+			if (errorObject && depth == 0) {
+				throw readError();
+			} else if (depth == 0) {
+				ended = true;
+			} else if (!errorObject && depth == 1) {
+				if (elementObserver != null) {
+					elementObserver.accept((int) (parser.getCurrentLocation().getByteOffset() - elementOffset));
+				}
+
+				return elementDecoder.complete();
+			}
+		}
+
+		return null;
+	}
+
+	private KsqlDBServerException readError() throws IOException {
+		try (JsonParser errorParser = error.asParser(objectMapper)) {
+			return new KsqlDBServerException(objectMapper.readValue(errorParser, KsqlDBServerError.class));
+		}
+	}
+}
@@ -25,6 +25,14 @@ public abstract class JsonUtil {
 		}
 	}
 
+	public static byte[] writeValueAsBytes(Object value) {
+		try {
+			return OBJECT_MAPPER.writeValueAsBytes(value);
+		} catch (JsonProcessingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	public static String writeValueAsString(Object value) {
 		try {
 			return OBJECT_MAPPER.writeValueAsString(value);
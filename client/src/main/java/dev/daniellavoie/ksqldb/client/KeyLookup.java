@@ -0,0 +1,358 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import dev.daniellavoie.ksqldb.client.api.query.QueryRequest;
+import dev.daniellavoie.ksqldb.client.model.QueryRow;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+
+/**
+ * Batches the lookups of single rows by key. Lookups of the same table issued
+ * within {@code maxDelay} of the first one, or until {@code maxBatchSize}
+ * distinct keys are pending, are dispatched together. A batch is sent as a
+ * single pull query filtering on all its keys with an {@code IN} predicate if
+ * the server supports it, or as single key pull queries sent with a bounded
+ * concurrency. Every row is routed back to the lookups of its key, concurrent
+ * lookups of the same key share the same row.
+ * <p>
+ * Table and key column names are written as is in the statements, keys are
+ * written as quoted string literals.
+ * </p>
+ * <p>
+ * A single instance can be applied to multiple clients and tables, its
+ * statistics are aggregated across all of them.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class KeyLookup {
+	private final String keyColumn;
+	private final int maxBatchSize;
+	private final Duration maxDelay;
+	private final boolean multiKeyQueries;
+	private final int concurrency;
+
+	private final Map<List<Object>, Batch> batches = new ConcurrentHashMap<>();
+	private final LongAdder lookups = new LongAdder();
+	private final LongAdder dispatched = new LongAdder();
+	private final LongAdder requests = new LongAdder();
+
+	private KeyLookup(Builder builder) {
+		this.keyColumn = builder.keyColumn;
+		this.maxBatchSize = builder.maxBatchSize;
+		this.maxDelay = builder.maxDelay;
+		this.multiKeyQueries = builder.multiKeyQueries;
+		this.concurrency = builder.concurrency;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public String getKeyColumn() {
+		return keyColumn;
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public Duration getMaxDelay() {
+		return maxDelay;
+	}
+
+	/**
+	 * Takes a snapshot of the counters.
+	 *
+	 * @return the current statistics of the lookups.
+	 */
+	public KeyLookupStats getStats() {
+		return new KeyLookupStats(lookups.sum(), dispatched.sum(), requests.sum());
+	}
+
+	/**
+	 * Executes a pull query and emits every row along with the value of a column.
+	 */
+	interface KeyedQuery {
+		Flux<Tuple2<Object, QueryRow>> execute(QueryRequest queryRequest, String keyColumn);
+	}
+
+	/**
+	 * @param scope compared by identity, typically the client executing the
+	 *              queries
+	 * @param table name of the table
+	 * @param key   value of the key column
+	 * @param query executes the pull queries of the batch
+	 * @return a {@link Mono} that emits the row of the key, or completes empty if
+	 *         the table does not hold the key.
+	 */
+	Mono<QueryRow> lookup(Object scope, String table, String key, KeyedQuery query) {
+		return Mono.create(sink -> {
+			lookups.increment();
+
+			List<Object> batchKey = Arrays.asList(scope, table);
+			Batch[] joined = new Batch[1];
+			Batch[] full = new Batch[1];
+
+			batches.compute(batchKey, (k, batch) -> {
+				if (batch == null) {
+					batch = new Batch(table, query);
+					batch.schedule(k);
+				}
+
+				batch.add(key, sink);
+				joined[0] = batch;
+
+				if (batch.sinks.size() < maxBatchSize) {
+					return batch;
+				}
+
+				full[0] = batch;
+				return null;
+			});
+
+			sink.onCancel(() -> joined[0].cancel(key, sink));
+
+			if (full[0] != null) {
+				full[0].dispatch();
+			}
+		});
+	}
+
+	private static String literal(String key) {
+		return "'" + key.replace("'", "''") + "'";
+	}
+
+	private class Batch {
+		private final String table;
+		private final KeyedQuery query;
+		private final Map<String, List<MonoSink<QueryRow>>> sinks = new ConcurrentHashMap<>();
+
+		private Disposable timer;
+
+		private Batch(String table, KeyedQuery query) {
+			this.table = table;
+			this.query = query;
+		}
+
+		private void schedule(List<Object> batchKey) {
+			timer = Schedulers.parallel().schedule(() -> {
+				if (batches.remove(batchKey, this)) {
+					dispatch();
+				}
+			}, maxDelay.toNanos(), TimeUnit.NANOSECONDS);
+		}
+
+		private void add(String key, MonoSink<QueryRow> sink) {
+			sinks.compute(key, (k, keySinks) -> {
+				if (keySinks == null) {
+					keySinks = new ArrayList<>(1);
+				}
+
+				keySinks.add(sink);
+				return keySinks;
+			});
+		}
+
+		/**
+		 * Removes a cancelled lookup, and its key once no lookup is waiting for it
+		 * so a batch that is not dispatched yet does not query it.
+		 */
+		private void cancel(String key, MonoSink<QueryRow> sink) {
+			sinks.computeIfPresent(key, (k, keySinks) -> {
+				keySinks.remove(sink);
+
+				return keySinks.isEmpty() ? null : keySinks;
+			});
+		}
+
+		private void dispatch() {
+			timer.dispose();
+
+			List<String> keys = new ArrayList<>(sinks.keySet());
+			if (keys.isEmpty()) {
+				// Every lookup of the batch was cancelled.
+				return;
+			}
+
+			dispatched.increment();
+
+			if (multiKeyQueries && keys.size() > 1) {
+				StringBuilder ksql = new StringBuilder("SELECT * FROM ").append(table).append(" WHERE ")
+						.append(keyColumn).append(" IN (");
+				for (String key : keys) {
+					ksql.append(literal(key)).append(", ");
+				}
+				ksql.setLength(ksql.length() - 2);
+
+				requests.increment();
+				query.execute(new QueryRequest(ksql.append(");").toString()), keyColumn).subscribe(this::onRow,
+						error -> keys.forEach(key -> onError(key, error)), this::onComplete);
+			} else {
+				// Every key is resolved as soon as its own query completes rather than
+				// once the slowest query of the batch does.
+				Flux.fromIterable(keys).flatMap(key -> {
+					if (!sinks.containsKey(key)) {
+						return Mono.empty();
+					}
+
+					requests.increment();
+
+					return Flux.defer(() -> query.execute(new QueryRequest("SELECT * FROM " + table + " WHERE "
+							+ keyColumn + " = " + literal(key) + ";"), keyColumn)).doOnNext(this::onRow)
+							.then(Mono.fromRunnable(() -> onComplete(key))).onErrorResume(error -> {
+								onError(key, error);
+
+								return Mono.empty();
+							});
+				}, concurrency).subscribe(null, error -> keys.forEach(key -> onError(key, error)), this::onComplete);
+			}
+		}
+
+		private void onRow(Tuple2<Object, QueryRow> row) {
+			// Windowed tables return a row per window, only the first one is kept.
+			List<MonoSink<QueryRow>> keySinks = sinks.remove(String.valueOf(row.getT1()));
+			if (keySinks != null) {
+				keySinks.forEach(sink -> sink.success(row.getT2()));
+			}
+		}
+
+		private void onError(String key, Throwable error) {
+			List<MonoSink<QueryRow>> keySinks = sinks.remove(key);
+			if (keySinks != null) {
+				keySinks.forEach(sink -> sink.error(error));
+			}
+		}
+
+		private void onComplete() {
+			for (String key : new ArrayList<>(sinks.keySet())) {
+				onComplete(key);
+			}
+		}
+
+		/**
+		 * Completes the lookups of a key the query did not return a row for.
+		 */
+		private void onComplete(String key) {
+			List<MonoSink<QueryRow>> keySinks = sinks.remove(key);
+			if (keySinks != null) {
+				keySinks.forEach(MonoSink::success);
+			}
+		}
+	}
+
+	public static class Builder {
+		private String keyColumn = "ROWKEY";
+		private int maxBatchSize = 100;
+		private Duration maxDelay = Duration.ofMillis(1);
+		private boolean multiKeyQueries;
+		private int concurrency = 16;
+
+		private Builder() {
+
+		}
+
+		/**
+		 * Column the keys are looked up in. Defaults to ROWKEY.
+		 *
+		 * @param keyColumn name of the key column
+		 * @return this builder
+		 */
+		public Builder keyColumn(String keyColumn) {
+			this.keyColumn = keyColumn;
+			return this;
+		}
+
+		/**
+		 * Maximum number of distinct keys of a batch. A batch is dispatched as soon
+		 * as it is full. Defaults to 100.
+		 *
+		 * @param maxBatchSize maximum number of keys
+		 * @return this builder
+		 */
+		public Builder maxBatchSize(int maxBatchSize) {
+			if (maxBatchSize < 1) {
+				throw new IllegalArgumentException("maxBatchSize must be positive.");
+			}
+
+			this.maxBatchSize = maxBatchSize;
+			return this;
+		}
+
+		/**
+		 * Maximum delay between the first lookup of a batch and its dispatch.
+		 * Defaults to 1 millisecond.
+		 *
+		 * @param maxDelay maximum delay added to a lookup
+		 * @return this builder
+		 */
+		public Builder maxDelay(Duration maxDelay) {
+			if (maxDelay.isNegative()) {
+				throw new IllegalArgumentException("maxDelay must not be negative.");
+			}
+
+			this.maxDelay = maxDelay;
+			return this;
+		}
+
+		/**
+		 * Sends every batch as a single pull query with an {@code IN} predicate. Pull
+		 * queries of ksqlDB 0.6 only support equality on the key column, batches are
+		 * sent as single key queries by default.
+		 *
+		 * @param multiKeyQueries true if the server supports IN predicates
+		 * @return this builder
+		 */
+		public Builder multiKeyQueries(boolean multiKeyQueries) {
+			this.multiKeyQueries = multiKeyQueries;
+			return this;
+		}
+
+		/**
+		 * Maximum number of single key queries of a batch in flight. Defaults to 16.
+		 *
+		 * @param concurrency maximum number of queries in flight per batch
+		 * @return this builder
+		 */
+		public Builder concurrency(int concurrency) {
+			if (concurrency < 1) {
+				throw new IllegalArgumentException("concurrency must be positive.");
+			}
+
+			this.concurrency = concurrency;
+			return this;
+		}
+
+		public KeyLookup build() {
+			return new KeyLookup(this);
+		}
+	}
+}
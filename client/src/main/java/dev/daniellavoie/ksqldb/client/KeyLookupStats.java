@@ -0,0 +1,57 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+/**
+ * Snapshot of the counters of a {@link KeyLookup}.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class KeyLookupStats {
+	private final long lookups;
+	private final long batches;
+	private final long requests;
+
+	public KeyLookupStats(long lookups, long batches, long requests) {
+		this.lookups = lookups;
+		this.batches = batches;
+		this.requests = requests;
+	}
+
+	public long getLookups() {
+		return lookups;
+	}
+
+	/**
+	 * @return the number of batches of lookups dispatched.
+	 */
+	public long getBatches() {
+		return batches;
+	}
+
+	/**
+	 * @return the number of pull queries sent to the server.
+	 */
+	public long getRequests() {
+		return requests;
+	}
+
+	@Override
+	public String toString() {
+		return "KeyLookupStats [lookups=" + lookups + ", batches=" + batches + ", requests=" + requests + "]";
+	}
+}
@@ -44,6 +44,16 @@ public interface KsqlDBClient {
 		return new DefaultKsqlDBClient(ksqlDBUrl, ksqlDBWebSocketUrl);
 	}
 
+	/**
+	 * Creates a builder to configure the connection pool and event loops of the
+	 * client.
+	 * 
+	 * @return a new {@link KsqlDBClientBuilder}
+	 */
+	static KsqlDBClientBuilder builder() {
+		return new KsqlDBClientBuilder();
+	}
+
 	/**
 	 * Executes asynchronous DESCRIBE statement.
 	 * 
@@ -141,6 +151,68 @@ public interface KsqlDBClient {
 	 */
 	Flux<QueryRow> pullQuery(QueryRequest queryRequest);
 
+	/**
+	 * Executes a pull query like {@link #pullQuery(QueryRequest)} unless the
+	 * result of the same statement and streams properties is already held by the
+	 * {@link PullQueryCache}. The result is stale by up to the time to live of the
+	 * cache.
+	 * 
+	 * @param queryRequest a request containing a SELECT statement without EMIT
+	 *                     CHANGES.
+	 * @param cache        stores the results of the queries and collects the
+	 *                     statistics of the cache
+	 * @return a {@link Flux} that emits a {@link QueryRow} for every result from
+	 *         the query. Eventually sends a complete signal.
+	 * @since 0.2.0
+	 */
+	Flux<QueryRow> pullQuery(QueryRequest queryRequest, PullQueryCache cache);
+
+	/**
+	 * Executes a pull query like {@link #pullQuery(QueryRequest)} or joins an
+	 * identical query already in flight through the same
+	 * {@link PullQueryCoalescing}, in which case it receives the rows of that
+	 * query.
+	 * 
+	 * @param queryRequest a request containing a SELECT statement without EMIT
+	 *                     CHANGES.
+	 * @param coalescing   tracks the queries in flight and collects the
+	 *                     statistics of the coalescing
+	 * @return a {@link Flux} that emits a {@link QueryRow} for every result from
+	 *         the query. Eventually sends a complete signal.
+	 * @since 0.2.0
+	 */
+	Flux<QueryRow> pullQuery(QueryRequest queryRequest, PullQueryCoalescing coalescing);
+
+	/**
+	 * Executes a pull query like {@link #pullQuery(QueryRequest)} and sends it a
+	 * second time, to another node when possible, if its first row is not
+	 * received within the delay of the {@link PullQueryHedging}. The rows are
+	 * read from the request that answers first, the other one is cancelled.
+	 * 
+	 * @param queryRequest a request containing a SELECT statement without EMIT
+	 *                     CHANGES.
+	 * @param hedging      decides when to hedge a query and collects the
+	 *                     statistics of the hedging
+	 * @return a {@link Flux} that emits a {@link QueryRow} for every result from
+	 *         the query. Eventually sends a complete signal.
+	 * @since 0.2.0
+	 */
+	Flux<QueryRow> pullQuery(QueryRequest queryRequest, PullQueryHedging hedging);
+
+	/**
+	 * Looks up the row of a key in a table with a pull query. Lookups issued
+	 * concurrently through the same {@link KeyLookup} are batched into fewer
+	 * requests.
+	 * 
+	 * @param table     name of the table
+	 * @param key       value of the key column of the {@link KeyLookup}
+	 * @param keyLookup batching settings, collects the statistics of the lookups
+	 * @return a {@link Mono} that emits the row of the key, or completes empty if
+	 *         the table does not hold the key.
+	 * @since 0.2.0
+	 */
+	Mono<QueryRow> lookup(String table, String key, KeyLookup keyLookup);
+
 	/**
 	 * Executes an asynchronous SELECT statement against a TABLE. The {@link Flux}
 	 * return by the push query will never send a complete signal as the server will
@@ -155,6 +227,144 @@ public interface KsqlDBClient {
 	 */
 	Flux<QueryRow> pushQuery(QueryRequest queryRequest);
 
+	/**
+	 * Executes a push query like {@link #pushQuery(QueryRequest)} and only keeps
+	 * the latest row of every key while the subscriber is behind. Rows replaced
+	 * by a newer row with the same key before being requested by the subscriber
+	 * are dropped and counted by the {@link Conflation}.
+	 * 
+	 * @param queryRequest a request containing a SELECT statement with EMIT
+	 *                     CHANGES.
+	 * @param keyColumn    name of the column that identifies the rows, ex:
+	 *                     ROWKEY
+	 * @param conflation   bounds the number of pending keys and collects the
+	 *                     statistics of the conflation
+	 * @return a {@link Flux} that emits the latest {@link QueryRow} of every key.
+	 *         Never sends a complete signal.
+	 * @since 0.2.0
+	 */
+	Flux<QueryRow> pushQuery(QueryRequest queryRequest, String keyColumn, Conflation conflation);
+
+	/**
+	 * Executes a push query like {@link #pushQuery(QueryRequest)} and opens a new
+	 * WebSocket session whenever the current one fails or is closed by the
+	 * server. Rows sent again by the new session are dropped according to the
+	 * deduplication columns of the {@link Reconnection}.
+	 * 
+	 * @param queryRequest a request containing a SELECT statement with EMIT
+	 *                     CHANGES.
+	 * @param reconnection backoff and deduplication settings, collects the
+	 *                     statistics of the reconnections
+	 * @return a {@link Flux} that emits a {@link QueryRow} for every result from
+	 *         the query. Only sends an error signal once the maximum number of
+	 *         attempts of the {@link Reconnection} is exhausted.
+	 * @since 0.2.0
+	 */
+	Flux<QueryRow> pushQuery(QueryRequest queryRequest, Reconnection reconnection);
+
+	/**
+	 * Executes a push query like {@link #pushQuery(QueryRequest)} and shares it
+	 * with every other subscriber of the same statement and streams properties
+	 * through the same {@link PushQuerySharing}. A single query runs on the server
+	 * as long as one of them is subscribed.
+	 * 
+	 * @param queryRequest a request containing a SELECT statement with EMIT
+	 *                     CHANGES.
+	 * @param sharing      grace period and replay settings, collects the
+	 *                     statistics of the shared queries
+	 * @return a {@link Flux} that emits a {@link QueryRow} for every result from
+	 *         the shared query. Never sends a complete signal.
+	 * @since 0.2.0
+	 */
+	Flux<QueryRow> pushQuery(QueryRequest queryRequest, PushQuerySharing sharing);
+
+	/**
+	 * Executes a pull query like {@link #pullQuery(QueryRequest)} and binds every
+	 * row to an instance of {@code rowType}. Columns are bound by name to the
+	 * parameters of a constructor annotated with {@code @JsonCreator}, or to the
+	 * setters and fields of a class with a no-arg constructor, or to the
+	 * parameters of a constructor compiled with {@code -parameters}. Case and
+	 * underscores are ignored, the {@code TRANSACTION_COUNT} column is bound to a
+	 * {@code transactionCount} property.
+	 * 
+	 * @param <T>          type of the rows
+	 * @param queryRequest a request containing a SELECT statement without EMIT
+	 *                     CHANGES.
+	 * @param rowType      class the rows are bound to
+	 * @return a {@link Flux} that emits an instance of {@code rowType} for every
+	 *         result from the query. Eventually sends a complete signal.
+	 * @since 0.2.0
+	 */
+	<T> Flux<T> pullQuery(QueryRequest queryRequest, Class<T> rowType);
+
+	/**
+	 * Executes a push query like {@link #pushQuery(QueryRequest)} and binds every
+	 * row to an instance of {@code rowType} like
+	 * {@link #pullQuery(QueryRequest, Class)}.
+	 * 
+	 * @param <T>          type of the rows
+	 * @param queryRequest a request containing a SELECT statement with EMIT
+	 *                     CHANGES.
+	 * @param rowType      class the rows are bound to
+	 * @return a {@link Flux} that emits an instance of {@code rowType} for every
+	 *         result from the query. Never sends a complete signal.
+	 * @since 0.2.0
+	 */
+	<T> Flux<T> pushQuery(QueryRequest queryRequest, Class<T> rowType);
+
+	/**
+	 * Executes a pull query like {@link #pullQuery(QueryRequest)} and decodes
+	 * every row according to the schema sent by the server in the header of the
+	 * response.
+	 * 
+	 * @param queryRequest a request containing a SELECT statement without EMIT
+	 *                     CHANGES.
+	 * @return a {@link Flux} that emits a {@link TypedRow} for every result from
+	 *         the query. Eventually sends a complete signal.
+	 * @since 0.2.0
+	 */
+	Flux<TypedRow> typedPullQuery(QueryRequest queryRequest);
+
+	/**
+	 * Executes a push query like {@link #pushQuery(QueryRequest)} and decodes
+	 * every row according to the schema sent by the server in the first frame of
+	 * the WebSocket session.
+	 * 
+	 * @param queryRequest a request containing a SELECT statement with EMIT
+	 *                     CHANGES.
+	 * @return a {@link Flux} that emits a {@link TypedRow} for every result from
+	 *         the query. Never sends a complete signal.
+	 * @since 0.2.0
+	 */
+	Flux<TypedRow> typedPushQuery(QueryRequest queryRequest);
+
+	/**
+	 * Executes a pull query and emits its rows in columnar batches. Every batch
+	 * holds the rows received in the same HTTP chunk.
+	 * 
+	 * @param queryRequest a request containing a SELECT statement without EMIT
+	 *                     CHANGES.
+	 * @return a {@link Flux} that emits a {@link RowBatch} for every HTTP chunk
+	 *         that completes at least one row. Eventually sends a complete signal.
+	 * @since 0.2.0
+	 */
+	Flux<RowBatch> pullQueryBatches(QueryRequest queryRequest);
+
+	/**
+	 * Executes a push query over WebSocket and emits its rows in columnar
+	 * batches. Rows are decoded as soon as they are received and every batch
+	 * holds the rows received since the previous batch was requested, up to 1024
+	 * rows. Like {@link #pushQuery(QueryRequest)}, the query does not use a
+	 * connection of the pool.
+	 * 
+	 * @param queryRequest a request containing a SELECT statement with EMIT
+	 *                     CHANGES.
+	 * @return a {@link Flux} that emits a {@link RowBatch} whenever rows were
+	 *         received and a batch is requested. Never sends a complete signal.
+	 * @since 0.2.0
+	 */
+	Flux<RowBatch> pushQueryBatches(QueryRequest queryRequest);
+
 	/**
 	 * Executes asynchronous SHOW TABLES statement.
 	 * 
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Builder for {@link KsqlDBClient} that exposes the networking resources used
+ * by the client.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class KsqlDBClientBuilder {
+	private String url;
+	private String webSocketUrl;
+	private final List<KsqlDBNode> nodes = new ArrayList<>();
+	private LoadBalancer loadBalancer = LoadBalancer.roundRobin();
+	private HealthMonitor healthMonitor;
+	private ConcurrencyLimiter concurrencyLimiter;
+	private RetryPolicy retryPolicy;
+	private CircuitBreaker circuitBreaker;
+	private final List<RequestListener> listeners = new ArrayList<>();
+	private ConnectionProvider connectionProvider;
+	private LoopResources loopResources;
+	private int webSocketHighWatermark = ReactorWebClient.DEFAULT_WEBSOCKET_HIGH_WATERMARK;
+	private int webSocketLowWatermark = ReactorWebClient.DEFAULT_WEBSOCKET_LOW_WATERMARK;
+
+	KsqlDBClientBuilder() {
+
+	}
+
+	/**
+	 * @param url base URL of the ksqlDB REST API. Ex: http://localhost:8088
+	 * @return this builder
+	 */
+	public KsqlDBClientBuilder url(String url) {
+		this.url = url;
+		return this;
+	}
+
+	/**
+	 * @param webSocketUrl base URL of the ksqlDB WebSocket API. Ex:
+	 *                     ws://localhost:8088
+	 * @return this builder
+	 */
+	public KsqlDBClientBuilder webSocketUrl(String webSocketUrl) {
+		this.webSocketUrl = webSocketUrl;
+		return this;
+	}
+
+	/**
+	 * Adds a node of a ksqlDB cluster. Requests are balanced across all the nodes
+	 * by the {@link LoadBalancer} of the client. The url and WebSocket url of the
+	 * builder are ignored once a node is added.
+	 *
+	 * @param node node of the cluster
+	 * @return this builder
+	 */
+	public KsqlDBClientBuilder node(KsqlDBNode node) {
+		this.nodes.add(node);
+		return this;
+	}
+
+	/**
+	 * Selects the node of every request. Defaults to
+	 * {@link LoadBalancer#roundRobin()}.
+	 *
+	 * @param loadBalancer policy that selects the node of every request
+	 * @return this builder
+	 */
+	public KsqlDBClientBuilder loadBalancer(LoadBalancer loadBalancer) {
+		this.loadBalancer = loadBalancer;
+		return this;
+	}
+
+	/**
+	 * Polls the health check endpoint of every node of the client and ejects the
+	 * unhealthy nodes from the load balancing. The same monitor can be shared by
+	 * multiple clients.
+	 *
+	 * @param healthMonitor monitor of the nodes
+	 * @return this builder
+	 */
+	public KsqlDBClientBuilder healthMonitor(HealthMonitor healthMonitor) {
+		this.healthMonitor = healthMonitor;
+		return this;
+	}
+
+	/**
+	 * Bounds the number of requests in flight with a limit adapted to the round
+	 * trip time of the requests. The same limiter can be shared by multiple
+	 * clients of a cluster.
+	 *
+	 * @param concurrencyLimiter limiter of the requests
+	 * @return this builder
+	 */
+	public KsqlDBClientBuilder concurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+		this.concurrencyLimiter = concurrencyLimiter;
+		return this;
+	}
+
+	/**
+	 * Retries the requests that failed with a transient error when their
+	 * statements can safely be executed twice. The same policy can be shared by
+	 * multiple clients.
+	 *
+	 * @param retryPolicy policy of the retries
+	 * @return this builder
+	 */
+	public KsqlDBClientBuilder retryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+		return this;
+	}
+
+	/**
+	 * Rejects the requests sent to a node which recent requests failed or were
+	 * slow, and skips the node in the load balancing. The same circuit breaker
+	 * can be shared by multiple clients.
+	 *
+	 * @param circuitBreaker circuit breaker of the nodes
+	 * @return this builder
+	 */
+	public KsqlDBClientBuilder circuitBreaker(CircuitBreaker circuitBreaker) {
+		this.circuitBreaker = circuitBreaker;
+		return this;
+	}
+
+	/**
+	 * Registers a listener of the requests of the client. Listeners are invoked
+	 * in their registration order.
+	 *
+	 * @param listener listener of the requests
+	 * @return this builder
+	 */
+	public KsqlDBClientBuilder listener(RequestListener listener) {
+		this.listeners.add(listener);
+		return this;
+	}
+
+	/**
+	 * Runs the REST requests of the client on a {@link ConnectionPool}. The same
+	 * pool can be shared by multiple clients.
+	 *
+	 * @param connectionPool pool that provides the HTTP connections
+	 * @return this builder
+	 */
+	public KsqlDBClientBuilder connectionPool(ConnectionPool connectionPool) {
+		return connectionProvider(connectionPool.getConnectionProvider());
+	}
+
+	/**
+	 * Runs the REST requests of the client on a Reactor Netty
+	 * {@link ConnectionProvider}. Reactor Netty's global pool is used when none
+	 * is configured.
+	 *
+	 * @param connectionProvider provider of the HTTP connections
+	 * @return this builder
+	 */
+	public KsqlDBClientBuilder connectionProvider(ConnectionProvider connectionProvider) {
+		this.connectionProvider = connectionProvider;
+		return this;
+	}
+
+	/**
+	 * Runs the client on the event loops of the provided {@link LoopResources}.
+	 * Reactor Netty's global event loops are used when none is configured.
+	 *
+	 * @param loopResources event loops used by the client
+	 * @return this builder
+	 */
+	public KsqlDBClientBuilder loopResources(LoopResources loopResources) {
+		this.loopResources = loopResources;
+		return this;
+	}
+
+	/**
+	 * Bounds the number of WebSocket frames of a push query buffered while its
+	 * subscriber has no outstanding demand. Reading from the socket is paused
+	 * once {@code highWatermark} frames are buffered and resumed once the
+	 * subscriber drained them down to {@code lowWatermark}. Defaults to 128 and
+	 * 32.
+	 *
+	 * @param highWatermark number of buffered frames that pauses reads
+	 * @param lowWatermark  number of buffered frames that resumes reads
+	 * @return this builder
+	 */
+	public KsqlDBClientBuilder webSocketBackpressure(int highWatermark, int lowWatermark) {
+		if (highWatermark < 1 || lowWatermark < 0 || lowWatermark >= highWatermark) {
+			throw new IllegalArgumentException("The watermarks must satisfy 0 <= lowWatermark < highWatermark.");
+		}
+
+		this.webSocketHighWatermark = highWatermark;
+		this.webSocketLowWatermark = lowWatermark;
+		return this;
+	}
+
+	List<KsqlDBNode> getNodes() {
+		return nodes.isEmpty() ? Collections.singletonList(KsqlDBNode.of(url, webSocketUrl)) : nodes;
+	}
+
+	LoadBalancer getLoadBalancer() {
+		return loadBalancer;
+	}
+
+	HealthMonitor getHealthMonitor() {
+		return healthMonitor;
+	}
+
+	ConcurrencyLimiter getConcurrencyLimiter() {
+		return concurrencyLimiter;
+	}
+
+	RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	List<RequestListener> getListeners() {
+		return listeners;
+	}
+
+	ConnectionProvider getConnectionProvider() {
+		return connectionProvider;
+	}
+
+	LoopResources getLoopResources() {
+		return loopResources;
+	}
+
+	int getWebSocketHighWatermark() {
+		return webSocketHighWatermark;
+	}
+
+	int getWebSocketLowWatermark() {
+		return webSocketLowWatermark;
+	}
+
+	public KsqlDBClient build() {
+		if (nodes.isEmpty() && (url == null || webSocketUrl == null)) {
+			throw new NullPointerException("url and webSocketUrl are required when no node is added");
+		}
+
+		return new DefaultKsqlDBClient(new ReactorWebClient(this));
+	}
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * A ksqlDB server of a cluster, identified by the base URLs of its REST and
+ * WebSocket APIs. Nodes track the requests routed to them by a
+ * {@link LoadBalancer}: the number of requests in flight and an exponentially
+ * weighted moving average of the time to their first response, which decays
+ * over a ten seconds window. Push query sessions stay open and are counted
+ * separately, they are part of neither.
+ * <p>
+ * A node is ejected from the routing by a {@link HealthMonitor} when it fails
+ * its health checks. Once a health check succeeds again, the node is half open
+ * and receives a single trial request, which success readmits the node.
+ * </p>
+ * <p>
+ * A single instance can be shared by multiple clients, its statistics are
+ * aggregated across all of them.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class KsqlDBNode {
+	private static final Logger LOGGER = LoggerFactory.getLogger(KsqlDBNode.class);
+	private static final double DECAY_NANOS = Duration.ofSeconds(10).toNanos();
+
+	private final String url;
+	private final String webSocketUrl;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger pushSessions = new AtomicInteger();
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private final LongAdder ejections = new LongAdder();
+	private final AtomicBoolean trial = new AtomicBoolean();
+
+	private volatile State state = State.HEALTHY;
+
+	private double latencyNanos;
+	private long lastSampleNanos;
+
+	private KsqlDBNode(String url, String webSocketUrl) {
+		this.url = url;
+		this.webSocketUrl = webSocketUrl;
+	}
+
+	/**
+	 * @param url          base URL of the ksqlDB REST API. Ex:
+	 *                     http://localhost:8088
+	 * @param webSocketUrl base URL of the ksqlDB WebSocket API. Ex:
+	 *                     ws://localhost:8088
+	 * @return a new node
+	 */
+	public static KsqlDBNode of(String url, String webSocketUrl) {
+		return new KsqlDBNode(url, webSocketUrl);
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public String getWebSocketUrl() {
+		return webSocketUrl;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	/**
+	 * @return the number of requests in flight, push query sessions excluded.
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	/**
+	 * @return the number of push query sessions currently opened on the node.
+	 */
+	public int getPushSessions() {
+		return pushSessions.get();
+	}
+
+	/**
+	 * @return the moving average of the time to the first response in
+	 *         nanoseconds, zero until a response is received.
+	 */
+	public synchronized double getLatencyNanos() {
+		return latencyNanos;
+	}
+
+	/**
+	 * Takes a snapshot of the counters.
+	 *
+	 * @return the current statistics of the node.
+	 */
+	public KsqlDBNodeStats getStats() {
+		return new KsqlDBNodeStats(url, state, inFlight.get(), pushSessions.get(), requests.sum(), errors.sum(),
+				ejections.sum(), Duration.ofNanos((long) getLatencyNanos()));
+	}
+
+	boolean isHealthy() {
+		return state == State.HEALTHY;
+	}
+
+	/**
+	 * @return true if the node is half open and no trial request is in flight, in
+	 *         which case the caller must send the trial request.
+	 */
+	boolean tryAcquireTrial() {
+		return state == State.HALF_OPEN && trial.compareAndSet(false, true);
+	}
+
+	void eject(String reason) {
+		State previous = state;
+		state = State.EJECTED;
+		trial.set(false);
+
+		if (previous != State.EJECTED) {
+			ejections.increment();
+
+			LOGGER.warn("Ejected ksqlDB node {}: {}.", url, reason);
+		}
+	}
+
+	void halfOpen() {
+		if (state == State.EJECTED) {
+			state = State.HALF_OPEN;
+
+			LOGGER.info("ksqlDB node {} passed its health check, waiting for a trial request.", url);
+		}
+	}
+
+	private void readmit() {
+		state = State.HEALTHY;
+		trial.set(false);
+
+		LOGGER.info("Readmitted ksqlDB node {}.", url);
+	}
+
+	/**
+	 * Tracks every subscription to a request sent to this node.
+	 *
+	 * @param trial       true if the request is the trial request of a half open
+	 *                    node, its outcome readmits or ejects the node.
+	 * @param pushSession true if the request is a push query, which is counted as
+	 *                    a push session rather than a request in flight and which
+	 *                    first response is not part of the latency average.
+	 */
+	<T> Flux<T> track(Flux<T> request, boolean trial, boolean pushSession) {
+		return Flux.defer(() -> {
+			Request tracked = new Request(trial, pushSession);
+
+			return request.doOnSubscribe(subscription -> tracked.start()).doOnNext(value -> tracked.respond())
+					.doOnError(error -> tracked.fail()).doFinally(signal -> tracked.end());
+		});
+	}
+
+	<T> Mono<T> track(Mono<T> request, boolean trial) {
+		return Mono.defer(() -> {
+			Request tracked = new Request(trial, false);
+
+			return request.doOnSubscribe(subscription -> tracked.start()).doOnNext(value -> tracked.respond())
+					.doOnError(error -> tracked.fail()).doFinally(signal -> tracked.end());
+		});
+	}
+
+	private synchronized void onLatency(long sampleNanos, long now) {
+		if (lastSampleNanos == 0) {
+			latencyNanos = sampleNanos;
+		} else {
+			double weight = Math.exp(-Math.max(0, now - lastSampleNanos) / DECAY_NANOS);
+
+			latencyNanos = latencyNanos * weight + sampleNanos * (1 - weight);
+		}
+
+		lastSampleNanos = now;
+	}
+
+	/**
+	 * Routing state of a node.
+	 */
+	public enum State {
+		/**
+		 * The node receives requests.
+		 */
+		HEALTHY,
+
+		/**
+		 * The node failed its health checks and receives no request.
+		 */
+		EJECTED,
+
+		/**
+		 * The node passed a health check after being ejected and receives a single
+		 * trial request.
+		 */
+		HALF_OPEN
+	}
+
+	@Override
+	public String toString() {
+		return "KsqlDBNode [url=" + url + ", webSocketUrl=" + webSocketUrl + "]";
+	}
+
+	private class Request {
+		private final boolean trial;
+		private final boolean pushSession;
+
+		private boolean started;
+		private long startNanos;
+		private boolean responded;
+		private boolean failed;
+
+		private Request(boolean trial, boolean pushSession) {
+			this.trial = trial;
+			this.pushSession = pushSession;
+		}
+
+		private void start() {
+			started = true;
+			startNanos = System.nanoTime();
+			counter().incrementAndGet();
+			requests.increment();
+		}
+
+		private AtomicInteger counter() {
+			return pushSession ? pushSessions : inFlight;
+		}
+
+		private void respond() {
+			if (!responded) {
+				responded = true;
+
+				if (!pushSession) {
+					long now = System.nanoTime();
+					onLatency(now - startNanos, now);
+				}
+
+				if (trial) {
+					readmit();
+				}
+			}
+		}
+
+		private void fail() {
+			failed = true;
+			errors.increment();
+
+			if (trial && !responded) {
+				eject("trial request failed");
+			}
+		}
+
+		private void end() {
+			if (started) {
+				counter().decrementAndGet();
+			}
+
+			// A trial request cancelled or completed without any response leaves the
+			// node half open for the next one.
+			if (trial && !responded && !failed) {
+				KsqlDBNode.this.trial.set(false);
+			}
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+
+/**
+ * Snapshot of the counters of a {@link KsqlDBNode}.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class KsqlDBNodeStats {
+	private final String url;
+	private final KsqlDBNode.State state;
+	private final int inFlight;
+	private final int pushSessions;
+	private final long requests;
+	private final long errors;
+	private final long ejections;
+	private final Duration latency;
+
+	public KsqlDBNodeStats(String url, KsqlDBNode.State state, int inFlight, int pushSessions, long requests,
+			long errors, long ejections, Duration latency) {
+		this.url = url;
+		this.state = state;
+		this.inFlight = inFlight;
+		this.pushSessions = pushSessions;
+		this.requests = requests;
+		this.errors = errors;
+		this.ejections = ejections;
+		this.latency = latency;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public KsqlDBNode.State getState() {
+		return state;
+	}
+
+	/**
+	 * @return the number of requests currently in flight on the node, push query
+	 *         sessions excluded.
+	 */
+	public int getInFlight() {
+		return inFlight;
+	}
+
+	/**
+	 * @return the number of push query sessions currently opened on the node.
+	 */
+	public int getPushSessions() {
+		return pushSessions;
+	}
+
+	public long getRequests() {
+		return requests;
+	}
+
+	public long getErrors() {
+		return errors;
+	}
+
+	/**
+	 * @return the number of times the node was ejected by a
+	 *         {@link HealthMonitor}.
+	 */
+	public long getEjections() {
+		return ejections;
+	}
+
+	/**
+	 * @return the exponentially weighted moving average of the time to the first
+	 *         response of the node, zero until a response is received.
+	 */
+	public Duration getLatency() {
+		return latency;
+	}
+
+	@Override
+	public String toString() {
+		return "KsqlDBNodeStats [url=" + url + ", state=" + state + ", inFlight=" + inFlight + ", pushSessions="
+				+ pushSessions + ", requests=" + requests + ", errors=" + errors + ", ejections=" + ejections
+				+ ", latency=" + latency + "]";
+	}
+}
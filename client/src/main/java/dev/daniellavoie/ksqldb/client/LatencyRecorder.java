@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of latencies, laid out like an HDR histogram: every power
+ * of two is split in 32 linear buckets, which bounds the error of a recorded
+ * value to about 3%. Values range from 1 nanosecond to about 2 hours, larger
+ * values are recorded in the last bucket.
+ * <p>
+ * Recording only increments a bucket with an atomic addition. Snapshots return
+ * the values recorded since the previous snapshot, they must be taken by a
+ * single thread at a time.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+class LatencyRecorder {
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final long MAX_VALUE = (1L << 43) - 1;
+
+	static final int BUCKETS = (43 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder sum = new LongAdder();
+
+	private final long[] previousCounts = new long[BUCKETS];
+	private long previousSum;
+
+	void record(long nanos) {
+		long value = Math.max(0, Math.min(MAX_VALUE, nanos));
+
+		counts.incrementAndGet(index(value));
+		sum.add(value);
+	}
+
+	/**
+	 * @return the values recorded since the previous snapshot.
+	 */
+	LatencySnapshot snapshot() {
+		long[] interval = new long[BUCKETS];
+		long count = 0;
+
+		for (int i = 0; i < BUCKETS; ++i) {
+			long current = counts.get(i);
+
+			interval[i] = current - previousCounts[i];
+			previousCounts[i] = current;
+			count += interval[i];
+		}
+
+		long currentSum = sum.sum();
+		long intervalSum = currentSum - previousSum;
+		previousSum = currentSum;
+
+		return count == 0 ? LatencySnapshot.EMPTY : new LatencySnapshot(interval, count, intervalSum);
+	}
+
+	static int index(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+
+		return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+	}
+
+	static long lowestValue(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+
+		int shift = index / SUB_BUCKETS - 1;
+
+		return (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+	}
+
+	static long highestValue(int index) {
+		return index + 1 < BUCKETS ? lowestValue(index + 1) - 1 : MAX_VALUE;
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+
+/**
+ * Latencies recorded during an interval by a {@link ClientMetrics}. Values are
+ * accurate to about 3%.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class LatencySnapshot {
+	static final LatencySnapshot EMPTY = new LatencySnapshot(new long[0], 0, 0);
+
+	private final long[] counts;
+	private final long count;
+	private final long sumNanos;
+
+	LatencySnapshot(long[] counts, long count, long sumNanos) {
+		this.counts = counts;
+		this.count = count;
+		this.sumNanos = sumNanos;
+	}
+
+	/**
+	 * @return the number of recorded values.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the mean of the recorded values, zero if there is none.
+	 */
+	public Duration getMean() {
+		return Duration.ofNanos(count == 0 ? 0 : sumNanos / count);
+	}
+
+	/**
+	 * @return the lowest recorded value, zero if there is none.
+	 */
+	public Duration getMin() {
+		for (int i = 0; i < counts.length; ++i) {
+			if (counts[i] != 0) {
+				return Duration.ofNanos(LatencyRecorder.lowestValue(i));
+			}
+		}
+
+		return Duration.ZERO;
+	}
+
+	/**
+	 * @return the highest recorded value, zero if there is none.
+	 */
+	public Duration getMax() {
+		for (int i = counts.length - 1; i >= 0; --i) {
+			if (counts[i] != 0) {
+				return Duration.ofNanos(LatencyRecorder.highestValue(i));
+			}
+		}
+
+		return Duration.ZERO;
+	}
+
+	/**
+	 * @param percentile percentile between 0 and 100, ex: 99.9
+	 * @return the value below which the percentage of the recorded values falls,
+	 *         zero if there is none.
+	 */
+	public Duration getPercentile(double percentile) {
+		if (count == 0) {
+			return Duration.ZERO;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * count));
+		long seen = 0;
+
+		for (int i = 0; i < counts.length; ++i) {
+			seen += counts[i];
+
+			if (seen >= rank) {
+				return Duration.ofNanos(LatencyRecorder.highestValue(i));
+			}
+		}
+
+		return getMax();
+	}
+
+	@Override
+	public String toString() {
+		return "LatencySnapshot [count=" + count + ", mean=" + getMean() + ", p50=" + getPercentile(50) + ", p99="
+				+ getPercentile(99) + ", p99.9=" + getPercentile(99.9) + ", max=" + getMax() + "]";
+	}
+}
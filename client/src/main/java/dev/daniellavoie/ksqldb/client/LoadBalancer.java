@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Selects the {@link KsqlDBNode} a request is sent to. The nodes provided to a
+ * load balancer are never empty. Implementations are invoked concurrently for
+ * every request and must be thread safe.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+@FunctionalInterface
+public interface LoadBalancer {
+	/**
+	 * @param nodes nodes of the cluster
+	 * @return the node to send the request to.
+	 */
+	KsqlDBNode select(List<KsqlDBNode> nodes);
+
+	/**
+	 * @return a load balancer that sends requests to every node in turn.
+	 */
+	static LoadBalancer roundRobin() {
+		AtomicInteger next = new AtomicInteger();
+
+		return nodes -> nodes.get((next.getAndIncrement() & Integer.MAX_VALUE) % nodes.size());
+	}
+
+	/**
+	 * @return a load balancer that sends requests to the node with the fewest
+	 *         requests in flight. Ties are broken in turn.
+	 */
+	static LoadBalancer leastOutstanding() {
+		AtomicInteger next = new AtomicInteger();
+
+		return nodes -> {
+			int start = (next.getAndIncrement() & Integer.MAX_VALUE) % nodes.size();
+			KsqlDBNode selected = null;
+
+			for (int i = 0; i < nodes.size(); ++i) {
+				KsqlDBNode node = nodes.get((start + i) % nodes.size());
+
+				if (selected == null || node.getInFlight() < selected.getInFlight()) {
+					selected = node;
+				}
+			}
+
+			return selected;
+		};
+	}
+
+	/**
+	 * Picks two nodes at random and sends the request to the one with the lowest
+	 * cost, its average latency multiplied by its number of requests in flight
+	 * plus one. A node slower than the others receives fewer requests without
+	 * every client herding to the same fastest node.
+	 *
+	 * @return a load balancer based on the power of two choices.
+	 */
+	static LoadBalancer powerOfTwoChoices() {
+		return nodes -> {
+			if (nodes.size() == 1) {
+				return nodes.get(0);
+			}
+
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			int first = random.nextInt(nodes.size());
+			int second = random.nextInt(nodes.size() - 1);
+			if (second >= first) {
+				++second;
+			}
+
+			KsqlDBNode a = nodes.get(first);
+			KsqlDBNode b = nodes.get(second);
+
+			return a.getLatencyNanos() * (a.getInFlight() + 1) <= b.getLatencyNanos() * (b.getInFlight() + 1) ? a : b;
+		};
+	}
+}
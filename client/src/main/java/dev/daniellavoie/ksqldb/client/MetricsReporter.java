@@ -0,0 +1,32 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+/**
+ * Receives the metrics of a client at a fixed interval, see
+ * {@link ClientMetrics#report(java.time.Duration, MetricsReporter)}. Adapters
+ * to metrics registries implement this interface to export the snapshots.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+@FunctionalInterface
+public interface MetricsReporter {
+	/**
+	 * @param snapshot metrics recorded since the previous report
+	 */
+	void report(ClientMetricsSnapshot snapshot);
+}
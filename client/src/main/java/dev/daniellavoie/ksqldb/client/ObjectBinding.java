@@ -0,0 +1,304 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Describes how the rows of a query are bound to instances of a class. The
+ * class is introspected once and its properties are compiled into
+ * {@link MethodHandle}s, rows are then bound without reflection.
+ * <p>
+ * Rows are bound through the constructor annotated with {@link JsonCreator}
+ * if there is one, otherwise through the no-arg constructor and the setters
+ * and non final fields of the class, otherwise through the constructor with
+ * the most parameters which names are known. Parameter names are read from
+ * {@link JsonProperty} or from the class file when it was compiled with
+ * {@code -parameters}.
+ * </p>
+ * <p>
+ * Columns are matched to properties by name, ignoring case and underscores:
+ * the {@code TRANSACTION_COUNT} column is bound to a {@code transactionCount}
+ * property. Columns without a matching property are ignored.
+ * </p>
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ *
+ * @param <T> Type of the bound objects.
+ */
+final class ObjectBinding<T> {
+	/**
+	 * Bindings are attached to their class so they do not keep the class loader
+	 * of an application alive.
+	 */
+	private static final ClassValue<ObjectBinding<?>> BINDINGS = new ClassValue<ObjectBinding<?>>() {
+		@Override
+		protected ObjectBinding<?> computeValue(Class<?> type) {
+			return new ObjectBinding<>(type);
+		}
+	};
+
+	private final Class<T> type;
+	private final Map<String, ColumnWriter> writers = new HashMap<>();
+
+	/**
+	 * Either {@code ()Object} for the no-arg constructor or {@code (Object[])Object}.
+	 */
+	private MethodHandle constructor;
+	private Object[] defaultArguments;
+
+	private ObjectBinding(Class<T> type) {
+		this.type = type;
+
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		Constructor<?> creator = creator(type);
+
+		try {
+			if (creator.getParameterCount() == 0) {
+				constructor = lookup.unreflectConstructor(accessible(creator))
+						.asType(MethodType.methodType(Object.class));
+
+				bindProperties(lookup);
+			} else {
+				bindArguments(lookup, creator);
+			}
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("Cannot access the constructor of " + type.getName() + ".", e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> ObjectBinding<T> of(Class<T> type) {
+		return (ObjectBinding<T>) BINDINGS.get(type);
+	}
+
+	/**
+	 * Resolves the writer of every column of a schema.
+	 * 
+	 * @return the writer of every column, null for the columns without a
+	 *         matching property.
+	 */
+	ColumnWriter[] writers(RowSchema schema) {
+		ColumnWriter[] columns = new ColumnWriter[schema.size()];
+
+		for (int index = 0; index < columns.length; ++index) {
+			columns[index] = writers.get(normalize(schema.getColumns().get(index).getName()));
+		}
+
+		return columns;
+	}
+
+	/**
+	 * @return the object which properties are written, or the arguments of the
+	 *         constructor.
+	 */
+	Object newTarget() {
+		if (defaultArguments != null) {
+			return defaultArguments.clone();
+		}
+
+		try {
+			return (Object) constructor.invokeExact();
+		} catch (Throwable e) {
+			throw failure(e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	T complete(Object target) {
+		if (defaultArguments == null) {
+			return (T) target;
+		}
+
+		try {
+			return (T) (Object) constructor.invokeExact((Object[]) target);
+		} catch (Throwable e) {
+			throw failure(e);
+		}
+	}
+
+	private void bindProperties(MethodHandles.Lookup lookup) throws IllegalAccessException {
+		for (Class<?> current = type; current != null && current != Object.class; current = current
+				.getSuperclass()) {
+			for (Field field : current.getDeclaredFields()) {
+				int modifiers = field.getModifiers();
+
+				if (field.isSynthetic() || Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)
+						|| Modifier.isTransient(modifiers)) {
+					continue;
+				}
+
+				String name = propertyName(field.getAnnotation(JsonProperty.class), field.getName());
+				if (writers.containsKey(normalize(name)) || !trySetAccessible(field)) {
+					continue;
+				}
+
+				MethodHandle setter = lookup.unreflectSetter(field);
+
+				addWriter(name, field.getGenericType(),
+						setter.asType(MethodType.methodType(void.class, Object.class, field.getType())));
+			}
+		}
+
+		for (Method method : type.getMethods()) {
+			if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 1
+					|| !method.getName().startsWith("set") || method.getName().length() == 3) {
+				continue;
+			}
+
+			String name = propertyName(method.getAnnotation(JsonProperty.class), method.getName().substring(3));
+			if (!trySetAccessible(method)) {
+				continue;
+			}
+
+			MethodHandle setter = lookup.unreflect(method);
+
+			addWriter(name, method.getGenericParameterTypes()[0],
+					setter.asType(MethodType.methodType(void.class, Object.class, method.getParameterTypes()[0])));
+		}
+	}
+
+	private void bindArguments(MethodHandles.Lookup lookup, Constructor<?> creator) throws IllegalAccessException {
+		Parameter[] parameters = creator.getParameters();
+		MethodHandle elementSetter = MethodHandles.arrayElementSetter(Object[].class);
+
+		defaultArguments = new Object[parameters.length];
+		constructor = lookup.unreflectConstructor(accessible(creator)).asSpreader(Object[].class, parameters.length)
+				.asType(MethodType.methodType(Object.class, Object[].class));
+
+		for (int index = 0; index < parameters.length; ++index) {
+			Parameter parameter = parameters[index];
+			Class<?> parameterType = parameter.getType();
+
+			if (parameterType.isPrimitive()) {
+				defaultArguments[index] = Array.get(Array.newInstance(parameterType, 1), 0);
+			}
+
+			MethodHandle setter = MethodHandles.insertArguments(elementSetter, 1, index)
+					.asType(MethodType.methodType(void.class, Object.class, parameterType));
+
+			addWriter(parameterName(parameter), parameter.getParameterizedType(), setter);
+		}
+	}
+
+	private void addWriter(String name, Type genericType, MethodHandle setter) {
+		writers.put(normalize(name), new ColumnWriter(name, genericType, setter));
+	}
+
+	private static Constructor<?> creator(Class<?> type) {
+		if (type.isInterface() || Modifier.isAbstract(type.getModifiers()) || type.isPrimitive()) {
+			throw new IllegalArgumentException(
+					"Cannot bind rows to " + type.getName() + ", it is not a concrete class.");
+		}
+
+		Constructor<?> noArgs = null;
+		Constructor<?> named = null;
+
+		for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+			if (constructor.isAnnotationPresent(JsonCreator.class)) {
+				return constructor;
+			} else if (constructor.getParameterCount() == 0) {
+				noArgs = constructor;
+			} else if (hasParameterNames(constructor)
+					&& (named == null || constructor.getParameterCount() > named.getParameterCount())) {
+				named = constructor;
+			}
+		}
+
+		if (noArgs != null) {
+			return noArgs;
+		} else if (named != null) {
+			return named;
+		}
+
+		throw new IllegalArgumentException("Cannot bind rows to " + type.getName()
+				+ ", it requires a no-arg constructor, a constructor annotated with @JsonCreator or a constructor which parameter names are known.");
+	}
+
+	private static boolean hasParameterNames(Constructor<?> constructor) {
+		for (Parameter parameter : constructor.getParameters()) {
+			if (!parameter.isNamePresent() && !parameter.isAnnotationPresent(JsonProperty.class)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static String parameterName(Parameter parameter) {
+		JsonProperty property = parameter.getAnnotation(JsonProperty.class);
+
+		if (property == null && !parameter.isNamePresent()) {
+			throw new IllegalArgumentException("The name of parameter " + parameter + " of "
+					+ parameter.getDeclaringExecutable() + " is unknown, annotate it with @JsonProperty.");
+		}
+
+		return propertyName(property, parameter.getName());
+	}
+
+	private static String propertyName(JsonProperty property, String defaultName) {
+		return property != null && !property.value().isEmpty() ? property.value() : defaultName;
+	}
+
+	static String normalize(String name) {
+		return name.replace("_", "").toUpperCase(Locale.ROOT);
+	}
+
+	private static <A extends AccessibleObject> A accessible(A member) {
+		if (!trySetAccessible(member)) {
+			throw new IllegalArgumentException("Cannot access " + member + ".");
+		}
+
+		return member;
+	}
+
+	private static boolean trySetAccessible(AccessibleObject member) {
+		try {
+			member.setAccessible(true);
+
+			return true;
+		} catch (RuntimeException e) {
+			return false;
+		}
+	}
+
+	private static RuntimeException failure(Throwable e) {
+		if (e instanceof RuntimeException) {
+			return (RuntimeException) e;
+		} else if (e instanceof Error) {
+			throw (Error) e;
+		}
+
+		return new IllegalStateException(e);
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Binds every row element of a query response to an object through an
+ * {@link ObjectBinding}. The columns of the schema are matched to the
+ * properties of the object once per query, values are then written straight
+ * from the parser into their property. ARRAY, MAP and STRUCT columns are read
+ * straight into the type of their property. Columns without a matching
+ * property are skipped without being read.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ *
+ * @param <T> Type of the bound objects.
+ */
+class ObjectRowDecoder<T> extends RowElementDecoder<T> {
+	private static final ColumnWriter[] NO_WRITERS = new ColumnWriter[0];
+
+	private final ObjectBinding<T> binding;
+
+	private RowSchema boundSchema;
+	private ColumnWriter[] writers = NO_WRITERS;
+	private Object target;
+	private T row;
+
+	ObjectRowDecoder(ObjectBinding<T> binding, boolean blockingInput) {
+		super(blockingInput);
+
+		this.binding = binding;
+	}
+
+	@Override
+	public T complete() {
+		T completed = row;
+		row = null;
+
+		return completed;
+	}
+
+	@Override
+	void startRow() {
+		RowSchema schema = getSchema();
+		if (schema != boundSchema) {
+			writers = binding.writers(schema);
+			boundSchema = schema;
+		}
+
+		target = binding.newTarget();
+	}
+
+	@Override
+	void endRow(int columns) {
+		row = binding.complete(target);
+		target = null;
+	}
+
+	@Override
+	void onNull(int column) {
+		ColumnWriter writer = writer(column);
+		if (writer != null) {
+			writer.writeNull(target);
+		}
+	}
+
+	@Override
+	void onLong(int column, long value) {
+		ColumnWriter writer = writer(column);
+		if (writer != null) {
+			writer.writeLong(target, value);
+		}
+	}
+
+	@Override
+	void onDouble(int column, double value) {
+		ColumnWriter writer = writer(column);
+		if (writer != null) {
+			writer.writeDouble(target, value);
+		}
+	}
+
+	@Override
+	void onBoolean(int column, boolean value) {
+		ColumnWriter writer = writer(column);
+		if (writer != null) {
+			writer.writeBoolean(target, value);
+		}
+	}
+
+	@Override
+	void onString(int column, JsonParser parser, JsonToken token) throws IOException {
+		ColumnWriter writer = writer(column);
+		if (writer != null) {
+			writer.writeObject(target, parser.getText());
+		}
+	}
+
+	@Override
+	void onObject(int column, Object value) {
+		ColumnWriter writer = writer(column);
+		if (writer != null) {
+			writer.writeObject(target, value);
+		}
+	}
+
+	@Override
+	void onNested(int column, JsonParser parser) throws IOException {
+		ColumnWriter writer = writer(column);
+		if (writer != null) {
+			writer.readObject(target, parser, getSchema().isExactDecimal(column));
+		} else {
+			parser.skipChildren();
+		}
+	}
+
+	private ColumnWriter writer(int column) {
+		return column < writers.length ? writers[column] : null;
+	}
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Caches the results of pull queries for a bounded time. Results are stored by
+ * normalized statement and streams properties, like {@link PushQuerySharing},
+ * and only successful results are cached. Entries are spread across stripes
+ * that each evict their least recently used entry when full, so concurrent
+ * lookups of different statements rarely contend on the same lock.
+ * <p>
+ * Cached rows are shared between subscribers and must not be modified.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class PullQueryCache {
+	private final int maxEntries;
+	private final long timeToLiveNanos;
+	private final Stripe[] stripes;
+	private final int mask;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+
+	private PullQueryCache(Builder builder) {
+		this.maxEntries = builder.maxEntries;
+		this.timeToLiveNanos = builder.timeToLive.toNanos();
+
+		int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(builder.concurrencyLevel, maxEntries)));
+		int stripeCapacity = (maxEntries + stripeCount - 1) / stripeCount;
+
+		this.stripes = new Stripe[stripeCount];
+		for (int i = 0; i < stripeCount; ++i) {
+			stripes[i] = new Stripe(stripeCapacity);
+		}
+		this.mask = stripeCount - 1;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public Duration getTimeToLive() {
+		return Duration.ofNanos(timeToLiveNanos);
+	}
+
+	/**
+	 * Removes every cached result.
+	 */
+	public void invalidateAll() {
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				stripe.clear();
+			}
+		}
+	}
+
+	/**
+	 * Takes a snapshot of the counters.
+	 *
+	 * @return the current statistics of the cache.
+	 */
+	public PullQueryCacheStats getStats() {
+		long size = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				size += stripe.size();
+			}
+		}
+
+		return new PullQueryCacheStats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), size);
+	}
+
+	/**
+	 * @param <T>    type of the rows
+	 * @param key    statement of the query
+	 * @param source sends the query to the server when subscribed
+	 * @return a {@link Flux} that emits the cached rows of the statement, or the
+	 *         rows of the source which are then cached.
+	 */
+	<T> Flux<T> apply(StatementKey key, Supplier<Flux<T>> source) {
+		return Flux.defer(() -> {
+			List<T> rows = get(key);
+			if (rows != null) {
+				hits.increment();
+
+				return Flux.fromIterable(rows);
+			}
+
+			misses.increment();
+
+			return Flux.defer(source).collectList().doOnNext(result -> put(key, result))
+					.flatMapIterable(result -> result);
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> List<T> get(StatementKey key) {
+		Stripe stripe = stripe(key);
+
+		synchronized (stripe) {
+			CachedResult cached = stripe.get(key);
+			if (cached == null) {
+				return null;
+			}
+
+			if (System.nanoTime() - cached.createdAt >= timeToLiveNanos) {
+				stripe.remove(key);
+				expirations.increment();
+
+				return null;
+			}
+
+			return (List<T>) cached.rows;
+		}
+	}
+
+	private void put(StatementKey key, List<?> rows) {
+		CachedResult cached = new CachedResult(rows, System.nanoTime());
+		Stripe stripe = stripe(key);
+
+		synchronized (stripe) {
+			stripe.put(key, cached);
+		}
+	}
+
+	private Stripe stripe(StatementKey key) {
+		int hash = key.hashCode();
+
+		return stripes[(hash ^ (hash >>> 16)) & mask];
+	}
+
+	private static class CachedResult {
+		private final List<?> rows;
+		private final long createdAt;
+
+		private CachedResult(List<?> rows, long createdAt) {
+			this.rows = rows;
+			this.createdAt = createdAt;
+		}
+	}
+
+	private class Stripe extends LinkedHashMap<StatementKey, CachedResult> {
+		private static final long serialVersionUID = 1L;
+
+		private final int capacity;
+
+		private Stripe(int capacity) {
+			super(16, 0.75f, true);
+
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<StatementKey, CachedResult> eldest) {
+			if (size() > capacity) {
+				evictions.increment();
+
+				return true;
+			}
+
+			return false;
+		}
+	}
+
+	public static class Builder {
+		private int maxEntries = 10_000;
+		private Duration timeToLive = Duration.ofSeconds(1);
+		private int concurrencyLevel = Runtime.getRuntime().availableProcessors() * 4;
+
+		private Builder() {
+
+		}
+
+		/**
+		 * Maximum number of results cached. Defaults to 10000.
+		 *
+		 * @param maxEntries maximum number of results
+		 * @return this builder
+		 */
+		public Builder maxEntries(int maxEntries) {
+			if (maxEntries < 1) {
+				throw new IllegalArgumentException("maxEntries must be positive.");
+			}
+
+			this.maxEntries = maxEntries;
+			return this;
+		}
+
+		/**
+		 * Time during which a result is served from the cache, which bounds its
+		 * staleness. Defaults to 1 second.
+		 *
+		 * @param timeToLive time to live of a result
+		 * @return this builder
+		 */
+		public Builder timeToLive(Duration timeToLive) {
+			if (timeToLive.isNegative() || timeToLive.isZero()) {
+				throw new IllegalArgumentException("timeToLive must be positive.");
+			}
+
+			this.timeToLive = timeToLive;
+			return this;
+		}
+
+		/**
+		 * Number of stripes the entries are spread across, rounded down to a power
+		 * of two. Defaults to 4 times the number of processors.
+		 *
+		 * @param concurrencyLevel number of stripes
+		 * @return this builder
+		 */
+		public Builder concurrencyLevel(int concurrencyLevel) {
+			if (concurrencyLevel < 1) {
+				throw new IllegalArgumentException("concurrencyLevel must be positive.");
+			}
+
+			this.concurrencyLevel = concurrencyLevel;
+			return this;
+		}
+
+		public PullQueryCache build() {
+			return new PullQueryCache(this);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+/**
+ * Snapshot of the counters of a {@link PullQueryCache}.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class PullQueryCacheStats {
+	private final long hits;
+	private final long misses;
+	private final long evictions;
+	private final long expirations;
+	private final long size;
+
+	public PullQueryCacheStats(long hits, long misses, long evictions, long expirations, long size) {
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.expirations = expirations;
+		this.size = size;
+	}
+
+	/**
+	 * @return the number of queries answered from the cache.
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of queries sent to the server.
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of results removed to stay within the maximum number of
+	 *         entries.
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return the number of results removed because they were older than the
+	 *         time to live.
+	 */
+	public long getExpirations() {
+		return expirations;
+	}
+
+	/**
+	 * @return the number of results currently cached.
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	public double getHitRate() {
+		long requests = hits + misses;
+
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+
+	@Override
+	public String toString() {
+		return "PullQueryCacheStats [hits=" + hits + ", misses=" + misses + ", evictions=" + evictions
+				+ ", expirations=" + expirations + ", size=" + size + "]";
+	}
+}
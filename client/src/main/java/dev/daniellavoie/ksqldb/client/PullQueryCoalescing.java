@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Sends a single request for identical pull queries executed concurrently.
+ * While a query is in flight, every query with the same normalized statement
+ * and streams properties subscribes to it and receives all of its rows,
+ * including the ones emitted before it joined. Nothing is kept once the query
+ * completes, so a result is never older than the request that produced it.
+ * <p>
+ * The request is cancelled once all its subscribers have cancelled. An error is
+ * sent to all of them.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class PullQueryCoalescing {
+	private final Map<StatementKey, InFlightQuery<?>> queries = new ConcurrentHashMap<>();
+	private final LongAdder issued = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+
+	/**
+	 * Takes a snapshot of the counters.
+	 *
+	 * @return the current statistics of the coalescing.
+	 */
+	public PullQueryCoalescingStats getStats() {
+		return new PullQueryCoalescingStats(issued.sum(), coalesced.sum(), queries.size());
+	}
+
+	/**
+	 * @param <T>    type of the rows
+	 * @param key    statement of the query
+	 * @param source sends the query to the server when subscribed
+	 * @return a {@link Flux} that emits the rows of the query in flight for the
+	 *         statement, or of a new one.
+	 */
+	@SuppressWarnings("unchecked")
+	<T> Flux<T> apply(StatementKey key, Supplier<Flux<T>> source) {
+		return Flux.defer(() -> {
+			InFlightQuery<T> query = (InFlightQuery<T>) queries.get(key);
+			if (query == null) {
+				InFlightQuery<T> created = new InFlightQuery<>(key, source);
+
+				query = (InFlightQuery<T>) queries.putIfAbsent(key, created);
+				if (query == null) {
+					issued.increment();
+
+					return created.rows;
+				}
+			}
+
+			coalesced.increment();
+
+			return query.rows;
+		});
+	}
+
+	private class InFlightQuery<T> {
+		private final Flux<T> rows;
+
+		private InFlightQuery(StatementKey key, Supplier<Flux<T>> source) {
+			// The query is removed as soon as it terminates, subscribers that joined
+			// it in the meantime still receive its replayed rows.
+			this.rows = Flux.defer(source).doFinally(signal -> queries.remove(key, this)).replay().refCount();
+		}
+	}
+}
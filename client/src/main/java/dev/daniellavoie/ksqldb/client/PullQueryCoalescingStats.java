@@ -0,0 +1,62 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+/**
+ * Snapshot of the counters of a {@link PullQueryCoalescing}.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class PullQueryCoalescingStats {
+	private final long issued;
+	private final long coalesced;
+	private final long inFlight;
+
+	public PullQueryCoalescingStats(long issued, long coalesced, long inFlight) {
+		this.issued = issued;
+		this.coalesced = coalesced;
+		this.inFlight = inFlight;
+	}
+
+	/**
+	 * @return the number of queries sent to the server.
+	 */
+	public long getIssued() {
+		return issued;
+	}
+
+	/**
+	 * @return the number of queries that received the result of an identical
+	 *         query already in flight instead of being sent to the server.
+	 */
+	public long getCoalesced() {
+		return coalesced;
+	}
+
+	/**
+	 * @return the number of queries currently in flight.
+	 */
+	public long getInFlight() {
+		return inFlight;
+	}
+
+	@Override
+	public String toString() {
+		return "PullQueryCoalescingStats [issued=" + issued + ", coalesced=" + coalesced + ", inFlight=" + inFlight
+				+ "]";
+	}
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+import reactor.util.context.Context;
+
+/**
+ * Reduces the tail latency of pull queries by sending a second request when
+ * the first one did not produce its first row within a delay. The request is
+ * sent to another node of the cluster when there is one, the first request to
+ * produce a row or to complete wins and the other one is cancelled. An error is
+ * only raised once both requests failed.
+ * <p>
+ * The delay is either fixed or follows a percentile of the latency to the first
+ * row observed by the previous queries, 95 being a usual choice. The latency is
+ * the one of the first request measured from the start of the query, whichever
+ * request wins: a first request cancelled because the hedged one answered
+ * sooner is recorded with the time it was cancelled at, a lower bound of its
+ * latency. Learning from the winners only would feed the faster hedged
+ * requests back into the delay, which would then keep shrinking. The hedged
+ * requests are capped by a budget expressed as a percentage of the queries, so
+ * a cluster that is slow as a whole does not receive twice its load.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class PullQueryHedging {
+	private final double percentile;
+	private final long minDelayNanos;
+	private final TokenBudget budget;
+	private final LatencyWindow window;
+
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder hedges = new LongAdder();
+	private final LongAdder wins = new LongAdder();
+	private final LongAdder throttled = new LongAdder();
+
+	private volatile long delayNanos;
+
+	private PullQueryHedging(Builder builder) {
+		this.percentile = builder.percentile;
+		this.minDelayNanos = builder.minDelay.toNanos();
+		this.budget = new TokenBudget(builder.budget, 10);
+		this.window = percentile > 0 ? new LatencyWindow() : null;
+		this.delayNanos = builder.delay.toNanos();
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @return the delay after which a query is currently hedged.
+	 */
+	public Duration getDelay() {
+		return Duration.ofNanos(delayNanos);
+	}
+
+	/**
+	 * Takes a snapshot of the counters.
+	 *
+	 * @return the current statistics of the hedging.
+	 */
+	public PullQueryHedgingStats getStats() {
+		return new PullQueryHedgingStats(requests.sum(), hedges.sum(), wins.sum(), throttled.sum(), getDelay());
+	}
+
+	/**
+	 * @param <T>    type of the rows
+	 * @param source sends the query to the server when subscribed, once per
+	 *               request
+	 * @return a {@link Flux} that emits the rows of the request that answered
+	 *         first.
+	 */
+	<T> Flux<T> apply(Supplier<Flux<T>> source) {
+		return Flux.defer(() -> {
+			requests.increment();
+			budget.deposit();
+
+			Race race = new Race();
+
+			Flux<T> hedge = Mono.delay(Duration.ofNanos(delayNanos)).flatMapMany(tick -> {
+				if (!budget.withdraw()) {
+					throttled.increment();
+
+					return Flux.never();
+				}
+
+				hedges.increment();
+
+				return race.attempt(source, true);
+			});
+
+			return Flux.first(race.attempt(source, false), hedge).subscriberContext(Context.of(Race.class, race));
+		});
+	}
+
+	private void record(long latencyNanos) {
+		if (window != null) {
+			long delay = window.record(latencyNanos, percentile);
+			if (delay >= 0) {
+				delayNanos = Math.max(minDelayNanos, delay);
+			}
+		}
+	}
+
+	/**
+	 * Requests of a query, shared with {@link ReactorWebClient} through the
+	 * subscriber context so the hedged request avoids the node of the first one.
+	 */
+	class Race {
+		private static final int PENDING = 0;
+		private static final int PRIMARY = 1;
+		private static final int HEDGE = 2;
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+		private final AtomicInteger winner = new AtomicInteger(PENDING);
+		private final AtomicBoolean sampled = new AtomicBoolean();
+		private final long startNanos = System.nanoTime();
+
+		private volatile KsqlDBNode node;
+
+		/**
+		 * @param nodes nodes the request can be sent to
+		 * @return the nodes without the node of the first request, unless it is
+		 *         the only one.
+		 */
+		List<KsqlDBNode> candidates(List<KsqlDBNode> nodes) {
+			KsqlDBNode first = node;
+			if (first == null || nodes.size() < 2 || !nodes.contains(first)) {
+				return nodes;
+			}
+
+			List<KsqlDBNode> candidates = new ArrayList<>(nodes);
+			candidates.remove(first);
+
+			return candidates;
+		}
+
+		void selected(KsqlDBNode selected) {
+			if (node == null) {
+				node = selected;
+			}
+		}
+
+		private <T> Flux<T> attempt(Supplier<Flux<T>> source, boolean hedge) {
+			return Flux.defer(() -> {
+				inFlight.incrementAndGet();
+
+				Flux<T> request = source.get().doOnEach(signal -> onSignal(signal, hedge));
+				if (!hedge) {
+					request = request.doOnCancel(this::sample);
+				}
+
+				return request
+
+						// The error of a request is hidden while the other one can still answer.
+						.onErrorResume(e -> winner.get() == PENDING && inFlight.decrementAndGet() > 0 ? Flux.never()
+								: Flux.error(e));
+			});
+		}
+
+		private void onSignal(Signal<?> signal, boolean hedge) {
+			if (!signal.isOnNext() && !signal.isOnComplete()) {
+				return;
+			}
+
+			if (!hedge) {
+				sample();
+			}
+
+			if (winner.get() == PENDING && winner.compareAndSet(PENDING, hedge ? HEDGE : PRIMARY) && hedge) {
+				wins.increment();
+			}
+		}
+
+		/**
+		 * Records the latency of the first request from the start of the query,
+		 * once, on its first row, on its completion or when it is cancelled.
+		 */
+		private void sample() {
+			if (!sampled.get() && sampled.compareAndSet(false, true)) {
+				record(System.nanoTime() - startNanos);
+			}
+		}
+	}
+
+	/**
+	 * Latencies to the first row of the last queries. The percentile is
+	 * recomputed every {@link #INTERVAL} samples.
+	 */
+	private static class LatencyWindow {
+		private static final int SIZE = 1024;
+		private static final int INTERVAL = 64;
+
+		private final long[] samples = new long[SIZE];
+		private int count;
+		private int index;
+
+		/**
+		 * @return the percentile of the window, or -1 when it was not recomputed.
+		 */
+		synchronized long record(long latencyNanos, double percentile) {
+			samples[index] = latencyNanos;
+			index = (index + 1) % SIZE;
+			count = Math.min(SIZE, count + 1);
+
+			if (index % INTERVAL != 0) {
+				return -1;
+			}
+
+			long[] sorted = Arrays.copyOf(samples, count);
+			Arrays.sort(sorted);
+
+			return sorted[Math.min(count - 1, (int) Math.ceil(percentile / 100 * count) - 1)];
+		}
+	}
+
+	public static class Builder {
+		private Duration delay = Duration.ofMillis(10);
+		private double percentile = 95;
+		private Duration minDelay = Duration.ofMillis(1);
+		private double budget = 5;
+
+		private Builder() {
+
+		}
+
+		/**
+		 * Delay after which a query is hedged until enough latencies were observed
+		 * to compute the percentile, or for good when the percentile is disabled.
+		 * Defaults to 10 milliseconds.
+		 *
+		 * @param delay delay before sending the hedged request
+		 * @return this builder
+		 */
+		public Builder delay(Duration delay) {
+			if (delay.isNegative()) {
+				throw new IllegalArgumentException("delay must not be negative.");
+			}
+
+			this.delay = delay;
+			return this;
+		}
+
+		/**
+		 * Percentile of the latency to the first row, observed over the last 1024
+		 * queries, used as delay. Defaults to 95, 0 keeps the delay fixed.
+		 *
+		 * @param percentile percentile between 0 and 100
+		 * @return this builder
+		 */
+		public Builder percentile(double percentile) {
+			if (percentile < 0 || percentile > 100) {
+				throw new IllegalArgumentException("percentile must be between 0 and 100.");
+			}
+
+			this.percentile = percentile;
+			return this;
+		}
+
+		/**
+		 * Lower bound of the delay computed from the percentile. Defaults to 1
+		 * millisecond.
+		 *
+		 * @param minDelay minimum delay before sending the hedged request
+		 * @return this builder
+		 */
+		public Builder minDelay(Duration minDelay) {
+			if (minDelay.isNegative()) {
+				throw new IllegalArgumentException("minDelay must not be negative.");
+			}
+
+			this.minDelay = minDelay;
+			return this;
+		}
+
+		/**
+		 * Maximum percentage of the queries that are hedged, with bursts of up to 10
+		 * hedged requests. Defaults to 5.
+		 *
+		 * @param budget percentage of the queries between 0 and 100
+		 * @return this builder
+		 */
+		public Builder budget(double budget) {
+			if (budget < 0 || budget > 100) {
+				throw new IllegalArgumentException("budget must be between 0 and 100.");
+			}
+
+			this.budget = budget;
+			return this;
+		}
+
+		public PullQueryHedging build() {
+			return new PullQueryHedging(this);
+		}
+	}
+}
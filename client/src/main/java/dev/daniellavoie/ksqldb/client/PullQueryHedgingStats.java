@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+
+/**
+ * Snapshot of the counters of a {@link PullQueryHedging}.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class PullQueryHedgingStats {
+	private final long requests;
+	private final long hedges;
+	private final long wins;
+	private final long throttled;
+	private final Duration delay;
+
+	public PullQueryHedgingStats(long requests, long hedges, long wins, long throttled, Duration delay) {
+		this.requests = requests;
+		this.hedges = hedges;
+		this.wins = wins;
+		this.throttled = throttled;
+		this.delay = delay;
+	}
+
+	/**
+	 * @return the number of queries executed.
+	 */
+	public long getRequests() {
+		return requests;
+	}
+
+	/**
+	 * @return the number of hedged requests sent.
+	 */
+	public long getHedges() {
+		return hedges;
+	}
+
+	/**
+	 * @return the number of hedged requests that answered before the request
+	 *         they hedged.
+	 */
+	public long getWins() {
+		return wins;
+	}
+
+	/**
+	 * @return the number of hedged requests not sent because the budget was
+	 *         exhausted.
+	 */
+	public long getThrottled() {
+		return throttled;
+	}
+
+	/**
+	 * @return the delay after which a query was hedged.
+	 */
+	public Duration getDelay() {
+		return delay;
+	}
+
+	/**
+	 * @return the ratio of hedged requests that won, or 0 when none was sent.
+	 */
+	public double getWinRate() {
+		return hedges == 0 ? 0 : (double) wins / hedges;
+	}
+
+	@Override
+	public String toString() {
+		return "PullQueryHedgingStats [requests=" + requests + ", hedges=" + hedges + ", wins=" + wins
+				+ ", throttled=" + throttled + ", delay=" + delay + "]";
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.function.ToIntFunction;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * JDK Flight Recorder event of a push query, spanning all the WebSocket
+ * sessions opened for a subscription.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+interface PushQueryRecording {
+	/**
+	 * Counts a WebSocket session, every session but the first one being a
+	 * reconnection.
+	 */
+	void connected();
+
+	/**
+	 * @param rowCount number of rows held by an element of the query
+	 */
+	<T> Flux<T> record(Flux<T> rows, ToIntFunction<? super T> rowCount);
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.ConnectableFlux;
+import reactor.core.publisher.Flux;
+
+/**
+ * Shares a single push query between every local subscriber of the same
+ * statement. Statements are compared once normalized, along with their streams
+ * properties. The query is started on the server by the first subscriber and
+ * stopped once the last subscriber has cancelled for longer than the grace
+ * period, so a subscriber that quickly resubscribes does not restart it.
+ * Subscribers joining a running query receive the rows emitted after they
+ * joined, preceded by the latest {@code replay} rows if configured.
+ * <p>
+ * A shared query is consumed at the pace of its slowest subscriber. An error
+ * raised by the query is sent to all its subscribers and the next subscriber
+ * starts a new query.
+ * </p>
+ * <p>
+ * A single instance can be applied to multiple queries and clients, its
+ * statistics are aggregated across all of them.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class PushQuerySharing {
+	private final Duration gracePeriod;
+	private final int replay;
+
+	private final Map<StatementKey, SharedQuery<?>> queries = new ConcurrentHashMap<>();
+	private final LongAdder activeSubscribers = new LongAdder();
+	private final LongAdder connections = new LongAdder();
+	private final LongAdder subscriptions = new LongAdder();
+
+	private PushQuerySharing(Builder builder) {
+		this.gracePeriod = builder.gracePeriod;
+		this.replay = builder.replay;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public Duration getGracePeriod() {
+		return gracePeriod;
+	}
+
+	public int getReplay() {
+		return replay;
+	}
+
+	/**
+	 * Takes a snapshot of the counters.
+	 *
+	 * @return the current statistics of the shared queries.
+	 */
+	public PushQuerySharingStats getStats() {
+		return new PushQuerySharingStats(queries.size(), activeSubscribers.sum(), connections.sum(),
+				subscriptions.sum());
+	}
+
+	/**
+	 * @param <T>    type of the rows
+	 * @param key    statement of the query
+	 * @param source starts the query on the server when subscribed
+	 * @return a {@link Flux} that subscribes to the shared query.
+	 */
+	@SuppressWarnings("unchecked")
+	<T> Flux<T> share(StatementKey key, Supplier<Flux<T>> source) {
+		return Flux.defer(() -> {
+			subscriptions.increment();
+
+			return ((SharedQuery<T>) queries.computeIfAbsent(key, k -> new SharedQuery<>(k, source))).rows;
+		}).doOnSubscribe(subscription -> activeSubscribers.increment())
+				.doFinally(signal -> activeSubscribers.decrement());
+	}
+
+	private class SharedQuery<T> {
+		private final Flux<T> rows;
+
+		private SharedQuery(StatementKey key, Supplier<Flux<T>> source) {
+			// The query is removed once its connection is closed, a subscriber that
+			// obtained it in the meantime transparently starts a new connection.
+			Flux<T> upstream = Flux.defer(source).doOnSubscribe(subscription -> connections.increment())
+					.doFinally(signal -> queries.remove(key, this));
+
+			ConnectableFlux<T> connectable = replay > 0 ? upstream.replay(replay) : upstream.publish();
+
+			this.rows = gracePeriod.isZero() ? connectable.refCount() : connectable.refCount(1, gracePeriod);
+		}
+	}
+
+	public static class Builder {
+		private Duration gracePeriod = Duration.ofSeconds(1);
+		private int replay;
+
+		private Builder() {
+
+		}
+
+		/**
+		 * Delay before a query is stopped once its last subscriber has cancelled.
+		 * Defaults to 1 second.
+		 *
+		 * @param gracePeriod delay before stopping an unused query
+		 * @return this builder
+		 */
+		public Builder gracePeriod(Duration gracePeriod) {
+			if (gracePeriod.isNegative()) {
+				throw new IllegalArgumentException("gracePeriod must not be negative.");
+			}
+
+			this.gracePeriod = gracePeriod;
+			return this;
+		}
+
+		/**
+		 * Number of latest rows of a running query replayed to a subscriber that
+		 * joins it. Disabled by default.
+		 *
+		 * @param replay number of rows replayed
+		 * @return this builder
+		 */
+		public Builder replay(int replay) {
+			if (replay < 0) {
+				throw new IllegalArgumentException("replay must not be negative.");
+			}
+
+			this.replay = replay;
+			return this;
+		}
+
+		public PushQuerySharing build() {
+			return new PushQuerySharing(this);
+		}
+	}
+}
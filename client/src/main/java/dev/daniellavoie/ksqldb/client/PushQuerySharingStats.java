@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+/**
+ * Snapshot of the counters of a {@link PushQuerySharing}.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class PushQuerySharingStats {
+	private final long activeQueries;
+	private final long activeSubscribers;
+	private final long connections;
+	private final long subscriptions;
+
+	public PushQuerySharingStats(long activeQueries, long activeSubscribers, long connections, long subscriptions) {
+		this.activeQueries = activeQueries;
+		this.activeSubscribers = activeSubscribers;
+		this.connections = connections;
+		this.subscriptions = subscriptions;
+	}
+
+	/**
+	 * @return the number of push queries currently running on the server on behalf
+	 *         of the local subscribers.
+	 */
+	public long getActiveQueries() {
+		return activeQueries;
+	}
+
+	public long getActiveSubscribers() {
+		return activeSubscribers;
+	}
+
+	/**
+	 * @return the number of push queries started on the server since the creation
+	 *         of the {@link PushQuerySharing}.
+	 */
+	public long getConnections() {
+		return connections;
+	}
+
+	/**
+	 * @return the number of local subscriptions since the creation of the
+	 *         {@link PushQuerySharing}. Every subscription above the number of
+	 *         connections was served by an already running query.
+	 */
+	public long getSubscriptions() {
+		return subscriptions;
+	}
+
+	@Override
+	public String toString() {
+		return "PushQuerySharingStats [activeQueries=" + activeQueries + ", activeSubscribers=" + activeSubscribers
+				+ ", connections=" + connections + ", subscriptions=" + subscriptions + "]";
+	}
+}
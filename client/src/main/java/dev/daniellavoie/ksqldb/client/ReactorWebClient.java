@@ -17,21 +17,35 @@
 package dev.daniellavoie.ksqldb.client;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import dev.daniellavoie.ksqldb.client.api.info.HealthcheckResponse;
+import dev.daniellavoie.ksqldb.client.api.ksql.KsqlRequest;
+import dev.daniellavoie.ksqldb.client.api.query.PreparedQueryRequest;
+import dev.daniellavoie.ksqldb.client.api.query.QueryRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.netty.ByteBufFlux;
+import reactor.netty.Connection;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.websocket.WebsocketInbound;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
 
 /**
  * Implementation of {@link WebClient} based on Reactor Netty. Contains specific
@@ -43,20 +57,286 @@ import reactor.netty.http.client.HttpClient;
  *
  */
 public class ReactorWebClient implements WebClient {
-	private static final Logger LOGGER = LoggerFactory.getLogger(ReactorWebClient.class);
-
-	private String baseWebSocketUrl;
+	static final int DEFAULT_WEBSOCKET_HIGH_WATERMARK = 128;
+	static final int DEFAULT_WEBSOCKET_LOW_WATERMARK = 32;
+
+	private final List<KsqlDBNode> nodes;
+	private final LoadBalancer loadBalancer;
+	private final int webSocketHighWatermark;
+	private final int webSocketLowWatermark;
+	private ConcurrencyLimiter concurrencyLimiter;
+	private RetryPolicy retryPolicy;
+	private CircuitBreaker circuitBreaker;
+	private RequestListener listener;
 
 	private static final ObjectMapper OBJECTMAPPER = new ObjectMapper().findAndRegisterModules();
+	private static final ObjectWriter OBJECTWRITER = OBJECTMAPPER.writer();
+	private static final JsonResponseDecoder RESPONSE_DECODER = new JsonResponseDecoder(OBJECTMAPPER);
 	private HttpClient client;
 	private HttpClient webSocketClient;
 
 	public ReactorWebClient(String baseUrl, String baseWebSocketUrl) {
-		this.baseWebSocketUrl = baseWebSocketUrl;
-		client = HttpClient.create().baseUrl(baseUrl)
-				.headers(headerBuilder -> headerBuilder.add("Content-Type", "application/vnd.ksql.v1+json"));
+		this(baseUrl, baseWebSocketUrl, null, null);
+	}
+
+	/**
+	 * Creates a web client that runs its REST requests on the provided connection
+	 * pool and event loops. Both can be shared by multiple clients. WebSocket
+	 * connections are never reused once upgraded, they are opened outside of the
+	 * pool so long running push queries do not hold pooled connections.
+	 * 
+	 * @param baseUrl            base URL of the ksqlDB REST API
+	 * @param baseWebSocketUrl   base URL of the ksqlDB WebSocket API
+	 * @param connectionProvider connection pool used for REST requests, Reactor
+	 *                           Netty's global pool is used when null
+	 * @param loopResources      event loops used for REST and WebSocket requests,
+	 *                           Reactor Netty's global loops are used when null
+	 */
+	public ReactorWebClient(String baseUrl, String baseWebSocketUrl, ConnectionProvider connectionProvider,
+			LoopResources loopResources) {
+		this(baseUrl, baseWebSocketUrl, connectionProvider, loopResources, DEFAULT_WEBSOCKET_HIGH_WATERMARK,
+				DEFAULT_WEBSOCKET_LOW_WATERMARK);
+	}
+
+	ReactorWebClient(KsqlDBClientBuilder builder) {
+		this(builder, builder.getHealthMonitor());
+	}
+
+	private ReactorWebClient(String baseUrl, String baseWebSocketUrl, ConnectionProvider connectionProvider,
+			LoopResources loopResources, int webSocketHighWatermark, int webSocketLowWatermark) {
+		this(Collections.singletonList(KsqlDBNode.of(baseUrl, baseWebSocketUrl)), LoadBalancer.roundRobin(),
+				connectionProvider, loopResources, webSocketHighWatermark, webSocketLowWatermark);
+	}
+
+	private ReactorWebClient(List<KsqlDBNode> nodes, LoadBalancer loadBalancer, ConnectionProvider connectionProvider,
+			LoopResources loopResources, int webSocketHighWatermark, int webSocketLowWatermark) {
+		this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+		this.loadBalancer = loadBalancer;
+		this.webSocketHighWatermark = webSocketHighWatermark;
+		this.webSocketLowWatermark = webSocketLowWatermark;
+		client = configure(connectionProvider != null ? HttpClient.create(connectionProvider) : HttpClient.create(),
+				loopResources)
+						.headers(headerBuilder -> headerBuilder.add("Content-Type", "application/vnd.ksql.v1+json"));
+
+		webSocketClient = configure(HttpClient.create(ConnectionProvider.newConnection()), loopResources);
+	}
+
+	private ReactorWebClient(KsqlDBClientBuilder builder, HealthMonitor healthMonitor) {
+		this(builder.getNodes(), builder.getLoadBalancer(), builder.getConnectionProvider(),
+				builder.getLoopResources(), builder.getWebSocketHighWatermark(), builder.getWebSocketLowWatermark());
+
+		if (healthMonitor != null) {
+			nodes.forEach(node -> healthMonitor.monitor(node, this::healthcheck));
+		}
+
+		this.concurrencyLimiter = builder.getConcurrencyLimiter();
+		this.retryPolicy = builder.getRetryPolicy();
+		this.circuitBreaker = builder.getCircuitBreaker();
+		this.listener = CompositeRequestListener.of(builder.getListeners());
+
+		if (listener != null || FlightRecorderSupport.isAvailable()) {
+			client = observe(client);
+			webSocketClient = observe(webSocketClient);
+		}
+	}
+
+	/**
+	 * Reports the connection and response of a request to the
+	 * {@link RequestEvent} found in its subscriber context.
+	 */
+	private static HttpClient observe(HttpClient httpClient) {
+		return httpClient.doOnRequest((request, connection) -> {
+			RequestEvent event = request.currentContext().getOrDefault(RequestEvent.class, null);
+			if (event != null) {
+				event.connectionAcquired();
+			}
+		}).doOnResponse((response, connection) -> {
+			RequestEvent event = response.currentContext().getOrDefault(RequestEvent.class, null);
+			if (event != null) {
+				event.firstByteReceived();
+			}
+		});
+	}
+
+	private static HttpClient configure(HttpClient httpClient, LoopResources loopResources) {
+		if (loopResources == null) {
+			return httpClient;
+		}
+
+		return httpClient.tcpConfiguration(tcpClient -> tcpClient.runOn(loopResources));
+	}
+
+	/**
+	 * @return the nodes requests are balanced across.
+	 */
+	List<KsqlDBNode> getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Selects the node of every subscription to the request. A hedged request
+	 * avoids the node of the request it hedges, see {@link PullQueryHedging}.
+	 */
+	private <T> Flux<T> balance(String url, StatementClass statementClass,
+			BiFunction<KsqlDBNode, RequestEvent, Flux<T>> request) {
+		return Flux.deferWithContext(context -> {
+			PullQueryHedging.Race race = context.getOrDefault(PullQueryHedging.Race.class, null);
+			KsqlDBNode trialNode = trialNode();
+			KsqlDBNode node = trialNode != null ? trialNode
+					: loadBalancer.select(race != null ? race.candidates(healthyNodes()) : healthyNodes());
+
+			if (race != null) {
+				race.selected(node);
+			}
+
+			RequestEvent event = event(url, statementClass, node);
+
+			return node.track(observe(event, protect(node, statementClass, request.apply(node, event))),
+					trialNode != null, statementClass == StatementClass.PUSH_QUERY);
+		});
+	}
+
+	private <T> Mono<T> balanceMono(String url, StatementClass statementClass,
+			BiFunction<KsqlDBNode, RequestEvent, Mono<T>> request) {
+		return Mono.defer(() -> {
+			KsqlDBNode trialNode = trialNode();
+			KsqlDBNode node = trialNode != null ? trialNode : loadBalancer.select(healthyNodes());
+
+			RequestEvent event = event(url, statementClass, node);
+
+			return node.track(observe(event, protect(node, request.apply(node, event))), trialNode != null);
+		});
+	}
+
+	/**
+	 * @return the event of a request, null if there is neither a listener nor a
+	 *         JDK Flight Recorder recording to report it to.
+	 */
+	private RequestEvent event(String url, StatementClass statementClass, KsqlDBNode node) {
+		RequestRecording recording = FlightRecorderSupport.recordRequest(url, statementClass, node);
+
+		return listener != null || recording != null ? new RequestEvent(listener, recording, url, statementClass, node)
+				: null;
+	}
+
+	/**
+	 * Reports the lifecycle of a request to the listener of the client, if any.
+	 * The event is put in the subscriber context for the HTTP client.
+	 */
+	private static <T> Flux<T> observe(RequestEvent event, Flux<T> request) {
+		if (event == null) {
+			return request;
+		}
+
+		return request.doOnSubscribe(subscription -> event.started()).doOnError(event::failed)
+				.doOnComplete(event::completed).doOnCancel(event::cancelled)
+				.subscriberContext(context -> context.put(RequestEvent.class, event));
+	}
+
+	private static <T> Mono<T> observe(RequestEvent event, Mono<T> request) {
+		if (event == null) {
+			return request;
+		}
+
+		return request.doOnSubscribe(subscription -> event.started()).doOnError(event::failed)
+				.doOnSuccess(value -> event.completed()).doOnCancel(event::cancelled)
+				.subscriberContext(context -> context.put(RequestEvent.class, event));
+	}
+
+	/**
+	 * Sends the request through the circuit of the node, if the client has a
+	 * circuit breaker. Push queries are not timed as they may wait for their
+	 * first row indefinitely.
+	 */
+	private <T> Flux<T> protect(KsqlDBNode node, StatementClass statementClass, Flux<T> request) {
+		return circuitBreaker == null ? request
+				: circuitBreaker.apply(node, request, statementClass != StatementClass.PUSH_QUERY);
+	}
+
+	private <T> Mono<T> protect(KsqlDBNode node, Mono<T> request) {
+		return circuitBreaker == null ? request : circuitBreaker.apply(node, request);
+	}
+
+	/**
+	 * Waits for a permit of the concurrency limiter of the client, if any. Push
+	 * queries are never limited as they are not expected to complete.
+	 */
+	private <T> Flux<T> limit(String url, StatementClass statementClass, Flux<T> request) {
+		return concurrencyLimiter == null || statementClass == StatementClass.PUSH_QUERY ? request
+				: concurrencyLimiter.apply(EndpointClass.of(url), request);
+	}
+
+	private <T> Mono<T> limit(String url, Mono<T> request) {
+		return concurrencyLimiter == null ? request : concurrencyLimiter.apply(EndpointClass.of(url), request);
+	}
+
+	/**
+	 * Retries the request with the retry policy of the client, if any. Every
+	 * attempt waits for its own permit and selects its own node.
+	 */
+	private <T> Flux<T> retry(StatementClass statementClass, Flux<T> request) {
+		return retryPolicy == null ? request : retryPolicy.apply(statementClass, request);
+	}
+
+	private <T> Mono<T> retry(StatementClass statementClass, Mono<T> request) {
+		return retryPolicy == null ? request : retryPolicy.apply(statementClass, request);
+	}
+
+	private static StatementClass classify(Object body) {
+		if (body instanceof QueryRequest) {
+			return StatementClass.of(((QueryRequest) body).getKsql());
+		} else if (body instanceof KsqlRequest) {
+			return StatementClass.of(((KsqlRequest) body).getKsql());
+		}
+
+		return StatementClass.OTHER;
+	}
+
+	/**
+	 * @return a half open node waiting for its trial request, or null.
+	 */
+	private KsqlDBNode trialNode() {
+		for (KsqlDBNode node : nodes) {
+			if ((circuitBreaker == null || circuitBreaker.isAvailable(node)) && node.tryAcquireTrial()) {
+				return node;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return the nodes which are not ejected and which circuit is not open, or
+	 *         all the nodes if none is available so requests still reach the
+	 *         cluster or fail fast.
+	 */
+	private List<KsqlDBNode> healthyNodes() {
+		List<KsqlDBNode> healthy = null;
+
+		for (int index = 0; index < nodes.size(); ++index) {
+			KsqlDBNode node = nodes.get(index);
+			boolean available = isAvailable(node);
+
+			if (!available && healthy == null) {
+				healthy = new ArrayList<>(nodes.subList(0, index));
+			} else if (available && healthy != null) {
+				healthy.add(node);
+			}
+		}
+
+		return healthy == null || healthy.isEmpty() ? nodes : healthy;
+	}
+
+	private boolean isAvailable(KsqlDBNode node) {
+		return node.isHealthy() && (circuitBreaker == null || circuitBreaker.isAvailable(node));
+	}
 
-		webSocketClient = HttpClient.create().baseUrl(baseWebSocketUrl);
+	/**
+	 * Sends a health check to a node, outside of the load balancing.
+	 */
+	private Mono<HealthcheckResponse> healthcheck(KsqlDBNode node) {
+		return client.get().uri(node.getUrl() + "/healthcheck").responseContent().aggregate()
+				.map(content -> RESPONSE_DECODER.decode(content, HealthcheckResponse.class));
 	}
 
 	/**
@@ -64,10 +344,16 @@ public class ReactorWebClient implements WebClient {
 	 */
 	@Override
 	public <T> Mono<T> get(String url, Class<T> returnType) {
-		return client.get().uri(url).responseContent().aggregate().asString()
-				.map(value -> readValue(value, returnType));
+		return retry(StatementClass.METADATA, limit(url, balanceMono(url, StatementClass.METADATA,
+				(node, event) -> client.get().uri(node.getUrl() + url).responseContent().aggregate()
+						.map(content -> decode(content, returnType, event)))));
 	}
 
+	/**
+	 * Frames are read from the socket as long as the subscriber keeps up. Reads
+	 * are paused while the frames not yet requested by the subscriber reach the
+	 * high watermark of the client, see {@link FluxAutoRead}.
+	 */
 	@Override
 	public Flux<String> getWithWebSocket(String url, Map<String, String> params) {
 		String parameters = params.entrySet().stream()
@@ -76,9 +362,27 @@ public class ReactorWebClient implements WebClient {
 
 				.collect(Collectors.joining("&"));
 
-		return webSocketClient.websocket().uri(baseWebSocketUrl + url + "?" + parameters)
+		return balance(url, StatementClass.PUSH_QUERY, (node, event) -> webSocketClient.websocket()
 
-				.handle((inbound, outbound) -> inbound.receive().asString());
+				.uri(node.getWebSocketUrl() + url + "?" + parameters)
+
+				.handle((inbound, outbound) -> Mono.<Connection>create(sink -> inbound.withConnection(sink::success))
+
+						.flatMapMany(connection -> new FluxAutoRead<>(receive(inbound, event), connection.channel(),
+								webSocketHighWatermark, webSocketLowWatermark))));
+	}
+
+	private static Flux<String> receive(WebsocketInbound inbound, RequestEvent event) {
+		if (event == null) {
+			return inbound.receive().asString();
+		}
+
+		return inbound.receive().map(frame -> {
+			event.received(frame.readableBytes());
+			event.elementDecoded(frame.readableBytes());
+
+			return frame.toString(StandardCharsets.UTF_8);
+		});
 	}
 
 	/**
@@ -86,90 +390,129 @@ public class ReactorWebClient implements WebClient {
 	 */
 	@Override
 	public <T> Mono<T> post(String url, Object body, TypeReference<T> returnType) {
-		return client.post().uri(url)
+		StatementClass statementClass = classify(body);
+
+		return retry(statementClass, limit(url, balanceMono(url, statementClass, (node, event) -> client.post()
+
+				.uri(node.getUrl() + url)
 
-				.send(ByteBufFlux.fromString(Mono.just(writeValue(body))))
+				.send((request, outbound) -> outbound.send(writeValue(outbound.alloc(), body, event)))
 
-				.responseContent().aggregate().asString().map(value -> readValue(value, returnType));
+				.responseContent().aggregate()
+
+				.map(content -> decode(content, returnType.getType(), event)))));
 	}
 
 	/**
 	 * {@inheritDoc}
 	 * <p>
-	 * Contains specific handing for the /query endpoint of ksqlDB. The server
-	 * responds periodically with line breaks. This method skip those HTTP chunks
-	 * and will only emits events when a proper JSON structure is received from the
-	 * server within an HTTP chunk.
+	 * The elements are bound with the object mapper of this client.
 	 * </p>
 	 */
+	@Deprecated
 	@Override
 	public <T> Flux<T> postForMany(String url, Object body, TypeReference<T> returnType) {
-		return client.post().uri(url).send(ByteBufFlux.fromString(Mono.just(writeValue(body))))
+		return postForMany(url, body, () -> new BufferedElementDecoder<>(OBJECTMAPPER, returnType));
+	}
 
-				.responseContent().asString().map(value -> readStreamValue(value, returnType))
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Contains specific handing for the /query endpoint of ksqlDB. The server
+	 * streams a JSON array and periodically sends line breaks to keep the
+	 * connection alive. The chunks are decoded incrementally so an element is
+	 * emitted as soon as it is complete, independently of how the server splits
+	 * the array across HTTP chunks.
+	 * </p>
+	 */
+	@Override
+	public <T> Flux<T> postForMany(String url, Object body, Class<T> elementType) {
+		return postForMany(url, body, () -> new BufferedElementDecoder<>(OBJECTMAPPER, elementType));
+	}
 
-				.filter(Optional::isPresent)
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> Flux<T> postForMany(String url, Object body, Supplier<? extends JsonElementDecoder<T>> elementDecoder) {
+		StatementClass statementClass = classify(body);
 
-				.map(Optional::get);
-	}
+		return retry(statementClass, limit(url, statementClass, balance(url, statementClass, (node, event) -> client
 
-	private <T> T readValue(String value, TypeReference<T> returnType) {
-		try {
-			return OBJECTMAPPER.readValue(value, returnType);
-		} catch (IOException e) {
-			try {
-				throw new KsqlDBServerException(OBJECTMAPPER.readValue(value, KsqlDBServerError.class));
-			} catch (IOException e2) {
-				LOGGER.error("Failed to read {}.", value);
-				throw new RuntimeException(e);
-			}
-		}
+				.post().uri(node.getUrl() + url)
+
+				.send((request, outbound) -> outbound.send(writeValue(outbound.alloc(), body, event)))
+
+				.responseContent().transform(content -> decodeStream(content, elementDecoder, event)))));
 	}
 
-	private <T> T readValue(String value, Class<T> returnType) {
-		try {
-			return OBJECTMAPPER.readValue(value, returnType);
-		} catch (IOException e) {
-			try {
-				throw new KsqlDBServerException(OBJECTMAPPER.readValue(value, KsqlDBServerError.class));
-			} catch (IOException e2) {
-				LOGGER.error("Failed to read {}.", value);
-				throw new RuntimeException(e);
-			}
+	private static <T> T decode(ByteBuf content, Type returnType, RequestEvent event) {
+		if (event != null) {
+			event.received(content.readableBytes());
 		}
+
+		return RESPONSE_DECODER.decode(content, returnType);
 	}
 
-	private <T> Optional<T> readStreamValue(String value, TypeReference<T> returnType) {
-		LOGGER.trace("Received payload {}.", value);
+	private <T> Flux<T> decodeStream(Flux<ByteBuf> content, Supplier<? extends JsonElementDecoder<T>> elementDecoder,
+			RequestEvent event) {
+		return Flux.defer(() -> {
+			JsonStreamDecoder<T> decoder = new JsonStreamDecoder<>(OBJECTMAPPER, elementDecoder.get(),
+					event != null ? event::elementDecoded : null);
 
-		try {
-			if (value.equals(",\n") || value.equals("\n")) {
-				return Optional.empty();
-			}
+			// Chunks are released by Reactor Netty once delivered, they must be decoded
+			// synchronously before reaching any prefetching operator.
+			return content.map(event != null ? chunk -> timedDecode(decoder, chunk, event) : decoder::decode)
 
-			if (value.startsWith("[") && !value.endsWith("]")) {
-				value = value.substring(1);
-			}
+					.concatMapIterable(elements -> elements)
 
-			if (!value.startsWith("[") && value.endsWith("]")) {
-				value = value.substring(0, value.length());
-			}
+					.concatWith(Mono.fromRunnable(decoder::complete));
+		});
+	}
 
-			if (value.endsWith(",")) {
-				value = value.substring(0, value.length());
-			}
+	private static <T> List<T> timedDecode(JsonStreamDecoder<T> decoder, ByteBuf chunk, RequestEvent event) {
+		int chunkSize = chunk.readableBytes();
+		event.received(chunkSize);
+		event.decodeStarted();
 
-			return Optional.of(OBJECTMAPPER.readValue(value, returnType));
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+		long startNanos = System.nanoTime();
+		List<T> elements = decoder.decode(chunk);
+		event.decoded(System.nanoTime() - startNanos, chunkSize, elements.size());
+
+		return elements;
+	}
+
+	private Mono<ByteBuf> writeValue(ByteBufAllocator allocator, Object value, RequestEvent event) {
+		if (event == null) {
+			return Mono.fromCallable(() -> encode(allocator, value));
 		}
+
+		return Mono.fromCallable(() -> {
+			ByteBuf buffer = encode(allocator, value);
+			event.sent(buffer.readableBytes());
+
+			return buffer;
+		});
 	}
 
-	private String writeValue(Object value) {
-		try {
-			return OBJECTMAPPER.writeValueAsString(value);
-		} catch (JsonProcessingException e) {
-			throw new RuntimeException(e);
+	/**
+	 * Serializes the request body straight into a buffer of the provided
+	 * allocator. The bytes of a {@link PreparedQueryRequest} are reused as is.
+	 */
+	static ByteBuf encode(ByteBufAllocator allocator, Object value) throws IOException {
+		if (value instanceof PreparedQueryRequest) {
+			return ((PreparedQueryRequest) value).getContent().retainedDuplicate();
+		}
+
+		ByteBuf buffer = allocator.buffer();
+		try (OutputStream outputStream = new ByteBufOutputStream(buffer)) {
+			OBJECTWRITER.writeValue(outputStream, value);
+
+			return buffer;
+		} catch (IOException | RuntimeException e) {
+			buffer.release();
+
+			throw e;
 		}
 	}
 }
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.io.EOFException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dev.daniellavoie.ksqldb.client.model.QueryRow;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * State of a push query reconnected by a {@link Reconnection}. Every WebSocket
+ * session gets its own {@link WebSocketQueryResponseMapper} so the header sent
+ * by the server is read again, while the keys of the latest rows emitted are
+ * kept across sessions to drop the rows sent again after a reconnection.
+ * <p>
+ * Instances are stateful and must be used for a single subscription.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+class ReconnectingPushQuery {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReconnectingPushQuery.class);
+
+	private final Reconnection reconnection;
+	private final Supplier<Flux<String>> frames;
+	private final List<String> columns;
+	private final Map<Object, Boolean> window;
+
+	private volatile long disconnectedAt = -1;
+
+	private RowSchema schema;
+	private int[] indexes;
+
+	ReconnectingPushQuery(Reconnection reconnection, Supplier<Flux<String>> frames) {
+		this.reconnection = reconnection;
+		this.frames = frames;
+		this.columns = reconnection.getDeduplicationColumns();
+
+		int maxKeys = reconnection.getDeduplicationWindow();
+		this.window = new LinkedHashMap<Object, Boolean>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, Boolean> eldest) {
+				return size() > maxKeys;
+			}
+		};
+	}
+
+	Flux<QueryRow> rows() {
+		return Flux.defer(this::session)
+				.retryWhen(reconnection.retry().doBeforeRetry(signal -> reconnection.onReconnect()));
+	}
+
+	private Flux<QueryRow> session() {
+		WebSocketQueryResponseMapper mapper = new WebSocketQueryResponseMapper();
+
+		Flux<QueryRow> rows = frames.get().doOnNext(frame -> {
+			if (!mapper.isHeaderReceived()) {
+				onConnected();
+			}
+		}).flatMap(mapper, 1);
+
+		if (!columns.isEmpty()) {
+			rows = rows.filter(row -> isFirstDelivery(mapper.getSchema(), row));
+		}
+
+		// ksqlDB closes the session of its push queries when it shuts down, which
+		// is handled like any other disconnection.
+		return rows
+				.concatWith(Mono.error(() -> new UncheckedIOException(
+						new EOFException("The push query session was closed by the server."))))
+				.doOnError(error -> disconnectedAt = System.nanoTime());
+	}
+
+	private void onConnected() {
+		long disconnectedAt = this.disconnectedAt;
+
+		reconnection.onConnected(disconnectedAt == -1 ? -1 : System.nanoTime() - disconnectedAt);
+	}
+
+	private boolean isFirstDelivery(RowSchema schema, QueryRow row) {
+		if (schema != this.schema) {
+			indexes = resolve(schema);
+			this.schema = schema;
+		}
+
+		if (indexes == null) {
+			return true;
+		}
+
+		List<Object> values = row.getRow().getColumns();
+		Object key;
+		if (indexes.length == 1) {
+			key = values.get(indexes[0]);
+		} else {
+			Object[] keyValues = new Object[indexes.length];
+			for (int i = 0; i < indexes.length; ++i) {
+				keyValues[i] = values.get(indexes[i]);
+			}
+			key = Arrays.asList(keyValues);
+		}
+
+		if (window.put(key, Boolean.TRUE) != null) {
+			reconnection.onDuplicate();
+
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return the indexes of the deduplication columns, null if the default
+	 *         columns are not part of the schema.
+	 * @throws IllegalArgumentException if columns set explicitly are not part of
+	 *                                  the schema.
+	 */
+	private int[] resolve(RowSchema schema) {
+		List<String> missing = new ArrayList<>();
+		int[] indexes = new int[columns.size()];
+
+		for (int i = 0; i < indexes.length; ++i) {
+			indexes[i] = schema.indexOf(columns.get(i));
+
+			if (indexes[i] == -1) {
+				missing.add(columns.get(i));
+			}
+		}
+
+		if (missing.isEmpty()) {
+			return indexes;
+		}
+
+		if (reconnection.isDeduplicationRequired()) {
+			throw new IllegalArgumentException(
+					"Columns " + missing + " are not part of the query schema " + schema + ".");
+		}
+
+		LOGGER.warn("Rows of the push query are not deduplicated, columns {} are not part of its schema {}.", missing,
+				schema);
+
+		return null;
+	}
+}
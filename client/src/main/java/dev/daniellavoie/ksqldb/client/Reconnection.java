@@ -0,0 +1,245 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.websocketx.WebSocketClientHandshakeException;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+/**
+ * Reconnects a push query when its WebSocket session fails or is closed by the
+ * server, for example during a rolling restart of ksqlDB. Only connection
+ * errors and 5xx errors are retried. Every attempt waits for an exponential
+ * backoff with jitter, the backoff is reset as soon as a new session emits a
+ * row. Rows emitted again by the new session are dropped according to a
+ * deduplication key, by default the {@code ROWKEY} and {@code ROWTIME} columns,
+ * within a window of the latest keys emitted. Queries which do not select the
+ * default columns are not deduplicated.
+ * <p>
+ * A single instance can be applied to multiple queries, its statistics are
+ * aggregated across all of them.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class Reconnection {
+	private final Duration minBackoff;
+	private final Duration maxBackoff;
+	private final double jitter;
+	private final long maxAttempts;
+	private final List<String> deduplicationColumns;
+	private final boolean deduplicationRequired;
+	private final int deduplicationWindow;
+
+	private final LongAdder connections = new LongAdder();
+	private final LongAdder reconnects = new LongAdder();
+	private final LongAdder duplicates = new LongAdder();
+	private final AtomicLong lastGap = new AtomicLong();
+	private final AtomicLong maxGap = new AtomicLong();
+	private final LongAdder totalGap = new LongAdder();
+
+	private Reconnection(Builder builder) {
+		this.minBackoff = builder.minBackoff;
+		this.maxBackoff = builder.maxBackoff;
+		this.jitter = builder.jitter;
+		this.maxAttempts = builder.maxAttempts;
+		this.deduplicationColumns = builder.deduplicationColumns;
+		this.deduplicationRequired = builder.deduplicationRequired;
+		this.deduplicationWindow = builder.deduplicationWindow;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public List<String> getDeduplicationColumns() {
+		return deduplicationColumns;
+	}
+
+	/**
+	 * @return true if the deduplication columns were set explicitly, a query which
+	 *         does not select them then fails.
+	 */
+	boolean isDeduplicationRequired() {
+		return deduplicationRequired;
+	}
+
+	public int getDeduplicationWindow() {
+		return deduplicationWindow;
+	}
+
+	/**
+	 * Takes a snapshot of the counters.
+	 *
+	 * @return the current statistics of the reconnections.
+	 */
+	public ReconnectionStats getStats() {
+		return new ReconnectionStats(connections.sum(), reconnects.sum(), duplicates.sum(),
+				Duration.ofNanos(lastGap.get()), Duration.ofNanos(maxGap.get()), Duration.ofNanos(totalGap.sum()));
+	}
+
+	/**
+	 * Only connection errors and 5xx errors are retried, see
+	 * {@link RetryPolicy#isTransient(Throwable)}. Errors raised by the client
+	 * itself, such as an unknown deduplication column, or rejected statements fail
+	 * the query right away.
+	 */
+	RetryBackoffSpec retry() {
+		return Retry.backoff(maxAttempts, minBackoff).maxBackoff(maxBackoff).jitter(jitter).transientErrors(true)
+				.filter(Reconnection::isTransient);
+	}
+
+	/**
+	 * @param error error of a WebSocket session
+	 * @return true if the error is transient for a request or if the handshake
+	 *         was answered with a 5xx status, by a proxy in front of a
+	 *         restarting server for example.
+	 */
+	static boolean isTransient(Throwable error) {
+		if (error instanceof WebSocketClientHandshakeException) {
+			HttpResponse response = ((WebSocketClientHandshakeException) error).response();
+
+			return response != null && response.status().codeClass() == HttpStatusClass.SERVER_ERROR;
+		}
+
+		return RetryPolicy.isTransient(error);
+	}
+
+	void onConnected(long gapNanos) {
+		connections.increment();
+
+		if (gapNanos >= 0) {
+			lastGap.set(gapNanos);
+			maxGap.accumulateAndGet(gapNanos, Math::max);
+			totalGap.add(gapNanos);
+		}
+	}
+
+	void onReconnect() {
+		reconnects.increment();
+	}
+
+	void onDuplicate() {
+		duplicates.increment();
+	}
+
+	public static class Builder {
+		private Duration minBackoff = Duration.ofMillis(100);
+		private Duration maxBackoff = Duration.ofSeconds(30);
+		private double jitter = 0.5;
+		private long maxAttempts = 10;
+		private List<String> deduplicationColumns = Collections
+				.unmodifiableList(Arrays.asList("ROWKEY", "ROWTIME"));
+		private boolean deduplicationRequired;
+		private int deduplicationWindow = 10_000;
+
+		private Builder() {
+
+		}
+
+		/**
+		 * Delay before the first attempt, doubled by every following attempt up to
+		 * the maximum. Defaults to 100 milliseconds and 30 seconds.
+		 *
+		 * @param minBackoff delay before the first attempt
+		 * @param maxBackoff maximum delay between two attempts
+		 * @return this builder
+		 */
+		public Builder backoff(Duration minBackoff, Duration maxBackoff) {
+			this.minBackoff = minBackoff;
+			this.maxBackoff = maxBackoff;
+			return this;
+		}
+
+		/**
+		 * Randomizes every delay by up to a factor of itself so clients disconnected
+		 * by the same restart do not reconnect at the same time. Defaults to 0.5.
+		 *
+		 * @param jitter jitter factor between 0 and 1
+		 * @return this builder
+		 */
+		public Builder jitter(double jitter) {
+			this.jitter = jitter;
+			return this;
+		}
+
+		/**
+		 * Maximum number of consecutive attempts that do not emit any row before the
+		 * query fails. Defaults to 10, which covers about a minute without a session
+		 * with the default backoff.
+		 *
+		 * @param maxAttempts maximum number of consecutive attempts
+		 * @return this builder
+		 */
+		public Builder maxAttempts(long maxAttempts) {
+			if (maxAttempts < 0) {
+				throw new IllegalArgumentException("maxAttempts must not be negative.");
+			}
+
+			this.maxAttempts = maxAttempts;
+			return this;
+		}
+
+		/**
+		 * Columns that identify a row. A row is dropped if a row with the same values
+		 * for these columns is part of the deduplication window. Deduplication is
+		 * disabled when no column is provided.
+		 * <p>
+		 * Defaults to {@code ROWKEY} and {@code ROWTIME}, deduplication is then
+		 * skipped for the queries that do not select both. The columns provided here
+		 * are required: a query which does not select them fails.
+		 * </p>
+		 *
+		 * @param columns names of the columns
+		 * @return this builder
+		 */
+		public Builder deduplicateOn(String... columns) {
+			this.deduplicationColumns = Collections.unmodifiableList(Arrays.asList(columns));
+			this.deduplicationRequired = true;
+			return this;
+		}
+
+		/**
+		 * Number of latest deduplication keys remembered by a query. Defaults to
+		 * 10000.
+		 *
+		 * @param deduplicationWindow number of keys
+		 * @return this builder
+		 */
+		public Builder deduplicationWindow(int deduplicationWindow) {
+			if (deduplicationWindow < 1) {
+				throw new IllegalArgumentException("deduplicationWindow must be positive.");
+			}
+
+			this.deduplicationWindow = deduplicationWindow;
+			return this;
+		}
+
+		public Reconnection build() {
+			return new Reconnection(this);
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+
+/**
+ * Snapshot of the counters of a {@link Reconnection}, aggregated across every
+ * push query it was applied to.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class ReconnectionStats {
+	private final long connections;
+	private final long reconnects;
+	private final long duplicates;
+	private final Duration lastGap;
+	private final Duration maxGap;
+	private final Duration totalGap;
+
+	public ReconnectionStats(long connections, long reconnects, long duplicates, Duration lastGap, Duration maxGap,
+			Duration totalGap) {
+		this.connections = connections;
+		this.reconnects = reconnects;
+		this.duplicates = duplicates;
+		this.lastGap = lastGap;
+		this.maxGap = maxGap;
+		this.totalGap = totalGap;
+	}
+
+	/**
+	 * @return the number of WebSocket sessions that received the header of the
+	 *         query, including the first one of every query.
+	 */
+	public long getConnections() {
+		return connections;
+	}
+
+	/**
+	 * @return the number of reconnection attempts after a session failed or was
+	 *         closed by the server.
+	 */
+	public long getReconnects() {
+		return reconnects;
+	}
+
+	/**
+	 * @return the number of rows dropped because a row with the same
+	 *         deduplication key was already emitted.
+	 */
+	public long getDuplicates() {
+		return duplicates;
+	}
+
+	/**
+	 * @return the time between the last disconnection and the header of the
+	 *         following session, zero if no session was ever lost.
+	 */
+	public Duration getLastGap() {
+		return lastGap;
+	}
+
+	public Duration getMaxGap() {
+		return maxGap;
+	}
+
+	/**
+	 * @return the total time spent without a session after a disconnection.
+	 */
+	public Duration getTotalGap() {
+		return totalGap;
+	}
+
+	@Override
+	public String toString() {
+		return "ReconnectionStats [connections=" + connections + ", reconnects=" + reconnects + ", duplicates="
+				+ duplicates + ", lastGap=" + lastGap + ", maxGap=" + maxGap + ", totalGap=" + totalGap + "]";
+	}
+}
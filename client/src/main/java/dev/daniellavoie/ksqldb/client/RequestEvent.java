@@ -0,0 +1,301 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A request sent to a ksqlDB node, passed to every callback of a
+ * {@link RequestListener}. Listeners can keep their own state for the request,
+ * such as a tracing span, as its attachment. The request is also reported to
+ * JDK Flight Recorder while it records the events of the client, see
+ * {@link RequestRecording}.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public final class RequestEvent {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RequestEvent.class);
+	private static final RequestListener NO_LISTENER = new RequestListener() {
+	};
+
+	private final RequestListener listener;
+	private final RequestRecording recording;
+	private final String path;
+	private final EndpointClass endpointClass;
+	private final StatementClass statementClass;
+	private final KsqlDBNode node;
+
+	private long startNanos;
+	private boolean headerReceived;
+	private boolean terminated;
+	private long rows;
+	private long bytes;
+	private long bytesSent;
+	private long bytesReceived;
+	private long decodeNanos;
+	private Object attachment;
+
+	/**
+	 * @param listener  listener of the client, can be null
+	 * @param recording JFR events of the request, can be null
+	 */
+	RequestEvent(RequestListener listener, RequestRecording recording, String path, StatementClass statementClass,
+			KsqlDBNode node) {
+		this.listener = listener != null ? listener : NO_LISTENER;
+		this.recording = recording;
+		this.path = path;
+		this.endpointClass = EndpointClass.of(path);
+		this.statementClass = statementClass;
+		this.node = node;
+	}
+
+	/**
+	 * @return the path of the endpoint. Ex: /query
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	public EndpointClass getEndpointClass() {
+		return endpointClass;
+	}
+
+	public StatementClass getStatementClass() {
+		return statementClass;
+	}
+
+	/**
+	 * @return the node the request is sent to.
+	 */
+	public KsqlDBNode getNode() {
+		return node;
+	}
+
+	/**
+	 * @return the value of {@link System#nanoTime()} when the request started.
+	 */
+	public long getStartNanos() {
+		return startNanos;
+	}
+
+	/**
+	 * @return the number of rows decoded so far.
+	 */
+	public long getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return the size of the rows decoded so far.
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return the size of the request body.
+	 */
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	/**
+	 * @return the size of the response received so far.
+	 */
+	public long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	/**
+	 * @return the time spent decoding the response of the /query endpoint so far.
+	 */
+	public long getDecodeNanos() {
+		return decodeNanos;
+	}
+
+	public Object getAttachment() {
+		return attachment;
+	}
+
+	/**
+	 * @param attachment state of a listener for this request
+	 */
+	public void setAttachment(Object attachment) {
+		this.attachment = attachment;
+	}
+
+	void started() {
+		startNanos = System.nanoTime();
+
+		if (recording != null) {
+			recording.started();
+		}
+
+		try {
+			listener.requestStarted(this);
+		} catch (RuntimeException e) {
+			onListenerError(e);
+		}
+	}
+
+	void connectionAcquired() {
+		if (recording != null) {
+			recording.connectionAcquired();
+		}
+
+		try {
+			listener.connectionAcquired(this);
+		} catch (RuntimeException e) {
+			onListenerError(e);
+		}
+	}
+
+	void firstByteReceived() {
+		try {
+			listener.firstByteReceived(this);
+		} catch (RuntimeException e) {
+			onListenerError(e);
+		}
+	}
+
+	/**
+	 * Records an element of a query response, the first one being its header.
+	 *
+	 * @param size size of the element in the response
+	 */
+	void elementDecoded(int size) {
+		try {
+			if (!headerReceived) {
+				headerReceived = true;
+
+				listener.headerReceived(this);
+			} else {
+				++rows;
+				bytes += size;
+
+				if (recording != null) {
+					recording.rowDecoded();
+				}
+
+				listener.rowDecoded(this, size);
+			}
+		} catch (RuntimeException e) {
+			onListenerError(e);
+		}
+	}
+
+	void sent(int size) {
+		bytesSent += size;
+
+		if (recording != null) {
+			recording.sent(size);
+		}
+	}
+
+	void received(int size) {
+		bytesReceived += size;
+
+		if (recording != null) {
+			recording.received(size);
+		}
+	}
+
+	void decodeStarted() {
+		if (recording != null) {
+			recording.decodeStarted();
+		}
+	}
+
+	/**
+	 * @param nanos     time spent decoding the chunk
+	 * @param chunkSize size of the chunk
+	 * @param elements  number of elements completed by the chunk
+	 */
+	void decoded(long nanos, int chunkSize, int elements) {
+		decodeNanos += nanos;
+
+		if (recording != null) {
+			recording.decodeEnded(chunkSize, elements);
+		}
+	}
+
+	/**
+	 * Only the first of the terminal signals is reported, a subscriber may cancel
+	 * a request that already failed.
+	 */
+	void failed(Throwable error) {
+		if (terminated) {
+			return;
+		}
+		terminated = true;
+
+		if (recording != null) {
+			recording.ended("failed", error);
+		}
+
+		try {
+			listener.requestFailed(this, error);
+		} catch (RuntimeException e) {
+			onListenerError(e);
+		}
+	}
+
+	void completed() {
+		if (terminated) {
+			return;
+		}
+		terminated = true;
+
+		if (recording != null) {
+			recording.ended("completed", null);
+		}
+
+		try {
+			listener.requestCompleted(this);
+		} catch (RuntimeException e) {
+			onListenerError(e);
+		}
+	}
+
+	void cancelled() {
+		if (terminated) {
+			return;
+		}
+		terminated = true;
+
+		if (recording != null) {
+			recording.ended("cancelled", null);
+		}
+
+		try {
+			listener.requestCancelled(this);
+		} catch (RuntimeException e) {
+			onListenerError(e);
+		}
+	}
+
+	static void onListenerError(RuntimeException e) {
+		LOGGER.warn("Request listener failed.", e);
+	}
+
+	@Override
+	public String toString() {
+		return "RequestEvent [path=" + path + ", statementClass=" + statementClass + ", node=" + node.getUrl()
+				+ ", rows=" + rows + ", bytes=" + bytes + "]";
+	}
+}
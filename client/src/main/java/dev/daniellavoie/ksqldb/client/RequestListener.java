@@ -0,0 +1,108 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+/**
+ * Receives the events of the requests sent by a client, to collect metrics or
+ * traces. Every request sent to a node, including retried and hedged requests,
+ * is described by its own {@link RequestEvent} passed to every callback.
+ * <p>
+ * Callbacks are invoked on the event loops of the client and must not block.
+ * An exception raised by a callback is logged and ignored. Clients without a
+ * listener do not create any event.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public interface RequestListener {
+	/**
+	 * Invoked when the request is subscribed, before a connection is acquired.
+	 *
+	 * @param event the request
+	 */
+	default void requestStarted(RequestEvent event) {
+
+	}
+
+	/**
+	 * Invoked when a connection to the node was acquired from the pool or opened,
+	 * right before the request is sent.
+	 *
+	 * @param event the request
+	 */
+	default void connectionAcquired(RequestEvent event) {
+
+	}
+
+	/**
+	 * Invoked when the status and headers of the response are received.
+	 *
+	 * @param event the request
+	 */
+	default void firstByteReceived(RequestEvent event) {
+
+	}
+
+	/**
+	 * Invoked when the header of a query response, which describes its schema, is
+	 * decoded.
+	 *
+	 * @param event the request
+	 */
+	default void headerReceived(RequestEvent event) {
+
+	}
+
+	/**
+	 * Invoked when a row of a query response is decoded.
+	 *
+	 * @param event the request
+	 * @param bytes size of the row in the response
+	 */
+	default void rowDecoded(RequestEvent event, int bytes) {
+
+	}
+
+	/**
+	 * Invoked when the request fails.
+	 *
+	 * @param event the request
+	 * @param error error of the request
+	 */
+	default void requestFailed(RequestEvent event, Throwable error) {
+
+	}
+
+	/**
+	 * Invoked when the response is complete.
+	 *
+	 * @param event the request
+	 */
+	default void requestCompleted(RequestEvent event) {
+
+	}
+
+	/**
+	 * Invoked when the request is cancelled by its subscriber before it
+	 * completed.
+	 *
+	 * @param event the request
+	 */
+	default void requestCancelled(RequestEvent event) {
+
+	}
+}
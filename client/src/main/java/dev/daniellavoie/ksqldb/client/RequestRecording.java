@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+/**
+ * JDK Flight Recorder events of a single request, reported by its
+ * {@link RequestEvent}.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+interface RequestRecording {
+	void started();
+
+	void connectionAcquired();
+
+	void sent(int bytes);
+
+	void received(int bytes);
+
+	void rowDecoded();
+
+	void decodeStarted();
+
+	void decodeEnded(int chunkSize, int elements);
+
+	void ended(String outcome, Throwable error);
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Retries the requests of a client that failed with a transient error: a
+ * connection error, a truncated response, or a ksqlDB error which code maps to
+ * a 5xx HTTP status. Only the requests which statements can safely be executed
+ * twice are retried, by default pull queries and metadata statements, see
+ * {@link StatementClass}. A streamed response is only retried until its first
+ * element is emitted.
+ * <p>
+ * Every retry waits for an exponential backoff with jitter. Retries are capped
+ * by a budget expressed as a percentage of the requests, so a failing cluster
+ * does not receive a multiple of its load. A single instance can be shared by
+ * multiple clients, its statistics are aggregated across all of them.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class RetryPolicy {
+	private final Set<StatementClass> statementClasses;
+	private final long maxRetries;
+	private final Duration minBackoff;
+	private final Duration maxBackoff;
+	private final double jitter;
+	private final TokenBudget budget;
+
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder retries = new LongAdder();
+	private final LongAdder exhausted = new LongAdder();
+	private final LongAdder throttled = new LongAdder();
+
+	private RetryPolicy(Builder builder) {
+		this.statementClasses = Collections.unmodifiableSet(builder.statementClasses);
+		this.maxRetries = builder.maxRetries;
+		this.minBackoff = builder.minBackoff;
+		this.maxBackoff = builder.maxBackoff;
+		this.jitter = builder.jitter;
+		this.budget = new TokenBudget(builder.budget, 10);
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public Set<StatementClass> getStatementClasses() {
+		return statementClasses;
+	}
+
+	/**
+	 * Takes a snapshot of the counters.
+	 *
+	 * @return the current statistics of the retries.
+	 */
+	public RetryPolicyStats getStats() {
+		return new RetryPolicyStats(requests.sum(), retries.sum(), exhausted.sum(), throttled.sum());
+	}
+
+	/**
+	 * @param <T>            type of the elements
+	 * @param statementClass class of the statements of the request
+	 * @param request        sends the request when subscribed
+	 * @return the request, retried until it emits its first element.
+	 */
+	<T> Flux<T> apply(StatementClass statementClass, Flux<T> request) {
+		if (!statementClasses.contains(statementClass)) {
+			return request;
+		}
+
+		return Flux.defer(() -> {
+			boolean[] emitted = new boolean[1];
+
+			onRequest();
+
+			return request.doOnNext(element -> emitted[0] = true).retryWhen(retry(() -> !emitted[0]));
+		});
+	}
+
+	<T> Mono<T> apply(StatementClass statementClass, Mono<T> request) {
+		if (!statementClasses.contains(statementClass)) {
+			return request;
+		}
+
+		return Mono.defer(() -> {
+			onRequest();
+
+			return request.retryWhen(retry(() -> true));
+		});
+	}
+
+	private void onRequest() {
+		requests.increment();
+		budget.deposit();
+	}
+
+	private Retry retry(BooleanSupplier retryable) {
+		return Retry.backoff(maxRetries, minBackoff).maxBackoff(maxBackoff).jitter(jitter)
+
+				.filter(error -> retryable.getAsBoolean() && isTransient(error) && withdraw())
+
+				.doBeforeRetry(signal -> retries.increment())
+
+				// The error of the last attempt is raised as is.
+				.onRetryExhaustedThrow((spec, signal) -> {
+					exhausted.increment();
+
+					return signal.failure();
+				});
+	}
+
+	private boolean withdraw() {
+		if (budget.withdraw()) {
+			return true;
+		}
+
+		throttled.increment();
+
+		return false;
+	}
+
+	/**
+	 * @param error error of a request
+	 * @return true if the error is a connection error or a 5xx error returned by
+	 *         the server.
+	 */
+	static boolean isTransient(Throwable error) {
+		if (error instanceof KsqlDBServerException) {
+			int errorCode = ((KsqlDBServerException) error).getError().getErrorCode();
+			// ksqlDB error codes are the HTTP status followed by two digits.
+			int status = errorCode >= 10_000 ? errorCode / 100 : errorCode;
+
+			return status >= 500 && status < 600;
+		}
+
+		for (Throwable cause = error; cause != null; cause = cause.getCause() != cause ? cause.getCause() : null) {
+			if (cause instanceof JsonProcessingException) {
+				return false;
+			} else if (cause instanceof IOException) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	public static class Builder {
+		private Set<StatementClass> statementClasses = EnumSet.of(StatementClass.PULL_QUERY,
+				StatementClass.METADATA);
+		private long maxRetries = 3;
+		private Duration minBackoff = Duration.ofMillis(50);
+		private Duration maxBackoff = Duration.ofSeconds(2);
+		private double jitter = 0.5;
+		private double budget = 10;
+
+		private Builder() {
+
+		}
+
+		/**
+		 * Classes of statements that are retried. Defaults to pull queries and
+		 * metadata statements, DDL statements and inserts are not idempotent and
+		 * can be executed twice when retried.
+		 *
+		 * @param statementClasses classes of the retried statements
+		 * @return this builder
+		 */
+		public Builder retryOn(StatementClass... statementClasses) {
+			this.statementClasses = statementClasses.length == 0 ? EnumSet.noneOf(StatementClass.class)
+					: EnumSet.copyOf(Arrays.asList(statementClasses));
+			return this;
+		}
+
+		/**
+		 * Maximum number of retries of a request. Defaults to 3.
+		 *
+		 * @param maxRetries maximum number of retries
+		 * @return this builder
+		 */
+		public Builder maxRetries(long maxRetries) {
+			if (maxRetries < 0) {
+				throw new IllegalArgumentException("maxRetries must not be negative.");
+			}
+
+			this.maxRetries = maxRetries;
+			return this;
+		}
+
+		/**
+		 * Delay before the first retry, doubled by every following retry up to the
+		 * maximum. Defaults to 50 milliseconds and 2 seconds.
+		 *
+		 * @param minBackoff delay before the first retry
+		 * @param maxBackoff maximum delay between two retries
+		 * @return this builder
+		 */
+		public Builder backoff(Duration minBackoff, Duration maxBackoff) {
+			this.minBackoff = minBackoff;
+			this.maxBackoff = maxBackoff;
+			return this;
+		}
+
+		/**
+		 * Randomizes every delay by up to a factor of itself so requests failed by
+		 * the same outage are not retried at the same time. Defaults to 0.5.
+		 *
+		 * @param jitter jitter factor between 0 and 1
+		 * @return this builder
+		 */
+		public Builder jitter(double jitter) {
+			this.jitter = jitter;
+			return this;
+		}
+
+		/**
+		 * Maximum percentage of the requests that are retried, with bursts of up to
+		 * 10 retries. Defaults to 10.
+		 *
+		 * @param budget percentage of the requests between 0 and 100
+		 * @return this builder
+		 */
+		public Builder budget(double budget) {
+			if (budget < 0 || budget > 100) {
+				throw new IllegalArgumentException("budget must be between 0 and 100.");
+			}
+
+			this.budget = budget;
+			return this;
+		}
+
+		public RetryPolicy build() {
+			return new RetryPolicy(this);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+/**
+ * Snapshot of the counters of a {@link RetryPolicy}.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class RetryPolicyStats {
+	private final long requests;
+	private final long retries;
+	private final long exhausted;
+	private final long throttled;
+
+	public RetryPolicyStats(long requests, long retries, long exhausted, long throttled) {
+		this.requests = requests;
+		this.retries = retries;
+		this.exhausted = exhausted;
+		this.throttled = throttled;
+	}
+
+	/**
+	 * @return the number of requests eligible to retries.
+	 */
+	public long getRequests() {
+		return requests;
+	}
+
+	/**
+	 * @return the number of retries sent.
+	 */
+	public long getRetries() {
+		return retries;
+	}
+
+	/**
+	 * @return the number of requests that failed after their last retry.
+	 */
+	public long getExhausted() {
+		return exhausted;
+	}
+
+	/**
+	 * @return the number of retries not sent because the budget was exhausted.
+	 */
+	public long getThrottled() {
+		return throttled;
+	}
+
+	@Override
+	public String toString() {
+		return "RetryPolicyStats [requests=" + requests + ", retries=" + retries + ", exhausted=" + exhausted
+				+ ", throttled=" + throttled + "]";
+	}
+}
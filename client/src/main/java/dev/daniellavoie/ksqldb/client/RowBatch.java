@@ -0,0 +1,268 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.math.BigDecimal;
+
+/**
+ * Columnar batch of the rows of a query received in the same HTTP chunk.
+ * Every column is stored in an array matching its type:
+ * <ul>
+ * <li>BIGINT columns in a {@code long[]}</li>
+ * <li>INTEGER columns in an {@code int[]}</li>
+ * <li>DOUBLE columns in a {@code double[]}</li>
+ * <li>BOOLEAN columns in a bitset</li>
+ * <li>STRING columns in an {@code int[]} of codes into a dictionary of the
+ * distinct values</li>
+ * <li>DECIMAL, ARRAY, MAP, STRUCT and unknown columns in an
+ * {@code Object[]}</li>
+ * </ul>
+ * Nulls are tracked in a bitmap per column, their value in a primitive array is
+ * {@code 0}. Arrays returned by this class can be longer than the batch, only
+ * the first {@link #size()} entries hold rows. They must not be modified.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class RowBatch {
+	private final RowSchema schema;
+	private final int size;
+	private final ColumnVector[] columns;
+
+	RowBatch(RowSchema schema, int size, ColumnVector[] columns) {
+		this.schema = schema;
+		this.size = size;
+		this.columns = columns;
+	}
+
+	public RowSchema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * @return the number of rows of the batch.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int getColumnCount() {
+		return columns.length;
+	}
+
+	/**
+	 * @param column position of the column
+	 * @return the type of the column or null if it is unknown.
+	 */
+	public DataType getType(int column) {
+		return column(column).type;
+	}
+
+	public boolean isNull(int column, int row) {
+		checkRow(row);
+
+		return column(column).isNull(row);
+	}
+
+	/**
+	 * @param column position of the column
+	 * @return a bitmap where the bit of every null row is set.
+	 */
+	public long[] getNullBitmap(int column) {
+		return column(column).nulls;
+	}
+
+	/**
+	 * @param column position of a BIGINT column
+	 * @return the values of the column.
+	 */
+	public long[] getLongs(int column) {
+		return column(column, DataType.BIGINT).longs;
+	}
+
+	/**
+	 * @param column position of an INTEGER column
+	 * @return the values of the column.
+	 */
+	public int[] getInts(int column) {
+		return column(column, DataType.INTEGER).ints;
+	}
+
+	/**
+	 * @param column position of a DOUBLE column
+	 * @return the values of the column.
+	 */
+	public double[] getDoubles(int column) {
+		return column(column, DataType.DOUBLE).doubles;
+	}
+
+	/**
+	 * @param column position of a BOOLEAN column
+	 * @return a bitset where the bit of every true row is set.
+	 */
+	public long[] getBooleanBits(int column) {
+		return column(column, DataType.BOOLEAN).booleans;
+	}
+
+	/**
+	 * @param column position of a STRING column
+	 * @return the code of the value of every row in the dictionary of the
+	 *         column.
+	 */
+	public int[] getStringCodes(int column) {
+		return column(column, DataType.STRING).codes;
+	}
+
+	/**
+	 * @param column position of a STRING column
+	 * @return the distinct values of the column, indexed by their code. The
+	 *         dictionary can be shared with other batches of the same query.
+	 */
+	public String[] getDictionary(int column) {
+		return column(column, DataType.STRING).dictionary;
+	}
+
+	public long getLong(int column, int row) {
+		checkRow(row);
+
+		ColumnVector vector = column(column);
+		if (vector.longs != null) {
+			return vector.longs[row];
+		} else if (vector.ints != null) {
+			return vector.ints[row];
+		} else if (vector.doubles != null) {
+			return (long) vector.doubles[row];
+		}
+
+		Object value = getObject(column, row);
+		if (value == null) {
+			return 0;
+		}
+
+		return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+	}
+
+	public double getDouble(int column, int row) {
+		checkRow(row);
+
+		ColumnVector vector = column(column);
+		if (vector.doubles != null) {
+			return vector.doubles[row];
+		} else if (vector.longs != null) {
+			return vector.longs[row];
+		} else if (vector.ints != null) {
+			return vector.ints[row];
+		}
+
+		Object value = getObject(column, row);
+		if (value == null) {
+			return 0;
+		}
+
+		return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+	}
+
+	public boolean getBoolean(int column, int row) {
+		checkRow(row);
+
+		ColumnVector vector = column(column);
+		if (vector.booleans != null) {
+			return (vector.booleans[row >>> 6] & 1L << row) != 0;
+		}
+
+		Object value = getObject(column, row);
+
+		return value instanceof Boolean ? (Boolean) value : value != null && Boolean.parseBoolean(value.toString());
+	}
+
+	public String getString(int column, int row) {
+		checkRow(row);
+
+		ColumnVector vector = column(column);
+		if (vector.codes != null) {
+			return vector.isNull(row) ? null : vector.dictionary[vector.codes[row]];
+		}
+
+		Object value = getObject(column, row);
+
+		return value != null ? value.toString() : null;
+	}
+
+	public BigDecimal getDecimal(int column, int row) {
+		Object value = getObject(column, row);
+		if (value == null || value instanceof BigDecimal) {
+			return (BigDecimal) value;
+		}
+
+		return new BigDecimal(value.toString());
+	}
+
+	/**
+	 * @param column position of the column
+	 * @param row    position of the row
+	 * @return the value of the column, boxed if the column is a primitive.
+	 */
+	public Object getObject(int column, int row) {
+		checkRow(row);
+
+		ColumnVector vector = column(column);
+		if (vector.isNull(row)) {
+			return null;
+		} else if (vector.longs != null) {
+			return vector.longs[row];
+		} else if (vector.ints != null) {
+			return vector.ints[row];
+		} else if (vector.doubles != null) {
+			return vector.doubles[row];
+		} else if (vector.booleans != null) {
+			return (vector.booleans[row >>> 6] & 1L << row) != 0;
+		} else if (vector.codes != null) {
+			return vector.dictionary[vector.codes[row]];
+		}
+
+		return vector.objects[row];
+	}
+
+	private ColumnVector column(int column) {
+		if (column < 0 || column >= columns.length) {
+			throw new IndexOutOfBoundsException(
+					"Column " + column + " is out of bounds for a batch of " + columns.length + " columns.");
+		}
+
+		return columns[column];
+	}
+
+	private ColumnVector column(int column, DataType type) {
+		ColumnVector vector = column(column);
+		if (vector.type != type) {
+			throw new IllegalStateException("Column " + column + " is of type " + vector.type + ", not " + type + ".");
+		}
+
+		return vector;
+	}
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Row " + row + " is out of bounds for a batch of " + size + " rows.");
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "RowBatch [size=" + size + ", schema=" + schema + "]";
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Decodes the row elements of a query response into column vectors and emits
+ * the rows completed by every HTTP chunk as a single {@link RowBatch}. The rows
+ * of WebSocket frames are batched by {@link FluxRowBatch} instead. STRING
+ * columns are encoded into dictionaries that are kept across the batches of
+ * the query until they are full. A dictionary can exceed its maximum size
+ * within a batch, as every row of a batch must share the same dictionary.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+class RowBatchDecoder extends RowElementDecoder<RowBatch> {
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int MAX_DICTIONARY_SIZE = 1 << 12;
+
+	private ColumnVector[] columns = new ColumnVector[0];
+	private StringDictionary[] dictionaries = new StringDictionary[0];
+	private int capacity = INITIAL_CAPACITY;
+	private int rows;
+
+	/**
+	 * Creates a decoder for the tokens of a non-blocking parser.
+	 */
+	RowBatchDecoder() {
+		this(false);
+	}
+
+	RowBatchDecoder(boolean blockingInput) {
+		super(blockingInput);
+	}
+
+	/**
+	 * @return the number of rows decoded since the last batch.
+	 */
+	int size() {
+		return rows;
+	}
+
+	@Override
+	public RowBatch complete() {
+		return null;
+	}
+
+	@Override
+	public RowBatch flush() {
+		if (rows == 0) {
+			return null;
+		}
+
+		// Every column of the schema is part of the batch, even if none of its rows
+		// had a value for it.
+		if (columns.length < getSchema().size()) {
+			column(getSchema().size() - 1);
+		}
+
+		for (int column = 0; column < columns.length; ++column) {
+			if (columns[column].codes != null) {
+				columns[column].dictionary = dictionaries[column].values();
+
+				// A full dictionary is replaced rather than cleared once the batch is
+				// complete, the batches it was handed to keep referencing its values.
+				if (dictionaries[column].isFull()) {
+					dictionaries[column] = null;
+				}
+			}
+		}
+
+		ColumnVector[] completed = columns;
+		RowBatch batch = new RowBatch(getSchema(), rows, completed);
+
+		// The next batch starts with the size of this one, most chunks hold a
+		// similar number of rows.
+		capacity = Math.max(INITIAL_CAPACITY, rows);
+		columns = new ColumnVector[0];
+
+		if (isRowInProgress()) {
+			carryRow(completed, rows);
+		}
+
+		rows = 0;
+
+		return batch;
+	}
+
+	/**
+	 * Moves the columns already read for a row split across two chunks to the
+	 * vectors of the next batch.
+	 */
+	private void carryRow(ColumnVector[] completed, int row) {
+		int columnsRead = Math.min(getColumnsRead(), completed.length);
+
+		rows = 0;
+		for (int index = 0; index < columnsRead; ++index) {
+			ColumnVector source = completed[index];
+			ColumnVector target = column(index);
+
+			if (source.codes != null && !source.isNull(row)) {
+				target.codes[0] = dictionary(index).encode(source.dictionary[source.codes[row]]);
+			} else {
+				source.copyTo(row, target, 0);
+			}
+		}
+	}
+
+	@Override
+	void startRow() {
+		if (rows == capacity) {
+			capacity *= 2;
+
+			for (ColumnVector column : columns) {
+				column.grow(capacity);
+			}
+		}
+	}
+
+	@Override
+	void endRow(int columnCount) {
+		for (int column = columnCount; column < columns.length; ++column) {
+			columns[column].setNull(rows);
+		}
+
+		++rows;
+	}
+
+	@Override
+	void onNull(int column) {
+		column(column).setNull(rows);
+	}
+
+	@Override
+	void onLong(int column, long value) {
+		ColumnVector vector = column(column);
+		if (vector.longs != null) {
+			vector.longs[rows] = value;
+		} else {
+			vector.ints[rows] = (int) value;
+		}
+	}
+
+	@Override
+	void onDouble(int column, double value) {
+		column(column).doubles[rows] = value;
+	}
+
+	@Override
+	void onBoolean(int column, boolean value) {
+		ColumnVector vector = column(column);
+		if (value) {
+			vector.booleans[rows >>> 6] |= 1L << rows;
+		}
+	}
+
+	@Override
+	void onString(int column, JsonParser parser, JsonToken token) throws IOException {
+		ColumnVector vector = column(column);
+		StringDictionary dictionary = dictionary(column);
+
+		if (token == JsonToken.VALUE_STRING) {
+			vector.codes[rows] = dictionary.encode(parser.getTextCharacters(), parser.getTextOffset(),
+					parser.getTextLength());
+		} else {
+			vector.codes[rows] = dictionary.encode(parser.getText());
+		}
+	}
+
+	@Override
+	void onObject(int column, Object value) {
+		column(column).objects[rows] = value;
+	}
+
+	private ColumnVector column(int column) {
+		if (column >= columns.length) {
+			int previousLength = columns.length;
+			columns = Arrays.copyOf(columns, column + 1);
+
+			for (int index = previousLength; index <= column; ++index) {
+				columns[index] = new ColumnVector(getSchema().type(index), capacity);
+
+				// Rows decoded before the column was first seen did not have it.
+				for (int row = 0; row < rows; ++row) {
+					columns[index].setNull(row);
+				}
+			}
+		}
+
+		return columns[column];
+	}
+
+	private StringDictionary dictionary(int column) {
+		if (column >= dictionaries.length) {
+			dictionaries = Arrays.copyOf(dictionaries, column + 1);
+		}
+
+		if (dictionaries[column] == null) {
+			dictionaries[column] = new StringDictionary(MAX_DICTIONARY_SIZE);
+		}
+
+		return dictionaries[column];
+	}
+}
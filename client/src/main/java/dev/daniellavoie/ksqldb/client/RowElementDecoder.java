@@ -0,0 +1,317 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Decodes the elements of a query response according to the schema sent in
+ * the header of the response. The schema is compiled once into the types of
+ * the columns, every scalar column of the following rows is then read straight
+ * from the parser into a primitive or its final type and handed to the
+ * subclass, which decides how rows are stored. ARRAY, MAP and STRUCT columns
+ * are bound straight from a blocking parser and are buffered when the parser
+ * is non-blocking, as their tokens may not all be available yet.
+ * <p>
+ * Elements with a {@code header} field update the schema. Elements with an
+ * {@code errorMessage} field are raised as a {@link KsqlDBServerException}.
+ * </p>
+ * <p>
+ * Instances are stateful and must be used for a single query.
+ * </p>
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ *
+ * @param <T> Type of the decoded elements.
+ */
+abstract class RowElementDecoder<T> implements JsonElementDecoder<T> {
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+	private static final ObjectReader VALUE_READER = OBJECT_MAPPER.readerFor(Object.class);
+	private static final ObjectReader EXACT_VALUE_READER = VALUE_READER
+			.with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+	private static final ObjectReader HEADER_READER = OBJECT_MAPPER.readerFor(Map.class);
+	private static final ObjectReader ERROR_READER = OBJECT_MAPPER.readerFor(KsqlDBServerError.class);
+
+	private static final int ELEMENT = 1;
+	private static final int ROW = 2;
+	private static final int COLUMNS = 3;
+
+	private final boolean blockingInput;
+
+	private RowSchema schema = RowSchema.EMPTY;
+
+	private int depth;
+	private String fieldName;
+	private TokenBuffer capture;
+	private int captureDepth;
+	private int column;
+
+	/**
+	 * @param blockingInput true if every token of an element can be read from the
+	 *                      parser while handling its first token.
+	 */
+	RowElementDecoder(boolean blockingInput) {
+		this.blockingInput = blockingInput;
+	}
+
+	RowSchema getSchema() {
+		return schema;
+	}
+
+	void setSchema(RowSchema schema) {
+		this.schema = schema;
+	}
+
+	/**
+	 * @return true if the first columns of a row were read and its remaining
+	 *         columns are not available yet.
+	 */
+	boolean isRowInProgress() {
+		return depth == COLUMNS;
+	}
+
+	/**
+	 * @return the number of columns read so far for the current row.
+	 */
+	int getColumnsRead() {
+		return column;
+	}
+
+	/**
+	 * Invoked when the first column of a row is about to be read.
+	 */
+	abstract void startRow();
+
+	/**
+	 * @param columns number of columns read for the row
+	 */
+	abstract void endRow(int columns);
+
+	abstract void onNull(int column);
+
+	/**
+	 * Receives the value of an INTEGER or BIGINT column.
+	 */
+	abstract void onLong(int column, long value);
+
+	abstract void onDouble(int column, double value);
+
+	abstract void onBoolean(int column, boolean value);
+
+	/**
+	 * Receives a STRING column. The text of the token must be read from the
+	 * parser before this method returns.
+	 */
+	abstract void onString(int column, JsonParser parser, JsonToken token) throws IOException;
+
+	/**
+	 * Receives the value of a DECIMAL, ARRAY, MAP or STRUCT column or of a column
+	 * which type is unknown.
+	 */
+	abstract void onObject(int column, Object value);
+
+	/**
+	 * Receives an ARRAY, MAP or STRUCT column, the parser is positioned on its
+	 * first token and every token of the value is available. The value is read as
+	 * a {@link java.util.List} or a {@link Map} and handed to
+	 * {@link #onObject(int, Object)} unless overridden.
+	 */
+	void onNested(int column, JsonParser parser) throws IOException {
+		onObject(column, (schema.isExactDecimal(column) ? EXACT_VALUE_READER : VALUE_READER).readValue(parser));
+	}
+
+	@Override
+	public void onToken(JsonParser parser, JsonToken token) throws IOException {
+		if (capture != null) {
+			capture(parser, token);
+			return;
+		}
+
+		switch (depth) {
+		case 0:
+			if (token == JsonToken.START_OBJECT) {
+				depth = ELEMENT;
+			}
+			break;
+		case ELEMENT:
+			if (token == JsonToken.FIELD_NAME) {
+				fieldName = parser.getCurrentName();
+			} else if (token == JsonToken.END_OBJECT) {
+				depth = 0;
+			} else if (token == JsonToken.START_OBJECT && "row".equals(fieldName)) {
+				depth = ROW;
+			} else {
+				capture(parser, token);
+			}
+			break;
+		case ROW:
+			if (token == JsonToken.FIELD_NAME) {
+				fieldName = parser.getCurrentName();
+			} else if (token == JsonToken.END_OBJECT) {
+				depth = ELEMENT;
+			} else if (token == JsonToken.START_ARRAY && "columns".equals(fieldName)) {
+				depth = COLUMNS;
+				column = 0;
+				startRow();
+			} else {
+				capture(parser, token);
+			}
+			break;
+		default:
+			if (token == JsonToken.END_ARRAY) {
+				depth = ROW;
+				endRow(column);
+			} else if (token.isStructStart()) {
+				if (blockingInput) {
+					readNestedColumn(parser);
+				} else {
+					capture(parser, token);
+				}
+			} else {
+				readColumn(parser, token);
+			}
+		}
+	}
+
+	private void capture(JsonParser parser, JsonToken token) throws IOException {
+		if (capture == null) {
+			capture = new TokenBuffer(OBJECT_MAPPER, false)
+					.forceUseOfBigDecimal(depth != COLUMNS || schema.isExactDecimal(column));
+		}
+
+		capture.copyCurrentEvent(parser);
+
+		if (token.isStructStart()) {
+			++captureDepth;
+		} else if (token.isStructEnd()) {
+			--captureDepth;
+		}
+
+		if (captureDepth == 0) {
+			TokenBuffer captured = capture;
+			capture = null;
+
+			try (JsonParser capturedParser = captured.asParser(OBJECT_MAPPER)) {
+				capturedParser.nextToken();
+
+				onCaptured(capturedParser);
+			}
+		}
+	}
+
+	private void onCaptured(JsonParser parser) throws IOException {
+		if (depth == COLUMNS) {
+			readNestedColumn(parser);
+		} else if (depth == ELEMENT) {
+			if ("header".equals(fieldName) && parser.currentToken() == JsonToken.START_OBJECT) {
+				Map<?, ?> header = HEADER_READER.readValue(parser);
+				Object columns = header.get("schema");
+
+				if (columns != null) {
+					Object queryId = header.get("queryId");
+
+					schema = new RowSchema(queryId != null ? queryId.toString() : null,
+							SchemaParser.parse(columns.toString()));
+				}
+			} else if ("errorMessage".equals(fieldName)) {
+				throw error(parser);
+			}
+		}
+	}
+
+	private void readNestedColumn(JsonParser parser) throws IOException {
+		onNested(column, parser);
+		++column;
+	}
+
+	private static KsqlDBServerException error(JsonParser parser) throws IOException {
+		if (parser.currentToken() == JsonToken.START_OBJECT) {
+			return new KsqlDBServerException(ERROR_READER.readValue(parser));
+		}
+
+		return new KsqlDBServerException(new KsqlDBServerError(null, 0, parser.getText(), null, null, null));
+	}
+
+	private void readColumn(JsonParser parser, JsonToken token) throws IOException {
+		if (token == JsonToken.VALUE_NULL) {
+			onNull(column);
+		} else {
+			DataType type = schema.type(column);
+
+			if (type == null) {
+				onObject(column, readUntyped(parser, token));
+			} else {
+				switch (type) {
+				case BOOLEAN:
+					onBoolean(column, readBoolean(parser, token));
+					break;
+				case INTEGER:
+				case BIGINT:
+					onLong(column, token.isNumeric() ? parser.getLongValue() : Long.parseLong(parser.getText()));
+					break;
+				case DOUBLE:
+					onDouble(column,
+							token.isNumeric() ? parser.getDoubleValue() : Double.parseDouble(parser.getText()));
+					break;
+				case STRING:
+					onString(column, parser, token);
+					break;
+				case DECIMAL:
+					onObject(column, token.isNumeric() ? parser.getDecimalValue() : new BigDecimal(parser.getText()));
+					break;
+				default:
+					onObject(column, readUntyped(parser, token));
+				}
+			}
+		}
+
+		++column;
+	}
+
+	private static boolean readBoolean(JsonParser parser, JsonToken token) throws IOException {
+		if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+			return token == JsonToken.VALUE_TRUE;
+		}
+
+		return Boolean.parseBoolean(parser.getText());
+	}
+
+	private static Object readUntyped(JsonParser parser, JsonToken token) throws IOException {
+		switch (token) {
+		case VALUE_TRUE:
+			return Boolean.TRUE;
+		case VALUE_FALSE:
+			return Boolean.FALSE;
+		case VALUE_NUMBER_INT:
+			return parser.getNumberValue();
+		case VALUE_NUMBER_FLOAT:
+			return parser.getDoubleValue();
+		default:
+			return parser.getText();
+		}
+	}
+}
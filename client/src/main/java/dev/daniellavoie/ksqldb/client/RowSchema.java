@@ -0,0 +1,133 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Columns of the rows returned by a query, as described by the server before
+ * sending the first row. A single instance is shared by every row of a query.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class RowSchema {
+	static final RowSchema EMPTY = new RowSchema(null, Collections.emptyList());
+
+	private final String queryId;
+	private final List<ColumnDefinition> columns;
+	private final DataType[] types;
+	private final boolean[] exactDecimals;
+	private final Map<String, Integer> indexes = new HashMap<>();
+
+	RowSchema(String queryId, List<ColumnDefinition> columns) {
+		this.queryId = queryId;
+		this.columns = Collections.unmodifiableList(columns);
+		this.types = new DataType[columns.size()];
+		this.exactDecimals = new boolean[columns.size()];
+
+		for (int index = 0; index < columns.size(); ++index) {
+			ColumnDefinition column = columns.get(index);
+
+			types[index] = column.getType();
+			exactDecimals[index] = containsDecimal(column.getDataType());
+			indexes.putIfAbsent(column.getName(), index);
+		}
+	}
+
+	/**
+	 * @return the id of the query or null if the server did not send it.
+	 */
+	public String getQueryId() {
+		return queryId;
+	}
+
+	public List<ColumnDefinition> getColumns() {
+		return columns;
+	}
+
+	public int size() {
+		return columns.size();
+	}
+
+	/**
+	 * @param name name of a column
+	 * @return the position of the column or -1 if the schema has no such column.
+	 */
+	public int indexOf(String name) {
+		Integer index = indexes.get(name);
+		if (index == null) {
+			index = indexes.get(name.toUpperCase(Locale.ROOT));
+		}
+
+		return index != null ? index : -1;
+	}
+
+	/**
+	 * @return the type of the column or null if it is unknown.
+	 */
+	DataType type(int index) {
+		return index < types.length ? types[index] : null;
+	}
+
+	/**
+	 * @return true if the column is a DECIMAL or a nested type that contains
+	 *         DECIMAL values.
+	 */
+	boolean isExactDecimal(int index) {
+		return index < exactDecimals.length && exactDecimals[index];
+	}
+
+	/**
+	 * Looks for a DECIMAL type token, skipping the quoted names of the STRUCT
+	 * fields. An unquoted field name is followed by its type while a DECIMAL type
+	 * is followed by its precision or ends the type.
+	 */
+	static boolean containsDecimal(String dataType) {
+		String type = dataType.toUpperCase(Locale.ROOT);
+
+		boolean quoted = false;
+		for (int index = 0; index < type.length(); ++index) {
+			char character = type.charAt(index);
+
+			if (character == '`') {
+				quoted = !quoted;
+			} else if (!quoted && type.startsWith("DECIMAL", index)
+					&& (index == 0 || !Character.isLetterOrDigit(type.charAt(index - 1)))) {
+				int next = index + "DECIMAL".length();
+				while (next < type.length() && type.charAt(next) == ' ') {
+					++next;
+				}
+
+				if (next == type.length() || "(,>".indexOf(type.charAt(next)) != -1) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return "RowSchema [queryId=" + queryId + ", columns=" + columns + "]";
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import dev.daniellavoie.ksqldb.client.api.ksql.Field;
+import dev.daniellavoie.ksqldb.client.api.ksql.Schema;
+
+/**
+ * Parses the schemas sent by ksqlDB ahead of the rows of a query. The /query
+ * endpoint describes the columns as a KSQL column list in the header of the
+ * response while the /ws/query endpoint sends them as a list of {@link Field}.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+abstract class SchemaParser {
+	private static final String KEY_SUFFIX = " KEY";
+
+	/**
+	 * @param schema KSQL column list. Ex: {@code `ROWKEY` STRING KEY, `COUNT`
+	 *               BIGINT}
+	 * @return a definition for every column of the list.
+	 * @throws IllegalArgumentException if a column name is not terminated or a
+	 *                                  column has no type.
+	 */
+	static List<ColumnDefinition> parse(String schema) {
+		List<ColumnDefinition> columns = new ArrayList<>();
+
+		int depth = 0;
+		int start = 0;
+		boolean quoted = false;
+		for (int index = 0; index < schema.length(); ++index) {
+			char character = schema.charAt(index);
+
+			if (character == '`') {
+				quoted = !quoted;
+			} else if (!quoted) {
+				if (character == '<' || character == '(') {
+					++depth;
+				} else if (character == '>' || character == ')') {
+					--depth;
+				} else if (character == ',' && depth == 0) {
+					columns.add(parseColumn(schema.substring(start, index), schema));
+					start = index + 1;
+				}
+			}
+		}
+
+		if (!schema.substring(start).trim().isEmpty()) {
+			columns.add(parseColumn(schema.substring(start), schema));
+		}
+
+		return columns;
+	}
+
+	private static ColumnDefinition parseColumn(String column, String schema) {
+		String definition = column.trim();
+
+		String name;
+		String dataType;
+		if (definition.startsWith("`")) {
+			int end = definition.indexOf('`', 1);
+			if (end == -1) {
+				throw new IllegalArgumentException(
+						"Unterminated column name " + definition + " in schema " + schema + ".");
+			}
+
+			name = definition.substring(1, end);
+			dataType = definition.substring(end + 1).trim();
+		} else {
+			int end = definition.indexOf(' ');
+
+			name = end == -1 ? definition : definition.substring(0, end);
+			dataType = end == -1 ? "" : definition.substring(end + 1).trim();
+		}
+
+		if (dataType.isEmpty()) {
+			throw new IllegalArgumentException("Column " + name + " has no type in schema " + schema + ".");
+		}
+
+		boolean key = dataType.endsWith(KEY_SUFFIX);
+		if (key) {
+			dataType = dataType.substring(0, dataType.length() - KEY_SUFFIX.length()).trim();
+		}
+
+		return new ColumnDefinition(name, dataType, key);
+	}
+
+	/**
+	 * @param fields fields sent in the first frame of a /ws/query session.
+	 * @return a definition for every field.
+	 */
+	static List<ColumnDefinition> fromFields(List<Field> fields) {
+		return fields.stream().map(field -> new ColumnDefinition(field.getName(), typeName(field.getSchema())))
+				.collect(Collectors.toList());
+	}
+
+	private static String typeName(Schema schema) {
+		switch (schema.getType()) {
+		case "ARRAY":
+			return "ARRAY<" + typeName(schema.getMemberSchema()) + ">";
+		case "MAP":
+			return "MAP<STRING, " + typeName(schema.getMemberSchema()) + ">";
+		case "STRUCT":
+			return schema.getFields().stream()
+					.map(field -> "`" + field.getName() + "` " + typeName(field.getSchema()))
+					.collect(Collectors.joining(", ", "STRUCT<", ">"));
+		default:
+			return schema.getType();
+		}
+	}
+}
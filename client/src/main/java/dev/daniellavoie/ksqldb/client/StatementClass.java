@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+/**
+ * Classes of ksqlDB statements by the effect of executing them twice. Queries
+ * and metadata statements can be repeated safely, DDL statements and inserts
+ * cannot. Requests of multiple statements are classified by their least safe
+ * statement.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public enum StatementClass {
+	/**
+	 * SELECT without EMIT CHANGES.
+	 */
+	PULL_QUERY,
+
+	/**
+	 * SHOW, LIST, DESCRIBE and EXPLAIN statements, and the GET endpoints of the
+	 * server.
+	 */
+	METADATA,
+
+	/**
+	 * SELECT with EMIT CHANGES and PRINT.
+	 */
+	PUSH_QUERY,
+
+	/**
+	 * CREATE, DROP, ALTER and TERMINATE statements.
+	 */
+	DDL,
+
+	/**
+	 * INSERT statements.
+	 */
+	INSERT,
+
+	/**
+	 * SET, UNSET, RUN SCRIPT and every unrecognized statement.
+	 */
+	OTHER;
+
+	/**
+	 * @param ksql statements of a request
+	 * @return the class of the least safe statement, or {@link #OTHER} when there
+	 *         is none.
+	 */
+	static StatementClass of(String ksql) {
+		if (ksql == null) {
+			return OTHER;
+		}
+
+		String normalized = StatementKey.normalize(ksql);
+		StatementClass statementClass = null;
+		char quote = 0;
+		int start = 0;
+
+		for (int i = 0; i <= normalized.length(); ++i) {
+			char c = i < normalized.length() ? normalized.charAt(i) : ';';
+
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '\'' || c == '`' || c == '"') {
+				quote = c;
+			} else if (c == ';') {
+				String statement = normalized.substring(start, i).trim();
+				if (!statement.isEmpty()) {
+					StatementClass current = ofStatement(statement);
+
+					statementClass = statementClass == null || current.compareTo(statementClass) > 0 ? current
+							: statementClass;
+				}
+
+				start = i + 1;
+			}
+		}
+
+		return statementClass != null ? statementClass : OTHER;
+	}
+
+	private static StatementClass ofStatement(String statement) {
+		int end = statement.indexOf(' ');
+		String keyword = end == -1 ? statement : statement.substring(0, end);
+
+		switch (keyword) {
+		case "SELECT":
+			return statement.contains(" EMIT CHANGES") ? PUSH_QUERY : PULL_QUERY;
+		case "SHOW":
+		case "LIST":
+		case "DESCRIBE":
+		case "EXPLAIN":
+			return METADATA;
+		case "PRINT":
+			return PUSH_QUERY;
+		case "CREATE":
+		case "DROP":
+		case "ALTER":
+		case "TERMINATE":
+			return DDL;
+		case "INSERT":
+			return INSERT;
+		default:
+			return OTHER;
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import dev.daniellavoie.ksqldb.client.api.query.QueryRequest;
+
+/**
+ * Identifies the statement of a {@link QueryRequest} sent by a client, ignoring
+ * the differences that do not change its result. Whitespaces are collapsed,
+ * trailing semicolons are removed and unquoted text is upper cased like ksqlDB
+ * does for unquoted identifiers. String literals and quoted identifiers are
+ * left untouched.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+final class StatementKey {
+	private final Object scope;
+	private final String statement;
+	private final Map<String, String> properties;
+	private final int hashCode;
+
+	private StatementKey(Object scope, String statement, Map<String, String> properties) {
+		this.scope = scope;
+		this.statement = statement;
+		this.properties = properties;
+		this.hashCode = Objects.hash(System.identityHashCode(scope), statement, properties);
+	}
+
+	/**
+	 * @param scope        compared by identity, typically the client sending the
+	 *                     statement
+	 * @param queryRequest request to identify
+	 * @return the key of the request.
+	 */
+	static StatementKey of(Object scope, QueryRequest queryRequest) {
+		Map<String, String> properties = queryRequest.getStreamsProperties();
+
+		return new StatementKey(scope, normalize(queryRequest.getKsql()),
+				properties == null || properties.isEmpty() ? Collections.emptyMap() : new HashMap<>(properties));
+	}
+
+	static String normalize(String ksql) {
+		StringBuilder builder = new StringBuilder(ksql.length());
+		char quote = 0;
+		boolean space = false;
+
+		for (int i = 0; i < ksql.length(); ++i) {
+			char c = ksql.charAt(i);
+
+			if (quote != 0) {
+				builder.append(c);
+
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (Character.isWhitespace(c)) {
+				space = builder.length() > 0;
+			} else {
+				if (space) {
+					builder.append(' ');
+					space = false;
+				}
+
+				if (c == '\'' || c == '`' || c == '"') {
+					quote = c;
+				}
+
+				builder.append(Character.toUpperCase(c));
+			}
+		}
+
+		int length = builder.length();
+		while (length > 0 && quote == 0 && (builder.charAt(length - 1) == ';' || builder.charAt(length - 1) == ' ')) {
+			--length;
+		}
+		builder.setLength(length);
+
+		return builder.toString();
+	}
+
+	String getStatement() {
+		return statement;
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof StatementKey)) {
+			return false;
+		}
+
+		StatementKey other = (StatementKey) obj;
+
+		return scope == other.scope && hashCode == other.hashCode && statement.equals(other.statement)
+				&& properties.equals(other.properties);
+	}
+
+	@Override
+	public String toString() {
+		return "StatementKey [statement=" + statement + ", properties=" + properties + "]";
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.Arrays;
+
+/**
+ * Assigns a code to every distinct value of a STRING column. Values are looked
+ * up from the characters of the parser so a repeated value does not allocate a
+ * new {@link String}. Codes are assigned in insertion order and never change,
+ * an array returned by {@link #values()} stays valid for the codes assigned
+ * before it was returned.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+class StringDictionary {
+	private final int maxSize;
+
+	private String[] values = new String[16];
+	private int[] hashes = new int[16];
+	private int[] table = new int[32];
+	private int size;
+
+	StringDictionary(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return the code of the value, a new code is assigned if the value was
+	 *         never seen.
+	 */
+	int encode(char[] characters, int offset, int length) {
+		int hash = 0;
+		for (int index = offset; index < offset + length; ++index) {
+			hash = 31 * hash + characters[index];
+		}
+
+		int mask = table.length - 1;
+		int slot = mix(hash) & mask;
+		int entry;
+		while ((entry = table[slot]) != 0) {
+			int code = entry - 1;
+			if (hashes[code] == hash && matches(values[code], characters, offset, length)) {
+				return code;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+			hashes = Arrays.copyOf(hashes, size * 2);
+		}
+
+		int code = size++;
+		values[code] = new String(characters, offset, length);
+		hashes[code] = hash;
+		table[slot] = code + 1;
+
+		if (size * 2 > table.length) {
+			rehash();
+		}
+
+		return code;
+	}
+
+	int encode(String value) {
+		return encode(value.toCharArray(), 0, value.length());
+	}
+
+	/**
+	 * @return true once the dictionary holds its maximum number of values and
+	 *         should be replaced.
+	 */
+	boolean isFull() {
+		return size >= maxSize;
+	}
+
+	String[] values() {
+		return values;
+	}
+
+	private static boolean matches(String value, char[] characters, int offset, int length) {
+		if (value.length() != length) {
+			return false;
+		}
+
+		for (int index = 0; index < length; ++index) {
+			if (value.charAt(index) != characters[offset + index]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void rehash() {
+		table = new int[table.length * 2];
+
+		int mask = table.length - 1;
+		for (int code = 0; code < size; ++code) {
+			int slot = mix(hashes[code]) & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+
+			table[slot] = code + 1;
+		}
+	}
+
+	private static int mix(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+}
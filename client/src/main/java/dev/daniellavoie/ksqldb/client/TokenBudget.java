@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps extra requests, such as retries or hedged requests, to a percentage of
+ * the requests. Every request deposits a fraction of a token and every extra
+ * request withdraws a whole one. Unused tokens accumulate up to a burst.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+class TokenBudget {
+	private static final long TOKEN = 1_000_000;
+
+	private final long deposit;
+	private final long maxTokens;
+	private final AtomicLong tokens;
+
+	/**
+	 * @param percentage percentage of the requests that can be followed by an
+	 *                   extra request
+	 * @param burst      maximum number of tokens accumulated
+	 */
+	TokenBudget(double percentage, int burst) {
+		this.deposit = Math.round(percentage / 100 * TOKEN);
+		this.maxTokens = burst * TOKEN;
+		this.tokens = new AtomicLong(deposit > 0 ? maxTokens : 0);
+	}
+
+	void deposit() {
+		tokens.updateAndGet(available -> Math.min(maxTokens, available + deposit));
+	}
+
+	/**
+	 * @return true if a token was withdrawn for an extra request.
+	 */
+	boolean withdraw() {
+		long available;
+		do {
+			available = tokens.get();
+			if (available < TOKEN) {
+				return false;
+			}
+		} while (!tokens.compareAndSet(available, available - TOKEN));
+
+		return true;
+	}
+}
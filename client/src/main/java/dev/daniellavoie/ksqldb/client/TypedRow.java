@@ -0,0 +1,237 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Row of a query which columns are decoded according to the schema sent by the
+ * server. BOOLEAN, INTEGER, BIGINT and DOUBLE columns are stored as primitives
+ * and can be read without boxing, DECIMAL columns are read as
+ * {@link BigDecimal} without loss of precision and ARRAY, MAP and STRUCT
+ * columns are read as {@link List} and {@link java.util.Map}.
+ * <p>
+ * Primitive accessors return {@code 0} or {@code false} for a null column, use
+ * {@link #isNull(int)} to tell them apart.
+ * </p>
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class TypedRow {
+	private final RowSchema schema;
+	private final int size;
+	private final long[] primitives;
+	private final Object[] references;
+	private final boolean[] nulls;
+
+	TypedRow(RowSchema schema, int size, long[] primitives, Object[] references, boolean[] nulls) {
+		this.schema = schema;
+		this.size = size;
+		this.primitives = primitives;
+		this.references = references;
+		this.nulls = nulls;
+	}
+
+	public RowSchema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * @return the number of columns of the row.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isNull(int index) {
+		checkIndex(index);
+
+		return nulls[index];
+	}
+
+	public boolean isNull(String column) {
+		return isNull(indexOf(column));
+	}
+
+	public long getLong(int index) {
+		DataType type = type(index);
+		if (type == DataType.BIGINT || type == DataType.INTEGER) {
+			return primitives[index];
+		} else if (type == DataType.DOUBLE) {
+			return (long) Double.longBitsToDouble(primitives[index]);
+		}
+
+		Object value = reference(index, type);
+		if (value == null) {
+			return 0;
+		}
+
+		return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+	}
+
+	public long getLong(String column) {
+		return getLong(indexOf(column));
+	}
+
+	public int getInt(int index) {
+		return (int) getLong(index);
+	}
+
+	public int getInt(String column) {
+		return getInt(indexOf(column));
+	}
+
+	public double getDouble(int index) {
+		DataType type = type(index);
+		if (type == DataType.DOUBLE) {
+			return Double.longBitsToDouble(primitives[index]);
+		} else if (type == DataType.BIGINT || type == DataType.INTEGER) {
+			return primitives[index];
+		}
+
+		Object value = reference(index, type);
+		if (value == null) {
+			return 0;
+		}
+
+		return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+	}
+
+	public double getDouble(String column) {
+		return getDouble(indexOf(column));
+	}
+
+	public boolean getBoolean(int index) {
+		DataType type = type(index);
+		if (type == DataType.BOOLEAN) {
+			return primitives[index] != 0;
+		}
+
+		Object value = reference(index, type);
+
+		return value instanceof Boolean ? (Boolean) value : value != null && Boolean.parseBoolean(value.toString());
+	}
+
+	public boolean getBoolean(String column) {
+		return getBoolean(indexOf(column));
+	}
+
+	public String getString(int index) {
+		Object value = getObject(index);
+
+		return value != null ? value.toString() : null;
+	}
+
+	public String getString(String column) {
+		return getString(indexOf(column));
+	}
+
+	public BigDecimal getDecimal(int index) {
+		Object value = getObject(index);
+		if (value == null || value instanceof BigDecimal) {
+			return (BigDecimal) value;
+		}
+
+		return new BigDecimal(value.toString());
+	}
+
+	public BigDecimal getDecimal(String column) {
+		return getDecimal(indexOf(column));
+	}
+
+	/**
+	 * @param index position of the column
+	 * @return the value of the column, boxed if the column is a primitive.
+	 */
+	public Object getObject(int index) {
+		DataType type = type(index);
+		if (nulls[index]) {
+			return null;
+		}
+
+		if (type != null) {
+			switch (type) {
+			case BOOLEAN:
+				return primitives[index] != 0;
+			case INTEGER:
+				return (int) primitives[index];
+			case BIGINT:
+				return primitives[index];
+			case DOUBLE:
+				return Double.longBitsToDouble(primitives[index]);
+			default:
+				break;
+			}
+		}
+
+		return references[index];
+	}
+
+	public Object getObject(String column) {
+		return getObject(indexOf(column));
+	}
+
+	/**
+	 * @return the boxed values of every column.
+	 */
+	public List<Object> getValues() {
+		List<Object> values = new ArrayList<>(size);
+		for (int index = 0; index < size; ++index) {
+			values.add(getObject(index));
+		}
+
+		return values;
+	}
+
+	private int indexOf(String column) {
+		int index = schema.indexOf(column);
+		if (index == -1) {
+			throw new IllegalArgumentException("Column " + column + " is not part of " + schema.getColumns() + ".");
+		}
+
+		return index;
+	}
+
+	private DataType type(int index) {
+		checkIndex(index);
+
+		return schema.type(index);
+	}
+
+	private Object reference(int index, DataType type) {
+		if (type == DataType.BOOLEAN) {
+			return primitives[index] != 0;
+		}
+
+		return references[index];
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(
+					"Index " + index + " is out of bounds for a row of " + size + " columns.");
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "TypedRow " + getValues();
+	}
+}
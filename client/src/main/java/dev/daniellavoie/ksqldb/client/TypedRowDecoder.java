@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Decodes every row element of a query response into a {@link TypedRow}.
+ * Primitive columns are stored in a {@code long[]} and the other columns in an
+ * {@code Object[]}. Header elements are not emitted.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+class TypedRowDecoder extends RowElementDecoder<TypedRow> {
+	private long[] primitives;
+	private Object[] references;
+	private boolean[] nulls;
+	private TypedRow row;
+
+	/**
+	 * Creates a decoder for the tokens of a non-blocking parser.
+	 */
+	TypedRowDecoder() {
+		this(false);
+	}
+
+	TypedRowDecoder(boolean blockingInput) {
+		super(blockingInput);
+	}
+
+	@Override
+	public TypedRow complete() {
+		TypedRow completed = row;
+		row = null;
+
+		return completed;
+	}
+
+	@Override
+	void startRow() {
+		int size = Math.max(getSchema().size(), 1);
+
+		primitives = new long[size];
+		references = new Object[size];
+		nulls = new boolean[size];
+	}
+
+	@Override
+	void endRow(int columns) {
+		row = new TypedRow(getSchema(), columns, primitives, references, nulls);
+
+		primitives = null;
+		references = null;
+		nulls = null;
+	}
+
+	@Override
+	void onNull(int column) {
+		ensureCapacity(column);
+
+		nulls[column] = true;
+	}
+
+	@Override
+	void onLong(int column, long value) {
+		ensureCapacity(column);
+
+		primitives[column] = value;
+	}
+
+	@Override
+	void onDouble(int column, double value) {
+		ensureCapacity(column);
+
+		primitives[column] = Double.doubleToRawLongBits(value);
+	}
+
+	@Override
+	void onBoolean(int column, boolean value) {
+		ensureCapacity(column);
+
+		primitives[column] = value ? 1 : 0;
+	}
+
+	@Override
+	void onString(int column, JsonParser parser, JsonToken token) throws IOException {
+		ensureCapacity(column);
+
+		references[column] = parser.getText();
+	}
+
+	@Override
+	void onObject(int column, Object value) {
+		ensureCapacity(column);
+
+		references[column] = value;
+	}
+
+	private void ensureCapacity(int column) {
+		if (column == primitives.length) {
+			int size = primitives.length * 2;
+
+			primitives = Arrays.copyOf(primitives, size);
+			references = Arrays.copyOf(references, size);
+			nulls = Arrays.copyOf(nulls, size);
+		}
+	}
+}
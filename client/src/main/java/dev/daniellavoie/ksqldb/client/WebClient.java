@@ -17,6 +17,7 @@
 package dev.daniellavoie.ksqldb.client;
 
 import java.util.Map;
+import java.util.function.Supplier;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 
@@ -56,17 +57,51 @@ public interface WebClient {
 	<T> Mono<T> post(String url, Object body, TypeReference<T> returnType);
 
 	/**
-	 * Executes a POST HTTP request that emits multiple typed events until a final
-	 * completion signal is sent.
+	 * Executes a POST HTTP request which response is a streamed JSON array and
+	 * emits its elements until a final completion signal is sent.
 	 * 
-	 * @param <T>        A typed object matching the response body that are emitted
-	 *                   until completion.
+	 * @param <T>        A typed object matching the elements of the response
+	 *                   array.
 	 * @param url        URL for the POST request
 	 * @param body       Object to be serialized as the POST request body
-	 * @param returnType Class instance of the type to be emitted.
-	 * @return A {@link Flux} that emits an event for each HTTP chunk received by
-	 *         the client.
+	 * @param returnType Type reference of the type to be emitted.
+	 * @return A {@link Flux} that emits an event for each element of the JSON
+	 *         array streamed by the server.
+	 * @deprecated since 0.2.0, elements were emitted per HTTP chunk and are now
+	 *             emitted per element of the array. Use
+	 *             {@link #postForMany(String, Object, Class)} or
+	 *             {@link #postForMany(String, Object, Supplier)} instead.
+	 */
+	@Deprecated
+	default <T> Flux<T> postForMany(String url, Object body, TypeReference<T> returnType) {
+		return postForMany(url, body, () -> new BufferedElementDecoder<>(returnType));
+	}
+
+	/**
+	 * Executes a POST HTTP request which response is a streamed JSON array and
+	 * emits its elements until a final completion signal is sent.
+	 * 
+	 * @param <T>         A typed object matching the elements of the response
+	 *                    array.
+	 * @param url         URL for the POST request
+	 * @param body        Object to be serialized as the POST request body
+	 * @param elementType Class instance of the type to be emitted.
+	 * @return A {@link Flux} that emits an event for each element of the JSON
+	 *         array streamed by the server.
+	 */
+	<T> Flux<T> postForMany(String url, Object body, Class<T> elementType);
+
+	/**
+	 * Executes a POST HTTP request which response is a streamed JSON array and
+	 * emits the elements decoded by a {@link JsonElementDecoder}.
+	 * 
+	 * @param <T>            Type of the decoded elements.
+	 * @param url            URL for the POST request
+	 * @param body           Object to be serialized as the POST request body
+	 * @param elementDecoder Supplies a new decoder for every response.
+	 * @return A {@link Flux} that emits an event for each element decoded from
+	 *         the JSON array streamed by the server.
 	 */
-	<T> Flux<T> postForMany(String url, Object body, TypeReference<T> returnType);
+	<T> Flux<T> postForMany(String url, Object body, Supplier<? extends JsonElementDecoder<T>> elementDecoder);
 
 }
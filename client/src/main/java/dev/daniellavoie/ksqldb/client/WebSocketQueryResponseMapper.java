@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dev.daniellavoie.ksqldb.client.api.ksql.Field;
+import dev.daniellavoie.ksqldb.client.model.QueryRow;
+import reactor.core.publisher.Mono;
+
+/**
+ * Maps the frames received from the /ws/query endpoint of ksqlDB. The first
+ * frame describes the schema of the query and is not emitted, every following
+ * frame holds a row.
+ * <p>
+ * Instances are stateful and must be used for a single WebSocket session.
+ * </p>
+ * 
+ * @author Daniel Lavoie
+ * @since 0.1.0
+ */
+class WebSocketQueryResponseMapper implements Function<String, Mono<QueryRow>> {
+	private static final Logger LOGGER = LoggerFactory.getLogger(WebSocketQueryResponseMapper.class);
+
+	private boolean headerSkipped;
+	private RowSchema schema = RowSchema.EMPTY;
+
+	/**
+	 * @return true once the first frame of the session was received.
+	 */
+	boolean isHeaderReceived() {
+		return headerSkipped;
+	}
+
+	/**
+	 * @return the schema described by the first frame, or an empty schema if it
+	 *         was not received yet.
+	 */
+	RowSchema getSchema() {
+		return schema;
+	}
+
+	@Override
+	public Mono<QueryRow> apply(String value) {
+		LOGGER.trace("Processing websocket payload {}.", value);
+
+		if (!headerSkipped) {
+			headerSkipped = true;
+
+			if (value.trim().startsWith("[")) {
+				schema = new RowSchema(null,
+						SchemaParser.fromFields(Arrays.asList(JsonUtil.readValue(value, Field[].class))));
+			}
+
+			return Mono.empty();
+		} else {
+			return Mono.just(JsonUtil.readValue(value, QueryRow.class));
+		}
+	}
+}
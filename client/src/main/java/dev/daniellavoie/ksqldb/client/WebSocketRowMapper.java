@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import dev.daniellavoie.ksqldb.client.api.ksql.Field;
+import reactor.core.publisher.SynchronousSink;
+
+/**
+ * Maps the frames received from the /ws/query endpoint of ksqlDB with a
+ * {@link RowElementDecoder}, such as a {@link TypedRowDecoder}. The first frame
+ * describes the schema of the query and is handed to the decoder, every
+ * following frame holds a row.
+ * <p>
+ * Instances are stateful and must be used for a single WebSocket session.
+ * </p>
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ *
+ * @param <T> Type of the decoded rows.
+ */
+class WebSocketRowMapper<T> implements BiConsumer<String, SynchronousSink<T>> {
+	private static final Logger LOGGER = LoggerFactory.getLogger(WebSocketRowMapper.class);
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+	private static final JsonFactory JSON_FACTORY = OBJECT_MAPPER.getFactory();
+	private static final ObjectReader FIELDS_READER = OBJECT_MAPPER.readerFor(Field[].class);
+
+	private final RowElementDecoder<T> decoder;
+
+	private boolean schemaRead;
+
+	/**
+	 * @param decoder decoder created for a blocking input.
+	 */
+	WebSocketRowMapper(RowElementDecoder<T> decoder) {
+		this.decoder = decoder;
+	}
+
+	@Override
+	public void accept(String frame, SynchronousSink<T> sink) {
+		try {
+			decode(frame);
+
+			T row = decoder.complete();
+			if (row != null) {
+				sink.next(row);
+			}
+		} catch (IOException e) {
+			sink.error(new UncheckedIOException(e));
+		}
+	}
+
+	/**
+	 * Hands the schema or the row of a frame to the decoder.
+	 */
+	void decode(String frame) throws IOException {
+		LOGGER.trace("Processing websocket payload {}.", frame);
+
+		if (!schemaRead) {
+			schemaRead = true;
+
+			if (frame.trim().startsWith("[")) {
+				Field[] fields = FIELDS_READER.readValue(frame);
+
+				decoder.setSchema(new RowSchema(null, SchemaParser.fromFields(Arrays.asList(fields))));
+
+				return;
+			}
+		}
+
+		try (JsonParser parser = JSON_FACTORY.createParser(frame)) {
+			JsonToken token;
+			while ((token = parser.nextToken()) != null) {
+				decoder.onToken(parser, token);
+			}
+		}
+	}
+}
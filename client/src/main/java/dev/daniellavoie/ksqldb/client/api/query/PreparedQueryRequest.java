@@ -0,0 +1,76 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.client.api.query;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import dev.daniellavoie.ksqldb.client.JsonUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Query request which JSON representation is serialized once and reused by
+ * every request sent to the ksqlDB server. Intended for statements executed
+ * repeatedly, such as a pull query on a hot key.
+ * <p>
+ * The serialized bytes are held in a heap buffer owned by this instance, their
+ * lifecycle is managed by the garbage collector.
+ * </p>
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class PreparedQueryRequest extends QueryRequest {
+	private final ByteBuf content;
+	private final String json;
+
+	public PreparedQueryRequest(String ksql) {
+		this(ksql, null);
+	}
+
+	public PreparedQueryRequest(String ksql, Map<String, String> streamsProperties) {
+		super(ksql, streamsProperties);
+
+		byte[] bytes = JsonUtil.writeValueAsBytes(new QueryRequest(ksql, streamsProperties));
+
+		this.content = Unpooled.wrappedBuffer(bytes);
+		this.json = new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Provides the serialized request. Senders are expected to write a
+	 * {@link ByteBuf#retainedDuplicate()} of the returned buffer.
+	 * 
+	 * @return the JSON representation of the request.
+	 */
+	@JsonIgnore
+	public ByteBuf getContent() {
+		return content;
+	}
+
+	/**
+	 * @return the JSON representation of the request, sent by push queries over
+	 *         WebSocket.
+	 */
+	@JsonIgnore
+	public String getJson() {
+		return json;
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JDK Flight Recorder events of the client. They are enabled by default and can
+ * be configured by name in a JFR settings file. The stack traces are not
+ * recorded, the events are committed from the event loops of Reactor Netty.
+ * <p>
+ * Compiled for Java 11 and only referenced from {@link JdkFlightRecorderFactory},
+ * which {@link FlightRecorderSupport} loads reflectively if JFR is available.
+ * </p>
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+final class FlightRecorderEvents {
+	static final String CATEGORY = "ksqlDB Client";
+
+	private FlightRecorderEvents() {
+
+	}
+
+	@Name("dev.daniellavoie.ksqldb.Request")
+	@Label("ksqlDB Request")
+	@Description("Request sent to a ksqlDB node, from its subscription to its termination")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static class Request extends Event {
+		@Label("Endpoint")
+		String endpoint;
+
+		@Label("Statement Class")
+		String statementClass;
+
+		@Label("Node")
+		String node;
+
+		@Label("Bytes Sent")
+		@DataAmount
+		long bytesSent;
+
+		@Label("Bytes Received")
+		@DataAmount
+		long bytesReceived;
+
+		@Label("Rows")
+		long rows;
+
+		@Label("Outcome")
+		@Description("completed, failed or cancelled")
+		String outcome;
+
+		@Label("Error")
+		String error;
+	}
+
+	@Name("dev.daniellavoie.ksqldb.PushQuerySession")
+	@Label("ksqlDB Push Query Session")
+	@Description("Push query, from its subscription to its termination, across reconnections")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static class PushQuerySession extends Event {
+		@Label("Query Hash")
+		@Description("Hash of the normalized text of the query")
+		int queryHash;
+
+		@Label("Rows")
+		long rows;
+
+		@Label("Reconnects")
+		int reconnects;
+	}
+
+	@Name("dev.daniellavoie.ksqldb.SlowDecode")
+	@Label("ksqlDB Slow Decode")
+	@Description("Decoding of a chunk of a /query response")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	@Threshold("10 ms")
+	static class SlowDecode extends Event {
+		@Label("Endpoint")
+		String endpoint;
+
+		@Label("Node")
+		String node;
+
+		@Label("Chunk Size")
+		@DataAmount
+		int chunkSize;
+
+		@Label("Elements")
+		int elements;
+	}
+
+	@Name("dev.daniellavoie.ksqldb.ConnectionAcquire")
+	@Label("ksqlDB Connection Acquire")
+	@Description("Wait for a connection to a ksqlDB node, from the subscription to the request until it is sent")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	@Threshold("10 ms")
+	static class ConnectionAcquire extends Event {
+		@Label("Endpoint")
+		String endpoint;
+
+		@Label("Node")
+		String node;
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+/**
+ * Records the {@link FlightRecorderEvents} of the client. Instantiated
+ * reflectively by {@link FlightRecorderSupport}.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+final class JdkFlightRecorderFactory implements FlightRecorderFactory {
+	@Override
+	public RequestRecording recordRequest(String path, StatementClass statementClass, KsqlDBNode node) {
+		return JdkRequestRecording.start(path, statementClass, node);
+	}
+
+	@Override
+	public PushQueryRecording recordPushQuery(String ksql) {
+		return JdkPushQueryRecording.start(ksql);
+	}
+}
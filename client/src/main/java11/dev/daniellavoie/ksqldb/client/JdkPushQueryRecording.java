@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.function.ToIntFunction;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * JDK Flight Recorder event of a push query, spanning all the WebSocket
+ * sessions opened for a subscription. The text of the query is hashed once
+ * normalized, so the sessions of a query can be correlated without recording
+ * its text.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+final class JdkPushQueryRecording implements PushQueryRecording {
+	private final FlightRecorderEvents.PushQuerySession session;
+
+	private int connections;
+
+	private JdkPushQueryRecording(FlightRecorderEvents.PushQuerySession session) {
+		this.session = session;
+	}
+
+	/**
+	 * @return the recording, null if the push query session event is not
+	 *         enabled.
+	 */
+	static PushQueryRecording start(String ksql) {
+		FlightRecorderEvents.PushQuerySession session = new FlightRecorderEvents.PushQuerySession();
+		if (!session.isEnabled()) {
+			return null;
+		}
+
+		session.queryHash = StatementKey.normalize(ksql).hashCode();
+
+		return new JdkPushQueryRecording(session);
+	}
+
+	@Override
+	public void connected() {
+		if (connections++ > 0) {
+			++session.reconnects;
+		}
+	}
+
+	@Override
+	public <T> Flux<T> record(Flux<T> rows, ToIntFunction<? super T> rowCount) {
+		return rows.doOnSubscribe(subscription -> session.begin())
+				.doOnNext(row -> session.rows += rowCount.applyAsInt(row))
+				.doFinally(signal -> {
+					session.end();
+
+					if (session.shouldCommit()) {
+						session.commit();
+					}
+				});
+	}
+}
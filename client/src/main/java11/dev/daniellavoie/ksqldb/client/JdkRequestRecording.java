@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+/**
+ * JDK Flight Recorder events of a single request, reported by its
+ * {@link RequestEvent}. The {@link FlightRecorderEvents.Request} event spans
+ * the whole request while a {@link FlightRecorderEvents.ConnectionAcquire} and
+ * a {@link FlightRecorderEvents.SlowDecode} event are only committed when they
+ * exceed their threshold.
+ *
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+final class JdkRequestRecording implements RequestRecording {
+	private final FlightRecorderEvents.Request request;
+	private final FlightRecorderEvents.ConnectionAcquire connectionAcquire;
+
+	private FlightRecorderEvents.SlowDecode decode;
+
+	private JdkRequestRecording(FlightRecorderEvents.Request request,
+			FlightRecorderEvents.ConnectionAcquire connectionAcquire) {
+		this.request = request;
+		this.connectionAcquire = connectionAcquire;
+	}
+
+	/**
+	 * @return the recording, null if the request event is not enabled.
+	 */
+	static RequestRecording start(String path, StatementClass statementClass, KsqlDBNode node) {
+		FlightRecorderEvents.Request request = new FlightRecorderEvents.Request();
+		if (!request.isEnabled()) {
+			return null;
+		}
+
+		request.endpoint = path;
+		request.statementClass = statementClass.name();
+		request.node = node.getUrl();
+
+		FlightRecorderEvents.ConnectionAcquire connectionAcquire = new FlightRecorderEvents.ConnectionAcquire();
+
+		return new JdkRequestRecording(request, connectionAcquire.isEnabled() ? connectionAcquire : null);
+	}
+
+	@Override
+	public void started() {
+		request.begin();
+
+		if (connectionAcquire != null) {
+			connectionAcquire.begin();
+		}
+	}
+
+	@Override
+	public void connectionAcquired() {
+		if (connectionAcquire != null) {
+			connectionAcquire.end();
+
+			if (connectionAcquire.shouldCommit()) {
+				connectionAcquire.endpoint = request.endpoint;
+				connectionAcquire.node = request.node;
+				connectionAcquire.commit();
+			}
+		}
+	}
+
+	@Override
+	public void sent(int bytes) {
+		request.bytesSent += bytes;
+	}
+
+	@Override
+	public void received(int bytes) {
+		request.bytesReceived += bytes;
+	}
+
+	@Override
+	public void rowDecoded() {
+		++request.rows;
+	}
+
+	@Override
+	public void decodeStarted() {
+		FlightRecorderEvents.SlowDecode decode = new FlightRecorderEvents.SlowDecode();
+		if (decode.isEnabled()) {
+			decode.begin();
+
+			this.decode = decode;
+		}
+	}
+
+	@Override
+	public void decodeEnded(int chunkSize, int elements) {
+		FlightRecorderEvents.SlowDecode decode = this.decode;
+		if (decode == null) {
+			return;
+		}
+		this.decode = null;
+
+		decode.end();
+
+		if (decode.shouldCommit()) {
+			decode.endpoint = request.endpoint;
+			decode.node = request.node;
+			decode.chunkSize = chunkSize;
+			decode.elements = elements;
+			decode.commit();
+		}
+	}
+
+	@Override
+	public void ended(String outcome, Throwable error) {
+		request.end();
+
+		if (request.shouldCommit()) {
+			request.outcome = outcome;
+			request.error = error != null ? error.toString() : null;
+			request.commit();
+		}
+	}
+}
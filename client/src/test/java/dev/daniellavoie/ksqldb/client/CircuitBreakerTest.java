@@ -0,0 +1,238 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.net.ConnectException;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.daniellavoie.ksqldb.client.CircuitBreaker.State;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+import reactor.test.util.RaceTestUtils;
+
+public class CircuitBreakerTest {
+	private static final KsqlDBNode NODE = KsqlDBNode.of("http://localhost:8088", "ws://localhost:8088");
+	private static final Duration NEVER = Duration.ofHours(1);
+
+	@Test
+	public void openOnFailureRate() {
+		CircuitBreaker circuitBreaker = builder().openDuration(NEVER).build();
+
+		succeed(circuitBreaker, 2);
+		fail(circuitBreaker, 1);
+
+		Assertions.assertEquals(State.CLOSED, circuitBreaker.getState(NODE.getUrl()));
+
+		fail(circuitBreaker, 1);
+
+		Assertions.assertEquals(State.OPEN, circuitBreaker.getState(NODE.getUrl()));
+		Assertions.assertFalse(circuitBreaker.isAvailable(NODE));
+
+		StepVerifier.create(circuitBreaker.apply(NODE, Mono.just("rejected")))
+				.verifyError(CircuitBreakerOpenException.class);
+
+		CircuitBreakerStats stats = circuitBreaker.getStats().get(0);
+		Assertions.assertEquals(1, stats.getOpened());
+		Assertions.assertEquals(1, stats.getRejected());
+	}
+
+	@Test
+	public void ignoreErrorsOfStatements() {
+		CircuitBreaker circuitBreaker = builder().openDuration(NEVER).build();
+
+		for (int i = 0; i < 4; ++i) {
+			StepVerifier.create(circuitBreaker.apply(NODE, Mono.error(new KsqlDBServerException(
+					new KsqlDBServerError("statement_error", 40001, "Line: 1", null, null, null)))))
+					.verifyError(KsqlDBServerException.class);
+		}
+
+		Assertions.assertEquals(State.CLOSED, circuitBreaker.getState(NODE.getUrl()));
+		Assertions.assertEquals(0, circuitBreaker.getStats().get(0).getFailureRate());
+	}
+
+	@Test
+	public void openOnSlowCallRate() {
+		CircuitBreaker circuitBreaker = builder().slowCalls(50, Duration.ZERO).openDuration(NEVER).build();
+
+		succeed(circuitBreaker, 4);
+
+		Assertions.assertEquals(State.OPEN, circuitBreaker.getState(NODE.getUrl()));
+	}
+
+	@Test
+	public void closeAfterSuccessfulTrials() {
+		CircuitBreaker circuitBreaker = builder().openDuration(Duration.ZERO).trialCalls(2).build();
+
+		fail(circuitBreaker, 4);
+
+		Assertions.assertEquals(State.OPEN, circuitBreaker.getState(NODE.getUrl()));
+
+		MonoProcessor<String> first = MonoProcessor.create();
+		MonoProcessor<String> second = MonoProcessor.create();
+		Disposable firstTrial = circuitBreaker.apply(NODE, first).subscribe();
+		Disposable secondTrial = circuitBreaker.apply(NODE, second).subscribe();
+
+		Assertions.assertEquals(State.HALF_OPEN, circuitBreaker.getState(NODE.getUrl()));
+
+		// Only two trial requests are let through.
+		Assertions.assertFalse(circuitBreaker.isAvailable(NODE));
+		StepVerifier.create(circuitBreaker.apply(NODE, Mono.just("rejected")))
+				.verifyError(CircuitBreakerOpenException.class);
+
+		first.onNext("first");
+		second.onNext("second");
+
+		Assertions.assertEquals(State.CLOSED, circuitBreaker.getState(NODE.getUrl()));
+		Assertions.assertTrue(circuitBreaker.isAvailable(NODE));
+
+		CircuitBreakerStats stats = circuitBreaker.getStats().get(0);
+		Assertions.assertEquals(1, stats.getOpened());
+		Assertions.assertEquals(1, stats.getHalfOpened());
+		Assertions.assertEquals(1, stats.getClosed());
+
+		firstTrial.dispose();
+		secondTrial.dispose();
+	}
+
+	@Test
+	public void openAgainAfterFailedTrials() {
+		CircuitBreaker circuitBreaker = builder().openDuration(Duration.ZERO).trialCalls(2).build();
+
+		fail(circuitBreaker, 4);
+		succeed(circuitBreaker, 1);
+		fail(circuitBreaker, 1);
+
+		CircuitBreakerStats stats = circuitBreaker.getStats().get(0);
+		Assertions.assertEquals(State.OPEN, stats.getState());
+		Assertions.assertEquals(2, stats.getOpened());
+		Assertions.assertEquals(1, stats.getHalfOpened());
+	}
+
+	@Test
+	public void releasePermitOfCancelledTrial() {
+		CircuitBreaker circuitBreaker = builder().openDuration(Duration.ZERO).trialCalls(1).build();
+
+		fail(circuitBreaker, 4);
+
+		circuitBreaker.apply(NODE, Mono.never()).subscribe().dispose();
+
+		Assertions.assertEquals(State.HALF_OPEN, circuitBreaker.getState(NODE.getUrl()));
+		Assertions.assertTrue(circuitBreaker.isAvailable(NODE));
+
+		succeed(circuitBreaker, 1);
+
+		Assertions.assertEquals(State.CLOSED, circuitBreaker.getState(NODE.getUrl()));
+	}
+
+	@Test
+	public void ignoreOutcomesOfPreviousGenerations() {
+		CircuitBreaker circuitBreaker = builder().openDuration(Duration.ZERO).trialCalls(1).build();
+
+		MonoProcessor<String> stale = MonoProcessor.create();
+		circuitBreaker.apply(NODE, stale).subscribe(value -> {
+		}, error -> {
+		});
+
+		fail(circuitBreaker, 4);
+
+		Assertions.assertEquals(State.OPEN, circuitBreaker.getState(NODE.getUrl()));
+
+		MonoProcessor<String> trial = MonoProcessor.create();
+		Disposable trialCall = circuitBreaker.apply(NODE, trial).subscribe();
+
+		// Sent while the circuit was closed, the failure is not a trial outcome.
+		stale.onError(new ConnectException("Connection refused"));
+
+		CircuitBreakerStats stats = circuitBreaker.getStats().get(0);
+		Assertions.assertEquals(State.HALF_OPEN, stats.getState());
+		Assertions.assertEquals(0, stats.getCalls());
+
+		trial.onNext("trial");
+
+		Assertions.assertEquals(State.CLOSED, circuitBreaker.getState(NODE.getUrl()));
+
+		trialCall.dispose();
+	}
+
+	@Test
+	public void neverRecordPushQueriesAsSlow() {
+		CircuitBreaker circuitBreaker = builder().slowCalls(50, Duration.ZERO).openDuration(NEVER).build();
+
+		for (int i = 0; i < 4; ++i) {
+			StepVerifier.create(circuitBreaker.apply(NODE, Flux.just("header", "row"), false)).expectNextCount(2)
+					.verifyComplete();
+		}
+
+		// Idle sessions cancelled before their first row are not recorded.
+		circuitBreaker.apply(NODE, Flux.never(), false).subscribe().dispose();
+
+		CircuitBreakerStats stats = circuitBreaker.getStats().get(0);
+		Assertions.assertEquals(State.CLOSED, stats.getState());
+		Assertions.assertEquals(4, stats.getCalls());
+		Assertions.assertEquals(0, stats.getSlowCallRate());
+	}
+
+	@Test
+	public void openOnPushQueriesFailingToConnect() {
+		CircuitBreaker circuitBreaker = builder().openDuration(NEVER).build();
+
+		for (int i = 0; i < 4; ++i) {
+			StepVerifier.create(circuitBreaker.apply(NODE, Flux.error(new ConnectException("Connection refused")),
+					false)).verifyError(ConnectException.class);
+		}
+
+		Assertions.assertEquals(State.OPEN, circuitBreaker.getState(NODE.getUrl()));
+	}
+
+	@Test
+	public void recordOutcomeOnceWhenCancelledConcurrently() {
+		CircuitBreaker circuitBreaker = CircuitBreaker.builder().window(1000, 1000).slowCalls(100, Duration.ZERO)
+				.build();
+
+		for (int i = 0; i < 500; ++i) {
+			TestPublisher<String> response = TestPublisher.create();
+			Disposable call = circuitBreaker.apply(NODE, response.flux()).subscribe();
+
+			RaceTestUtils.race(() -> response.next("ok"), call::dispose);
+		}
+
+		Assertions.assertEquals(500, circuitBreaker.getStats().get(0).getCalls());
+	}
+
+	private static CircuitBreaker.Builder builder() {
+		return CircuitBreaker.builder().window(4, 4).failureRateThreshold(50).slowCalls(100, NEVER);
+	}
+
+	private static void succeed(CircuitBreaker circuitBreaker, int calls) {
+		for (int i = 0; i < calls; ++i) {
+			StepVerifier.create(circuitBreaker.apply(NODE, Mono.just("ok"))).expectNext("ok").verifyComplete();
+		}
+	}
+
+	private static void fail(CircuitBreaker circuitBreaker, int calls) {
+		for (int i = 0; i < calls; ++i) {
+			StepVerifier.create(circuitBreaker.apply(NODE, Mono.error(new ConnectException("Connection refused"))))
+					.verifyError(ConnectException.class);
+		}
+	}
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+
+import io.netty.handler.timeout.ReadTimeoutException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+import reactor.test.util.RaceTestUtils;
+
+public class ConcurrencyLimiterTest {
+	@Test
+	public void grantQueuedRequestOnRelease() {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().limits(1, 1, 1).build();
+		TestPublisher<String> first = TestPublisher.create();
+
+		StepVerifier.create(limiter.apply(EndpointClass.QUERY, first.mono()))
+
+				.then(() -> StepVerifier.create(limiter.apply(EndpointClass.QUERY, Mono.fromCallable(() -> {
+					// Only subscribed once the first request released its permit.
+					Assertions.assertEquals(1, limiter.getStats(EndpointClass.QUERY).getInFlight());
+
+					return "second";
+				})))
+
+						.then(() -> assertStats(limiter, 1, 1, 0))
+
+						.then(() -> first.emit("first"))
+
+						.expectNext("second")
+
+						.verifyComplete())
+
+				.expectNext("first")
+
+				.verifyComplete();
+
+		assertStats(limiter, 0, 0, 0);
+	}
+
+	@Test
+	public void limitEndpointClassesIndependently() {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().limits(1, 1, 1).failFast().build();
+
+		Disposable query = limiter.apply(EndpointClass.QUERY, Mono.never()).subscribe();
+
+		StepVerifier.create(limiter.apply(EndpointClass.ADMIN, Mono.just("admin"))).expectNext("admin")
+				.verifyComplete();
+
+		query.dispose();
+	}
+
+	@Test
+	public void rejectWhenQueueIsFull() {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().limits(1, 1, 1).queue(1, Duration.ofSeconds(5))
+				.build();
+
+		Disposable first = limiter.apply(EndpointClass.QUERY, Mono.never()).subscribe();
+		Disposable second = limiter.apply(EndpointClass.QUERY, Mono.never()).subscribe();
+
+		StepVerifier.create(limiter.apply(EndpointClass.QUERY, Mono.just("third")))
+				.verifyError(ConcurrencyLimitExceededException.class);
+
+		assertStats(limiter, 1, 1, 1);
+
+		second.dispose();
+		first.dispose();
+
+		assertStats(limiter, 0, 0, 1);
+	}
+
+	@Test
+	public void rejectImmediatelyWhenFailingFast() {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().limits(1, 1, 1).failFast().build();
+
+		Disposable first = limiter.apply(EndpointClass.QUERY, Mono.never()).subscribe();
+
+		StepVerifier.create(limiter.apply(EndpointClass.QUERY, Mono.just("second")))
+				.verifyError(ConcurrencyLimitExceededException.class);
+
+		first.dispose();
+
+		assertStats(limiter, 0, 0, 1);
+	}
+
+	@Test
+	public void rejectAfterMaxWait() {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().limits(1, 1, 1).queue(1, Duration.ofSeconds(5))
+				.build();
+
+		Disposable first = limiter.apply(EndpointClass.QUERY, Mono.never()).subscribe();
+
+		StepVerifier.withVirtualTime(() -> limiter.apply(EndpointClass.QUERY, Mono.just("second")))
+
+				.expectSubscription()
+
+				.then(() -> assertStats(limiter, 1, 1, 0))
+
+				.thenAwait(Duration.ofSeconds(5))
+
+				.verifyError(ConcurrencyLimitExceededException.class);
+
+		assertStats(limiter, 1, 0, 1);
+
+		first.dispose();
+
+		assertStats(limiter, 0, 0, 1);
+	}
+
+	@Test
+	public void releasePermitOfCancelledWaiter() {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().limits(1, 1, 1).build();
+
+		Disposable first = limiter.apply(EndpointClass.QUERY, Mono.never()).subscribe();
+		Disposable second = limiter.apply(EndpointClass.QUERY, Mono.never()).subscribe();
+
+		second.dispose();
+		assertStats(limiter, 1, 0, 0);
+
+		first.dispose();
+		assertStats(limiter, 0, 0, 0);
+	}
+
+	@Test
+	public void releasePermitGrantedWhileCancelled() {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().limits(1, 1, 1).build();
+
+		for (int i = 0; i < 500; ++i) {
+			TestPublisher<String> first = TestPublisher.create();
+
+			limiter.apply(EndpointClass.QUERY, first.mono()).subscribe();
+			Disposable second = limiter.apply(EndpointClass.QUERY, Mono.never()).subscribe();
+
+			RaceTestUtils.race(first::complete, second::dispose);
+
+			// Whichever wins, the permit of the second request is never lost.
+			second.dispose();
+			assertStats(limiter, 0, 0, 0);
+		}
+	}
+
+	@Test
+	public void halveLimitOnDrop() {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().limits(1, 8, 16).build();
+
+		// Sets the round trip time of an unloaded server.
+		limiter.apply(EndpointClass.QUERY, Mono.empty()).block();
+
+		StepVerifier.create(limiter.apply(EndpointClass.QUERY,
+				Mono.delay(Duration.ofMillis(10)).then(Mono.error(new KsqlDBServerException(
+						new KsqlDBServerError("statement_error", 40001, "Line: 1", null, null, null))))))
+				.verifyError(KsqlDBServerException.class);
+
+		Assertions.assertEquals(8, limiter.getStats(EndpointClass.QUERY).getLimit());
+
+		StepVerifier.create(limiter.apply(EndpointClass.QUERY,
+				Mono.delay(Duration.ofMillis(10)).then(Mono.error(new ConnectException("Connection refused")))))
+				.verifyError(ConnectException.class);
+
+		Assertions.assertEquals(4, limiter.getStats(EndpointClass.QUERY).getLimit());
+	}
+
+	@Test
+	public void countOnlyTransportErrorsAndTimeoutsAsDrops() {
+		Assertions.assertTrue(ConcurrencyLimiter.isDrop(new ConnectException("Connection refused")));
+		Assertions.assertTrue(ConcurrencyLimiter.isDrop(new TimeoutException()));
+		Assertions.assertTrue(ConcurrencyLimiter.isDrop(new IllegalStateException(new TimeoutException())));
+		Assertions.assertTrue(ConcurrencyLimiter.isDrop(ReadTimeoutException.INSTANCE));
+		Assertions.assertTrue(ConcurrencyLimiter.isDrop(new IllegalStateException(new IOException("Broken pipe"))));
+
+		Assertions.assertFalse(ConcurrencyLimiter.isDrop(new KsqlDBServerException(
+				new KsqlDBServerError("server_error", 50000, "Internal error", null, null, null))));
+		Assertions.assertFalse(ConcurrencyLimiter.isDrop(new CircuitBreakerOpenException("http://localhost:8088")));
+		Assertions.assertFalse(ConcurrencyLimiter.isDrop(new JsonParseException(null, "Unexpected character")));
+		Assertions.assertFalse(ConcurrencyLimiter.isDrop(new IllegalStateException()));
+	}
+
+	private static void assertStats(ConcurrencyLimiter limiter, int inFlight, int queued, long rejected) {
+		ConcurrencyLimiterStats stats = limiter.getStats(EndpointClass.QUERY);
+
+		Assertions.assertEquals(inFlight, stats.getInFlight(), "inFlight");
+		Assertions.assertEquals(queued, stats.getQueued(), "queued");
+		Assertions.assertEquals(rejected, stats.getRejected(), "rejected");
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import dev.daniellavoie.ksqldb.client.api.query.QueryRequest;
+import dev.daniellavoie.ksqldb.client.api.query.QueryResponse;
+import dev.daniellavoie.ksqldb.standin.Chunking;
+import dev.daniellavoie.ksqldb.standin.KsqlDBStandInServer;
+import reactor.test.StepVerifier;
+
+/**
+ * Runs the client end to end against the stand-in server.
+ */
+public class DefaultKsqlDBClientTest {
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+	private KsqlDBStandInServer server;
+
+	@AfterEach
+	public void tearDown() {
+		if (server != null) {
+			server.dispose();
+		}
+	}
+
+	@Test
+	public void decodePullQueryRowsSplitAcrossChunks() {
+		server = KsqlDBStandInServer.builder().pullQueryRows(20).chunking(Chunking.fixed(7)).build();
+
+		List<Object> keys = client().pullQuery(new QueryRequest("SELECT * FROM T WHERE ROWKEY IN ('a', 'b');"))
+				.map(row -> row.getRow().getColumns().get(1)).collectList().block(TIMEOUT);
+
+		Assertions.assertEquals(40, keys.size());
+		Assertions.assertEquals(20, keys.stream().filter("a"::equals).count());
+		Assertions.assertEquals(20, keys.stream().filter("b"::equals).count());
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void decodeElementsOfTypeReference() {
+		server = KsqlDBStandInServer.builder().pullQueryRows(20).chunking(Chunking.fixed(3)).build();
+
+		List<QueryResponse> responses = new ReactorWebClient(server.getHttpUrl(), server.getWebSocketUrl())
+				.postForMany("/query", new QueryRequest("SELECT * FROM T;"), new TypeReference<QueryResponse>() {
+				}).collectList().block(TIMEOUT);
+
+		Assertions.assertEquals(21, responses.size());
+		Assertions.assertNotNull(responses.get(0).getHeader());
+		Assertions.assertEquals(20, responses.stream().filter(response -> response.getRow() != null).count());
+	}
+
+	@Test
+	public void decodePullQueryRowsCoalescedInChunks() {
+		server = KsqlDBStandInServer.builder().pullQueryRows(100).chunking(Chunking.coalesce(16)).build();
+
+		StepVerifier.create(client().pullQuery(new QueryRequest("SELECT * FROM T;")))
+
+				.expectNextCount(100)
+
+				.expectComplete()
+
+				.verify(TIMEOUT);
+	}
+
+	@Test
+	public void raiseServerErrors() {
+		server = KsqlDBStandInServer.builder().errorRate(1).build();
+
+		StepVerifier.create(client().pullQuery(new QueryRequest("SELECT * FROM T;")))
+
+				.expectErrorSatisfies(error -> Assertions.assertEquals(50000,
+						((KsqlDBServerException) error).getError().getErrorCode()))
+
+				.verify(TIMEOUT);
+	}
+
+	@Test
+	public void streamPushQueryRowsOverWebSocket() {
+		server = KsqlDBStandInServer.builder().rowsPerSecond(1000).build();
+
+		List<Object> rowKeys = client().pushQuery(new QueryRequest("SELECT * FROM T EMIT CHANGES;")).take(50)
+				.map(row -> row.getRow().getColumns().get(1)).collectList().block(TIMEOUT);
+
+		Assertions.assertEquals(50, rowKeys.size());
+		Assertions.assertEquals(0, server.getRequestCount("/query"));
+		Assertions.assertEquals(1, server.getRequestCount("/ws/query"));
+	}
+
+	@Test
+	public void batchPushQueryRows() {
+		server = KsqlDBStandInServer.builder().rowsPerSecond(1000).build();
+
+		List<RowBatch> batches = client().pushQueryBatches(new QueryRequest("SELECT * FROM T EMIT CHANGES;"))
+				.take(3).collectList().block(TIMEOUT);
+
+		Assertions.assertEquals(3, batches.size());
+		Assertions.assertTrue(batches.stream().allMatch(batch -> batch.size() > 0));
+		Assertions.assertEquals(DataType.STRING, batches.get(0).getType(1));
+		Assertions.assertEquals(0, server.getRequestCount("/query"));
+	}
+
+	@Test
+	public void conflatePushQueryRowsByKey() {
+		server = KsqlDBStandInServer.builder().keyCardinality(10).build();
+
+		Conflation conflation = Conflation.builder().maxKeys(10).build();
+
+		List<Object> keys = client()
+				.pushQuery(new QueryRequest("SELECT * FROM T EMIT CHANGES;"), "ROWKEY", conflation).take(100)
+				.map(row -> row.getRow().getColumns().get(1)).collectList().block(TIMEOUT);
+
+		Assertions.assertEquals(10, keys.stream().distinct().collect(Collectors.toList()).size());
+		Assertions.assertTrue(conflation.getStats().getReceived() >= 100);
+	}
+
+	private KsqlDBClient client() {
+		return KsqlDBClient.builder().url(server.getHttpUrl()).webSocketUrl(server.getWebSocketUrl()).build();
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.daniellavoie.ksqldb.client.api.query.QueryRequest;
+import dev.daniellavoie.ksqldb.standin.KsqlDBStandInServer;
+
+public class FlightRecorderSupportTest {
+	@Test
+	public void disableRecordingsWithoutJfr() {
+		Assertions.assertNull(
+				FlightRecorderSupport.load(new HidingClassLoader(getClass().getClassLoader(), "jdk.jfr.")));
+	}
+
+	@Test
+	public void disableRecordingsWithoutEventClasses() {
+		Assertions.assertNull(FlightRecorderSupport
+				.load(new HidingClassLoader(getClass().getClassLoader(), FlightRecorderSupport.FACTORY_CLASS)));
+	}
+
+	@Test
+	public void runClientWithoutJfr() throws Exception {
+		List<URL> urls = new ArrayList<>();
+		for (String path : System.getProperty("java.class.path").split(File.pathSeparator)) {
+			urls.add(toUrl(path));
+		}
+
+		// Every class of the test, the client and its dependencies is loaded again by a
+		// class loader to which the JFR API does not exist.
+		try (URLClassLoader classLoader = new URLClassLoader(urls.toArray(new URL[0]),
+				new HidingClassLoader(ClassLoader.getSystemClassLoader().getParent(), "jdk.jfr."))) {
+			@SuppressWarnings("unchecked")
+			Callable<String> scenario = (Callable<String>) classLoader.loadClass(WithoutJfr.class.getName())
+					.getDeclaredConstructor().newInstance();
+
+			Assertions.assertEquals("available=false, pulled=10, pushed=5", scenario.call());
+		}
+	}
+
+	private static URL toUrl(String path) {
+		try {
+			return new File(path).toURI().toURL();
+		} catch (MalformedURLException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	public static class WithoutJfr implements Callable<String> {
+		@Override
+		public String call() {
+			KsqlDBStandInServer server = KsqlDBStandInServer.builder().pullQueryRows(10).rowsPerSecond(1000).build();
+			try {
+				KsqlDBClient client = KsqlDBClient.builder().url(server.getHttpUrl())
+						.webSocketUrl(server.getWebSocketUrl()).build();
+
+				long pulled = client.pullQuery(new QueryRequest("SELECT * FROM T;")).count()
+						.block(Duration.ofSeconds(10));
+				long pushed = client.pushQuery(new QueryRequest("SELECT * FROM T EMIT CHANGES;")).take(5).count()
+						.block(Duration.ofSeconds(10));
+
+				return "available=" + FlightRecorderSupport.isAvailable() + ", pulled=" + pulled + ", pushed=" + pushed;
+			} finally {
+				server.dispose();
+			}
+		}
+	}
+
+	private static class HidingClassLoader extends ClassLoader {
+		private final String prefix;
+
+		private HidingClassLoader(ClassLoader parent, String prefix) {
+			super(parent);
+
+			this.prefix = prefix;
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (name.startsWith(prefix)) {
+				throw new ClassNotFoundException(name);
+			}
+
+			return super.loadClass(name, resolve);
+		}
+	}
+}
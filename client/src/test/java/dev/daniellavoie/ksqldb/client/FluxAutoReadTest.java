@@ -0,0 +1,116 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+
+public class FluxAutoReadTest {
+	private final TestPublisher<Integer> source = TestPublisher.create();
+	private final EmbeddedChannel channel = new EmbeddedChannel();
+
+	@AfterEach
+	public void tearDown() {
+		channel.finishAndReleaseAll();
+	}
+
+	@Test
+	public void pauseAtHighWatermarkAndResumeAtLowWatermark() {
+		StepVerifier.create(autoRead(4, 1), 0)
+
+				.then(() -> source.next(1, 2, 3))
+
+				.then(() -> Assertions.assertTrue(channel.config().isAutoRead()))
+
+				.then(() -> source.next(4))
+
+				.then(() -> Assertions.assertFalse(channel.config().isAutoRead()))
+
+				// Messages of the last read are still buffered while paused.
+				.then(() -> source.next(5))
+
+				.thenRequest(3)
+
+				.expectNext(1, 2, 3)
+
+				.then(() -> Assertions.assertFalse(channel.config().isAutoRead()))
+
+				.thenRequest(1)
+
+				.expectNext(4)
+
+				.then(() -> Assertions.assertTrue(channel.config().isAutoRead()))
+
+				.thenRequest(1)
+
+				.expectNext(5)
+
+				.then(source::complete)
+
+				.verifyComplete();
+	}
+
+	@Test
+	public void requestEveryMessageFromSource() {
+		StepVerifier.create(autoRead(2, 0), 0)
+
+				.then(() -> source.assertMinRequested(Long.MAX_VALUE))
+
+				.thenCancel()
+
+				.verify();
+	}
+
+	@Test
+	public void emitBufferedMessagesBeforeError() {
+		StepVerifier.create(autoRead(4, 1), 0)
+
+				.then(() -> source.next(1, 2))
+
+				.then(() -> source.error(new IllegalStateException("boom")))
+
+				.thenRequest(2)
+
+				.expectNext(1, 2)
+
+				.verifyErrorMessage("boom");
+	}
+
+	@Test
+	public void cancelSource() {
+		StepVerifier.create(autoRead(2, 1), 0)
+
+				.then(() -> source.next(1, 2))
+
+				.then(() -> Assertions.assertFalse(channel.config().isAutoRead()))
+
+				.thenCancel()
+
+				.verify();
+
+		source.assertCancelled();
+	}
+
+	private Flux<Integer> autoRead(int highWatermark, int lowWatermark) {
+		return new FluxAutoRead<>(source.flux(), channel, highWatermark, lowWatermark);
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+
+public class FluxConflateTest {
+	private final TestPublisher<String> source = TestPublisher.create();
+	private final AtomicLong requested = new AtomicLong();
+
+	@Test
+	public void emitLatestRowOfEveryKeyInArrivalOrder() {
+		Conflation conflation = Conflation.builder().maxKeys(8).build();
+
+		StepVerifier.create(conflate(conflation), 0)
+
+				.then(() -> source.next("a1", "b1", "a2", "c1", "b2"))
+
+				.thenRequest(3)
+
+				.expectNext("a2", "b2", "c1")
+
+				.then(() -> source.next("a3"))
+
+				.thenRequest(1)
+
+				.expectNext("a3")
+
+				.then(source::complete)
+
+				.verifyComplete();
+
+		Assertions.assertEquals(6, conflation.getStats().getReceived());
+		Assertions.assertEquals(4, conflation.getStats().getDelivered());
+		Assertions.assertEquals(2, conflation.getStats().getConflated());
+		Assertions.assertEquals(0, conflation.getStats().getPending());
+	}
+
+	@Test
+	public void requestNoMoreRowsThanFreeSlots() {
+		Conflation conflation = Conflation.builder().maxKeys(8).build();
+
+		StepVerifier.create(conflate(conflation), 0)
+
+				.then(() -> source.next("a", "b", "c", "d", "e", "f", "g", "h"))
+
+				.then(() -> Assertions.assertEquals(8, requested.get()))
+
+				.then(() -> Assertions.assertEquals(8, conflation.getStats().getPending()))
+
+				// A row is emitted, its slot is not released until a second one is.
+				.thenRequest(1)
+
+				.expectNext("a")
+
+				.then(() -> Assertions.assertEquals(8, requested.get()))
+
+				.thenRequest(1)
+
+				.expectNext("b")
+
+				.then(() -> Assertions.assertEquals(10, requested.get()))
+
+				.thenCancel()
+
+				.verify();
+	}
+
+	@Test
+	public void releaseSlotOfReplacedRow() {
+		Conflation conflation = Conflation.builder().maxKeys(8).build();
+
+		StepVerifier.create(conflate(conflation), 0)
+
+				.then(() -> source.next("a1", "a2", "a3", "a4", "a5"))
+
+				// The four replaced rows released their slots, the pending key holds one.
+				.then(() -> Assertions.assertEquals(12, requested.get()))
+
+				.then(() -> Assertions.assertEquals(1, conflation.getStats().getPending()))
+
+				.thenRequest(1)
+
+				.expectNext("a5")
+
+				.thenCancel()
+
+				.verify();
+	}
+
+	@Test
+	public void completeAfterPendingRows() {
+		Conflation conflation = Conflation.builder().maxKeys(8).build();
+
+		StepVerifier.create(conflate(conflation), 0)
+
+				.then(() -> source.next("a1", "b1"))
+
+				.then(source::complete)
+
+				.thenRequest(1)
+
+				.expectNext("a1")
+
+				.expectNoEvent(Duration.ZERO)
+
+				.thenRequest(1)
+
+				.expectNext("b1")
+
+				.verifyComplete();
+	}
+
+	@Test
+	public void delayErrorUntilPendingRowsAreEmitted() {
+		Conflation conflation = Conflation.builder().maxKeys(8).build();
+
+		StepVerifier.create(conflate(conflation), 0)
+
+				.then(() -> source.next("a1"))
+
+				.then(() -> source.error(new IllegalStateException("boom")))
+
+				.thenRequest(1)
+
+				.expectNext("a1")
+
+				.verifyErrorMessage("boom");
+	}
+
+	@Test
+	public void discardPendingRowsOnCancel() {
+		Conflation conflation = Conflation.builder().maxKeys(8).build();
+
+		StepVerifier.create(conflate(conflation), 0)
+
+				.then(() -> source.next("a1", "b1", "c1"))
+
+				.thenCancel()
+
+				.verify();
+
+		source.assertCancelled();
+
+		Assertions.assertEquals(0, conflation.getStats().getPending());
+	}
+
+	private Flux<String> conflate(Conflation conflation) {
+		return conflation.apply(source.flux().doOnRequest(requested::addAndGet), row -> row.charAt(0));
+	}
+}
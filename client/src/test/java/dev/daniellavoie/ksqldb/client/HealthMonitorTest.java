@@ -0,0 +1,205 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.daniellavoie.ksqldb.client.KsqlDBNode.State;
+import dev.daniellavoie.ksqldb.client.api.info.HealthcheckResponse;
+import dev.daniellavoie.ksqldb.client.api.query.QueryRequest;
+import dev.daniellavoie.ksqldb.standin.KsqlDBStandInServer;
+import reactor.core.publisher.Mono;
+
+public class HealthMonitorTest {
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+	private static final HealthcheckResponse HEALTHY = new HealthcheckResponse(true, null);
+	private static final HealthcheckResponse UNHEALTHY = new HealthcheckResponse(false, null);
+
+	private final KsqlDBNode a = KsqlDBNode.of("http://a:8088", "ws://a:8088");
+	private final KsqlDBNode b = KsqlDBNode.of("http://b:8088", "ws://b:8088");
+	private final KsqlDBNode c = KsqlDBNode.of("http://c:8088", "ws://c:8088");
+
+	private HealthMonitor monitor;
+	private KsqlDBStandInServer first;
+	private KsqlDBStandInServer second;
+
+	@AfterEach
+	public void tearDown() {
+		if (monitor != null) {
+			monitor.dispose();
+		}
+		if (first != null) {
+			first.dispose();
+		}
+		if (second != null) {
+			second.dispose();
+		}
+	}
+
+	@Test
+	public void ejectAfterConsecutiveFailures() {
+		monitor = monitor().failureThreshold(2).build();
+		monitor.monitor(a, node -> Mono.just(UNHEALTHY));
+
+		check();
+		Assertions.assertEquals(State.HEALTHY, a.getState());
+
+		check();
+		Assertions.assertEquals(State.EJECTED, a.getState());
+
+		check();
+		Assertions.assertEquals(1, a.getStats().getEjections());
+	}
+
+	@Test
+	public void failHealthChecksThatTimeOut() {
+		monitor = monitor().failureThreshold(1).timeout(Duration.ofMillis(50)).build();
+		monitor.monitor(a, node -> Mono.never());
+
+		check();
+
+		Assertions.assertEquals(State.EJECTED, a.getState());
+	}
+
+	@Test
+	public void readmitAfterASuccessfulTrialRequest() {
+		HealthcheckResponse[] response = { UNHEALTHY };
+		monitor = monitor().failureThreshold(1).build();
+		monitor.monitor(a, node -> Mono.just(response[0]));
+
+		check();
+		Assertions.assertEquals(State.EJECTED, a.getState());
+		Assertions.assertFalse(a.tryAcquireTrial());
+
+		response[0] = HEALTHY;
+		check();
+		Assertions.assertEquals(State.HALF_OPEN, a.getState());
+
+		// A single trial request is sent to a half open node.
+		Assertions.assertTrue(a.tryAcquireTrial());
+		Assertions.assertFalse(a.tryAcquireTrial());
+
+		a.track(Mono.just("ok"), true).block(TIMEOUT);
+
+		Assertions.assertEquals(State.HEALTHY, a.getState());
+	}
+
+	@Test
+	public void ejectAgainWhenTheTrialFails() {
+		monitor = monitor().failureThreshold(1).build();
+		monitor.monitor(a, node -> Mono.just(HEALTHY));
+
+		a.eject("test");
+		check();
+		Assertions.assertTrue(a.tryAcquireTrial());
+
+		a.track(Mono.error(new IllegalStateException("Trial failed.")), true).onErrorResume(error -> Mono.empty())
+				.block(TIMEOUT);
+
+		Assertions.assertEquals(State.EJECTED, a.getState());
+	}
+
+	@Test
+	public void releaseTheTrialOfACancelledRequest() {
+		monitor = monitor().build();
+		monitor.monitor(a, node -> Mono.just(HEALTHY));
+
+		a.eject("test");
+		check();
+		Assertions.assertTrue(a.tryAcquireTrial());
+
+		a.track(Mono.never(), true).subscribe().dispose();
+
+		Assertions.assertEquals(State.HALF_OPEN, a.getState());
+		Assertions.assertTrue(a.tryAcquireTrial());
+	}
+
+	@Test
+	public void ejectHalfOpenNodesOnTheirFirstFailure() {
+		HealthcheckResponse[] response = { HEALTHY };
+		monitor = monitor().failureThreshold(3).build();
+		monitor.monitor(a, node -> Mono.just(response[0]));
+
+		a.eject("test");
+		check();
+		Assertions.assertEquals(State.HALF_OPEN, a.getState());
+
+		response[0] = UNHEALTHY;
+		check();
+
+		Assertions.assertEquals(State.EJECTED, a.getState());
+	}
+
+	@Test
+	public void ejectLatencyOutliers() {
+		monitor = monitor().failureThreshold(1).latencyOutlierFactor(5).build();
+		monitor.monitor(a, node -> Mono.just(HEALTHY).delayElement(Duration.ofMillis(10)));
+		monitor.monitor(b, node -> Mono.just(HEALTHY).delayElement(Duration.ofMillis(10)));
+		monitor.monitor(c, node -> Mono.just(HEALTHY).delayElement(Duration.ofMillis(500)));
+
+		check();
+
+		Assertions.assertEquals(State.HEALTHY, a.getState());
+		Assertions.assertEquals(State.HEALTHY, b.getState());
+		Assertions.assertEquals(State.EJECTED, c.getState());
+	}
+
+	@Test
+	public void routeAroundUnhealthyServers() {
+		first = KsqlDBStandInServer.builder().pullQueryRows(1).build();
+		second = KsqlDBStandInServer.builder().pullQueryRows(1).build();
+		monitor = monitor().failureThreshold(1).build();
+
+		KsqlDBNode healthy = KsqlDBNode.of(first.getHttpUrl(), first.getWebSocketUrl());
+		KsqlDBNode restarting = KsqlDBNode.of(second.getHttpUrl(), second.getWebSocketUrl());
+		KsqlDBClient client = KsqlDBClient.builder().node(healthy).node(restarting).healthMonitor(monitor).build();
+
+		second.setHealthy(false);
+		check();
+		Assertions.assertEquals(State.EJECTED, restarting.getState());
+
+		pullQueries(client, 4);
+		Assertions.assertEquals(4, first.getRequestCount("/query"));
+		Assertions.assertEquals(0, second.getRequestCount("/query"));
+
+		second.setHealthy(true);
+		check();
+		Assertions.assertEquals(State.HALF_OPEN, restarting.getState());
+
+		// The next request is the trial of the half open node.
+		pullQueries(client, 1);
+		Assertions.assertEquals(1, second.getRequestCount("/query"));
+		Assertions.assertEquals(State.HEALTHY, restarting.getState());
+	}
+
+	private void check() {
+		monitor.check().block(TIMEOUT);
+	}
+
+	private static void pullQueries(KsqlDBClient client, int count) {
+		for (int i = 0; i < count; ++i) {
+			client.pullQuery(new QueryRequest("SELECT * FROM T;")).blockLast(TIMEOUT);
+		}
+	}
+
+	private static HealthMonitor.Builder monitor() {
+		return HealthMonitor.builder().interval(Duration.ofHours(1));
+	}
+}
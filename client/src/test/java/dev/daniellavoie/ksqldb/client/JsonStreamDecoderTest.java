@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.daniellavoie.ksqldb.client.model.QueryRow;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+public class JsonStreamDecoderTest {
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	private static final String RESPONSE = "[{\"row\":{\"columns\":[1,\"a\"]}},\n{\"row\":{\"columns\":[2,\"b\"]}},\n"
+			+ "{\"row\":{\"columns\":[3,\"c\"]}},\n]";
+
+	@Test
+	public void decodeCoalescedChunk() {
+		assertRows(decode(false, RESPONSE));
+	}
+
+	@Test
+	public void decodeSplitChunks() {
+		// Every chunk boundary falls in the middle of a token at some point.
+		for (int size = 1; size < RESPONSE.length(); ++size) {
+			List<String> chunks = new ArrayList<>();
+			for (int offset = 0; offset < RESPONSE.length(); offset += size) {
+				chunks.add(RESPONSE.substring(offset, Math.min(RESPONSE.length(), offset + size)));
+			}
+
+			assertRows(decode(size % 2 == 0, chunks.toArray(new String[0])));
+		}
+	}
+
+	@Test
+	public void decodeKeepAliveNewLines() {
+		assertRows(decode(false, "[{\"row\":{\"columns\":[1,\"a\"]}},\n", "\n", "\n",
+				"{\"row\":{\"columns\":[2,\"b\"]}},\n{\"row\":{\"columns\":[3,\"c\"]}},\n", "\n", "]"));
+	}
+
+	@Test
+	public void decodeErrorObject() {
+		KsqlDBServerException exception = Assertions.assertThrows(KsqlDBServerException.class,
+				() -> decode(false, "{\"@type\":\"statement_error\",\"error_",
+						"code\":40001,\"message\":\"Line: 1\"}"));
+
+		Assertions.assertEquals("statement_error", exception.getError().getType());
+		Assertions.assertEquals(40001, exception.getError().getErrorCode());
+		Assertions.assertEquals("Line: 1", exception.getError().getMessage());
+	}
+
+	@Test
+	public void decodeCharacterSplitAcrossChunks() {
+		byte[] bytes = "[{\"row\":{\"columns\":[1234,\"caf\u00e9\"]}}]".getBytes(StandardCharsets.UTF_8);
+		int split = bytes.length - 6;
+
+		// The chunks split the number, then the two bytes of the accented character.
+		JsonStreamDecoder<QueryRow> decoder = new JsonStreamDecoder<>(OBJECT_MAPPER, QueryRow.class);
+		List<QueryRow> rows = new ArrayList<>();
+		rows.addAll(decoder.decode(Unpooled.wrappedBuffer(bytes, 0, 23)));
+		rows.addAll(decoder.decode(Unpooled.wrappedBuffer(bytes, 23, split - 23)));
+		rows.addAll(decoder.decode(Unpooled.wrappedBuffer(bytes, split, bytes.length - split)));
+		decoder.complete();
+
+		Assertions.assertEquals(1, rows.size());
+		Assertions.assertEquals(Arrays.asList(1234, "caf\u00e9"), rows.get(0).getRow().getColumns());
+	}
+
+	@Test
+	public void failOnTokensAfterArray() {
+		Assertions.assertThrows(UncheckedIOException.class,
+				() -> decode(false, "[{\"row\":{\"columns\":[1,\"a\"]}}]\n", "{}"));
+
+		// A number is only complete once the end of the input is reached.
+		Assertions.assertThrows(UncheckedIOException.class,
+				() -> decode(false, "[{\"row\":{\"columns\":[1,\"a\"]}}]", "12"));
+	}
+
+	@Test
+	public void failOnResponseEndingInToken() {
+		JsonStreamDecoder<QueryRow> decoder = new JsonStreamDecoder<>(OBJECT_MAPPER, QueryRow.class);
+		decoder.decode(buffer("[{\"row\":{\"columns\":[1,\"a\"]}}] tr", false));
+
+		Assertions.assertThrows(UncheckedIOException.class, decoder::complete);
+	}
+
+	@Test
+	public void failOnTruncatedResponse() {
+		JsonStreamDecoder<QueryRow> decoder = new JsonStreamDecoder<>(OBJECT_MAPPER, QueryRow.class);
+		decoder.decode(buffer("[{\"row\":{\"columns\":[1,", false));
+
+		Assertions.assertThrows(UncheckedIOException.class, decoder::complete);
+	}
+
+	private static List<QueryRow> decode(boolean direct, String... chunks) {
+		JsonStreamDecoder<QueryRow> decoder = new JsonStreamDecoder<>(OBJECT_MAPPER, QueryRow.class);
+
+		List<QueryRow> rows = new ArrayList<>();
+		for (String chunk : chunks) {
+			ByteBuf buffer = buffer(chunk, direct);
+			try {
+				rows.addAll(decoder.decode(buffer));
+			} finally {
+				buffer.release();
+			}
+		}
+		decoder.complete();
+
+		return rows;
+	}
+
+	private static ByteBuf buffer(String chunk, boolean direct) {
+		byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+
+		return direct ? Unpooled.directBuffer(bytes.length).writeBytes(bytes) : Unpooled.wrappedBuffer(bytes);
+	}
+
+	private static void assertRows(List<QueryRow> rows) {
+		Assertions.assertEquals(Arrays.asList(Arrays.asList(1, "a"), Arrays.asList(2, "b"), Arrays.asList(3, "c")),
+				rows.stream().map(row -> row.getRow().getColumns()).collect(Collectors.toList()));
+	}
+}
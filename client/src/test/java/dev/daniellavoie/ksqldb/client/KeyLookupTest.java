@@ -0,0 +1,267 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.daniellavoie.ksqldb.client.api.query.QueryRequest;
+import dev.daniellavoie.ksqldb.client.api.query.Row;
+import dev.daniellavoie.ksqldb.client.model.QueryRow;
+import dev.daniellavoie.ksqldb.standin.KsqlDBStandInServer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+public class KeyLookupTest {
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+	private final Object scope = new Object();
+	private final Queries queries = new Queries();
+
+	private KsqlDBStandInServer server;
+
+	@AfterEach
+	public void tearDown() {
+		if (server != null) {
+			server.dispose();
+		}
+	}
+
+	@Test
+	public void dispatchOnceTheDelayElapsed() throws InterruptedException {
+		KeyLookup keyLookup = KeyLookup.builder().maxDelay(Duration.ofMillis(100)).multiKeyQueries(true).build();
+
+		Mono<QueryRow> a = keyLookup.lookup(scope, "T", "a", queries).cache();
+		Mono<QueryRow> b = keyLookup.lookup(scope, "T", "b", queries).cache();
+		a.subscribe();
+		b.subscribe();
+
+		Thread.sleep(20);
+		Assertions.assertTrue(queries.statements.isEmpty());
+
+		Assertions.assertEquals("a", key(a.block(TIMEOUT)));
+		Assertions.assertEquals("b", key(b.block(TIMEOUT)));
+		Assertions.assertEquals(Arrays.asList("SELECT * FROM T WHERE ROWKEY IN ('a', 'b');"), queries.statements);
+		assertStats(keyLookup, 2, 1, 1);
+	}
+
+	@Test
+	public void dispatchFullBatchesRightAway() {
+		KeyLookup keyLookup = KeyLookup.builder().maxDelay(Duration.ofHours(1)).maxBatchSize(2).build();
+
+		keyLookup.lookup(scope, "T", "a", queries).subscribe();
+
+		StepVerifier.create(keyLookup.lookup(scope, "T", "b", queries).map(KeyLookupTest::key))
+
+				.expectNext("b")
+
+				.expectComplete()
+
+				.verify(TIMEOUT);
+
+		// The next lookup starts a new batch.
+		keyLookup.lookup(scope, "T", "c", queries).subscribe();
+		assertStats(keyLookup, 3, 1, 2);
+	}
+
+	@Test
+	public void shareRowsAcrossLookupsOfTheSameKey() {
+		KeyLookup keyLookup = KeyLookup.builder().maxDelay(Duration.ofMillis(50)).build();
+
+		Tuple2<QueryRow, QueryRow> rows = Mono.zip(keyLookup.lookup(scope, "T", "a", queries),
+				keyLookup.lookup(scope, "T", "a", queries)).block(TIMEOUT);
+
+		Assertions.assertSame(rows.getT1(), rows.getT2());
+		Assertions.assertEquals(1, queries.statements.size());
+	}
+
+	@Test
+	public void dropCancelledLookupsFromTheirBatch() throws InterruptedException {
+		KeyLookup keyLookup = KeyLookup.builder().maxDelay(Duration.ofMillis(50)).multiKeyQueries(true).build();
+
+		Disposable cancelled = keyLookup.lookup(scope, "T", "a", queries).subscribe();
+		Mono<QueryRow> b = keyLookup.lookup(scope, "T", "b", queries);
+		cancelled.dispose();
+
+		Assertions.assertEquals("b", key(b.block(TIMEOUT)));
+		Assertions.assertEquals(Arrays.asList("SELECT * FROM T WHERE ROWKEY = 'b';"), queries.statements);
+
+		// A batch whose lookups were all cancelled is not dispatched.
+		keyLookup.lookup(scope, "T", "c", queries).subscribe().dispose();
+		Thread.sleep(100);
+
+		Assertions.assertEquals(1, queries.statements.size());
+		assertStats(keyLookup, 3, 1, 1);
+	}
+
+	@Test
+	public void resolveKeysAsTheirOwnQueryCompletes() {
+		KeyLookup keyLookup = KeyLookup.builder().maxDelay(Duration.ofHours(1)).maxBatchSize(2).build();
+
+		TestPublisher<Tuple2<Object, QueryRow>> slow = TestPublisher.create();
+		queries.responses.put("SELECT * FROM T WHERE ROWKEY = 'b';", slow.flux());
+
+		Mono<QueryRow> b = keyLookup.lookup(scope, "T", "b", queries).cache();
+		b.onErrorResume(error -> Mono.empty()).subscribe();
+
+		StepVerifier.create(keyLookup.lookup(scope, "T", "missing", queries))
+
+				.expectComplete()
+
+				.verify(TIMEOUT);
+
+		StepVerifier.create(b)
+
+				.then(() -> slow.error(new IllegalStateException("Query failed.")))
+
+				.expectError(IllegalStateException.class)
+
+				.verify(TIMEOUT);
+	}
+
+	@Test
+	public void failKeysOfSingleKeyQueriesThatCannotBeSent() {
+		KeyLookup keyLookup = KeyLookup.builder().maxDelay(Duration.ofHours(1)).maxBatchSize(2).build();
+
+		Mono<QueryRow> a = keyLookup.lookup(scope, "T", "a", queries).cache();
+		a.subscribe();
+
+		StepVerifier.create(keyLookup.lookup(scope, "T", "broken", queries))
+
+				.expectError(IllegalStateException.class)
+
+				.verify(TIMEOUT);
+
+		Assertions.assertEquals("a", key(a.block(TIMEOUT)));
+	}
+
+	@Test
+	public void failAllKeysOfFailedMultiKeyQueries() {
+		KeyLookup keyLookup = KeyLookup.builder().maxDelay(Duration.ofHours(1)).maxBatchSize(2).multiKeyQueries(true)
+				.build();
+
+		queries.responses.put("SELECT * FROM T WHERE ROWKEY IN ('a', 'b');",
+				Flux.error(new IllegalStateException("Query failed.")));
+
+		Mono<QueryRow> a = keyLookup.lookup(scope, "T", "a", queries).cache();
+		a.onErrorResume(error -> Mono.empty()).subscribe();
+
+		StepVerifier.create(keyLookup.lookup(scope, "T", "b", queries))
+
+				.expectError(IllegalStateException.class)
+
+				.verify(TIMEOUT);
+
+		StepVerifier.create(a)
+
+				.expectError(IllegalStateException.class)
+
+				.verify(TIMEOUT);
+	}
+
+	@Test
+	public void sendSingleKeyQueriesToTheServer() {
+		server = KsqlDBStandInServer.builder().pullQueryRows(1).build();
+
+		List<Object> keys = lookupAll(KeyLookup.builder().maxBatchSize(3).build());
+
+		Assertions.assertEquals(Arrays.asList("a", "b", "c"), keys);
+		Assertions.assertEquals(3, server.getRequestCount("/query"));
+	}
+
+	@Test
+	public void sendMultiKeyQueriesToTheServer() {
+		server = KsqlDBStandInServer.builder().pullQueryRows(1).build();
+
+		List<Object> keys = lookupAll(KeyLookup.builder().maxBatchSize(3).multiKeyQueries(true).build());
+
+		Assertions.assertEquals(Arrays.asList("a", "b", "c"), keys);
+		Assertions.assertEquals(1, server.getRequestCount("/query"));
+	}
+
+	private List<Object> lookupAll(KeyLookup keyLookup) {
+		KsqlDBClient client = KsqlDBClient.builder().url(server.getHttpUrl())
+				.webSocketUrl(server.getWebSocketUrl()).build();
+
+		return Flux.just("a", "b", "c").flatMapSequential(key -> client.lookup("T", key, keyLookup))
+				.map(KeyLookupTest::key).collectList().block(TIMEOUT);
+	}
+
+	private static void assertStats(KeyLookup keyLookup, long lookups, long batches, long requests) {
+		KeyLookupStats stats = keyLookup.getStats();
+
+		Assertions.assertEquals(lookups, stats.getLookups());
+		Assertions.assertEquals(batches, stats.getBatches());
+		Assertions.assertEquals(requests, stats.getRequests());
+	}
+
+	private static Object key(QueryRow row) {
+		return row.getRow().getColumns().get(1);
+	}
+
+	/**
+	 * Returns a row for every key of the statement but {@code missing}, unless a
+	 * response was set for the statement. Fails to execute statements on the
+	 * {@code broken} key.
+	 */
+	private static class Queries implements KeyLookup.KeyedQuery {
+		private static final Pattern KEY_PATTERN = Pattern.compile("'([^']*)'");
+
+		private final List<String> statements = new CopyOnWriteArrayList<>();
+		private final Map<String, Flux<Tuple2<Object, QueryRow>>> responses = new ConcurrentHashMap<>();
+
+		@Override
+		public Flux<Tuple2<Object, QueryRow>> execute(QueryRequest queryRequest, String keyColumn) {
+			String ksql = queryRequest.getKsql();
+			if (ksql.contains("'broken'")) {
+				throw new IllegalStateException("Statement rejected.");
+			}
+
+			statements.add(ksql);
+
+			Flux<Tuple2<Object, QueryRow>> response = responses.get(ksql);
+			if (response != null) {
+				return response;
+			}
+
+			List<Tuple2<Object, QueryRow>> rows = new ArrayList<>();
+			Matcher matcher = KEY_PATTERN.matcher(ksql);
+			while (matcher.find()) {
+				if (!matcher.group(1).equals("missing")) {
+					rows.add(Tuples.of(matcher.group(1), new QueryRow(new Row(Arrays.asList(0L, matcher.group(1))))));
+				}
+			}
+
+			return Flux.fromIterable(rows);
+		}
+	}
+}
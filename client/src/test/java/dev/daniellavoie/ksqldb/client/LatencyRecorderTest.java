@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class LatencyRecorderTest {
+	@Test
+	public void mapBucketBoundsToTheirIndex() {
+		for (int index = 0; index < LatencyRecorder.BUCKETS; ++index) {
+			long lowest = LatencyRecorder.lowestValue(index);
+			long highest = LatencyRecorder.highestValue(index);
+
+			Assertions.assertEquals(index, LatencyRecorder.index(lowest), "lowest value of " + index);
+			Assertions.assertEquals(index, LatencyRecorder.index(highest), "highest value of " + index);
+
+			if (index > 0) {
+				Assertions.assertEquals(LatencyRecorder.highestValue(index - 1) + 1, lowest,
+						"buckets " + (index - 1) + " and " + index + " are not contiguous");
+			}
+		}
+
+		Assertions.assertEquals(0, LatencyRecorder.lowestValue(0));
+	}
+
+	@Test
+	public void boundRelativeError() {
+		for (int index = 0; index < LatencyRecorder.BUCKETS; ++index) {
+			long lowest = LatencyRecorder.lowestValue(index);
+			long width = LatencyRecorder.highestValue(index) - lowest + 1;
+
+			if (index < 32) {
+				Assertions.assertEquals(1, width, "values below 32 are exact");
+			} else {
+				Assertions.assertTrue(width * 32 <= lowest, "bucket " + index + " is wider than 1/32 of its values");
+			}
+		}
+	}
+
+	@Test
+	public void recordOutOfRangeValuesInEdgeBuckets() {
+		Assertions.assertEquals(LatencyRecorder.BUCKETS - 1, LatencyRecorder.index((1L << 43) - 1));
+
+		LatencyRecorder recorder = new LatencyRecorder();
+		recorder.record(-1);
+		recorder.record(Long.MAX_VALUE);
+
+		LatencySnapshot snapshot = recorder.snapshot();
+		Assertions.assertEquals(2, snapshot.getCount());
+		Assertions.assertEquals(Duration.ZERO, snapshot.getMin());
+		Assertions.assertEquals(Duration.ofNanos((1L << 43) - 1), snapshot.getMax());
+	}
+
+	@Test
+	public void snapshotValuesSincePreviousSnapshot() {
+		LatencyRecorder recorder = new LatencyRecorder();
+		for (long millis = 1; millis <= 100; ++millis) {
+			recorder.record(Duration.ofMillis(millis).toNanos());
+		}
+
+		LatencySnapshot snapshot = recorder.snapshot();
+		Assertions.assertEquals(100, snapshot.getCount());
+		Assertions.assertEquals(Duration.ofNanos(50_500_000), snapshot.getMean());
+		assertWithinBucket(Duration.ofMillis(1), snapshot.getMin());
+		assertWithinBucket(Duration.ofMillis(50), snapshot.getPercentile(50));
+		assertWithinBucket(Duration.ofMillis(99), snapshot.getPercentile(99));
+		assertWithinBucket(Duration.ofMillis(100), snapshot.getMax());
+
+		Assertions.assertSame(LatencySnapshot.EMPTY, recorder.snapshot());
+
+		recorder.record(42);
+		Assertions.assertEquals(1, recorder.snapshot().getCount());
+	}
+
+	private static void assertWithinBucket(Duration expected, Duration actual) {
+		int index = LatencyRecorder.index(expected.toNanos());
+
+		Assertions.assertTrue(
+				actual.toNanos() >= LatencyRecorder.lowestValue(index)
+						&& actual.toNanos() <= LatencyRecorder.highestValue(index),
+				actual + " is not in the bucket of " + expected);
+	}
+}
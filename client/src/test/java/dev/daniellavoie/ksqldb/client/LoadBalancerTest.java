@@ -0,0 +1,146 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class LoadBalancerTest {
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+	private final KsqlDBNode a = KsqlDBNode.of("http://a:8088", "ws://a:8088");
+	private final KsqlDBNode b = KsqlDBNode.of("http://b:8088", "ws://b:8088");
+	private final KsqlDBNode c = KsqlDBNode.of("http://c:8088", "ws://c:8088");
+
+	private final List<Disposable> requests = new ArrayList<>();
+
+	@Test
+	public void averageTheTimeToTheFirstResponse() {
+		respondAfter(a, Duration.ofMillis(50));
+
+		double first = a.getLatencyNanos();
+		Assertions.assertTrue(first >= Duration.ofMillis(50).toNanos(), "latency " + first);
+
+		// The average decays over ten seconds, a fast response right after a slow
+		// one barely moves it.
+		respondAfter(a, Duration.ZERO);
+
+		Assertions.assertTrue(a.getLatencyNanos() < first);
+		Assertions.assertTrue(a.getLatencyNanos() > first * 0.9, "latency " + a.getLatencyNanos());
+		Assertions.assertEquals(2, a.getStats().getRequests());
+	}
+
+	@Test
+	public void excludePushSessionsFromTheLatencyAndRequestsInFlight() {
+		Disposable session = a.track(Flux.just("header").concatWith(Flux.never()), false, true).subscribe();
+
+		Assertions.assertEquals(0, a.getLatencyNanos());
+		Assertions.assertEquals(0, a.getInFlight());
+		Assertions.assertEquals(1, a.getPushSessions());
+
+		session.dispose();
+
+		Assertions.assertEquals(0, a.getPushSessions());
+	}
+
+	@Test
+	public void preferTheNodeWithTheLowestCost() {
+		respondAfter(a, Duration.ofMillis(20));
+		respondAfter(b, Duration.ofMillis(20));
+		hold(a, 5);
+
+		LoadBalancer loadBalancer = LoadBalancer.powerOfTwoChoices();
+
+		for (int i = 0; i < 100; ++i) {
+			Assertions.assertSame(b, loadBalancer.select(Arrays.asList(a, b)));
+		}
+
+		release();
+	}
+
+	@Test
+	public void neverSelectTheCostliestOfThreeNodes() {
+		respondAfter(a, Duration.ofMillis(20));
+		respondAfter(b, Duration.ofMillis(20));
+		respondAfter(c, Duration.ofMillis(20));
+		hold(c, 10);
+
+		LoadBalancer loadBalancer = LoadBalancer.powerOfTwoChoices();
+		Set<KsqlDBNode> selected = new HashSet<>();
+
+		// The two nodes compared are always distinct.
+		for (int i = 0; i < 300; ++i) {
+			selected.add(loadBalancer.select(Arrays.asList(a, b, c)));
+		}
+
+		Assertions.assertEquals(new HashSet<>(Arrays.asList(a, b)), selected);
+
+		release();
+	}
+
+	@Test
+	public void selectEveryNodeInTurn() {
+		LoadBalancer loadBalancer = LoadBalancer.roundRobin();
+		List<KsqlDBNode> nodes = Arrays.asList(a, b, c);
+
+		Assertions.assertSame(a, loadBalancer.select(nodes));
+		Assertions.assertSame(b, loadBalancer.select(nodes));
+		Assertions.assertSame(c, loadBalancer.select(nodes));
+		Assertions.assertSame(a, loadBalancer.select(nodes));
+	}
+
+	@Test
+	public void selectTheNodeWithTheFewestRequestsInFlight() {
+		hold(a, 2);
+		hold(b, 1);
+		hold(c, 3);
+
+		Assertions.assertSame(b, LoadBalancer.leastOutstanding().select(Arrays.asList(a, b, c)));
+
+		release();
+
+		Assertions.assertEquals(0, c.getInFlight());
+	}
+
+	private static void respondAfter(KsqlDBNode node, Duration delay) {
+		node.track(Mono.delay(delay).thenReturn("response"), false).block(TIMEOUT);
+	}
+
+	private void hold(KsqlDBNode node, int count) {
+		for (int i = 0; i < count; ++i) {
+			requests.add(node.track(Mono.never(), false).subscribe());
+		}
+
+		// The requests that responded may end after block returned.
+		Assertions.assertTrue(node.getInFlight() >= count);
+	}
+
+	private void release() {
+		requests.forEach(Disposable::dispose);
+		requests.clear();
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.daniellavoie.ksqldb.client.api.query.QueryRequest;
+import dev.daniellavoie.ksqldb.standin.KsqlDBStandInServer;
+import reactor.test.StepVerifier;
+
+public class ObjectBindingTest {
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+	private static final RowSchema SCHEMA = new RowSchema(null,
+			Arrays.asList(new ColumnDefinition("INT_VALUE", "BIGINT"), new ColumnDefinition("SHORT_VALUE", "BIGINT"),
+					new ColumnDefinition("BYTE_VALUE", "BIGINT"), new ColumnDefinition("FLOAT_VALUE", "DOUBLE"),
+					new ColumnDefinition("DOUBLE_VALUE", "BIGINT")));
+
+	private KsqlDBStandInServer server;
+
+	@AfterEach
+	public void tearDown() {
+		if (server != null) {
+			server.dispose();
+		}
+	}
+
+	@Test
+	public void writeValuesWithinRange() {
+		ObjectBinding<Primitives> binding = ObjectBinding.of(Primitives.class);
+		ColumnWriter[] writers = binding.writers(SCHEMA);
+		Object target = binding.newTarget();
+
+		writers[0].writeLong(target, Integer.MIN_VALUE);
+		writers[1].writeLong(target, Short.MAX_VALUE);
+		writers[2].writeLong(target, Byte.MIN_VALUE);
+		writers[3].writeDouble(target, Double.POSITIVE_INFINITY);
+		writers[4].writeLong(target, 1L << 53);
+
+		Primitives primitives = binding.complete(target);
+		Assertions.assertEquals(Integer.MIN_VALUE, primitives.intValue);
+		Assertions.assertEquals(Short.MAX_VALUE, primitives.shortValue);
+		Assertions.assertEquals(Byte.MIN_VALUE, primitives.byteValue);
+		Assertions.assertEquals(Float.POSITIVE_INFINITY, primitives.floatValue);
+		Assertions.assertEquals(0x1p53, primitives.doubleValue);
+	}
+
+	@Test
+	public void rejectValuesOverflowingNarrowerTypes() {
+		ObjectBinding<Primitives> binding = ObjectBinding.of(Primitives.class);
+		ColumnWriter[] writers = binding.writers(SCHEMA);
+		Object target = binding.newTarget();
+
+		IllegalArgumentException error = Assertions.assertThrows(IllegalArgumentException.class,
+				() -> writers[0].writeLong(target, Integer.MAX_VALUE + 1L));
+		Assertions.assertTrue(error.getMessage().contains("2147483648"), error.getMessage());
+		Assertions.assertTrue(error.getMessage().contains("intValue"), error.getMessage());
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> writers[1].writeLong(target, 1 << 15));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> writers[2].writeLong(target, -129));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> writers[3].writeDouble(target, 1e39));
+
+		Primitives untouched = binding.complete(target);
+		Assertions.assertEquals(0, untouched.intValue);
+		Assertions.assertEquals(0, untouched.shortValue);
+		Assertions.assertEquals(0, untouched.byteValue);
+		Assertions.assertEquals(0, untouched.floatValue);
+	}
+
+	@Test
+	public void rejectLongsLosingPrecision() {
+		ObjectBinding<Primitives> binding = ObjectBinding.of(Primitives.class);
+		ColumnWriter[] writers = binding.writers(SCHEMA);
+		Object target = binding.newTarget();
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> writers[4].writeLong(target, (1L << 53) + 1));
+
+		// Rounded up to 2^63, which casts back to Long.MAX_VALUE.
+		Assertions.assertThrows(IllegalArgumentException.class, () -> writers[4].writeLong(target, Long.MAX_VALUE));
+
+		ColumnWriter floatWriter = ObjectBinding.of(Primitives.class)
+				.writers(new RowSchema(null, Arrays.asList(new ColumnDefinition("FLOAT_VALUE", "BIGINT"))))[0];
+
+		floatWriter.writeLong(target, 1 << 24);
+		Assertions.assertThrows(IllegalArgumentException.class, () -> floatWriter.writeLong(target, (1 << 24) + 1));
+	}
+
+	@Test
+	public void failQueryBindingBigintToIntProperty() {
+		server = KsqlDBStandInServer.builder().pullQueryRows(1).build();
+
+		StepVerifier.create(client().pullQuery(new QueryRequest("SELECT * FROM T;"), IntRowtime.class))
+				.expectErrorMatches(error -> error instanceof IllegalArgumentException
+						&& error.getMessage().contains("rowtime"))
+				.verify(TIMEOUT);
+	}
+
+	@Test
+	public void bindBigintToLongProperty() {
+		server = KsqlDBStandInServer.builder().pullQueryRows(1).build();
+
+		StepVerifier.create(client().pullQuery(new QueryRequest("SELECT * FROM T;"), LongRowtime.class))
+				.expectNextMatches(row -> row.rowtime == 1577836800000L)
+
+				.expectComplete()
+				.verify(TIMEOUT);
+	}
+
+	private KsqlDBClient client() {
+		return KsqlDBClient.builder().url(server.getHttpUrl()).webSocketUrl(server.getWebSocketUrl()).build();
+	}
+
+	public static class Primitives {
+		public int intValue;
+		public short shortValue;
+		public byte byteValue;
+		public float floatValue;
+		public double doubleValue;
+	}
+
+	public static class IntRowtime {
+		public int rowtime;
+	}
+
+	public static class LongRowtime {
+		public long rowtime;
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.daniellavoie.ksqldb.client.api.query.QueryRequest;
+import dev.daniellavoie.ksqldb.standin.KsqlDBStandInServer;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+public class PullQueryCacheTest {
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+	private final Object scope = new Object();
+	private final AtomicInteger executions = new AtomicInteger();
+
+	private KsqlDBStandInServer server;
+
+	@AfterEach
+	public void tearDown() {
+		if (server != null) {
+			server.dispose();
+		}
+	}
+
+	@Test
+	public void serveResultsFromTheCacheUntilTheyExpire() throws InterruptedException {
+		server = KsqlDBStandInServer.builder().pullQueryRows(3).build();
+
+		KsqlDBClient client = KsqlDBClient.builder().url(server.getHttpUrl()).webSocketUrl(server.getWebSocketUrl())
+				.build();
+		PullQueryCache cache = PullQueryCache.builder().timeToLive(Duration.ofMillis(200)).build();
+
+		Assertions.assertEquals(3, count(client.pullQuery(new QueryRequest("SELECT * FROM T;"), cache)));
+		// Statements are compared once normalized.
+		Assertions.assertEquals(3, count(client.pullQuery(new QueryRequest("select *  from T"), cache)));
+		Assertions.assertEquals(1, server.getRequestCount("/query"));
+
+		Thread.sleep(250);
+
+		Assertions.assertEquals(3, count(client.pullQuery(new QueryRequest("SELECT * FROM T;"), cache)));
+		Assertions.assertEquals(2, server.getRequestCount("/query"));
+
+		PullQueryCacheStats stats = cache.getStats();
+		Assertions.assertEquals(1, stats.getHits());
+		Assertions.assertEquals(2, stats.getMisses());
+		Assertions.assertEquals(1, stats.getExpirations());
+		Assertions.assertEquals(1, stats.getSize());
+	}
+
+	@Test
+	public void evictTheLeastRecentlyUsedResult() {
+		PullQueryCache cache = PullQueryCache.builder().maxEntries(2).concurrencyLevel(1)
+				.timeToLive(Duration.ofHours(1)).build();
+
+		query(cache, "A");
+		query(cache, "B");
+		// Reading A makes B the least recently used result.
+		query(cache, "A");
+		query(cache, "C");
+
+		Assertions.assertEquals(3, executions.get());
+
+		query(cache, "A");
+		query(cache, "B");
+
+		Assertions.assertEquals(4, executions.get());
+
+		PullQueryCacheStats stats = cache.getStats();
+		Assertions.assertEquals(2, stats.getEvictions());
+		Assertions.assertEquals(2, stats.getSize());
+	}
+
+	@Test
+	public void doNotCacheFailedResults() {
+		PullQueryCache cache = PullQueryCache.builder().build();
+		StatementKey key = StatementKey.of(scope, new QueryRequest("SELECT * FROM T;"));
+
+		StepVerifier.create(cache.apply(key, () -> Flux.concat(Flux.just("partial"),
+				Flux.error(new IllegalStateException("Query failed.")))))
+
+				.expectError(IllegalStateException.class)
+
+				.verify(TIMEOUT);
+
+		StepVerifier.create(cache.apply(key, () -> Flux.just("row")))
+
+				.expectNext("row")
+
+				.expectComplete()
+
+				.verify(TIMEOUT);
+
+		Assertions.assertEquals(0, cache.getStats().getHits());
+		Assertions.assertEquals(1, cache.getStats().getSize());
+	}
+
+	@Test
+	public void invalidateAllResults() {
+		PullQueryCache cache = PullQueryCache.builder().build();
+
+		query(cache, "A");
+		cache.invalidateAll();
+		query(cache, "A");
+
+		Assertions.assertEquals(2, executions.get());
+		Assertions.assertEquals(0, cache.getStats().getHits());
+	}
+
+	private void query(PullQueryCache cache, String table) {
+		StatementKey key = StatementKey.of(scope, new QueryRequest("SELECT * FROM " + table + ";"));
+
+		Assertions.assertEquals(Arrays.asList(table),
+				cache.apply(key, () -> Flux.just(table).doOnSubscribe(subscription -> executions.incrementAndGet()))
+						.collectList().block(TIMEOUT));
+	}
+
+	private static long count(Flux<?> rows) {
+		return rows.count().block(TIMEOUT);
+	}
+}
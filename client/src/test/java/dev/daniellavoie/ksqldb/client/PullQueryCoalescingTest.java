@@ -0,0 +1,133 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.daniellavoie.ksqldb.client.api.query.QueryRequest;
+import dev.daniellavoie.ksqldb.client.model.QueryRow;
+import dev.daniellavoie.ksqldb.standin.KsqlDBStandInServer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+
+public class PullQueryCoalescingTest {
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+	private final PullQueryCoalescing coalescing = new PullQueryCoalescing();
+	private final StatementKey key = StatementKey.of(this, new QueryRequest("SELECT * FROM T;"));
+	private final TestPublisher<String> source = TestPublisher.create();
+
+	private KsqlDBStandInServer server;
+
+	@AfterEach
+	public void tearDown() {
+		if (server != null) {
+			server.dispose();
+		}
+	}
+
+	@Test
+	public void replayRowsToLateSubscribers() {
+		List<String> first = new ArrayList<>();
+		List<String> second = new ArrayList<>();
+
+		coalescing.apply(key, source::flux).subscribe(first::add);
+		source.next("a");
+
+		coalescing.apply(key, source::flux).subscribe(second::add);
+		source.next("b").complete();
+
+		Assertions.assertEquals(Arrays.asList("a", "b"), first);
+		Assertions.assertEquals(Arrays.asList("a", "b"), second);
+
+		PullQueryCoalescingStats stats = coalescing.getStats();
+		Assertions.assertEquals(1, stats.getIssued());
+		Assertions.assertEquals(1, stats.getCoalesced());
+		Assertions.assertEquals(0, stats.getInFlight());
+	}
+
+	@Test
+	public void cancelTheQueryWithItsLastSubscriber() {
+		Disposable first = coalescing.apply(key, source::flux).subscribe();
+		Disposable second = coalescing.apply(key, source::flux).subscribe();
+
+		first.dispose();
+
+		source.assertNotCancelled();
+		Assertions.assertEquals(1, coalescing.getStats().getInFlight());
+
+		second.dispose();
+
+		source.assertCancelled();
+		Assertions.assertEquals(0, coalescing.getStats().getInFlight());
+
+		// The next query is sent again rather than joining the cancelled one.
+		StepVerifier.create(coalescing.apply(key, () -> Flux.just("c")))
+
+				.expectNext("c")
+
+				.expectComplete()
+
+				.verify(TIMEOUT);
+
+		Assertions.assertEquals(2, coalescing.getStats().getIssued());
+	}
+
+	@Test
+	public void sendErrorsToAllSubscribers() {
+		Flux<String> first = coalescing.apply(key, source::flux);
+		Flux<String> second = coalescing.apply(key, source::flux);
+
+		StepVerifier.create(Flux.merge(first.materialize(), second.materialize()))
+
+				.then(() -> source.error(new IllegalStateException("Query failed.")))
+
+				.expectNextMatches(signal -> signal.getThrowable() instanceof IllegalStateException)
+
+				.expectNextMatches(signal -> signal.getThrowable() instanceof IllegalStateException)
+
+				.expectComplete()
+
+				.verify(TIMEOUT);
+
+		Assertions.assertEquals(0, coalescing.getStats().getInFlight());
+	}
+
+	@Test
+	public void sendConcurrentIdenticalQueriesOnce() {
+		server = KsqlDBStandInServer.builder().pullQueryRows(5).latency(Duration.ofMillis(200)).build();
+
+		KsqlDBClient client = KsqlDBClient.builder().url(server.getHttpUrl()).webSocketUrl(server.getWebSocketUrl())
+				.build();
+
+		List<List<QueryRow>> results = Flux.range(0, 4)
+				.flatMap(i -> client.pullQuery(new QueryRequest("SELECT * FROM T;"), coalescing).collectList())
+				.collectList().block(TIMEOUT);
+
+		Assertions.assertEquals(4, results.size());
+		Assertions.assertTrue(results.stream().allMatch(rows -> rows.size() == 5));
+		Assertions.assertEquals(1, server.getRequestCount("/query"));
+	}
+}
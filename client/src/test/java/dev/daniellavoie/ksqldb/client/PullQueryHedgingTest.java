@@ -0,0 +1,187 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.daniellavoie.ksqldb.client.api.query.QueryRequest;
+import dev.daniellavoie.ksqldb.standin.KsqlDBStandInServer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+
+public class PullQueryHedgingTest {
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+	private KsqlDBStandInServer slow;
+	private KsqlDBStandInServer fast;
+
+	@AfterEach
+	public void tearDown() {
+		if (slow != null) {
+			slow.dispose();
+		}
+		if (fast != null) {
+			fast.dispose();
+		}
+	}
+
+	@Test
+	public void startWithAFullBurstOfTokens() {
+		TokenBudget budget = new TokenBudget(10, 3);
+
+		Assertions.assertTrue(budget.withdraw());
+		Assertions.assertTrue(budget.withdraw());
+		Assertions.assertTrue(budget.withdraw());
+		Assertions.assertFalse(budget.withdraw());
+
+		// Ten requests at 10% earn a single extra request.
+		for (int i = 0; i < 9; ++i) {
+			budget.deposit();
+		}
+		Assertions.assertFalse(budget.withdraw());
+
+		budget.deposit();
+		Assertions.assertTrue(budget.withdraw());
+		Assertions.assertFalse(budget.withdraw());
+	}
+
+	@Test
+	public void capTokensAtTheBurst() {
+		TokenBudget budget = new TokenBudget(50, 2);
+
+		for (int i = 0; i < 100; ++i) {
+			budget.deposit();
+		}
+
+		Assertions.assertTrue(budget.withdraw());
+		Assertions.assertTrue(budget.withdraw());
+		Assertions.assertFalse(budget.withdraw());
+	}
+
+	@Test
+	public void neverWithdrawFromAnEmptyBudget() {
+		TokenBudget budget = new TokenBudget(0, 10);
+		budget.deposit();
+
+		Assertions.assertFalse(budget.withdraw());
+	}
+
+	@Test
+	public void hedgeQueriesSlowerThanTheDelay() {
+		PullQueryHedging hedging = fixedDelay(Duration.ofMillis(20)).build();
+		TestPublisher<String> primary = TestPublisher.create();
+		AtomicInteger attempts = new AtomicInteger();
+
+		StepVerifier.create(hedging.apply(() -> attempts.getAndIncrement() == 0 ? primary.flux() : Flux.just("hedge")))
+
+				.expectNext("hedge")
+
+				.expectComplete()
+
+				.verify(TIMEOUT);
+
+		primary.assertCancelled();
+
+		PullQueryHedgingStats stats = hedging.getStats();
+		Assertions.assertEquals(1, stats.getRequests());
+		Assertions.assertEquals(1, stats.getHedges());
+		Assertions.assertEquals(1, stats.getWins());
+	}
+
+	@Test
+	public void leaveFastQueriesAlone() {
+		PullQueryHedging hedging = fixedDelay(Duration.ofMillis(200)).build();
+		AtomicInteger attempts = new AtomicInteger();
+
+		StepVerifier
+				.create(hedging.apply(() -> Flux.just("row").doOnSubscribe(subscription -> attempts.incrementAndGet())))
+
+				.expectNext("row")
+
+				.expectComplete()
+
+				.verify(TIMEOUT);
+
+		Assertions.assertEquals(1, attempts.get());
+		Assertions.assertEquals(0, hedging.getStats().getHedges());
+	}
+
+	@Test
+	public void throttleHedgesOnceTheBudgetIsSpent() {
+		PullQueryHedging hedging = fixedDelay(Duration.ofMillis(10)).budget(10).build();
+
+		// Every query deposits a tenth of a token on top of the burst of 10 and
+		// spends a whole one on its hedge: the twelfth query is out of tokens.
+		for (int i = 0; i < 12; ++i) {
+			hedging.apply(() -> Mono.delay(Duration.ofMillis(50)).thenReturn("row").flux()).blockLast(TIMEOUT);
+		}
+
+		PullQueryHedgingStats stats = hedging.getStats();
+		Assertions.assertEquals(12, stats.getRequests());
+		Assertions.assertEquals(11, stats.getHedges());
+		Assertions.assertEquals(1, stats.getThrottled());
+		Assertions.assertEquals(0, stats.getWins());
+	}
+
+	@Test
+	public void followTheObservedLatency() {
+		PullQueryHedging hedging = PullQueryHedging.builder().delay(Duration.ofSeconds(1)).percentile(95)
+				.minDelay(Duration.ofMillis(5)).build();
+
+		// The percentile is computed once 64 latencies were observed.
+		for (int i = 0; i < 64; ++i) {
+			Assertions.assertEquals(Duration.ofSeconds(1), hedging.getDelay());
+
+			hedging.apply(() -> Flux.just("row")).blockLast(TIMEOUT);
+		}
+
+		Assertions.assertEquals(Duration.ofMillis(5), hedging.getDelay());
+	}
+
+	@Test
+	public void sendTheHedgeToAnotherNode() {
+		slow = KsqlDBStandInServer.builder().pullQueryRows(3).latency(Duration.ofMillis(500)).build();
+		fast = KsqlDBStandInServer.builder().pullQueryRows(3).build();
+
+		KsqlDBClient client = KsqlDBClient.builder().node(KsqlDBNode.of(slow.getHttpUrl(), slow.getWebSocketUrl()))
+				.node(KsqlDBNode.of(fast.getHttpUrl(), fast.getWebSocketUrl())).build();
+		PullQueryHedging hedging = fixedDelay(Duration.ofMillis(50)).build();
+
+		// Round robin sends the first request to the slow node.
+		StepVerifier.create(client.pullQuery(new QueryRequest("SELECT * FROM T;"), hedging))
+
+				.expectNextCount(3)
+
+				.expectComplete()
+
+				.verify(TIMEOUT);
+
+		Assertions.assertEquals(1, slow.getRequestCount("/query"));
+		Assertions.assertEquals(1, fast.getRequestCount("/query"));
+		Assertions.assertEquals(1, hedging.getStats().getWins());
+	}
+
+	private static PullQueryHedging.Builder fixedDelay(Duration delay) {
+		return PullQueryHedging.builder().delay(delay).percentile(0);
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.daniellavoie.ksqldb.client.api.query.QueryRequest;
+import dev.daniellavoie.ksqldb.standin.KsqlDBStandInServer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.test.publisher.TestPublisher;
+
+public class PushQuerySharingTest {
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+	private static final String QUERY = "SELECT * FROM T EMIT CHANGES;";
+
+	private final StatementKey key = StatementKey.of(this, new QueryRequest(QUERY));
+	private final TestPublisher<String> source = TestPublisher.create();
+
+	private KsqlDBStandInServer server;
+
+	@AfterEach
+	public void tearDown() {
+		if (server != null) {
+			server.dispose();
+		}
+	}
+
+	@Test
+	public void keepTheQueryForSubscribersResubscribingWithinTheGracePeriod() {
+		PushQuerySharing sharing = PushQuerySharing.builder().gracePeriod(Duration.ofSeconds(5)).build();
+
+		sharing.share(key, source::flux).subscribe().dispose();
+
+		Assertions.assertEquals(1, sharing.getStats().getActiveQueries());
+		Assertions.assertEquals(0, sharing.getStats().getActiveSubscribers());
+
+		List<String> rows = new ArrayList<>();
+		Disposable subscriber = sharing.share(key, source::flux).subscribe(rows::add);
+		source.next("a");
+
+		source.assertNotCancelled();
+		Assertions.assertEquals(Arrays.asList("a"), rows);
+
+		PushQuerySharingStats stats = sharing.getStats();
+		Assertions.assertEquals(1, stats.getConnections());
+		Assertions.assertEquals(2, stats.getSubscriptions());
+
+		subscriber.dispose();
+	}
+
+	@Test
+	public void stopTheQueryOnceTheGracePeriodElapsed() {
+		PushQuerySharing sharing = PushQuerySharing.builder().gracePeriod(Duration.ofMillis(100)).build();
+
+		sharing.share(key, source::flux).subscribe().dispose();
+
+		source.assertNotCancelled();
+
+		awaitCancellation();
+
+		Assertions.assertEquals(0, sharing.getStats().getActiveQueries());
+
+		// The next subscriber starts a new query.
+		Disposable subscriber = sharing.share(key, source::flux).subscribe();
+
+		Assertions.assertEquals(2, sharing.getStats().getConnections());
+
+		subscriber.dispose();
+	}
+
+	@Test
+	public void stopTheQueryRightAwayWithoutGracePeriod() {
+		PushQuerySharing sharing = PushQuerySharing.builder().gracePeriod(Duration.ZERO).build();
+
+		Disposable first = sharing.share(key, source::flux).subscribe();
+		Disposable second = sharing.share(key, source::flux).subscribe();
+
+		first.dispose();
+		source.assertNotCancelled();
+
+		second.dispose();
+		source.assertCancelled();
+		Assertions.assertEquals(0, sharing.getStats().getActiveQueries());
+	}
+
+	@Test
+	public void replayTheLatestRowsToJoiningSubscribers() {
+		PushQuerySharing sharing = PushQuerySharing.builder().replay(2).build();
+
+		Disposable first = sharing.share(key, source::flux).subscribe();
+		source.next("a", "b", "c");
+
+		List<String> rows = new ArrayList<>();
+		Disposable second = sharing.share(key, source::flux).subscribe(rows::add);
+		source.next("d");
+
+		Assertions.assertEquals(Arrays.asList("b", "c", "d"), rows);
+
+		first.dispose();
+		second.dispose();
+	}
+
+	@Test
+	public void openASingleSessionForSubscribersOfTheSameStatement() {
+		server = KsqlDBStandInServer.builder().rowsPerSecond(1000).build();
+
+		KsqlDBClient client = KsqlDBClient.builder().url(server.getHttpUrl()).webSocketUrl(server.getWebSocketUrl())
+				.build();
+		PushQuerySharing sharing = PushQuerySharing.builder().build();
+
+		List<Long> counts = Flux.merge(client.pushQuery(new QueryRequest(QUERY), sharing).take(20).count(),
+				client.pushQuery(new QueryRequest("select * from T emit changes"), sharing).take(20).count())
+				.collectList().block(TIMEOUT);
+
+		Assertions.assertEquals(Arrays.asList(20L, 20L), counts);
+		Assertions.assertEquals(1, server.getRequestCount("/ws/query"));
+	}
+
+	private void awaitCancellation() {
+		long deadline = System.nanoTime() + TIMEOUT.toNanos();
+		while (!source.wasCancelled() && System.nanoTime() < deadline) {
+			try {
+				Thread.sleep(5);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+
+				return;
+			}
+		}
+
+		source.assertCancelled();
+	}
+}
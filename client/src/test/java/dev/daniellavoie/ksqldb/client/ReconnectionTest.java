@@ -0,0 +1,237 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.io.EOFException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.daniellavoie.ksqldb.client.api.query.QueryRequest;
+import dev.daniellavoie.ksqldb.standin.KsqlDBStandInServer;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.websocketx.WebSocketClientHandshakeException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+/**
+ * Reconnects push queries to the stand-in server, which sends the same rows
+ * from the start of the stream on every WebSocket session.
+ */
+public class ReconnectionTest {
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+	private static final String QUERY = "SELECT * FROM T EMIT CHANGES;";
+
+	private KsqlDBStandInServer server;
+
+	@AfterEach
+	public void tearDown() {
+		if (server != null) {
+			server.dispose();
+		}
+	}
+
+	@Test
+	public void dropRowsSentAgainAfterReconnecting() {
+		server = KsqlDBStandInServer.builder().disconnectAfterRows(5).build();
+
+		Reconnection reconnection = reconnection().maxAttempts(2).build();
+
+		StepVerifier.create(client().pushQuery(new QueryRequest(QUERY), reconnection))
+
+				.expectNextCount(5)
+
+				// Sessions which only send duplicates do not reset the attempts.
+				.expectErrorSatisfies(error -> Assertions.assertTrue(Exceptions.isRetryExhausted(error)))
+
+				.verify(TIMEOUT);
+
+		ReconnectionStats stats = reconnection.getStats();
+		Assertions.assertEquals(3, stats.getConnections());
+		Assertions.assertEquals(2, stats.getReconnects());
+		Assertions.assertEquals(10, stats.getDuplicates());
+		Assertions.assertEquals(3, server.getRequestCount("/ws/query"));
+	}
+
+	@Test
+	public void emitRowsThatLeftTheWindowAgain() {
+		server = KsqlDBStandInServer.builder().disconnectAfterRows(5).build();
+
+		Reconnection reconnection = reconnection().maxAttempts(1).deduplicationWindow(2).build();
+
+		List<Object> rowTimes = client().pushQuery(new QueryRequest(QUERY), reconnection).take(12)
+				.map(row -> row.getRow().getColumns().get(0)).collectList().block(TIMEOUT);
+
+		// Every session emits rows, which resets the attempts of the reconnection.
+		Assertions.assertEquals(12, rowTimes.size());
+		Assertions.assertEquals(rowTimes.get(0), rowTimes.get(5));
+		Assertions.assertEquals(0, reconnection.getStats().getDuplicates());
+		Assertions.assertEquals(2, reconnection.getStats().getReconnects());
+	}
+
+	@Test
+	public void resumeOnceTheServerRecovers() {
+		server = KsqlDBStandInServer.builder().errorRate(1).build();
+
+		Reconnection reconnection = reconnection().maxAttempts(100).build();
+
+		StepVerifier.create(client().pushQuery(new QueryRequest(QUERY), reconnection).take(10))
+
+				.then(() -> {
+					awaitRequests("/ws/query", 3);
+
+					server.setErrorRate(0);
+				})
+
+				.expectNextCount(10)
+
+				.expectComplete()
+
+				.verify(TIMEOUT);
+
+		ReconnectionStats stats = reconnection.getStats();
+		Assertions.assertEquals(1, stats.getConnections());
+		Assertions.assertTrue(stats.getReconnects() >= 2);
+	}
+
+	@Test
+	public void failOnNonTransientErrors() {
+		server = KsqlDBStandInServer.builder().build();
+
+		Reconnection reconnection = reconnection().deduplicateOn("ROWKEY", "MISSING").build();
+
+		StepVerifier.create(client().pushQuery(new QueryRequest(QUERY), reconnection))
+
+				.expectError(IllegalArgumentException.class)
+
+				.verify(TIMEOUT);
+
+		Assertions.assertEquals(0, reconnection.getStats().getReconnects());
+		Assertions.assertEquals(1, server.getRequestCount("/ws/query"));
+	}
+
+	@Test
+	public void limitAttemptsByDefault() {
+		server = KsqlDBStandInServer.builder().errorRate(1).build();
+
+		Reconnection reconnection = Reconnection.builder().backoff(Duration.ofMillis(1), Duration.ofMillis(1))
+				.build();
+
+		StepVerifier.create(client().pushQuery(new QueryRequest(QUERY), reconnection))
+
+				.expectErrorSatisfies(error -> Assertions.assertTrue(Exceptions.isRetryExhausted(error)))
+
+				.verify(TIMEOUT);
+
+		Assertions.assertEquals(10, reconnection.getStats().getReconnects());
+	}
+
+	@Test
+	public void skipDeduplicationWhenDefaultColumnsAreNotProjected() {
+		AtomicInteger sessions = new AtomicInteger();
+		Reconnection reconnection = reconnection().maxAttempts(1).build();
+
+		ReconnectingPushQuery query = new ReconnectingPushQuery(reconnection, () -> {
+			sessions.incrementAndGet();
+
+			return Flux.just(fields("ROWKEY", "STRING", "TOTAL", "BIGINT"), "{\"row\":{\"columns\":[\"a\",1]}}",
+					"{\"row\":{\"columns\":[\"b\",2]}}");
+		});
+
+		StepVerifier.create(query.rows().take(4))
+
+				.expectNextCount(4)
+
+				.expectComplete()
+
+				.verify(TIMEOUT);
+
+		Assertions.assertEquals(2, sessions.get());
+		Assertions.assertEquals(0, reconnection.getStats().getDuplicates());
+	}
+
+	@Test
+	public void requireExplicitColumnsToBeProjected() {
+		AtomicInteger sessions = new AtomicInteger();
+		Reconnection reconnection = reconnection().deduplicateOn("ROWTIME").build();
+
+		ReconnectingPushQuery query = new ReconnectingPushQuery(reconnection, () -> {
+			sessions.incrementAndGet();
+
+			return Flux.just(fields("ROWKEY", "STRING"), "{\"row\":{\"columns\":[\"a\"]}}");
+		});
+
+		StepVerifier.create(query.rows())
+
+				.expectError(IllegalArgumentException.class)
+
+				.verify(TIMEOUT);
+
+		Assertions.assertEquals(1, sessions.get());
+	}
+
+	@Test
+	public void retryHandshakesRejectedByServerErrors() {
+		Assertions.assertTrue(Reconnection.isTransient(handshakeException(HttpResponseStatus.BAD_GATEWAY)));
+		Assertions.assertFalse(Reconnection.isTransient(handshakeException(HttpResponseStatus.UNAUTHORIZED)));
+		Assertions.assertTrue(Reconnection.isTransient(new UncheckedIOException(new EOFException())));
+	}
+
+	private static WebSocketClientHandshakeException handshakeException(HttpResponseStatus status) {
+		return new WebSocketClientHandshakeException("Invalid handshake response getStatus: " + status,
+				new DefaultHttpResponse(HttpVersion.HTTP_1_1, status));
+	}
+
+	private void awaitRequests(String path, long count) {
+		long deadline = System.nanoTime() + TIMEOUT.toNanos();
+		while (server.getRequestCount(path) < count && System.nanoTime() < deadline) {
+			try {
+				Thread.sleep(5);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+
+				return;
+			}
+		}
+	}
+
+	private static String fields(String... namesAndTypes) {
+		StringBuilder builder = new StringBuilder("[");
+		for (int i = 0; i < namesAndTypes.length; i += 2) {
+			builder.append(i == 0 ? "" : ",").append("{\"name\":\"").append(namesAndTypes[i])
+					.append("\",\"schema\":{\"type\":\"").append(namesAndTypes[i + 1])
+					.append("\",\"fields\":null,\"memberSchema\":null}}");
+		}
+
+		return builder.append("]").toString();
+	}
+
+	private static Reconnection.Builder reconnection() {
+		return Reconnection.builder().backoff(Duration.ofMillis(5), Duration.ofMillis(20));
+	}
+
+	private KsqlDBClient client() {
+		return KsqlDBClient.builder().url(server.getHttpUrl()).webSocketUrl(server.getWebSocketUrl()).build();
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.daniellavoie.ksqldb.client.api.query.QueryRequest;
+import dev.daniellavoie.ksqldb.standin.KsqlDBStandInServer;
+import reactor.test.StepVerifier;
+
+public class RequestListenerTest {
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+	private final Recorder recorder = new Recorder();
+
+	private KsqlDBStandInServer server;
+
+	@AfterEach
+	public void tearDown() {
+		if (server != null) {
+			server.dispose();
+		}
+	}
+
+	@Test
+	public void reportTheEventsOfAPullQuery() {
+		server = KsqlDBStandInServer.builder().pullQueryRows(3).build();
+
+		StepVerifier.create(client(recorder).pullQuery(new QueryRequest("SELECT * FROM T;")))
+
+				.expectNextCount(3)
+
+				.expectComplete()
+
+				.verify(TIMEOUT);
+
+		Assertions.assertEquals(Arrays.asList("requestStarted", "connectionAcquired", "firstByteReceived",
+				"headerReceived", "rowDecoded", "rowDecoded", "rowDecoded", "requestCompleted"), recorder.events);
+
+		RequestEvent event = recorder.event;
+		Assertions.assertEquals("/query", event.getPath());
+		Assertions.assertEquals(StatementClass.PULL_QUERY, event.getStatementClass());
+		Assertions.assertEquals(3, event.getRows());
+		Assertions.assertTrue(event.getBytesReceived() >= event.getBytes());
+	}
+
+	@Test
+	public void reportFailedRequests() {
+		server = KsqlDBStandInServer.builder().errorRate(1).build();
+
+		StepVerifier.create(client(recorder).pullQuery(new QueryRequest("SELECT * FROM T;")))
+
+				.expectError(KsqlDBServerException.class)
+
+				.verify(TIMEOUT);
+
+		Assertions.assertEquals("requestFailed", recorder.events.get(recorder.events.size() - 1));
+		Assertions.assertTrue(recorder.error instanceof KsqlDBServerException);
+	}
+
+	@Test
+	public void reportCancelledPushQueriesOnce() {
+		server = KsqlDBStandInServer.builder().rowsPerSecond(1000).build();
+
+		StepVerifier.create(client(recorder).pushQuery(new QueryRequest("SELECT * FROM T EMIT CHANGES;")).take(3))
+
+				.expectNextCount(3)
+
+				.expectComplete()
+
+				.verify(TIMEOUT);
+
+		Assertions.assertEquals(1, Collections.frequency(recorder.events, "requestCancelled"));
+		Assertions.assertFalse(recorder.events.contains("requestCompleted"));
+		Assertions.assertEquals(StatementClass.PUSH_QUERY, recorder.event.getStatementClass());
+	}
+
+	@Test
+	public void isolateListenersFromEachOtherExceptions() {
+		server = KsqlDBStandInServer.builder().pullQueryRows(2).build();
+
+		RequestListener failing = new RequestListener() {
+			@Override
+			public void requestStarted(RequestEvent event) {
+				throw new IllegalStateException("Listener failed.");
+			}
+
+			@Override
+			public void rowDecoded(RequestEvent event, int bytes) {
+				throw new IllegalStateException("Listener failed.");
+			}
+
+			@Override
+			public void requestCompleted(RequestEvent event) {
+				throw new IllegalStateException("Listener failed.");
+			}
+		};
+
+		// The request is not affected, and neither is the listener registered next.
+		StepVerifier.create(client(failing, recorder).pullQuery(new QueryRequest("SELECT * FROM T;")))
+
+				.expectNextCount(2)
+
+				.expectComplete()
+
+				.verify(TIMEOUT);
+
+		Assertions.assertEquals(Arrays.asList("requestStarted", "connectionAcquired", "firstByteReceived",
+				"headerReceived", "rowDecoded", "rowDecoded", "requestCompleted"), recorder.events);
+	}
+
+	@Test
+	public void composeOnlyMultipleListeners() {
+		Assertions.assertNull(CompositeRequestListener.of(Collections.emptyList()));
+		Assertions.assertSame(recorder, CompositeRequestListener.of(Collections.singletonList(recorder)));
+		Assertions.assertTrue(CompositeRequestListener
+				.of(Arrays.asList(recorder, new Recorder())) instanceof CompositeRequestListener);
+	}
+
+	private KsqlDBClient client(RequestListener... listeners) {
+		KsqlDBClientBuilder builder = KsqlDBClient.builder().url(server.getHttpUrl())
+				.webSocketUrl(server.getWebSocketUrl());
+		for (RequestListener listener : listeners) {
+			builder.listener(listener);
+		}
+
+		return builder.build();
+	}
+
+	private static class Recorder implements RequestListener {
+		private final List<String> events = new CopyOnWriteArrayList<>();
+
+		private volatile RequestEvent event;
+		private volatile Throwable error;
+
+		@Override
+		public void requestStarted(RequestEvent event) {
+			this.event = event;
+			events.add("requestStarted");
+		}
+
+		@Override
+		public void connectionAcquired(RequestEvent event) {
+			events.add("connectionAcquired");
+		}
+
+		@Override
+		public void firstByteReceived(RequestEvent event) {
+			events.add("firstByteReceived");
+		}
+
+		@Override
+		public void headerReceived(RequestEvent event) {
+			events.add("headerReceived");
+		}
+
+		@Override
+		public void rowDecoded(RequestEvent event, int bytes) {
+			events.add("rowDecoded");
+		}
+
+		@Override
+		public void requestFailed(RequestEvent event, Throwable error) {
+			this.error = error;
+			events.add("requestFailed");
+		}
+
+		@Override
+		public void requestCompleted(RequestEvent event) {
+			events.add("requestCompleted");
+		}
+
+		@Override
+		public void requestCancelled(RequestEvent event) {
+			events.add("requestCancelled");
+		}
+	}
+}
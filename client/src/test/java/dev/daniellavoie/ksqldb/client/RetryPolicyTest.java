@@ -0,0 +1,210 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+
+import dev.daniellavoie.ksqldb.client.api.ksql.KsqlRequest;
+import dev.daniellavoie.ksqldb.client.api.query.QueryRequest;
+import dev.daniellavoie.ksqldb.standin.KsqlDBStandInServer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class RetryPolicyTest {
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+	private final AtomicInteger attempts = new AtomicInteger();
+
+	private KsqlDBStandInServer server;
+
+	@AfterEach
+	public void tearDown() {
+		if (server != null) {
+			server.dispose();
+		}
+	}
+
+	@Test
+	public void classifyStatementsByTheirLeastSafeStatement() {
+		Assertions.assertEquals(StatementClass.PULL_QUERY, StatementClass.of("select * from T where ROWKEY = 'a';"));
+		Assertions.assertEquals(StatementClass.PUSH_QUERY, StatementClass.of("SELECT * FROM S EMIT CHANGES;"));
+		Assertions.assertEquals(StatementClass.PUSH_QUERY, StatementClass.of("PRINT 'topic';"));
+		Assertions.assertEquals(StatementClass.METADATA, StatementClass.of("SHOW STREAMS; DESCRIBE S;"));
+		Assertions.assertEquals(StatementClass.DDL, StatementClass.of("LIST TOPICS; DROP STREAM S;"));
+		Assertions.assertEquals(StatementClass.INSERT,
+				StatementClass.of("INSERT INTO S (A) VALUES ('a;DROP STREAM S');"));
+		Assertions.assertEquals(StatementClass.OTHER, StatementClass.of("SET 'auto.offset.reset'='earliest';"));
+		Assertions.assertEquals(StatementClass.OTHER, StatementClass.of(null));
+	}
+
+	@Test
+	public void retryTransientErrorsBeforeTheFirstElement() {
+		RetryPolicy retryPolicy = policy().build();
+
+		StepVerifier.create(retryPolicy.apply(StatementClass.PULL_QUERY,
+				failing(2, Flux.error(new ConnectException("Connection refused")), Flux.just("row"))))
+
+				.expectNext("row")
+
+				.expectComplete()
+
+				.verify(TIMEOUT);
+
+		Assertions.assertEquals(3, attempts.get());
+		assertStats(retryPolicy, 1, 2, 0);
+	}
+
+	@Test
+	public void neverRetryOnceAnElementWasEmitted() {
+		RetryPolicy retryPolicy = policy().build();
+
+		StepVerifier.create(retryPolicy.apply(StatementClass.PULL_QUERY,
+				failing(Integer.MAX_VALUE,
+						Flux.just("partial").concatWith(Flux.error(new ConnectException("Connection reset"))),
+						Flux.just("row"))))
+
+				.expectNext("partial")
+
+				.expectError(ConnectException.class)
+
+				.verify(TIMEOUT);
+
+		Assertions.assertEquals(1, attempts.get());
+	}
+
+	@Test
+	public void retryOnlyIdempotentStatementClasses() {
+		RetryPolicy retryPolicy = policy().build();
+
+		for (StatementClass statementClass : new StatementClass[] { StatementClass.PUSH_QUERY, StatementClass.DDL,
+				StatementClass.INSERT, StatementClass.OTHER }) {
+			attempts.set(0);
+
+			StepVerifier.create(retryPolicy.apply(statementClass,
+					failing(1, new ConnectException("Connection refused"), Mono.just("ok"))))
+
+					.expectError(ConnectException.class)
+
+					.verify(TIMEOUT);
+
+			Assertions.assertEquals(1, attempts.get(), statementClass.name());
+		}
+
+		assertStats(retryPolicy, 0, 0, 0);
+	}
+
+	@Test
+	public void retryOnlyTransientErrors() {
+		Assertions.assertTrue(RetryPolicy.isTransient(new ConnectException("Connection refused")));
+		Assertions.assertTrue(RetryPolicy.isTransient(serverError(50000)));
+		Assertions.assertTrue(RetryPolicy.isTransient(serverError(503)));
+		Assertions.assertFalse(RetryPolicy.isTransient(serverError(40001)));
+		Assertions.assertFalse(RetryPolicy.isTransient(new JsonParseException(null, "Unexpected character")));
+		Assertions.assertFalse(RetryPolicy.isTransient(new IllegalStateException()));
+	}
+
+	@Test
+	public void raiseTheLastErrorOnceRetriesAreExhausted() {
+		RetryPolicy retryPolicy = policy().maxRetries(2).build();
+		ConnectException error = new ConnectException("Connection refused");
+
+		StepVerifier.create(
+				retryPolicy.apply(StatementClass.METADATA, failing(Integer.MAX_VALUE, error, Mono.<String>empty())))
+
+				.expectErrorMatches(raised -> raised == error)
+
+				.verify(TIMEOUT);
+
+		Assertions.assertEquals(3, attempts.get());
+		assertStats(retryPolicy, 1, 2, 1);
+	}
+
+	@Test
+	public void stopRetryingOnceTheBudgetIsSpent() {
+		RetryPolicy retryPolicy = policy().budget(0).build();
+
+		StepVerifier.create(retryPolicy.apply(StatementClass.PULL_QUERY,
+				failing(1, Flux.error(new ConnectException("Connection refused")), Flux.just("row"))))
+
+				.expectError(ConnectException.class)
+
+				.verify(TIMEOUT);
+
+		Assertions.assertEquals(1, attempts.get());
+		Assertions.assertEquals(1, retryPolicy.getStats().getThrottled());
+	}
+
+	@Test
+	public void retryPullQueriesButNotStatementsSentToTheServer() {
+		server = KsqlDBStandInServer.builder().errorRate(1).build();
+
+		RetryPolicy retryPolicy = policy().maxRetries(2).build();
+		KsqlDBClient client = KsqlDBClient.builder().url(server.getHttpUrl()).webSocketUrl(server.getWebSocketUrl())
+				.retryPolicy(retryPolicy).build();
+
+		StepVerifier.create(client.pullQuery(new QueryRequest("SELECT * FROM T;")))
+
+				.expectError(KsqlDBServerException.class)
+
+				.verify(TIMEOUT);
+
+		StepVerifier.create(client.execute(new KsqlRequest("DROP STREAM S;")))
+
+				.expectError(KsqlDBServerException.class)
+
+				.verify(TIMEOUT);
+
+		Assertions.assertEquals(3, server.getRequestCount("/query"));
+		Assertions.assertEquals(1, server.getRequestCount("/ksql"));
+	}
+
+	/**
+	 * @return a request which first attempts send the failure instead of the
+	 *         response.
+	 */
+	private <T> Flux<T> failing(int failures, Flux<T> failure, Flux<T> response) {
+		return Flux.defer(() -> attempts.incrementAndGet() <= failures ? failure : response);
+	}
+
+	private <T> Mono<T> failing(int failures, Exception error, Mono<T> response) {
+		return Mono.defer(() -> attempts.incrementAndGet() <= failures ? Mono.error(error) : response);
+	}
+
+	private static KsqlDBServerException serverError(int errorCode) {
+		return new KsqlDBServerException(new KsqlDBServerError("server_error", errorCode, "Error", null, null, null));
+	}
+
+	private static void assertStats(RetryPolicy retryPolicy, long requests, long retries, long exhausted) {
+		RetryPolicyStats stats = retryPolicy.getStats();
+
+		Assertions.assertEquals(requests, stats.getRequests());
+		Assertions.assertEquals(retries, stats.getRetries());
+		Assertions.assertEquals(exhausted, stats.getExhausted());
+	}
+
+	private static RetryPolicy.Builder policy() {
+		return RetryPolicy.builder().backoff(Duration.ofMillis(1), Duration.ofMillis(5));
+	}
+}
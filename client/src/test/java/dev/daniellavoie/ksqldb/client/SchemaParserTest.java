@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.client;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SchemaParserTest {
+	@Test
+	public void parseColumns() {
+		List<ColumnDefinition> columns = SchemaParser
+				.parse("`ROWKEY` STRING KEY, `A, B` DECIMAL(10, 2), `S` STRUCT<`X` INTEGER, `Y` MAP<STRING, DOUBLE>>, "
+						+ "COUNT BIGINT");
+
+		Assertions.assertEquals(4, columns.size());
+
+		assertColumn(columns.get(0), "ROWKEY", "STRING", true);
+		assertColumn(columns.get(1), "A, B", "DECIMAL(10, 2)", false);
+		assertColumn(columns.get(2), "S", "STRUCT<`X` INTEGER, `Y` MAP<STRING, DOUBLE>>", false);
+		assertColumn(columns.get(3), "COUNT", "BIGINT", false);
+	}
+
+	@Test
+	public void rejectUnterminatedColumnName() {
+		IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+				() -> SchemaParser.parse("`ROWKEY` STRING KEY, `COUNT BIGINT"));
+
+		Assertions.assertTrue(exception.getMessage().contains("`ROWKEY` STRING KEY, `COUNT BIGINT"));
+	}
+
+	@Test
+	public void rejectColumnWithoutType() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> SchemaParser.parse("`ROWKEY` STRING, COUNT"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> SchemaParser.parse("`ROWKEY`, `COUNT` BIGINT"));
+	}
+
+	@Test
+	public void detectDecimalTypes() {
+		Assertions.assertTrue(RowSchema.containsDecimal("DECIMAL(10, 2)"));
+		Assertions.assertTrue(RowSchema.containsDecimal("DECIMAL"));
+		Assertions.assertTrue(RowSchema.containsDecimal("ARRAY<DECIMAL(4, 1)>"));
+		Assertions.assertTrue(RowSchema.containsDecimal("STRUCT<`A` STRING, `B` DECIMAL(4, 1)>"));
+		Assertions.assertTrue(RowSchema.containsDecimal("STRUCT<`A` DECIMAL, `B` STRING>"));
+
+		Assertions.assertFalse(RowSchema.containsDecimal("STRUCT<`DECIMAL` STRING>"));
+		Assertions.assertFalse(RowSchema.containsDecimal("STRUCT<DECIMAL STRING, PRICE_DECIMAL DOUBLE>"));
+		Assertions.assertFalse(RowSchema.containsDecimal("MAP<STRING, DOUBLE>"));
+	}
+
+	private static void assertColumn(ColumnDefinition column, String name, String dataType, boolean key) {
+		Assertions.assertEquals(name, column.getName());
+		Assertions.assertEquals(dataType, column.getDataType());
+		Assertions.assertEquals(key, column.isKey());
+	}
+}
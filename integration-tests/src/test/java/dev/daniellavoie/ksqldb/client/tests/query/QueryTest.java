@@ -31,6 +31,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 
+import dev.daniellavoie.ksqldb.client.TypedRow;
 import dev.daniellavoie.ksqldb.client.api.query.QueryRequest;
 import dev.daniellavoie.ksqldb.client.model.QueryRow;
 import dev.daniellavoie.ksqldb.client.tests.EndpointTest;
@@ -78,6 +79,46 @@ public class QueryTest extends EndpointTest {
 		Assertions.assertEquals(1, results.size());
 	}
 
+	@Test
+	public void assertTypedPullQuery() throws InterruptedException {
+		awaitQueryToBeRunning(lastQueryId).block();
+
+		List<TypedRow> results = ksqlDBClient
+				.typedPullQuery(new QueryRequest("SELECT * FROM " + TABLE_NAME + " WHERE ROWKEY='1';"))
+
+				.switchIfEmpty(Mono.error(() -> new RuntimeException("No result found yet")))
+
+				.retryBackoff(5, Duration.ofSeconds(1))
+
+				.collectList()
+
+				.block();
+
+		Assertions.assertEquals(1, results.size());
+		Assertions.assertEquals("1", results.get(0).getString("ROWKEY"));
+		Assertions.assertTrue(results.get(0).getLong("TRANSACTIONCOUNT") > 0);
+	}
+
+	@Test
+	public void assertBoundPullQuery() throws InterruptedException {
+		awaitQueryToBeRunning(lastQueryId).block();
+
+		List<AccountCount> results = ksqlDBClient
+				.pullQuery(new QueryRequest("SELECT * FROM " + TABLE_NAME + " WHERE ROWKEY='1';"), AccountCount.class)
+
+				.switchIfEmpty(Mono.error(() -> new RuntimeException("No result found yet")))
+
+				.retryBackoff(5, Duration.ofSeconds(1))
+
+				.collectList()
+
+				.block();
+
+		Assertions.assertEquals(1, results.size());
+		Assertions.assertEquals("1", results.get(0).rowKey);
+		Assertions.assertTrue(results.get(0).transactionCount > 0);
+	}
+
 	@Test
 	public void assertPushQuery() throws InterruptedException {
 		awaitQueryToBeRunning(lastQueryId).block();
@@ -132,4 +173,8 @@ public class QueryTest extends EndpointTest {
 		Assertions.assertEquals(50, result.getRow().getColumns().get(3));
 	}
 
+	public static class AccountCount {
+		private String rowKey;
+		private long transactionCount;
+	}
 }
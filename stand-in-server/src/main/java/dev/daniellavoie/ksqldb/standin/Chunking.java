@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.standin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import reactor.core.publisher.Flux;
+
+/**
+ * Defines how the elements of a streamed response are split in HTTP chunks.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public interface Chunking {
+	/**
+	 * @param elements  serialized elements of the response, including their
+	 *                  separators
+	 * @param allocator allocator of the connection
+	 * @return the chunks to write on the connection
+	 */
+	Flux<ByteBuf> chunk(Flux<byte[]> elements, ByteBufAllocator allocator);
+
+	/**
+	 * Writes every element in its own chunk, like ksqlDB does.
+	 * 
+	 * @return a chunking of one element per chunk
+	 */
+	static Chunking row() {
+		return coalesce(1);
+	}
+
+	/**
+	 * Writes multiple elements in a single chunk.
+	 * 
+	 * @param elements number of elements per chunk
+	 * @return a chunking that coalesces elements
+	 */
+	static Chunking coalesce(int elements) {
+		return (source, allocator) -> source.buffer(elements).map(batch -> {
+			int size = batch.stream().mapToInt(element -> element.length).sum();
+
+			ByteBuf chunk = allocator.buffer(size);
+			batch.forEach(chunk::writeBytes);
+
+			return chunk;
+		});
+	}
+
+	/**
+	 * Slices the response in chunks of a fixed size, regardless of the elements
+	 * boundaries. Elements are split across chunks and coalesced in a single
+	 * chunk.
+	 * 
+	 * @param bytes size of a chunk
+	 * @return a chunking of fixed size chunks
+	 */
+	static Chunking fixed(int bytes) {
+		return (source, allocator) -> Flux.defer(() -> {
+			List<byte[]> pending = new ArrayList<>();
+			int[] pendingSize = new int[1];
+
+			return source.concatMapIterable(element -> {
+				pending.add(element);
+				pendingSize[0] += element.length;
+
+				if (pendingSize[0] < bytes) {
+					return Collections.<ByteBuf>emptyList();
+				}
+
+				List<ByteBuf> chunks = new ArrayList<>();
+				ByteBuf merged = allocator.buffer(pendingSize[0]);
+				pending.forEach(merged::writeBytes);
+				pending.clear();
+
+				while (merged.readableBytes() >= bytes) {
+					chunks.add(merged.readRetainedSlice(bytes));
+				}
+
+				byte[] remaining = new byte[merged.readableBytes()];
+				merged.readBytes(remaining);
+				merged.release();
+
+				pendingSize[0] = remaining.length;
+				if (remaining.length > 0) {
+					pending.add(remaining);
+				}
+
+				return chunks;
+			}).concatWith(Flux.defer(() -> {
+				if (pendingSize[0] == 0) {
+					return Flux.empty();
+				}
+
+				ByteBuf last = allocator.buffer(pendingSize[0]);
+				pending.forEach(last::writeBytes);
+
+				return Flux.just(last);
+			}));
+		});
+	}
+}
@@ -0,0 +1,518 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.standin;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.http.websocket.WebsocketOutbound;
+
+/**
+ * In-process HTTP server that mimics the REST and WebSocket endpoints of a
+ * ksqlDB server. Rows are generated synthetically with a configurable width,
+ * rate and key cardinality. Latency, errors, disconnections and health can be
+ * injected to exercise the client under controlled conditions without a Kafka
+ * cluster.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class KsqlDBStandInServer implements Disposable {
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+	private static final Pattern KEYS_PATTERN = Pattern.compile("ROWKEY\\s*(?:=|IN)\\s*\\(?([^)]*?)\\)?\\s*;?\\s*$",
+			Pattern.CASE_INSENSITIVE);
+	private static final Pattern KEY_PATTERN = Pattern.compile("'((?:[^']|'')*)'");
+	private static final byte[] KEEP_ALIVE = "\n".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] SEPARATOR = ",\n".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] END = "]".getBytes(StandardCharsets.UTF_8);
+
+	private final RowGenerator rowGenerator;
+	private final int rowsPerSecond;
+	private final int pullQueryRows;
+	private final Chunking chunking;
+	private final Duration keepAliveInterval;
+	private final long disconnectAfterRows;
+	private final Map<String, AtomicLong> requestCounts = new ConcurrentHashMap<>();
+	private final AtomicLong queryIds = new AtomicLong();
+	private final AtomicLong pushedRows = new AtomicLong();
+	private final DisposableServer server;
+
+	private volatile Duration latency;
+	private volatile double slowRequestRate;
+	private volatile Duration slowRequestLatency;
+	private volatile double errorRate;
+	private volatile boolean healthy = true;
+
+	private KsqlDBStandInServer(Builder builder) {
+		this.rowGenerator = new RowGenerator(builder.rowWidth, builder.keyCardinality);
+		this.rowsPerSecond = builder.rowsPerSecond;
+		this.pullQueryRows = builder.pullQueryRows;
+		this.chunking = builder.chunking;
+		this.keepAliveInterval = builder.keepAliveInterval;
+		this.disconnectAfterRows = builder.disconnectAfterRows;
+		this.latency = builder.latency;
+		this.slowRequestRate = builder.slowRequestRate;
+		this.slowRequestLatency = builder.slowRequestLatency;
+		this.errorRate = builder.errorRate;
+
+		this.server = HttpServer.create().host(builder.host).port(builder.port)
+				.route(routes -> routes.post("/ksql", this::ksql).post("/query", this::query)
+						.get("/ws/query", this::webSocketQuery).get("/info", this::info)
+						.get("/healthcheck", this::healthcheck))
+				.bindNow();
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Starts a stand-in server on the port provided as first argument, 8088 by
+	 * default, and blocks until the JVM is stopped.
+	 * 
+	 * @param args optional port
+	 */
+	public static void main(String[] args) {
+		KsqlDBStandInServer server = builder().port(args.length > 0 ? Integer.parseInt(args[0]) : 8088)
+				.rowsPerSecond(args.length > 1 ? Integer.parseInt(args[1]) : 0).build();
+
+		server.server.onDispose().block();
+	}
+
+	private Mono<Void> ksql(HttpServerRequest request, HttpServerResponse response) {
+		return handle("/ksql", request, response,
+				body -> response.header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+						.sendString(Mono.just(KsqlResponses.respond(body.path("ksql").asText()))).then());
+	}
+
+	private Mono<Void> query(HttpServerRequest request, HttpServerResponse response) {
+		return handle("/query", request, response, body -> {
+			String ksql = body.path("ksql").asText();
+			Flux<byte[]> rows = isPushQuery(ksql) ? keepAlive(withSeparators(limit(pushRows())))
+					: withSeparators(pullRows(ksql)).concatWith(Mono.just(END));
+
+			Flux<byte[]> elements = Mono.just(header()).concatWith(rows);
+
+			return response.header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+					.send(chunking.chunk(elements, response.alloc())).then();
+		});
+	}
+
+	private Mono<Void> webSocketQuery(HttpServerRequest request, HttpServerResponse response) {
+		count("/ws/query");
+
+		return delay().then(Mono.defer(() -> {
+			if (shouldFail()) {
+				return sendError(response);
+			}
+
+			return response.sendWebsocket((inbound, outbound) -> sendWebSocketRows(outbound));
+		}));
+	}
+
+	private Mono<Void> sendWebSocketRows(WebsocketOutbound outbound) {
+		Flux<String> frames = Mono.just(rowGenerator.fieldsJson()).concatWith(
+				limit(pushRows()).map(row -> new String(row, StandardCharsets.UTF_8)));
+
+		return outbound.sendString(frames).then();
+	}
+
+	private Mono<Void> info(HttpServerRequest request, HttpServerResponse response) {
+		count("/info");
+
+		return response.header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+				.sendString(Mono.just("{\"KsqlServerInfo\":{\"version\":\"0.6.0\","
+						+ "\"kafkaClusterId\":\"stand-in\",\"ksqlServiceId\":\"stand_in_\"}}"))
+				.then();
+	}
+
+	private Mono<Void> healthcheck(HttpServerRequest request, HttpServerResponse response) {
+		count("/healthcheck");
+
+		boolean healthy = this.healthy;
+		String check = "{\"isHealthy\":" + healthy + "}";
+
+		return response.status(healthy ? HttpResponseStatus.OK : HttpResponseStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+				.sendString(Mono.just("{\"isHealthy\":" + healthy + ",\"details\":{\"metastore\":" + check
+						+ ",\"kafka\":" + check + "}}"))
+				.then();
+	}
+
+	private Mono<Void> handle(String path, HttpServerRequest request, HttpServerResponse response,
+			java.util.function.Function<JsonNode, Mono<Void>> handler) {
+		count(path);
+
+		return request.receive().aggregate().asString().defaultIfEmpty("{}").map(this::readTree)
+				.delayUntil(body -> delay()).flatMap(body -> shouldFail() ? sendError(response) : handler.apply(body));
+	}
+
+	private JsonNode readTree(String body) {
+		try {
+			return OBJECT_MAPPER.readTree(body);
+		} catch (Exception e) {
+			return OBJECT_MAPPER.createObjectNode();
+		}
+	}
+
+	private Mono<Void> sendError(HttpServerResponse response) {
+		return response.status(HttpResponseStatus.INTERNAL_SERVER_ERROR)
+				.header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+				.sendString(Mono.just(KsqlResponses.error(50000, "Error injected by the stand-in server."))).then();
+	}
+
+	private Mono<Long> delay() {
+		Duration delay = ThreadLocalRandom.current().nextDouble() < slowRequestRate ? slowRequestLatency : latency;
+
+		return delay.isZero() ? Mono.empty() : Mono.delay(delay);
+	}
+
+	private boolean shouldFail() {
+		return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+	}
+
+	private void count(String path) {
+		requestCounts.computeIfAbsent(path, key -> new AtomicLong()).incrementAndGet();
+	}
+
+	private static boolean isPushQuery(String ksql) {
+		return ksql.toUpperCase(Locale.ROOT).contains("EMIT CHANGES");
+	}
+
+	private byte[] header() {
+		return ("[{\"header\":{\"queryId\":\"stand_in_query_" + queryIds.incrementAndGet() + "\",\"schema\":\""
+				+ rowGenerator.schema() + "\"}}").getBytes(StandardCharsets.UTF_8);
+	}
+
+	private Flux<byte[]> pullRows(String ksql) {
+		List<String> keys = keys(ksql);
+		if (keys.isEmpty()) {
+			return Flux.range(0, pullQueryRows).map(rowGenerator::row);
+		}
+
+		return Flux.fromIterable(keys)
+				.concatMap(key -> Flux.range(0, pullQueryRows).map(index -> rowGenerator.row(index, key)));
+	}
+
+	/**
+	 * Extracts the keys of a {@code WHERE ROWKEY = 'key'} or
+	 * {@code WHERE ROWKEY IN ('key1', 'key2')} clause.
+	 */
+	static List<String> keys(String ksql) {
+		Matcher matcher = KEYS_PATTERN.matcher(ksql);
+		if (!matcher.find()) {
+			return Collections.emptyList();
+		}
+
+		List<String> keys = new ArrayList<>();
+		Matcher keyMatcher = KEY_PATTERN.matcher(matcher.group(1));
+		while (keyMatcher.find()) {
+			keys.add(keyMatcher.group(1).replace("''", "'"));
+		}
+
+		return keys;
+	}
+
+	private Flux<byte[]> pushRows() {
+		if (rowsPerSecond <= 0) {
+			return Flux.<byte[], Long>generate(() -> 0L, (index, sink) -> {
+				sink.next(rowGenerator.row(index));
+
+				return index + 1;
+			});
+		}
+
+		// Rows are emitted in batches every 10 milliseconds to sustain high rates. The
+		// rows of a tick are the ones due by its end minus the ones due by its start,
+		// so rates that are not a multiple of 100 are not truncated.
+		AtomicLong index = new AtomicLong();
+
+		return Flux.interval(Duration.ofMillis(10)).onBackpressureDrop()
+				.concatMap(tick -> Flux.range(0, rowsOfTick(tick, rowsPerSecond))
+						.map(i -> rowGenerator.row(index.getAndIncrement())), 1);
+	}
+
+	/**
+	 * @return the number of rows to emit on a tick of 10 milliseconds.
+	 */
+	static int rowsOfTick(long tick, int rowsPerSecond) {
+		return (int) ((tick + 1) * rowsPerSecond / 100 - tick * rowsPerSecond / 100);
+	}
+
+	private Flux<byte[]> limit(Flux<byte[]> rows) {
+		return (disconnectAfterRows > 0 ? rows.take(disconnectAfterRows) : rows)
+				.doOnNext(row -> pushedRows.incrementAndGet());
+	}
+
+	private static Flux<byte[]> withSeparators(Flux<byte[]> rows) {
+		return rows.map(row -> {
+			byte[] element = new byte[SEPARATOR.length + row.length];
+			System.arraycopy(SEPARATOR, 0, element, 0, SEPARATOR.length);
+			System.arraycopy(row, 0, element, SEPARATOR.length, row.length);
+
+			return element;
+		});
+	}
+
+	private Flux<byte[]> keepAlive(Flux<byte[]> elements) {
+		if (keepAliveInterval == null) {
+			return elements;
+		}
+
+		return elements.publish(shared -> Flux.merge(shared,
+				Flux.interval(keepAliveInterval).map(tick -> KEEP_ALIVE).takeUntilOther(shared.then())));
+	}
+
+	public String getHttpUrl() {
+		return "http://" + server.host() + ":" + server.port();
+	}
+
+	public String getWebSocketUrl() {
+		return "ws://" + server.host() + ":" + server.port();
+	}
+
+	public int getPort() {
+		return server.port();
+	}
+
+	/**
+	 * @param path path of an endpoint. Ex: /query
+	 * @return the number of requests received by the endpoint.
+	 */
+	public long getRequestCount(String path) {
+		AtomicLong count = requestCounts.get(path);
+
+		return count != null ? count.get() : 0;
+	}
+
+	/**
+	 * @return the number of rows generated for push queries. Rows are generated
+	 *         as the connections of the clients accept them.
+	 */
+	public long getPushedRows() {
+		return pushedRows.get();
+	}
+
+	/**
+	 * Changes the latency added before every response.
+	 * 
+	 * @param latency latency of the responses
+	 */
+	public void setLatency(Duration latency) {
+		this.latency = latency;
+	}
+
+	/**
+	 * Changes the proportion of requests answered after a longer latency, to
+	 * simulate tail latencies.
+	 * 
+	 * @param slowRequestRate    proportion of slow requests, between 0 and 1
+	 * @param slowRequestLatency latency of a slow request
+	 */
+	public void setSlowRequests(double slowRequestRate, Duration slowRequestLatency) {
+		this.slowRequestLatency = slowRequestLatency;
+		this.slowRequestRate = slowRequestRate;
+	}
+
+	/**
+	 * Changes the proportion of requests answered with an HTTP 500 error.
+	 * 
+	 * @param errorRate proportion of failed requests, between 0 and 1
+	 */
+	public void setErrorRate(double errorRate) {
+		this.errorRate = errorRate;
+	}
+
+	/**
+	 * Changes the state reported by the /healthcheck endpoint.
+	 * 
+	 * @param healthy whether the server reports itself as healthy
+	 */
+	public void setHealthy(boolean healthy) {
+		this.healthy = healthy;
+	}
+
+	@Override
+	public void dispose() {
+		server.disposeNow();
+	}
+
+	@Override
+	public boolean isDisposed() {
+		return server.isDisposed();
+	}
+
+	public static class Builder {
+		private String host = "localhost";
+		private int port;
+		private int rowWidth = 8;
+		private int keyCardinality = 1000;
+		private int rowsPerSecond;
+		private int pullQueryRows = 1;
+		private Chunking chunking = Chunking.row();
+		private Duration keepAliveInterval;
+		private long disconnectAfterRows;
+		private Duration latency = Duration.ZERO;
+		private double slowRequestRate;
+		private Duration slowRequestLatency = Duration.ZERO;
+		private double errorRate;
+
+		private Builder() {
+
+		}
+
+		public Builder host(String host) {
+			this.host = host;
+			return this;
+		}
+
+		/**
+		 * @param port port to listen on, a random port is used when 0.
+		 * @return this builder
+		 */
+		public Builder port(int port) {
+			this.port = port;
+			return this;
+		}
+
+		/**
+		 * @param rowWidth number of generated columns, in addition to ROWTIME and
+		 *                 ROWKEY
+		 * @return this builder
+		 */
+		public Builder rowWidth(int rowWidth) {
+			this.rowWidth = rowWidth;
+			return this;
+		}
+
+		/**
+		 * @param keyCardinality number of distinct keys of the push query rows
+		 * @return this builder
+		 */
+		public Builder keyCardinality(int keyCardinality) {
+			this.keyCardinality = keyCardinality;
+			return this;
+		}
+
+		/**
+		 * @param rowsPerSecond rate of the push queries, unlimited when 0
+		 * @return this builder
+		 */
+		public Builder rowsPerSecond(int rowsPerSecond) {
+			this.rowsPerSecond = rowsPerSecond;
+			return this;
+		}
+
+		/**
+		 * @param pullQueryRows number of rows returned by a pull query, per key
+		 *                      when the query filters on ROWKEY
+		 * @return this builder
+		 */
+		public Builder pullQueryRows(int pullQueryRows) {
+			this.pullQueryRows = pullQueryRows;
+			return this;
+		}
+
+		/**
+		 * @param chunking how the /query responses are split in HTTP chunks
+		 * @return this builder
+		 */
+		public Builder chunking(Chunking chunking) {
+			this.chunking = chunking;
+			return this;
+		}
+
+		/**
+		 * @param keepAliveInterval interval at which line breaks are sent on a push
+		 *                          query, none are sent when null
+		 * @return this builder
+		 */
+		public Builder keepAliveInterval(Duration keepAliveInterval) {
+			this.keepAliveInterval = keepAliveInterval;
+			return this;
+		}
+
+		/**
+		 * @param disconnectAfterRows number of rows after which a push query is
+		 *                            interrupted, never when 0
+		 * @return this builder
+		 */
+		public Builder disconnectAfterRows(long disconnectAfterRows) {
+			this.disconnectAfterRows = disconnectAfterRows;
+			return this;
+		}
+
+		/**
+		 * @param latency latency added before every response
+		 * @return this builder
+		 */
+		public Builder latency(Duration latency) {
+			this.latency = latency;
+			return this;
+		}
+
+		/**
+		 * @param slowRequestRate    proportion of requests answered with the slow
+		 *                           latency, between 0 and 1
+		 * @param slowRequestLatency latency of a slow request
+		 * @return this builder
+		 */
+		public Builder slowRequests(double slowRequestRate, Duration slowRequestLatency) {
+			this.slowRequestRate = slowRequestRate;
+			this.slowRequestLatency = slowRequestLatency;
+			return this;
+		}
+
+		/**
+		 * @param errorRate proportion of requests answered with an HTTP 500 error,
+		 *                  between 0 and 1
+		 * @return this builder
+		 */
+		public Builder errorRate(double errorRate) {
+			this.errorRate = errorRate;
+			return this;
+		}
+
+		public KsqlDBStandInServer build() {
+			return new KsqlDBStandInServer(this);
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.standin;
+
+import java.util.Locale;
+
+/**
+ * Canned responses of the /ksql endpoint, shaped like the responses of a
+ * ksqlDB 0.6 server.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+abstract class KsqlResponses {
+	static String respond(String ksql) {
+		String statement = ksql.trim();
+		String upperCase = statement.toUpperCase(Locale.ROOT);
+		String statementText = "\"statementText\":\"" + escape(statement) + "\",\"warnings\":[]";
+
+		if (upperCase.startsWith("SHOW STREAMS") || upperCase.startsWith("LIST STREAMS")) {
+			return "[{\"@type\":\"streams\"," + statementText
+					+ ",\"streams\":[{\"type\":\"STREAM\",\"name\":\"STAND_IN_STREAM\","
+					+ "\"topic\":\"stand-in\",\"format\":\"JSON\"}]}]";
+		} else if (upperCase.startsWith("SHOW TABLES") || upperCase.startsWith("LIST TABLES")) {
+			return "[{\"@type\":\"tables\"," + statementText
+					+ ",\"tables\":[{\"type\":\"TABLE\",\"name\":\"STAND_IN_TABLE\","
+					+ "\"topic\":\"STAND_IN_TABLE\",\"format\":\"JSON\",\"isWindowed\":false}]}]";
+		} else if (upperCase.startsWith("SHOW QUERIES") || upperCase.startsWith("LIST QUERIES")) {
+			return "[{\"@type\":\"queries\"," + statementText + ",\"queries\":[{\"queryString\":"
+					+ "\"CREATE TABLE STAND_IN_TABLE AS SELECT ROWKEY, COUNT(*) FROM STAND_IN_STREAM GROUP BY ROWKEY;\","
+					+ "\"sinks\":[\"STAND_IN_TABLE\"],\"id\":\"CTAS_STAND_IN_TABLE_0\"}]}]";
+		} else if (upperCase.startsWith("SHOW PROPERTIES") || upperCase.startsWith("LIST PROPERTIES")) {
+			return "[{\"@type\":\"properties\"," + statementText
+					+ ",\"properties\":{\"ksql.streams.auto.offset.reset\":\"latest\"},"
+					+ "\"overwrittenProperties\":[],\"defaultProperties\":[\"ksql.streams.auto.offset.reset\"]}]";
+		} else if (upperCase.startsWith("DESCRIBE")) {
+			return "[{\"@type\":\"sourceDescription\"," + statementText
+					+ ",\"sourceDescription\":{\"name\":\"STAND_IN_STREAM\",\"readQueries\":[],"
+					+ "\"writeQueries\":[],\"fields\":[{\"name\":\"ROWTIME\",\"schema\":{\"type\":\"BIGINT\","
+					+ "\"fields\":null,\"memberSchema\":null}},{\"name\":\"ROWKEY\",\"schema\":{\"type\":"
+					+ "\"STRING\",\"fields\":null,\"memberSchema\":null}}],\"type\":\"STREAM\",\"key\":\"\","
+					+ "\"timestamp\":\"\",\"statistics\":\"\",\"errorStats\":\"\",\"extended\":false,"
+					+ "\"format\":\"JSON\",\"topic\":\"stand-in\",\"partitions\":0,\"replication\":0}}]";
+		} else if (upperCase.startsWith("EXPLAIN")) {
+			return "[{\"@type\":\"queryDescription\"," + statementText
+					+ ",\"queryDescription\":{\"id\":\"CTAS_STAND_IN_TABLE_0\",\"state\":\"RUNNING\","
+					+ "\"statementText\":\"\",\"fields\":[],\"sources\":[\"STAND_IN_STREAM\"],"
+					+ "\"sinks\":[\"STAND_IN_TABLE\"],\"executionPlan\":\"\",\"topology\":\"\","
+					+ "\"overriddenProperties\":{}}}]";
+		}
+
+		return "[{\"@type\":\"currentStatus\"," + statementText
+				+ ",\"commandId\":\"stand-in/command/0\",\"commandStatus\":{\"status\":\"SUCCESS\","
+				+ "\"message\":\"Executed by the stand-in server.\"},\"commandSequenceNumber\":0}]";
+	}
+
+	static String error(int errorCode, String message) {
+		return "{\"@type\":\"generic_error\",\"error_code\":" + errorCode + ",\"message\":\"" + escape(message)
+				+ "\",\"stackTrace\":[]}";
+	}
+
+	static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
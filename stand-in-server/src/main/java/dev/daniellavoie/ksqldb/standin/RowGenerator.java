@@ -0,0 +1,126 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.daniellavoie.ksqldb.standin;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Generates deterministic rows for the stand-in queries. Every row starts with
+ * a {@code ROWTIME} and a {@code ROWKEY} column followed by a configurable
+ * number of columns which types cycle between STRING, BIGINT, DOUBLE, BOOLEAN
+ * and INTEGER.
+ * 
+ * @author Daniel Lavoie
+ * @since 0.2.0
+ */
+public class RowGenerator {
+	private static final String[] TYPES = { "STRING", "BIGINT", "DOUBLE", "BOOLEAN", "INTEGER" };
+	private static final long BASE_ROWTIME = 1577836800000L;
+
+	private final int width;
+	private final int keyCardinality;
+
+	public RowGenerator(int width, int keyCardinality) {
+		this.width = width;
+		this.keyCardinality = keyCardinality;
+	}
+
+	/**
+	 * @return the schema of the rows, formatted like the header of a /query
+	 *         response.
+	 */
+	public String schema() {
+		StringBuilder builder = new StringBuilder("`ROWTIME` BIGINT, `ROWKEY` STRING KEY");
+		for (int column = 0; column < width; ++column) {
+			builder.append(", `").append(columnName(column)).append("` ").append(columnType(column));
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * @return the schema of the rows, formatted like the first frame of a
+	 *         /ws/query session.
+	 */
+	public String fieldsJson() {
+		StringBuilder builder = new StringBuilder("[").append(field("ROWTIME", "BIGINT")).append(",")
+				.append(field("ROWKEY", "STRING"));
+		for (int column = 0; column < width; ++column) {
+			builder.append(",").append(field(columnName(column), columnType(column)));
+		}
+
+		return builder.append("]").toString();
+	}
+
+	private static String field(String name, String type) {
+		return "{\"name\":\"" + name + "\",\"schema\":{\"type\":\"" + type
+				+ "\",\"fields\":null,\"memberSchema\":null}}";
+	}
+
+	public String key(long index) {
+		return "key-" + (index % keyCardinality);
+	}
+
+	/**
+	 * @param index sequence number of the row
+	 * @return a row keyed on {@link #key(long)}.
+	 */
+	public byte[] row(long index) {
+		return row(index, key(index));
+	}
+
+	/**
+	 * @param index sequence number of the row
+	 * @param key   value of the ROWKEY column
+	 * @return the row serialized as a query response element.
+	 */
+	public byte[] row(long index, String key) {
+		StringBuilder builder = new StringBuilder(32 + width * 12).append("{\"row\":{\"columns\":[")
+				.append(BASE_ROWTIME + index).append(",\"").append(key).append('"');
+
+		for (int column = 0; column < width; ++column) {
+			builder.append(',');
+
+			switch (column % TYPES.length) {
+			case 0:
+				builder.append("\"value-").append(index).append('-').append(column).append('"');
+				break;
+			case 1:
+				builder.append(index * 31 + column);
+				break;
+			case 2:
+				builder.append(index + column / 100.0);
+				break;
+			case 3:
+				builder.append((index + column) % 2 == 0);
+				break;
+			default:
+				builder.append((int) (index % Integer.MAX_VALUE));
+			}
+		}
+
+		return builder.append("]}}").toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String columnName(int column) {
+		return "COL_" + column;
+	}
+
+	private static String columnType(int column) {
+		return TYPES[column % TYPES.length];
+	}
+}
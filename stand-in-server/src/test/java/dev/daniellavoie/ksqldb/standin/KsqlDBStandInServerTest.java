@@ -0,0 +1,54 @@
+/*
+ * Copyright 2012-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.daniellavoie.ksqldb.standin;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class KsqlDBStandInServerTest {
+	@Test
+	public void emitExactRatePerSecond() {
+		for (int rowsPerSecond : new int[] { 1, 30, 99, 100, 150, 250, 999, 100_000 }) {
+			long rows = 0;
+			for (long tick = 0; tick < 100; ++tick) {
+				rows += KsqlDBStandInServer.rowsOfTick(tick, rowsPerSecond);
+			}
+
+			Assertions.assertEquals(rowsPerSecond, rows, "rows emitted in a second at " + rowsPerSecond + " rows/s");
+		}
+	}
+
+	@Test
+	public void spreadRowsAcrossTicks() {
+		for (long tick = 0; tick < 100; ++tick) {
+			int rows = KsqlDBStandInServer.rowsOfTick(tick, 250);
+
+			Assertions.assertTrue(rows == 2 || rows == 3, rows + " rows on tick " + tick);
+		}
+	}
+
+	@Test
+	public void extractKeys() {
+		Assertions.assertEquals(Collections.singletonList("a"),
+				KsqlDBStandInServer.keys("SELECT * FROM T WHERE ROWKEY = 'a';"));
+		Assertions.assertEquals(Arrays.asList("a", "b'c"),
+				KsqlDBStandInServer.keys("SELECT * FROM T WHERE ROWKEY IN ('a', 'b''c');"));
+		Assertions.assertEquals(Collections.emptyList(), KsqlDBStandInServer.keys("SELECT * FROM T;"));
+	}
+}